@@ -1,10 +1,10 @@
 package com.finvolv.selldown.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.finvolv.selldown.mapper.PostgresJsonToListConverter;
+import com.finvolv.selldown.mapper.PostgresBigintArrayToSplitConverter;
 import com.finvolv.selldown.mapper.PostgresJsonToMapConverter;
-import com.finvolv.selldown.mapper.PostgresListToJsonConverter;
 import com.finvolv.selldown.mapper.PostgresMapToJsonConverter;
+import com.finvolv.selldown.mapper.PostgresSplitToBigintArrayConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
@@ -22,8 +22,8 @@ public class R2dbcConfig {
         return R2dbcCustomConversions.of(dialect, Arrays.asList(
                 new PostgresJsonToMapConverter(objectMapper),
                 new PostgresMapToJsonConverter(objectMapper),
-                new PostgresJsonToListConverter(objectMapper),
-                new PostgresListToJsonConverter(objectMapper)
+                new PostgresBigintArrayToSplitConverter(),
+                new PostgresSplitToBigintArrayConverter()
         ));
     }
 }
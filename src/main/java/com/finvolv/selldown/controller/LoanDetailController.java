@@ -1,8 +1,14 @@
 
 package com.finvolv.selldown.controller;
 
+import com.finvolv.selldown.dto.CursorPage;
 import com.finvolv.selldown.dto.ExcelGenerationResponse;
-import com.finvolv.selldown.dto.OpeningPosDiscrepancy;
+import com.finvolv.selldown.dto.MonthCloseResponse;
+import com.finvolv.selldown.dto.SellerReplayResponse;
+import com.finvolv.selldown.dto.SellerSimulationRequest;
+import com.finvolv.selldown.dto.SellerSimulationResponse;
+import com.finvolv.selldown.exception.DealNotFoundException;
+import com.finvolv.selldown.exception.ReportRenderCapacityException;
 import com.finvolv.selldown.model.LoanDetail;
 import com.finvolv.selldown.model.MonthlyDealProcessingStatus;
 import com.finvolv.selldown.model.MonthlyDealStatus;
@@ -12,30 +18,36 @@ import com.finvolv.selldown.model.SSRSFileDataEntity;
 import com.finvolv.selldown.repository.LoanDetailRepository;
 import com.finvolv.selldown.repository.MonthlyDealProcessingStatusRepository;
 import com.finvolv.selldown.repository.MonthlyLMSStatusRepository;
-import com.finvolv.selldown.repository.PartnerPayoutDetailsAllRepository;
 import com.finvolv.selldown.service.PartnerPayoutDetailsAllService;
 import com.finvolv.selldown.service.ExcelExportService;
+import com.finvolv.selldown.service.ExcelGenerationService;
 import com.finvolv.selldown.service.SSRSExcelExportService;
 import com.finvolv.selldown.service.SSRSFileService;
 import com.finvolv.selldown.service.DocumentUploadService;
 import com.finvolv.selldown.service.LoanDetailService;
+import com.finvolv.selldown.service.MonthCloseService;
+import com.finvolv.selldown.service.ReportCacheService;
+import com.finvolv.selldown.service.ReportCacheService.ReportType;
+import com.finvolv.selldown.service.ReportCacheService.ReportVersion;
+import com.finvolv.selldown.service.SellerReplayService;
+import com.finvolv.selldown.service.SellerSimulationService;
 import com.finvolv.selldown.service.LoanDetailService.LoanDetailInputForDeal;
 import com.finvolv.selldown.service.LoanDetailService.LoanDetailInputForPartner;
 import com.finvolv.selldown.service.LoanDetailService.LoanDetailModification;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import java.time.LocalDate;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/loan-details")
@@ -50,12 +62,16 @@ public class LoanDetailController {
     private final LoanDetailRepository loanDetailRepository;
     private final MonthlyDealProcessingStatusRepository monthlyDealProcessingStatusRepository;
     private final com.finvolv.selldown.repository.CustomerRepository customerRepository;
-    private final PartnerPayoutDetailsAllRepository partnerPayoutDetailsAllRepository;
     private final PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
+    private final ExcelGenerationService excelGenerationService;
+    private final MonthCloseService monthCloseService;
+    private final SellerReplayService sellerReplayService;
+    private final SellerSimulationService sellerSimulationService;
     private final ExcelExportService excelExportService;
     private final SSRSExcelExportService ssrsExcelExportService;
     private final SSRSFileService ssrsFileService;
     private final DocumentUploadService documentUploadService;
+    private final ReportCacheService reportCacheService;
 
     @PostMapping(
         path = "/partners/{partnerId}/bulk",
@@ -195,18 +211,36 @@ public class LoanDetailController {
     }
 
 
+    /**
+     * Generates the month's payout data. view=summary leaves out the loan detail and payout rows,
+     * which can be read with the paginated or NDJSON sub-resources below.
+     */
     @GetMapping(value = "/excel-generation/deal/{dealId}/partner/{partnerId}/year/{year}/month/{month}",
                 produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<ExcelGenerationResponse>> generateExcel(
         @PathVariable Long dealId,
         @PathVariable Long partnerId,
         @PathVariable Integer year,
-        @PathVariable Integer month
+        @PathVariable Integer month,
+        @RequestParam(value = "view", required = false, defaultValue = "full") String view
     ) {
-        logger.info("Received Excel generation request - dealId: {}, partnerId: {}, year: {}, month: {}", 
-            dealId, partnerId, year, month);
+        logger.info("Received Excel generation request - dealId: {}, partnerId: {}, year: {}, month: {}, view: {}", 
+            dealId, partnerId, year, month, view);
         
-        return generateExcelData(dealId, partnerId, year, month)
+        if (!"full".equalsIgnoreCase(view) && !"summary".equalsIgnoreCase(view)) {
+            return Mono.just(ResponseEntity.badRequest().body(ExcelGenerationResponse.builder()
+                .dealId(dealId)
+                .partnerId(partnerId)
+                .year(year)
+                .month(month)
+                .message("view must be full or summary")
+                .success(false)
+                .build()));
+        }
+        boolean summary = "summary".equalsIgnoreCase(view);
+        
+        return excelGenerationService.generateExcelData(dealId, partnerId, year, month)
+            .map(response -> summary ? ExcelGenerationService.summary(response) : response)
             .doOnNext(response -> logger.info("Received response from generateExcelData: success={}, discrepancyCount={}", 
                 response.isSuccess(), response.getDiscrepancyCount()))
             .map(response -> {
@@ -226,6 +260,168 @@ public class LoanDetailController {
                 .build()));
     }
 
+    /**
+     * Page of the deal/partner's loan details; pass nextCursor of a page as afterId for the next one
+     */
+    @GetMapping(value = "/excel-generation/deal/{dealId}/partner/{partnerId}/year/{year}/month/{month}/loan-details",
+                produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<CursorPage<LoanDetail>>> getExcelLoanDetailsPage(
+        @PathVariable Long dealId,
+        @PathVariable Long partnerId,
+        @PathVariable Integer year,
+        @PathVariable Integer month,
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "limit", required = false, defaultValue = "500") Integer limit
+    ) {
+        return excelGenerationService.getLoanDetailsPage(dealId, partnerId, afterId, limit)
+            .map(ResponseEntity::ok)
+            .onErrorResume(IllegalArgumentException.class, error -> Mono.just(ResponseEntity.badRequest().build()))
+            .doOnError(error -> logger.error("Error fetching loan details page - dealId: {}, partnerId: {}: {}",
+                dealId, partnerId, error.getMessage(), error));
+    }
+
+    @GetMapping(value = "/excel-generation/deal/{dealId}/partner/{partnerId}/year/{year}/month/{month}/loan-details",
+                produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<LoanDetail> streamExcelLoanDetails(
+        @PathVariable Long dealId,
+        @PathVariable Long partnerId,
+        @PathVariable Integer year,
+        @PathVariable Integer month
+    ) {
+        return excelGenerationService.streamLoanDetails(dealId, partnerId)
+            .doOnError(error -> logger.error("Error streaming loan details - dealId: {}, partnerId: {}: {}",
+                dealId, partnerId, error.getMessage(), error));
+    }
+
+    /**
+     * Page of the month's payout details matched to the deal/partner; pass nextCursor of a page as afterId for the next one
+     */
+    @GetMapping(value = "/excel-generation/deal/{dealId}/partner/{partnerId}/year/{year}/month/{month}/payout-details",
+                produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<CursorPage<PartnerPayoutDetailsAll>>> getExcelPayoutDetailsPage(
+        @PathVariable Long dealId,
+        @PathVariable Long partnerId,
+        @PathVariable Integer year,
+        @PathVariable Integer month,
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "limit", required = false, defaultValue = "500") Integer limit
+    ) {
+        return excelGenerationService.getPayoutDetailsPage(dealId, partnerId, year, month, afterId, limit)
+            .map(ResponseEntity::ok)
+            .onErrorResume(IllegalArgumentException.class, error -> Mono.just(ResponseEntity.badRequest().build()))
+            .doOnError(error -> logger.error("Error fetching payout details page - dealId: {}, partnerId: {}, year: {}, month: {}: {}",
+                dealId, partnerId, year, month, error.getMessage(), error));
+    }
+
+    @GetMapping(value = "/excel-generation/deal/{dealId}/partner/{partnerId}/year/{year}/month/{month}/payout-details",
+                produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PartnerPayoutDetailsAll> streamExcelPayoutDetails(
+        @PathVariable Long dealId,
+        @PathVariable Long partnerId,
+        @PathVariable Integer year,
+        @PathVariable Integer month
+    ) {
+        return excelGenerationService.streamPayoutDetails(dealId, partnerId, year, month)
+            .doOnError(error -> logger.error("Error streaming payout details - dealId: {}, partnerId: {}, year: {}, month: {}: {}",
+                dealId, partnerId, year, month, error.getMessage(), error));
+    }
+
+    /**
+     * Runs the excel generation processing for every deal/partner with loan details, concurrently,
+     * and reports per-deal results and timings. 400 when the month has no LMS status, 500 when no deal could be processed
+     */
+    @PostMapping(value = "/month-close/year/{year}/month/{month}",
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<MonthCloseResponse>> closeMonth(
+        @PathVariable Integer year,
+        @PathVariable Integer month
+    ) {
+        logger.info("Received month close request - year: {}, month: {}", year, month);
+
+        return monthCloseService.closeMonth(year, month)
+            .map(response -> response.isSuccess() || response.getTotalDeals() > 0
+                ? ResponseEntity.ok(response)
+                : ResponseEntity.status(500).body(response))
+            .onErrorResume(IllegalArgumentException.class, error -> {
+                logger.warn("Month close rejected - year: {}, month: {}: {}", year, month, error.getMessage());
+                return Mono.just(ResponseEntity.badRequest().body(MonthCloseResponse.builder()
+                    .year(year)
+                    .month(month)
+                    .deals(List.of())
+                    .message(error.getMessage())
+                    .success(false)
+                    .build()));
+            });
+    }
+
+    /**
+     * Recalculates the deal's seller fields for every month of the range in order, carrying the
+     * overdue interest forward in memory. With dryRun=true nothing is saved and the field-level
+     * differences are returned instead.
+     */
+    @PostMapping(value = "/seller-replay/deal/{dealId}",
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<SellerReplayResponse>> replaySellerFields(
+        @PathVariable Long dealId,
+        @RequestParam Integer fromYear,
+        @RequestParam Integer fromMonth,
+        @RequestParam Integer toYear,
+        @RequestParam Integer toMonth,
+        @RequestParam(required = false, defaultValue = "false") Boolean dryRun
+    ) {
+        logger.info("Received seller replay request - dealId: {}, from: {}-{}, to: {}-{}, dryRun: {}",
+            dealId, fromYear, fromMonth, toYear, toMonth, dryRun);
+
+        return sellerReplayService.replay(dealId, fromYear, fromMonth, toYear, toMonth, Boolean.TRUE.equals(dryRun))
+            .map(ResponseEntity::ok)
+            .doOnError(error -> logger.error("Error in seller replay - dealId: {}: {}", dealId, error.getMessage(), error))
+            .onErrorResume(error -> Mono.just(ResponseEntity
+                .status(error instanceof IllegalArgumentException ? 400
+                    : error instanceof DealNotFoundException ? 404 : 500)
+                .body(SellerReplayResponse.builder()
+                    .dealId(dealId)
+                    .fromYear(fromYear)
+                    .fromMonth(fromMonth)
+                    .toYear(toYear)
+                    .toMonth(toMonth)
+                    .dryRun(Boolean.TRUE.equals(dryRun))
+                    .message(error.getMessage())
+                    .success(false)
+                    .build())));
+    }
+
+    /**
+     * Seller totals of the deal's month under each scenario (rate, assign ratio, interest method)
+     * and their deltas to the deal as it is. Read-only: nothing is saved.
+     */
+    @PostMapping(value = "/seller-simulation/deal/{dealId}/year/{year}/month/{month}",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<SellerSimulationResponse>> simulateSellerFields(
+        @PathVariable Long dealId,
+        @PathVariable Integer year,
+        @PathVariable Integer month,
+        @RequestBody SellerSimulationRequest request
+    ) {
+        int scenarioCount = request.getScenarios() != null ? request.getScenarios().size() : 0;
+        logger.info("Received seller simulation request - dealId: {}, year: {}, month: {}, scenarios: {}",
+            dealId, year, month, scenarioCount);
+
+        return sellerSimulationService.simulate(dealId, year, month, request.getScenarios())
+            .map(ResponseEntity::ok)
+            .doOnError(error -> logger.error("Error in seller simulation - dealId: {}: {}", dealId, error.getMessage(), error))
+            .onErrorResume(error -> Mono.just(ResponseEntity
+                .status(error instanceof IllegalArgumentException ? 400
+                    : error instanceof DealNotFoundException ? 404 : 500)
+                .body(SellerSimulationResponse.builder()
+                    .dealId(dealId)
+                    .year(year)
+                    .month(month)
+                    .message(error.getMessage())
+                    .success(false)
+                    .build())));
+    }
+
     @GetMapping(value = "/excel-generation-file/deal/{dealId}/partner/{partnerId}/year/{year}/month/{month}")
     public Mono<ResponseEntity<?>> downloadOrUploadExcel(
         @RequestHeader(value = "Authorization", required = false) String authorization,
@@ -235,70 +431,99 @@ public class LoanDetailController {
         @PathVariable Integer year,
         @PathVariable Integer month
     ) {
-        return generateExcelData(dealId, partnerId, year, month)
-            .flatMap(resp -> {
-                List<PartnerPayoutDetailsAll> payouts = resp.getMatchedPayoutDetails();
-                if (payouts == null || payouts.isEmpty()) {
-                    return Mono.just(ResponseEntity.badRequest().body(Map.of(
-                        "success", false,
-                        "message", "No payout details found"
-                    )));
-                }
-                
-                return partnerPayoutDetailsAllService.getDealById(dealId)
-                    .flatMap(deal -> customerNameFromDeal(deal.getCustomerId())
-                        .flatMap(partnerName -> {
-                            String dealName = sanitizeForFilename(deal.getName());
-                            String sanitizedPartnerName = sanitizeForFilename(partnerName);
-                            String monthName = getMonthName(month);
-                            String filename = String.format("partner-payout-%s-%s-%d-%s.xlsx", 
-                                dealName, sanitizedPartnerName, year, monthName);
-                            
-                            return excelExportService.buildPartnerPayoutReport(payouts, dealId, partnerId)
-                                .flatMap(bytes -> {
-                                    if (Boolean.TRUE.equals(upload)) {
-                                        if (authorization == null || authorization.isBlank()) {
-                                            return Mono.just(ResponseEntity.badRequest().body(Map.of(
-                                                "success", false,
-                                                "message", "Authorization header is required for upload=true"
-                                            )));
-                                        }
-
-                                        return documentUploadService.generateUploadId(authorization, partnerName, deal.getName(), year, month)
-                                            .flatMap(generatedId -> documentUploadService.uploadExcel(authorization, generatedId, bytes, filename)
-                                                .then(
-                                                    monthlyDealProcessingStatusRepository
-                                                        .findByDealIdAndPartnerIdAndYearAndMonth(dealId, partnerId, year, month)
-                                                        .flatMap(status -> {
-                                                            status.setStatus(MonthlyDealStatus.PAYOUT_FILE_GENERATED);
-                                                            status.setModifiedAt(LocalDateTime.now());
-                                                            return monthlyDealProcessingStatusRepository.save(status);
-                                                        })
-                                                )
-                                                .thenReturn(ResponseEntity.ok(Map.of(
-                                                    "success", true,
-                                                    "generatedId", generatedId,
-                                                    "message", "File uploaded successfully"
-                                                ))));
-                                    }
-
-                                    // Update status to PAYOUT_FILE_GENERATED for successful generation (download flow)
-                                    return monthlyDealProcessingStatusRepository
-                                        .findByDealIdAndPartnerIdAndYearAndMonth(dealId, partnerId, year, month)
-                                        .flatMap(status -> {
-                                            status.setStatus(MonthlyDealStatus.PAYOUT_FILE_GENERATED);
-                                            status.setModifiedAt(LocalDateTime.now());
-                                            return monthlyDealProcessingStatusRepository.save(status);
-                                        })
-                                        .then(Mono.fromSupplier(() ->
-                                            ResponseEntity.ok()
-                                                .header("Content-Disposition", "attachment; filename=" + filename)
-                                                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                                                .body(bytes)
-                                        ));
-                                });
-                        }));
-            });
+        if (Boolean.TRUE.equals(upload) && (authorization == null || authorization.isBlank())) {
+            return authorizationRequired();
+        }
+
+        return reportCacheService.currentVersion(ReportType.PARTNER_PAYOUT, dealId, partnerId, year, month)
+            .flatMap(version -> Boolean.TRUE.equals(upload)
+                ? uploadPartnerPayoutReport(authorization, dealId, partnerId, year, month, version)
+                : downloadPartnerPayoutReport(dealId, partnerId, year, month, version))
+            .onErrorResume(LoanDetailController::isReportRenderCapacityError, this::reportRenderCapacityExceeded);
+    }
+
+    private Mono<ResponseEntity<?>> downloadPartnerPayoutReport(Long dealId, Long partnerId, Integer year, Integer month,
+                                                                ReportVersion version) {
+        return reportCacheService.get(version)
+            // Unchanged since the cached report was built: no recalculation and no status update
+            .<ResponseEntity<?>>flatMap(bytes -> partnerPayoutFilename(dealId, year, month)
+                .map(filename -> excelResponse(filename, bytes)))
+            .switchIfEmpty(Mono.defer(() -> excelGenerationService.generateExcelData(dealId, partnerId, year, month)
+                .<ResponseEntity<?>>flatMap(resp -> {
+                    List<PartnerPayoutDetailsAll> payouts = resp.getMatchedPayoutDetails();
+                    if (payouts == null || payouts.isEmpty()) {
+                        return noPayoutDetails();
+                    }
+
+                    return excelExportService.buildPartnerPayoutReport(payouts, dealId, partnerId)
+                        .flatMap(bytes -> markPayoutFileGenerated(dealId, partnerId, year, month)
+                            .then(Mono.defer(() -> reportCacheService.put(version, bytes)))
+                            .then(partnerPayoutFilename(dealId, year, month))
+                            .map(filename -> excelResponse(filename, bytes)));
+                })));
+    }
+
+    /**
+     * Uploads the partner payout workbook as a stream: a cached file is read in chunks, a new
+     * workbook is rendered into a cache file first and then read from it, so the upload never
+     * holds the whole workbook in memory or a report worker. A new workbook also marks the month
+     * PAYOUT_FILE_GENERATED and is then stored in the report cache.
+     */
+    private Mono<ResponseEntity<?>> uploadPartnerPayoutReport(String authorization, Long dealId, Long partnerId,
+                                                              Integer year, Integer month, ReportVersion version) {
+        return reportCacheService.find(version)
+            // Unchanged since the cached report was built: no recalculation and no status update
+            .flatMap(file -> uploadPartnerPayout(authorization, dealId, year, month, ReportCacheService.read(file)))
+            .switchIfEmpty(Mono.defer(() -> excelGenerationService.generateExcelData(dealId, partnerId, year, month)
+                .<ResponseEntity<?>>flatMap(resp -> {
+                    List<PartnerPayoutDetailsAll> payouts = resp.getMatchedPayoutDetails();
+                    if (payouts == null || payouts.isEmpty()) {
+                        return noPayoutDetails();
+                    }
+
+                    Path cacheFile = reportCacheService.newTempFile();
+                    return uploadPartnerPayout(authorization, dealId, year, month,
+                            excelExportService.streamPartnerPayoutReport(payouts, dealId, partnerId, cacheFile))
+                        .flatMap(response -> markPayoutFileGenerated(dealId, partnerId, year, month)
+                            .then(reportCacheService.putFile(version, cacheFile))
+                            .thenReturn(response))
+                        .doOnError(error -> reportCacheService.discard(cacheFile))
+                        .doOnCancel(() -> reportCacheService.discard(cacheFile));
+                })));
+    }
+
+    private Mono<ResponseEntity<?>> uploadPartnerPayout(String authorization, Long dealId, Integer year, Integer month,
+                                                        Flux<DataBuffer> content) {
+        return partnerPayoutDetailsAllService.getDealById(dealId)
+            .flatMap(deal -> customerNameFromDeal(deal.getCustomerId())
+                .flatMap(partnerName -> {
+                    String filename = reportFilename("partner-payout", deal.getName(), partnerName, year, month);
+                    return documentUploadService.generateUploadId(authorization, partnerName, deal.getName(), year, month)
+                        .flatMap(generatedId -> documentUploadService.uploadExcel(authorization, generatedId, content, filename)
+                            .thenReturn(ResponseEntity.ok(Map.of(
+                                "success", true,
+                                "generatedId", generatedId,
+                                "message", "File uploaded successfully"
+                            ))));
+                }));
+    }
+
+    private Mono<String> partnerPayoutFilename(Long dealId, Integer year, Integer month) {
+        return partnerPayoutDetailsAllService.getDealById(dealId)
+            .flatMap(deal -> customerNameFromDeal(deal.getCustomerId())
+                .map(partnerName -> reportFilename("partner-payout", deal.getName(), partnerName, year, month)));
+    }
+
+    // Update status to PAYOUT_FILE_GENERATED for successful generation
+    private Mono<Void> markPayoutFileGenerated(Long dealId, Long partnerId, Integer year, Integer month) {
+        return monthlyDealProcessingStatusRepository
+            .findByDealIdAndPartnerIdAndYearAndMonth(dealId, partnerId, year, month)
+            .flatMap(status -> {
+                status.setStatus(MonthlyDealStatus.PAYOUT_FILE_GENERATED);
+                status.setModifiedAt(LocalDateTime.now());
+                return monthlyDealProcessingStatusRepository.save(status);
+            })
+            .then();
     }
 
     @GetMapping(value = "/excel-generation-file/finance/deal/{dealId}/partner/{partnerId}/year/{year}/month/{month}")
@@ -312,95 +537,152 @@ public class LoanDetailController {
     ) {
         logger.info("Received SSRS Excel generation request - dealId: {}, partnerId: {}, year: {}, month: {}", 
             dealId, partnerId, year, month);
-        
-        // Step 1: Get loan details for deal and partner
-        return loanDetailRepository.findByDealIdAndPartnerId(dealId, partnerId)
-            .collectList()
-            .flatMap(loanDetails -> {
-                logger.info("Found {} loan details for dealId: {}, partnerId: {}", loanDetails.size(), dealId, partnerId);
-                
-                if (loanDetails.isEmpty()) {
+
+        if (Boolean.TRUE.equals(upload) && (authorization == null || authorization.isBlank())) {
+            return authorizationRequired();
+        }
+
+        return reportCacheService.currentVersion(ReportType.SSRS_FINANCE, dealId, partnerId, year, month)
+            .flatMap(version -> Boolean.TRUE.equals(upload)
+                ? reportCacheService.find(version)
+                    .flatMap(file -> uploadSSRSReport(authorization, dealId, year, month, ReportCacheService.read(file)))
+                    .switchIfEmpty(Mono.defer(() -> buildAndSendSSRSReport(authorization, upload, dealId, partnerId, year, month, version)))
+                : reportCacheService.get(version)
+                    .flatMap(bytes -> downloadSSRSReport(dealId, year, month, bytes))
+                    .switchIfEmpty(Mono.defer(() -> buildAndSendSSRSReport(authorization, upload, dealId, partnerId, year, month, version))))
+            .doOnError(error -> logger.error("Error generating SSRS Excel - dealId: {}, partnerId: {}, year: {}, month: {}: {}", 
+                dealId, partnerId, year, month, error.getMessage(), error))
+            .onErrorResume(LoanDetailController::isReportRenderCapacityError, this::reportRenderCapacityExceeded);
+    }
+
+    // A render rejection can arrive wrapped, e.g. by the WebClient when it fails a streamed upload body
+    private static boolean isReportRenderCapacityError(Throwable error) {
+        return renderCapacityError(error) != null;
+    }
+
+    private static ReportRenderCapacityException renderCapacityError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ReportRenderCapacityException capacityError) {
+                return capacityError;
+            }
+        }
+        return null;
+    }
+
+    // All report workers busy and the render queue full: the client should retry later
+    private Mono<ResponseEntity<?>> reportRenderCapacityExceeded(Throwable error) {
+        return Mono.just(ResponseEntity.status(429)
+            .header("Retry-After", "30")
+            .body(Map.of(
+                "success", false,
+                "message", renderCapacityError(error).getMessage()
+            )));
+    }
+
+    private Mono<ResponseEntity<?>> buildAndSendSSRSReport(String authorization, Boolean upload, Long dealId, Long partnerId,
+                                                           Integer year, Integer month, ReportVersion version) {
+        // Step 1: Check the deal and partner have loan details
+        return loanDetailRepository.existsByDealIdAndPartnerId(dealId, partnerId)
+            .flatMap(hasLoanDetails -> {
+                if (!hasLoanDetails) {
+                    logger.info("Found no loan details for dealId: {}, partnerId: {}", dealId, partnerId);
                     return Mono.just(ResponseEntity.badRequest().body(Map.of(
                         "success", false,
                         "message", "No loan details found"
                     )));
                 }
                 
-                // Step 2: Get SSRS data for year and month
-                return ssrsFileService.getSSRSFileDataByYearAndMonth(year, month)
-                    .collectList()
-                    .flatMap(ssrsDataList -> {
-                        logger.info("Found {} SSRS records for year: {}, month: {}", ssrsDataList.size(), year, month);
-                        
-                        if (ssrsDataList.isEmpty()) {
+                // Step 2: Check there is SSRS data for year and month
+                return ssrsFileService.hasSSRSFileData(year, month)
+                    .flatMap(hasSSRSData -> {
+                        if (!hasSSRSData) {
+                            logger.info("Found no SSRS records for year: {}, month: {}", year, month);
                             return Mono.just(ResponseEntity.badRequest().body(Map.of(
                                 "success", false,
                                 "message", "No SSRS data found for the specified year and month"
                             )));
                         }
                         
-                        // Step 3: Match loan details with SSRS data by lmsLan
-                        List<String> loanLans = loanDetails.stream()
-                            .map(LoanDetail::getLmsLan)
-                            .filter(lan -> lan != null && !lan.trim().isEmpty())
-                            .toList();
+                        // Step 3: Match loan details with SSRS data by lmsLan, joined in the database
+                        return ssrsFileService.getMatchedSSRSFileData(year, month, dealId, partnerId)
+                            .collectList()
+                            .flatMap(matchedSSRSData -> {
+                                logger.info("Matched {} SSRS records with loan details", matchedSSRSData.size());
                         
-                        List<SSRSFileDataEntity> matchedSSRSData = ssrsDataList.stream()
-                            .filter(ssrs -> loanLans.contains(ssrs.getLmsLan()))
-                            .toList();
+                                if (matchedSSRSData.isEmpty()) {
+                                    return Mono.just(ResponseEntity.badRequest().body(Map.of(
+                                        "success", false,
+                                        "message", "No matching SSRS data found for loan details"
+                                    )));
+                                }
                         
-                        logger.info("Matched {} SSRS records with loan details", matchedSSRSData.size());
-                        
-                        if (matchedSSRSData.isEmpty()) {
-                            return Mono.just(ResponseEntity.badRequest().body(Map.of(
-                                "success", false,
-                                "message", "No matching SSRS data found for loan details"
-                            )));
-                        }
-                        
-                        // Step 4: Generate Excel - Get deal and partner names for filename
-                        return partnerPayoutDetailsAllService.getDealById(dealId)
-                            .flatMap(deal -> customerNameFromDeal(deal.getCustomerId())
-                                .flatMap(partnerName -> {
-                                    String dealName = sanitizeForFilename(deal.getName());
-                                    String sanitizedPartnerName = sanitizeForFilename(partnerName);
-                                    String monthName = getMonthName(month);
-                                    String filename = String.format("ssrs-finance-%s-%s-%d-%s.xlsx", 
-                                        dealName, sanitizedPartnerName, year, monthName);
-                                    
-                                    return ssrsExcelExportService.buildSSRSReport(matchedSSRSData, year, month, dealId)
-                                        .flatMap(bytes -> {
-                                            if (Boolean.TRUE.equals(upload)) {
-                                                if (authorization == null || authorization.isBlank()) {
-                                                    return Mono.just(ResponseEntity.badRequest().body(Map.of(
-                                                        "success", false,
-                                                        "message", "Authorization header is required for upload=true"
-                                                    )));
-                                                }
-
-                                                return documentUploadService.generateUploadIdForFinance(
-                                                        authorization, partnerName, deal.getName(), year, month)
-                                                    .flatMap(generatedId -> documentUploadService.uploadExcel(authorization, generatedId, bytes, filename)
-                                                        .thenReturn(ResponseEntity.ok(Map.of(
-                                                            "success", true,
-                                                            "generatedId", generatedId,
-                                                            "message", "SSRS finance file uploaded successfully"
-                                                        ))));
-                                            }
-
-                                            // Download flow
-                                            return Mono.fromSupplier(() ->
-                                                ResponseEntity.ok()
-                                                    .header("Content-Disposition", "attachment; filename=" + filename)
-                                                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                                                    .body(bytes)
-                                            );
-                                        });
-                                }));
+                                // Step 4: Generate Excel and upload it from the rendered file, or return it; either
+                                // way it is stored in the report cache
+                                if (Boolean.TRUE.equals(upload)) {
+                                    Path cacheFile = reportCacheService.newTempFile();
+                                    return uploadSSRSReport(authorization, dealId, year, month,
+                                            ssrsExcelExportService.streamSSRSReport(matchedSSRSData, year, month, dealId, cacheFile))
+                                        .flatMap(response -> reportCacheService.putFile(version, cacheFile).thenReturn(response))
+                                        .doOnError(error -> reportCacheService.discard(cacheFile))
+                                        .doOnCancel(() -> reportCacheService.discard(cacheFile));
+                                }
+                                return ssrsExcelExportService.buildSSRSReport(matchedSSRSData, year, month, dealId)
+                                    .flatMap(bytes -> reportCacheService.put(version, bytes).thenReturn(bytes))
+                                    .flatMap(bytes -> downloadSSRSReport(dealId, year, month, bytes));
+                            });
                     });
-            })
-            .doOnError(error -> logger.error("Error generating SSRS Excel - dealId: {}, partnerId: {}, year: {}, month: {}: {}", 
-                dealId, partnerId, year, month, error.getMessage(), error));
+            });
+    }
+
+    private Mono<ResponseEntity<?>> uploadSSRSReport(String authorization, Long dealId, Integer year, Integer month,
+                                                     Flux<DataBuffer> content) {
+        // Get deal and partner names for filename
+        return partnerPayoutDetailsAllService.getDealById(dealId)
+            .flatMap(deal -> customerNameFromDeal(deal.getCustomerId())
+                .flatMap(partnerName -> {
+                    String filename = reportFilename("ssrs-finance", deal.getName(), partnerName, year, month);
+                    return documentUploadService.generateUploadIdForFinance(
+                            authorization, partnerName, deal.getName(), year, month)
+                        .flatMap(generatedId -> documentUploadService.uploadExcel(authorization, generatedId, content, filename)
+                            .thenReturn(ResponseEntity.ok(Map.of(
+                                "success", true,
+                                "generatedId", generatedId,
+                                "message", "SSRS finance file uploaded successfully"
+                            ))));
+                }));
+    }
+
+    private Mono<ResponseEntity<?>> downloadSSRSReport(Long dealId, Integer year, Integer month, byte[] bytes) {
+        return partnerPayoutDetailsAllService.getDealById(dealId)
+            .flatMap(deal -> customerNameFromDeal(deal.getCustomerId())
+                .map(partnerName -> excelResponse(
+                    reportFilename("ssrs-finance", deal.getName(), partnerName, year, month), bytes)));
+    }
+
+    private String reportFilename(String prefix, String dealName, String partnerName, Integer year, Integer month) {
+        return String.format("%s-%s-%s-%d-%s.xlsx", prefix,
+            sanitizeForFilename(dealName), sanitizeForFilename(partnerName), year, getMonthName(month));
+    }
+
+    private ResponseEntity<?> excelResponse(String filename, byte[] bytes) {
+        return ResponseEntity.ok()
+            .header("Content-Disposition", "attachment; filename=" + filename)
+            .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+            .body(bytes);
+    }
+
+    private Mono<ResponseEntity<?>> authorizationRequired() {
+        return Mono.just(ResponseEntity.badRequest().body(Map.of(
+            "success", false,
+            "message", "Authorization header is required for upload=true"
+        )));
+    }
+
+    private Mono<ResponseEntity<?>> noPayoutDetails() {
+        return Mono.just(ResponseEntity.badRequest().body(Map.of(
+            "success", false,
+            "message", "No payout details found"
+        )));
     }
 
     // Removed separate upload endpoint per request; unified into the single endpoint above controlled by ?upload=true
@@ -420,201 +702,4 @@ public class LoanDetailController {
         }
         return name.replaceAll("[^a-zA-Z0-9_-]", "_").replaceAll("_+", "_");
     }
-
-    private Mono<ExcelGenerationResponse> generateExcelData(Long dealId, Long partnerId, Integer year, Integer month) {
-        logger.info("=== EXCEL GENERATION START ===");
-        logger.info("Parameters: dealId={}, partnerId={}, year={}, month={}", dealId, partnerId, year, month);
-        
-        // Step 1: Get loan details
-        return loanDetailRepository.findByDealIdAndPartnerId(dealId, partnerId)
-            .collectList()
-            .flatMap(loanDetails -> {
-                logger.info("Found {} loan details for dealId: {}, partnerId: {}", loanDetails.size(), dealId, partnerId);
-                
-                if (loanDetails.isEmpty()) {
-                    return Mono.just(createEmptyResponse(dealId, partnerId, year, month, loanDetails, "No loan details found"));
-                }
-                
-                // Step 2: Get matching payout details
-                return getMatchingPayoutDetails(dealId, partnerId, year, month, loanDetails);
-            });
-    }
-    
-    private Mono<ExcelGenerationResponse> getMatchingPayoutDetails(Long dealId, Long partnerId, Integer year, Integer month, List<LoanDetail> loanDetails) {
-        List<String> lmsLans = loanDetails.stream()
-            .map(LoanDetail::getLmsLan)
-            .filter(lan -> lan != null && !lan.trim().isEmpty())
-            .toList();
-        
-        logger.info("Extracted {} LMS LANs from loan details", lmsLans.size());
-        
-        // First get the lmsId from MonthlyLMSStatus using year and month
-        // This is more reliable than extracting from cycle_start_date which may be in previous month
-        return monthlyLMSStatusRepository.findByYearAndMonth(year, month)
-            .switchIfEmpty(Mono.error(new RuntimeException(
-                String.format("No LMS status found for year: %d, month: %d", year, month))))
-            .flatMap(lmsStatus -> {
-                Long lmsId = lmsStatus.getId();
-                logger.info("Found LMS status with ID: {} for year: {}, month: {}", lmsId, year, month);
-                
-                // Query by lms_id and lms_lan instead of using cycle_start_date extraction
-                return Flux.fromIterable(lmsLans)
-                    .flatMap(lmsLan -> partnerPayoutDetailsAllRepository.findAllByLmsIdAndLmsLan(lmsId, lmsLan))
-                    .collectList()
-                    .flatMap(matchedPayoutDetails -> {
-                        logger.info("Found {} matching payout details for year: {}, month: {}, lmsId: {}", 
-                            matchedPayoutDetails.size(), year, month, lmsId);
-                        
-                        if (matchedPayoutDetails.isEmpty()) {
-                            return Mono.just(createEmptyResponse(dealId, partnerId, year, month, loanDetails, 
-                                "No matching payout details found for the specified year and month"));
-                        }
-                        
-                        // Step 3: Get deal and process calculations
-                        return processCalculationsAndDiscrepancies(dealId, partnerId, year, month, loanDetails, matchedPayoutDetails);
-                    });
-            });
-    }
-    
-    private Mono<ExcelGenerationResponse> processCalculationsAndDiscrepancies(Long dealId, Long partnerId, Integer year, Integer month, 
-                                                                             List<LoanDetail> loanDetails, List<PartnerPayoutDetailsAll> matchedPayoutDetails) {
-        return partnerPayoutDetailsAllService.getDealById(dealId)
-            .switchIfEmpty(Mono.error(new RuntimeException("Deal not found with ID: " + dealId)))
-            .flatMap(deal -> {
-                logger.info("Successfully fetched deal: ID={}, Name={}, AssignRatio={}", 
-                    deal.getId(), deal.getName(), deal.getAssignRatio());
-                
-                // Create a map of loan details by lmsLan for quick lookup
-                Map<String, LoanDetail> loanDetailMap = loanDetails.stream()
-                    .filter(ld -> ld.getLmsLan() != null)
-                    .collect(Collectors.toMap(LoanDetail::getLmsLan, ld -> ld, (existing, replacement) -> existing));
-                
-                // Apply calculations to matched payout details reactively
-                return Flux.fromIterable(matchedPayoutDetails)
-                    .flatMap(payoutDetail -> {
-                        LoanDetail loanDetail = loanDetailMap.get(payoutDetail.getLmsLan());
-                        return partnerPayoutDetailsAllService.calculateSellerFields(payoutDetail, deal, loanDetail, year, month);
-                    })
-                    .collectList()
-                    .flatMap(calculatedPayoutDetails -> {
-                        logger.info("Calculated seller fields for {} payout details", calculatedPayoutDetails.size());
-                        
-                        // Detect opening position mismatches (now reactive)
-                        return partnerPayoutDetailsAllService.detectOpeningPosMismatches(
-                            calculatedPayoutDetails, loanDetails, year, month)
-                            .flatMap(discrepancies -> {
-                                logger.info("Detected {} opening position mismatches", discrepancies.size());
-                                return createDealStatusAndSaveData(dealId, partnerId, year, month, loanDetails, calculatedPayoutDetails, discrepancies);
-                            });
-                    });
-            });
-    }
-    
-    private Mono<ExcelGenerationResponse> createDealStatusAndSaveData(Long dealId, Long partnerId, Integer year, Integer month,
-                                                                     List<LoanDetail> loanDetails, List<PartnerPayoutDetailsAll> calculatedPayoutDetails,
-                                                                     List<OpeningPosDiscrepancy> discrepancies) {
-        return createOrUpdateDealProcessingStatus(dealId, partnerId, year, month)
-            .flatMap(dealStatus -> {
-                logger.info("Created/updated deal processing status: {}", dealStatus.getId());
-                
-                // Save calculated payout details with seller fields
-                return partnerPayoutDetailsAllRepository.saveAll(calculatedPayoutDetails)
-                    .collectList()
-                    .flatMap(savedPayoutDetails -> {
-                        logger.info("Saved {} payout details with calculated seller fields", savedPayoutDetails.size());
-                        
-                        // Update deal status ID for matched payout details
-                        return updatePayoutDetailsDealStatus(savedPayoutDetails, dealStatus.getId())
-                            .doOnNext(updatedCount -> logger.info("Updated {} payout details with deal status ID", updatedCount))
-                            .map(updatedCount -> {
-                                logger.info("=== EXCEL GENERATION COMPLETE ===");
-                                logger.info("Final result: {} discrepancies found, {} payout details processed", 
-                                    discrepancies.size(), savedPayoutDetails.size());
-                                
-                                ExcelGenerationResponse response = ExcelGenerationResponse.builder()
-                                    .dealId(dealId)
-                                    .partnerId(partnerId)
-                                    .year(year)
-                                    .month(month)
-                                    .loanDetails(loanDetails)
-                                    .matchedPayoutDetails(savedPayoutDetails)
-                                    .dealProcessingStatus(dealStatus)
-                                    .openingPosDiscrepancies(discrepancies)
-                                    .totalLoanDetails(loanDetails.size())
-                                    .matchedPayoutDetailsCount(savedPayoutDetails.size())
-                                    .updatedPayoutDetailsCount(updatedCount)
-                                    .discrepancyCount(discrepancies.size())
-                                    .message("Excel data generated successfully with calculated seller fields saved to database")
-                                    .success(true)
-                                    .build();
-                                
-                                logger.info("Built response: success={}, discrepancyCount={}, matchedCount={}", 
-                                    response.isSuccess(), response.getDiscrepancyCount(), response.getMatchedPayoutDetailsCount());
-                                
-                                return response;
-                            })
-                            .doOnNext(response -> logger.info("Response ready to return: {}", response.getMessage()))
-                            .doOnError(error -> logger.error("Error in final response building: {}", error.getMessage(), error));
-                    });
-            });
-    }
-    
-    private ExcelGenerationResponse createEmptyResponse(Long dealId, Long partnerId, Integer year, Integer month, 
-                                                       List<LoanDetail> loanDetails, String message) {
-        return ExcelGenerationResponse.builder()
-            .dealId(dealId)
-            .partnerId(partnerId)
-            .year(year)
-            .month(month)
-            .loanDetails(loanDetails)
-            .matchedPayoutDetails(List.of())
-            .dealProcessingStatus(null)
-            .totalLoanDetails(loanDetails.size())
-            .matchedPayoutDetailsCount(0)
-            .updatedPayoutDetailsCount(0)
-            .discrepancyCount(0)
-            .message(message)
-            .success(false)
-            .build();
-    }
-
-   private Mono<MonthlyDealProcessingStatus> createOrUpdateDealProcessingStatus(Long dealId, Long partnerId, Integer year, Integer month) {
-       return monthlyDealProcessingStatusRepository.findByDealIdAndPartnerIdAndYearAndMonth(dealId, partnerId, year, month)
-           .switchIfEmpty(
-               // Create new deal processing status if not exists
-               monthlyDealProcessingStatusRepository.save(MonthlyDealProcessingStatus.builder()
-                   .dealId(dealId)
-                   .partnerId(partnerId)
-                   .year(year)
-                   .month(month)
-                   .status(MonthlyDealStatus.PAYOUT_FILE_CREATED)
-                   .cycleStartDate(LocalDate.of(year, month, 1))
-                   .cycleEndDate(LocalDate.of(year, month, 1).withDayOfMonth(
-                       LocalDate.of(year, month, 1).lengthOfMonth()))
-                   .createdAt(LocalDateTime.now())
-                   .modifiedAt(LocalDateTime.now())
-                   .build())
-           );
-   }
-
-   private Mono<Integer> updatePayoutDetailsDealStatus(List<PartnerPayoutDetailsAll> payoutDetails, Long dealStatusId) {
-       if (payoutDetails.isEmpty()) {
-           return Mono.just(0);
-       }
-       
-       logger.info("Updating {} payout details with deal status ID: {} using individual updates", payoutDetails.size(), dealStatusId);
-       
-       // Use individual updates - process sequentially to ensure completion
-       return Flux.fromIterable(payoutDetails)
-           .concatMap(payout -> {
-               logger.info("Updating payout detail ID: {} with deal status ID: {}", payout.getId(), dealStatusId);
-               return partnerPayoutDetailsAllRepository.updateDealStatusIdById(payout.getId(), dealStatusId)
-                   .doOnNext(result -> logger.info("Updated payout detail ID: {} - result: {}", payout.getId(), result));
-           })
-           .reduce(0, Integer::sum)
-           .doOnNext(count -> logger.info("Completed updating {} payout details with deal status ID: {}", count, dealStatusId))
-           .doOnError(error -> logger.error("Error updating payout details: {}", error.getMessage(), error));
-   }
-   
-
 }
@@ -1,6 +1,10 @@
 package com.finvolv.selldown.controller;
 
+import com.finvolv.selldown.dto.LmsUploadJobResponse;
+import com.finvolv.selldown.dto.LmsUploadProgress;
+import com.finvolv.selldown.model.IngestMode;
 import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import com.finvolv.selldown.service.LmsUploadJobService;
 import com.finvolv.selldown.service.PartnerPayoutDetailsAllService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -8,10 +12,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -23,6 +29,7 @@ public class PartnerPayoutDetailsAllController {
     private static final Logger logger = LoggerFactory.getLogger(PartnerPayoutDetailsAllController.class);
     
     private final PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
+    private final LmsUploadJobService lmsUploadJobService;
     
     @PostMapping(value = "/year/{year}/month/{month}", 
                  consumes = MediaType.APPLICATION_JSON_VALUE,
@@ -31,13 +38,14 @@ public class PartnerPayoutDetailsAllController {
     public Flux<PartnerPayoutDetailsAll> uploadLMSFile(
             @PathVariable Integer year,
             @PathVariable Integer month,
+            @RequestParam(value = "mode", required = false) IngestMode mode,
             @RequestBody List<PartnerPayoutDetailsAll> payoutDetails) {
         
-        logger.info("Received LMS file upload request - year: {}, month: {}, records: {}", 
-            year, month, payoutDetails.size());
+        logger.info("Received LMS file upload request - year: {}, month: {}, records: {}, mode: {}", 
+            year, month, payoutDetails.size(), mode);
         
-        return partnerPayoutDetailsAllService.uploadLMSFile(year, month, payoutDetails)
-            .doOnNext(saved -> logger.debug("Saved payout detail: {}", saved.getId()))
+        return partnerPayoutDetailsAllService.uploadLMSFile(year, month, payoutDetails, mode)
+            .doOnNext(stored -> logger.debug("Stored payout detail: {}", stored.getId()))
             .doOnComplete(() -> 
                 logger.info("Successfully processed LMS file upload - year: {}, month: {}, records: {}", 
                     year, month, payoutDetails.size()))
@@ -46,6 +54,118 @@ public class PartnerPayoutDetailsAllController {
                     year, month, error.getMessage()));
     }
     
+    @PostMapping(value = "/year/{year}/month/{month}", 
+                 params = "async=true",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<LmsUploadJobResponse>> submitLMSFileJob(
+            @PathVariable Integer year,
+            @PathVariable Integer month,
+            @RequestParam(value = "mode", required = false) IngestMode mode,
+            @RequestParam(value = "chunkSize", required = false) Integer chunkSize,
+            @RequestBody List<PartnerPayoutDetailsAll> payoutDetails) {
+        
+        logger.info("Received async LMS file upload request - year: {}, month: {}, records: {}, mode: {}", 
+            year, month, payoutDetails.size(), mode);
+        
+        return lmsUploadJobService.submit(year, month, payoutDetails, mode, chunkSize)
+            .map(job -> ResponseEntity.accepted()
+                .location(URI.create("/api/lms-files/jobs/" + job.getJobId()))
+                .body(job))
+            .doOnSuccess(response -> 
+                logger.info("Accepted LMS file upload job - year: {}, month: {}, jobId: {}", 
+                    year, month, response.getBody().getJobId()))
+            .onErrorResume(IllegalStateException.class, error -> {
+                logger.warn("Cannot submit LMS file upload job - year: {}, month: {}: {}", year, month, error.getMessage());
+                return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+            })
+            .doOnError(error -> 
+                logger.error("Error submitting LMS file upload job - year: {}, month: {}: {}", 
+                    year, month, error.getMessage()));
+    }
+    
+    @GetMapping(value = "/jobs/{jobId}", 
+                produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<LmsUploadJobResponse>> getLMSFileJob(@PathVariable Long jobId) {
+        
+        logger.debug("Received request to fetch LMS upload job - jobId: {}", jobId);
+        
+        return lmsUploadJobService.getJob(jobId)
+            .map(ResponseEntity::ok)
+            .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
+    }
+    
+    @GetMapping(value = "/jobs/year/{year}/month/{month}", 
+                produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<LmsUploadJobResponse> getLMSFileJobsByYearAndMonth(
+            @PathVariable Integer year,
+            @PathVariable Integer month) {
+        
+        logger.info("Received request to fetch LMS upload jobs - year: {}, month: {}", year, month);
+        
+        return lmsUploadJobService.getJobsByYearAndMonth(year, month);
+    }
+    
+    @PostMapping(value = "/jobs/{jobId}/resume", 
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<LmsUploadJobResponse>> resumeLMSFileJob(@PathVariable Long jobId) {
+        
+        logger.info("Received request to resume LMS upload job - jobId: {}", jobId);
+        
+        return lmsUploadJobService.resume(jobId)
+            .map(job -> ResponseEntity.accepted().body(job))
+            .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
+            .onErrorResume(IllegalStateException.class, error -> {
+                logger.warn("Cannot resume LMS upload job {}: {}", jobId, error.getMessage());
+                return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build());
+            });
+    }
+    
+    @PostMapping(value = "/year/{year}/month/{month}", 
+                 consumes = MediaType.APPLICATION_NDJSON_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public Flux<LmsUploadProgress> streamLMSFile(
+            @PathVariable Integer year,
+            @PathVariable Integer month,
+            @RequestParam(value = "mode", required = false) IngestMode mode,
+            @RequestParam(value = "windowSize", required = false) Integer windowSize,
+            @RequestBody Flux<PartnerPayoutDetailsAll> payoutDetails) {
+        
+        logger.info("Received streaming LMS file upload request - year: {}, month: {}, mode: {}, windowSize: {}", 
+            year, month, mode, windowSize);
+        
+        return partnerPayoutDetailsAllService.streamLMSFile(year, month, payoutDetails, mode, windowSize)
+            .doOnComplete(() -> 
+                logger.info("Successfully processed streaming LMS file upload - year: {}, month: {}", year, month))
+            .doOnError(error -> 
+                logger.error("Error processing streaming LMS file upload - year: {}, month: {}: {}", 
+                    year, month, error.getMessage()));
+    }
+    
+    @PostMapping(value = "/year/{year}/month/{month}", 
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public Flux<LmsUploadProgress> importLMSFile(
+            @PathVariable Integer year,
+            @PathVariable Integer month,
+            @RequestParam(value = "mode", required = false) IngestMode mode,
+            @RequestParam(value = "windowSize", required = false) Integer windowSize,
+            @RequestPart("file") Mono<FilePart> file) {
+        
+        logger.info("Received LMS file import request - year: {}, month: {}, mode: {}, windowSize: {}", 
+            year, month, mode, windowSize);
+        
+        return file
+            .flatMapMany(part -> partnerPayoutDetailsAllService.importLMSFile(year, month, part, mode, windowSize))
+            .doOnComplete(() -> 
+                logger.info("Successfully processed LMS file import - year: {}, month: {}", year, month))
+            .doOnError(error -> 
+                logger.error("Error processing LMS file import - year: {}, month: {}: {}", 
+                    year, month, error.getMessage()));
+    }
+    
     @GetMapping(value = "/year/{year}/month/{month}", 
                 produces = MediaType.APPLICATION_JSON_VALUE)
     public Flux<PartnerPayoutDetailsAll> getPayoutDetailsByYearAndMonth(
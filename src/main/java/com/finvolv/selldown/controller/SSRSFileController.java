@@ -1,6 +1,7 @@
 package com.finvolv.selldown.controller;
 
 import com.finvolv.selldown.dto.SSRSFileDataRequest;
+import com.finvolv.selldown.model.IngestMode;
 import com.finvolv.selldown.model.MonthlySSRSStatusEntity;
 import com.finvolv.selldown.model.SSRSFileDataEntity;
 import com.finvolv.selldown.service.SSRSFileService;
@@ -34,10 +35,11 @@ public class SSRSFileController {
     public ResponseEntity<Flux<SSRSFileDataEntity>> uploadOrUpdateSSRSFile(
             @PathVariable Integer year,
             @PathVariable Integer month,
+            @RequestParam(value = "mode", required = false) IngestMode mode,
             @RequestBody List<Map<String, Object>> requestData) {
         
-        logger.info("Received SSRS file upload/update request - year: {}, month: {}, records: {}", 
-            year, month, requestData.size());
+        logger.info("Received SSRS file upload/update request - year: {}, month: {}, records: {}, mode: {}", 
+            year, month, requestData.size(), mode);
         
         // Convert request data to SSRSFileDataRequest objects
         List<SSRSFileDataRequest> ssrsFileDataRequests = requestData.stream()
@@ -60,7 +62,7 @@ public class SSRSFileController {
             .toList();
         
         return ResponseEntity.ok(
-            ssrsFileService.uploadOrUpdateSSRSFile(year, month, ssrsFileDataRequests)
+            ssrsFileService.uploadOrUpdateSSRSFile(year, month, ssrsFileDataRequests, mode)
                 .doOnNext(saved -> logger.debug("Saved SSRS file data: {}", saved.getId()))
                 .doOnComplete(() -> 
                     logger.info("Successfully processed SSRS file upload/update - year: {}, month: {}, records: {}", 
@@ -0,0 +1,20 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private int limit;
+    // Pass as afterId to get the next page; null on the last page
+    private Long nextCursor;
+    private boolean hasMore;
+}
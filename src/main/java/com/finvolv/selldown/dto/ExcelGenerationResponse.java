@@ -1,5 +1,6 @@
 package com.finvolv.selldown.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.finvolv.selldown.model.LoanDetail;
 import com.finvolv.selldown.model.MonthlyDealProcessingStatus;
 import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
@@ -21,7 +22,10 @@ public class ExcelGenerationResponse {
     private Integer year;
     private Integer month;
     
+    // Left out in the summary view; the rows are available as pages or NDJSON streams
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<LoanDetail> loanDetails;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<PartnerPayoutDetailsAll> matchedPayoutDetails;
     private MonthlyDealProcessingStatus dealProcessingStatus;
     private List<OpeningPosDiscrepancy> openingPosDiscrepancies;
@@ -30,6 +34,8 @@ public class ExcelGenerationResponse {
     private int matchedPayoutDetailsCount;
     private int updatedPayoutDetailsCount;
     private int discrepancyCount;
+    // Seller fields summed over the matched payout details
+    private SellerTotals sellerTotals;
     
     private String message;
     private boolean success;
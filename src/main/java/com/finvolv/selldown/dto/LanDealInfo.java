@@ -0,0 +1,16 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LanDealInfo {
+    private String lmsLan;
+    private Long dealId;
+    private Integer monthOnMonthDay;
+}
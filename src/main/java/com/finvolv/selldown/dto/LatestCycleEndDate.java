@@ -0,0 +1,17 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatestCycleEndDate {
+    private String lmsLan;
+    private LocalDate cycleEndDate;
+}
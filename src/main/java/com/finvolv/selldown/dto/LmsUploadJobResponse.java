@@ -0,0 +1,32 @@
+package com.finvolv.selldown.dto;
+
+import com.finvolv.selldown.model.IngestMode;
+import com.finvolv.selldown.model.LmsUploadJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LmsUploadJobResponse {
+    private Long jobId;
+    private Long lmsId;
+    private Integer year;
+    private Integer month;
+    private LmsUploadJobStatus status;
+    private IngestMode ingestMode;
+    private Integer chunkSize;
+    private Long totalRows;
+    private Long processedRows;
+    private Long failedRows;
+    private Integer committedChunks;
+    private Double rowsPerSecond;
+    private String errorMessage;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,24 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LmsUploadProgress {
+    private Long lmsId;
+    private Long window;
+    private Integer windowReceived;
+    private Long windowSaved;
+    // Rows whose content hash matched the stored row, so nothing was written
+    private Long windowUnchanged;
+    // Rows whose LAN could not be resolved to a deal
+    private Integer windowSkipped;
+    private Long totalReceived;
+    private Long totalSaved;
+    private Long windowMillis;
+}
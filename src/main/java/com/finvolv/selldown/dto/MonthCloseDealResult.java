@@ -0,0 +1,21 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthCloseDealResult {
+    private Long dealId;
+    private Long partnerId;
+    private int totalLoanDetails;
+    private int matchedPayoutDetailsCount;
+    private int discrepancyCount;
+    private Long elapsedMillis;
+    private String message;
+    private boolean success;
+}
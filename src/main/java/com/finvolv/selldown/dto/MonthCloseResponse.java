@@ -0,0 +1,26 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthCloseResponse {
+    private Integer year;
+    private Integer month;
+    private Long lmsId;
+    private int totalDeals;
+    private int succeededDeals;
+    private int failedDeals;
+    // Wall-clock time of the whole month close; deals run concurrently, so this is not the sum of the deal timings
+    private Long elapsedMillis;
+    private List<MonthCloseDealResult> deals;
+    private String message;
+    private boolean success;
+}
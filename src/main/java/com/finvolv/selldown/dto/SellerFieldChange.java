@@ -0,0 +1,18 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerFieldChange {
+    private String lmsLan;
+    private String field;
+    // BigDecimal, or the InterestOverdueSplit for sellerInterestOverdueSplit
+    private Object before;
+    private Object after;
+}
@@ -0,0 +1,27 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerReplayMonthResult {
+    private Integer year;
+    private Integer month;
+    // Null when no LMS file was uploaded for the month
+    private Long lmsId;
+    private int rows;
+    // Rows whose seller inputs changed, so the seller fields were recalculated
+    private int recalculatedRows;
+    // Recalculated rows with at least one seller field different from the stored value
+    private int changedRows;
+    private int savedRows;
+    // Field-level differences, only in dry-run mode
+    private List<SellerFieldChange> changes;
+}
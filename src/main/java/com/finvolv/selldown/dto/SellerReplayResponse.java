@@ -0,0 +1,31 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerReplayResponse {
+    private Long dealId;
+    private Integer fromYear;
+    private Integer fromMonth;
+    private Integer toYear;
+    private Integer toMonth;
+    private boolean dryRun;
+
+    private int totalRows;
+    private int recalculatedRows;
+    private int changedRows;
+    private int savedRows;
+    private Long elapsedMillis;
+    private List<SellerReplayMonthResult> months;
+
+    private String message;
+    private boolean success;
+}
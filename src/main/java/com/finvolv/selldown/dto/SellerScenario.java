@@ -0,0 +1,19 @@
+package com.finvolv.selldown.dto;
+
+import com.finvolv.selldown.model.Deal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerScenario {
+    private String name;
+    // Null keeps the deal's value; a rate replaces the deal's rate table for the whole cycle
+    private Double annualInterestRate;
+    private Double assignRatio;
+    private Deal.InterestMethod interestMethod;
+}
@@ -0,0 +1,25 @@
+package com.finvolv.selldown.dto;
+
+import com.finvolv.selldown.model.Deal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerScenarioResult {
+    private String name;
+    // Effective parameters of the scenario
+    private Double annualInterestRate;
+    private Double assignRatio;
+    private Deal.InterestMethod interestMethod;
+    private boolean rateTableApplied;
+
+    private SellerTotals totals;
+    // Scenario totals minus the baseline totals
+    private SellerTotals deltas;
+    private Long elapsedMillis;
+}
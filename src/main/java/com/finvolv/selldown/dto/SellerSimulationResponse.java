@@ -0,0 +1,28 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerSimulationResponse {
+    private Long dealId;
+    private Integer year;
+    private Integer month;
+    private Long lmsId;
+    private int rows;
+
+    // The deal as it is, for comparison
+    private SellerScenarioResult baseline;
+    private List<SellerScenarioResult> scenarios;
+    private Long elapsedMillis;
+
+    private String message;
+    private boolean success;
+}
@@ -0,0 +1,23 @@
+package com.finvolv.selldown.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerTotals {
+    private BigDecimal sellerOpeningPos;
+    private BigDecimal sellerClosingPos;
+    private BigDecimal sellerTotalPrincipalComponentPaid;
+    private BigDecimal sellerTotalInterestDue;
+    private BigDecimal sellerTotalInterestComponentPaid;
+    private BigDecimal sellerInterestOverdue;
+    private BigDecimal sellerInterestOverduePaid;
+    private BigDecimal sellerTotalPaid;
+}
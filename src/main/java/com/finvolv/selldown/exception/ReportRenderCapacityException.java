@@ -0,0 +1,8 @@
+package com.finvolv.selldown.exception;
+
+public class ReportRenderCapacityException extends RuntimeException {
+    public ReportRenderCapacityException(String report, int workers, int queueCapacity) {
+        super(String.format("Report rendering is at capacity (%d workers, %d queued), retry the %s report later",
+            workers, queueCapacity, report));
+    }
+}
@@ -0,0 +1,18 @@
+package com.finvolv.selldown.mapper;
+
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+/**
+ * BIGINT[] paise column (read by the driver as Long[]) to an interest overdue split
+ */
+@ReadingConverter
+public class PostgresBigintArrayToSplitConverter implements Converter<Long[], InterestOverdueSplit> {
+
+    @Override
+    public InterestOverdueSplit convert(Long[] source) {
+        return InterestOverdueSplit.fromArray(source);
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.finvolv.selldown.mapper;
+
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.WritingConverter;
+
+/**
+ * Interest overdue split to its BIGINT[] paise column value
+ */
+@WritingConverter
+public class PostgresSplitToBigintArrayConverter implements Converter<InterestOverdueSplit, Long[]> {
+
+    @Override
+    public Long[] convert(InterestOverdueSplit source) {
+        return source.toArray();
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.finvolv.selldown.model;
+
+public enum IngestMode {
+    ROW,
+    BULK,
+    COPY
+}
@@ -0,0 +1,228 @@
+package com.finvolv.selldown.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unpaid interest per month, oldest first, as amounts in paise. Stored as a BIGINT[] column
+ * (seller_interest_overdue_split, assigned_interest_overdue_split) and serialized in the API
+ * as a JSON array of rupee amounts, e.g. [1000.00, 1050.50].
+ * Entries may be null (kept as {@link #NULL_BUCKET}), as in splits stored before the migration.
+ * The consume and remove operations work in place and do not allocate.
+ */
+public final class InterestOverdueSplit {
+
+    public static final long NULL_BUCKET = Long.MIN_VALUE;
+
+    private long[] buckets;
+    private int size;
+
+    private InterestOverdueSplit(long[] buckets, int size) {
+        this.buckets = buckets;
+        this.size = size;
+    }
+
+    public static InterestOverdueSplit empty() {
+        return new InterestOverdueSplit(new long[4], 0);
+    }
+
+    public static InterestOverdueSplit ofPaise(long... paise) {
+        return new InterestOverdueSplit(Arrays.copyOf(paise, Math.max(paise.length, 4)), paise.length);
+    }
+
+    /**
+     * Split of rupee amounts, rounded HALF_UP to paise; null is an empty split
+     */
+    @JsonCreator
+    public static InterestOverdueSplit of(List<BigDecimal> values) {
+        if (values == null) {
+            return empty();
+        }
+        InterestOverdueSplit split = new InterestOverdueSplit(new long[Math.max(values.size() + 1, 4)], 0);
+        for (BigDecimal value : values) {
+            split.add(value != null ? toPaise(value) : NULL_BUCKET);
+        }
+        return split;
+    }
+
+    /**
+     * From a BIGINT[] column value
+     */
+    public static InterestOverdueSplit fromArray(Long[] paise) {
+        InterestOverdueSplit split = new InterestOverdueSplit(new long[Math.max(paise.length + 1, 4)], 0);
+        for (Long value : paise) {
+            split.add(value != null ? value : NULL_BUCKET);
+        }
+        return split;
+    }
+
+    /**
+     * As a BIGINT[] column value
+     */
+    public Long[] toArray() {
+        Long[] array = new Long[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = buckets[i] != NULL_BUCKET ? buckets[i] : null;
+        }
+        return array;
+    }
+
+    public static long toPaise(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public InterestOverdueSplit copy() {
+        return new InterestOverdueSplit(Arrays.copyOf(buckets, Math.max(buckets.length, size + 1)), size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Paise of the entry, or {@link #NULL_BUCKET}
+     */
+    public long paiseAt(int index) {
+        checkIndex(index);
+        return buckets[index];
+    }
+
+    public void add(long paise) {
+        if (size == buckets.length) {
+            buckets = Arrays.copyOf(buckets, Math.max(size * 2, 4));
+        }
+        buckets[size++] = paise;
+    }
+
+    /**
+     * Removes the entry and returns its paise (or {@link #NULL_BUCKET}), shifting later entries down
+     */
+    public long removeAt(int index) {
+        checkIndex(index);
+        long removed = buckets[index];
+        System.arraycopy(buckets, index + 1, buckets, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Pays up to amount paise from the oldest entries first: fully paid entries are removed, a
+     * partially paid entry keeps its remainder, null entries are dropped. Returns the paise paid.
+     */
+    public long consume(long amount) {
+        long remaining = amount;
+        long paid = 0L;
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            long value = buckets[read];
+            if (value == NULL_BUCKET) {
+                continue;
+            }
+            if (remaining > 0) {
+                if (value <= remaining) {
+                    paid = Math.addExact(paid, value);
+                    remaining = Math.subtractExact(remaining, value);
+                } else {
+                    paid = Math.addExact(paid, remaining);
+                    buckets[write++] = Math.subtractExact(value, remaining);
+                    remaining = 0L;
+                }
+            } else {
+                buckets[write++] = value;
+            }
+        }
+        size = write;
+        return paid;
+    }
+
+    /**
+     * True if any entry is not null
+     */
+    public boolean hasValues() {
+        for (int i = 0; i < size; i++) {
+            if (buckets[i] != NULL_BUCKET) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(long paise) {
+        for (int i = 0; i < size; i++) {
+            if (buckets[i] != NULL_BUCKET && buckets[i] == paise) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sum of the non-null entries in paise
+     */
+    public long sum() {
+        long sum = 0L;
+        for (int i = 0; i < size; i++) {
+            if (buckets[i] != NULL_BUCKET) {
+                sum = Math.addExact(sum, buckets[i]);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Entries as rupee amounts with 2 decimals, null for null entries
+     */
+    @JsonValue
+    public List<BigDecimal> toList() {
+        List<BigDecimal> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(buckets[i] != NULL_BUCKET ? BigDecimal.valueOf(buckets[i], 2) : null);
+        }
+        return values;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for split of size " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof InterestOverdueSplit split) || split.size != size) {
+            return false;
+        }
+        return Arrays.equals(buckets, 0, size, split.buckets, 0, size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Long.hashCode(buckets[i]);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.finvolv.selldown.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("\"sd-lms_upload_job\"")
+public class LmsUploadJob {
+
+    @Id
+    private Long id;
+
+    @Column("lms_id")
+    private Long lmsId;
+
+    private Integer year;
+    private Integer month;
+
+    private LmsUploadJobStatus status;
+
+    @Column("ingest_mode")
+    private IngestMode ingestMode;
+
+    @Column("chunk_size")
+    private Integer chunkSize;
+
+    @Column("total_rows")
+    private Long totalRows;
+
+    @Column("processed_rows")
+    private Long processedRows;
+
+    @Column("failed_rows")
+    private Long failedRows;
+
+    // Number of chunks fully persisted; a resumed job skips chunkSize * committedChunks input rows
+    @Column("committed_chunks")
+    private Integer committedChunks;
+
+    // Uploaded rows as NDJSON on disk, kept until the job completes so it can be resumed
+    @Column("payload_path")
+    private String payloadPath;
+    
+    @Column("file_hash")
+    private String fileHash;
+
+    @Column("error_message")
+    private String errorMessage;
+
+    @Column("started_at")
+    private LocalDateTime startedAt;
+
+    @Column("completed_at")
+    private LocalDateTime completedAt;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    @Column("modified_at")
+    private LocalDateTime modifiedAt;
+}
@@ -0,0 +1,8 @@
+package com.finvolv.selldown.model;
+
+public enum LmsUploadJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
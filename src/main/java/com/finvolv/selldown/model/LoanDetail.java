@@ -9,10 +9,8 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Data
 @Builder
@@ -68,7 +66,7 @@ public class LoanDetail {
     private Integer loanAge = 0;
     
     @Column("assigned_interest_overdue_split")
-    private List<BigDecimal> assignedInterestOverdueSplit;
+    private InterestOverdueSplit assignedInterestOverdueSplit;
     
     @Column("created_at")
     private LocalDateTime createdAt;
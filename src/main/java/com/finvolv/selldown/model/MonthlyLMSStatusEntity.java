@@ -31,6 +31,10 @@ public class MonthlyLMSStatusEntity {
     
     @Column("cycle_end_date")
     private LocalDate cycleEndDate;
+    
+    // SHA-256 of the last fully ingested LMS file; an identical re-upload is skipped
+    @Column("file_hash")
+    private String fileHash;
 
     @Column("created_at")
     private LocalDateTime createdAt;
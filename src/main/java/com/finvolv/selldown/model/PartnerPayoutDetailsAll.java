@@ -11,7 +11,6 @@ import org.springframework.data.relational.core.mapping.Table;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Data
 @Builder
@@ -134,7 +133,7 @@ public class PartnerPayoutDetailsAll {
     private Integer sellerClosingDpd;
     
     @Column("seller_interest_overdue_split")
-    private List<BigDecimal> sellerInterestOverdueSplit;
+    private InterestOverdueSplit sellerInterestOverdueSplit;
     
     @Column("lms_id")
     private Long lmsId;
@@ -154,6 +153,14 @@ public class PartnerPayoutDetailsAll {
     @Column("is_opening_pos_mismatch")
     private Boolean isOpeningPosMisMatch;
     
+    // SHA-256 of the LMS-provided columns, used to skip unchanged rows on re-upload
+    @Column("content_hash")
+    private String contentHash;
+    
+    // SHA-256 of the seller calculation inputs (LMS fields, deal, rate table, previous month), used to skip unchanged rows
+    @Column("seller_input_hash")
+    private String sellerInputHash;
+    
     @Column("created_at")
     private LocalDateTime createdAt;
     
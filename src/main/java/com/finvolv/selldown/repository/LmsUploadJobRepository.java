@@ -0,0 +1,22 @@
+package com.finvolv.selldown.repository;
+
+import com.finvolv.selldown.model.LmsUploadJob;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface LmsUploadJobRepository extends ReactiveCrudRepository<LmsUploadJob, Long> {
+
+    Flux<LmsUploadJob> findByYearAndMonthOrderByIdDesc(Integer year, Integer month);
+
+    // Atomically marks a queued, failed or stale RUNNING job (no progress since staleBefore) as RUNNING; 0 if another run owns it
+    @Query("UPDATE \"sd-lms_upload_job\" SET status = 'RUNNING', error_message = NULL, " +
+           "started_at = COALESCE(started_at, :now), modified_at = :now " +
+           "WHERE id = :id AND (status IN ('QUEUED', 'FAILED') OR (status = 'RUNNING' AND modified_at < :staleBefore))")
+    Mono<Integer> claimForRun(Long id, LocalDateTime now, LocalDateTime staleBefore);
+}
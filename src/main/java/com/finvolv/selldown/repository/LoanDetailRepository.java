@@ -1,6 +1,8 @@
 package com.finvolv.selldown.repository;
 
+import com.finvolv.selldown.dto.LanDealInfo;
 import com.finvolv.selldown.model.LoanDetail;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -10,7 +12,33 @@ import reactor.core.publisher.Mono;
 public interface LoanDetailRepository extends ReactiveCrudRepository<LoanDetail, Long> {
     Flux<LoanDetail> findByPartnerId(Long partnerId);
     Flux<LoanDetail> findByDealIdAndPartnerId(Long dealId, Long partnerId);
+    Mono<Boolean> existsByDealIdAndPartnerId(Long dealId, Long partnerId);
     Flux<LoanDetail> findByDealId(Long dealId);
     
+    // One loan detail per LAN (lowest id wins if a LAN exists under several deals/partners)
+    @Query("SELECT DISTINCT ON (lms_lan) * FROM \"sd-loan_details\" WHERE lms_lan = ANY(:lmsLans) ORDER BY lms_lan, id")
+    Flux<LoanDetail> findFirstByLmsLans(String[] lmsLans);
+    
+    // One row per LAN (lowest loan detail id wins if a LAN exists under several deals/partners)
+    @Query("SELECT DISTINCT ON (ld.lms_lan) ld.lms_lan, ld.deal_id, d.month_on_month_day " +
+           "FROM \"sd-loan_details\" ld JOIN \"sd-deal\" d ON d.id = ld.deal_id " +
+           "WHERE ld.lms_lan = ANY(:lmsLans) ORDER BY ld.lms_lan, ld.id")
+    Flux<LanDealInfo> findDealMonthOnMonthDayByLmsLans(String[] lmsLans);
+    
+    // Every loan detail assigned to a deal and partner, grouped by deal/partner for month close
+    @Query("SELECT * FROM \"sd-loan_details\" WHERE deal_id IS NOT NULL AND partner_id IS NOT NULL " +
+           "ORDER BY deal_id, partner_id, id")
+    Flux<LoanDetail> findAllAssignedToDeals();
+    
+    // Keyset page of a deal/partner's loan details, served by idx_loan_details_deal_partner
+    @Query("SELECT * FROM \"sd-loan_details\" WHERE deal_id = :dealId AND partner_id = :partnerId AND id > :afterId " +
+           "ORDER BY id LIMIT :limit")
+    Flux<LoanDetail> findPageByDealIdAndPartnerId(Long dealId, Long partnerId, Long afterId, Integer limit);
+    
+    // Version of a deal/partner's loan details for the report cache: count and md5 of all rows in id order
+    @Query("SELECT count(*) || ':' || md5(coalesce(string_agg(ld::text, ',' ORDER BY ld.id), '')) " +
+           "FROM \"sd-loan_details\" ld WHERE ld.deal_id = :dealId AND ld.partner_id = :partnerId")
+    Mono<String> findVersionByDealIdAndPartnerId(Long dealId, Long partnerId);
+    
     Mono<Void> deleteByPartnerId(Long partnerId);
 }
@@ -2,6 +2,7 @@ package com.finvolv.selldown.repository;
 
 import com.finvolv.selldown.model.MonthlyLMSStatusEntity;
 import com.finvolv.selldown.model.MonthlyLMSStatus;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -19,4 +20,18 @@ public interface MonthlyLMSStatusRepository extends ReactiveCrudRepository<Month
     Flux<MonthlyLMSStatusEntity> findByYearAndMonthAndStatusIn(Integer year, Integer month, List<MonthlyLMSStatus> statuses);
     
     Flux<MonthlyLMSStatusEntity> findByStatus(MonthlyLMSStatus status);
+    
+    // Periods are year * 12 + month, so a range can span year boundaries
+    @Query("SELECT * FROM \"sd-monthly_lms_status\" WHERE year * 12 + month BETWEEN :fromPeriod AND :toPeriod ORDER BY year, month")
+    Flux<MonthlyLMSStatusEntity> findByPeriodRange(Integer fromPeriod, Integer toPeriod);
+    
+    @Query("UPDATE \"sd-monthly_lms_status\" SET file_hash = :fileHash, modified_at = NOW() WHERE id = :id")
+    Mono<Integer> updateFileHash(Long id, String fileHash);
+    
+    @Query("UPDATE \"sd-monthly_lms_status\" SET file_hash = NULL, modified_at = NOW() WHERE id = :id")
+    Mono<Integer> clearFileHash(Long id);
+    
+    // Leaves modified_at alone: it versions cached reports and records when the month's data last changed
+    @Query("UPDATE \"sd-monthly_lms_status\" SET file_hash = NULL WHERE file_hash IS NOT NULL")
+    Mono<Integer> clearAllFileHashes();
 }
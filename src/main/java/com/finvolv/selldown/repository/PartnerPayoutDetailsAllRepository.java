@@ -1,5 +1,6 @@
 package com.finvolv.selldown.repository;
 
+import com.finvolv.selldown.dto.LatestCycleEndDate;
 import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
@@ -10,7 +11,7 @@ import reactor.core.publisher.Mono;
 import java.util.List;
 
 @Repository
-public interface PartnerPayoutDetailsAllRepository extends ReactiveCrudRepository<PartnerPayoutDetailsAll, Long> {
+public interface PartnerPayoutDetailsAllRepository extends ReactiveCrudRepository<PartnerPayoutDetailsAll, Long>, PartnerPayoutDetailsAllRepositoryCustom {
     
     Flux<PartnerPayoutDetailsAll> findByLmsId(Long lmsId);
     
@@ -20,12 +21,53 @@ public interface PartnerPayoutDetailsAllRepository extends ReactiveCrudRepositor
     
     Flux<PartnerPayoutDetailsAll> findByLmsLan(String lmsLan);
     
+    // Newest cycle_end_date per LAN (by created_at), served by idx_payout_details_lms_lan_created_at
+    @Query("SELECT DISTINCT ON (lms_lan) lms_lan, cycle_end_date FROM \"sd-partner_payout_details_all\" " +
+           "WHERE lms_lan = ANY(:lmsLans) ORDER BY lms_lan, created_at DESC")
+    Flux<LatestCycleEndDate> findLatestCycleEndDatesByLmsLans(String[] lmsLans);
+    
     @Query("SELECT * FROM \"sd-partner_payout_details_all\" WHERE lms_id = :lmsId AND lms_lan = :lmsLan")
     Mono<PartnerPayoutDetailsAll> findByLmsIdAndLmsLan(Long lmsId, String lmsLan);
     
     @Query("SELECT * FROM \"sd-partner_payout_details_all\" WHERE lms_id = :lmsId AND lms_lan = :lmsLan ORDER BY id DESC")
     Flux<PartnerPayoutDetailsAll> findAllByLmsIdAndLmsLan(Long lmsId, String lmsLan);
     
+    // All rows of one LMS upload for a set of LANs, served by uk_payout_details_lms_id_lms_lan
+    @Query("SELECT * FROM \"sd-partner_payout_details_all\" WHERE lms_id = :lmsId AND lms_lan = ANY(:lmsLans)")
+    Flux<PartnerPayoutDetailsAll> findByLmsIdAndLmsLans(Long lmsId, String[] lmsLans);
+    
+    // One LMS upload's rows for the LANs of a deal/partner, served by uk_payout_details_lms_id_lms_lan
+    // and the (partner_id, deal_id, lms_lan) unique index of the loan details
+    @Query("SELECT p.* FROM \"sd-partner_payout_details_all\" p " +
+           "JOIN \"sd-loan_details\" ld ON ld.lms_lan = p.lms_lan AND ld.deal_id = :dealId AND ld.partner_id = :partnerId " +
+           "WHERE p.lms_id = :lmsId AND btrim(ld.lms_lan) <> '' ORDER BY p.lms_lan")
+    Flux<PartnerPayoutDetailsAll> findByLmsIdAndDealIdAndPartnerId(Long lmsId, Long dealId, Long partnerId);
+    
+    // Keyset page of the same rows by payout id
+    @Query("SELECT p.* FROM \"sd-partner_payout_details_all\" p " +
+           "JOIN \"sd-loan_details\" ld ON ld.lms_lan = p.lms_lan AND ld.deal_id = :dealId AND ld.partner_id = :partnerId " +
+           "WHERE p.lms_id = :lmsId AND btrim(ld.lms_lan) <> '' AND p.id > :afterId ORDER BY p.id LIMIT :limit")
+    Flux<PartnerPayoutDetailsAll> findPageByLmsIdAndDealIdAndPartnerId(Long lmsId, Long dealId, Long partnerId,
+                                                                       Long afterId, Integer limit);
+    
+    // Version of the same rows' LMS content for the report cache (rows older than content_hash count by id)
+    @Query("SELECT count(*) || ':' || md5(coalesce(string_agg(coalesce(p.content_hash, p.id::text), ',' ORDER BY p.id), '')) " +
+           "FROM \"sd-partner_payout_details_all\" p " +
+           "JOIN \"sd-loan_details\" ld ON ld.lms_lan = p.lms_lan AND ld.deal_id = :dealId AND ld.partner_id = :partnerId " +
+           "WHERE p.lms_id = :lmsId AND btrim(ld.lms_lan) <> ''")
+    Mono<String> findContentVersionByLmsIdAndDealIdAndPartnerId(Long lmsId, Long dealId, Long partnerId);
+    
+    // Version of the same rows' LMS content and generated seller fields (the seller input hash changes with them)
+    @Query("SELECT count(*) || ':' || md5(coalesce(string_agg(coalesce(p.content_hash, p.id::text) || '/' || " +
+           "coalesce(p.seller_input_hash, ''), ',' ORDER BY p.id), '')) " +
+           "FROM \"sd-partner_payout_details_all\" p " +
+           "JOIN \"sd-loan_details\" ld ON ld.lms_lan = p.lms_lan AND ld.deal_id = :dealId AND ld.partner_id = :partnerId " +
+           "WHERE p.lms_id = :lmsId AND btrim(ld.lms_lan) <> ''")
+    Mono<String> findGeneratedVersionByLmsIdAndDealIdAndPartnerId(Long lmsId, Long dealId, Long partnerId);
+    
+    @Query("SELECT * FROM \"sd-partner_payout_details_all\" WHERE lms_id = ANY(:lmsIds) AND lms_lan = ANY(:lmsLans)")
+    Flux<PartnerPayoutDetailsAll> findByLmsIdsAndLmsLans(Long[] lmsIds, String[] lmsLans);
+    
     @Query("DELETE FROM \"sd-partner_payout_details_all\" WHERE lms_id = :lmsId")
     Mono<Void> deleteByLmsId(Long lmsId);
     
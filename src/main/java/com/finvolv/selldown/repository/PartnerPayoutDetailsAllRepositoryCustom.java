@@ -0,0 +1,42 @@
+package com.finvolv.selldown.repository;
+
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface PartnerPayoutDetailsAllRepositoryCustom {
+
+    /**
+     * Inserts or updates the given payout details with set-based
+     * INSERT ... ON CONFLICT (lms_id, lms_lan) DO UPDATE statements.
+     * Existing rows keep their id, created_at and the columns set by seller calculation and monthly
+     * generation (seller_*, deal_status_id, is_opening_pos_mismatch); the LMS columns are overwritten.
+     * Existing rows with the same content_hash are not updated and not returned, so the
+     * result holds only inserted and changed rows.
+     * The input must not contain the same (lmsId, lmsLan) twice.
+     */
+    Flux<PartnerPayoutDetailsAll> upsertAll(List<PartnerPayoutDetailsAll> payoutDetails);
+
+    /**
+     * Same semantics as {@link #upsertAll(List)}, but streams all rows into a staging
+     * table with COPY and merges them with one INSERT ... SELECT ... ON CONFLICT statement.
+     */
+    Flux<PartnerPayoutDetailsAll> copyUpsertAll(List<PartnerPayoutDetailsAll> payoutDetails);
+
+    /**
+     * Writes the seller columns (seller_*, including seller_input_hash) and modified_at of the
+     * given payout details with set-based INSERT ... ON CONFLICT (lms_id, lms_lan) DO UPDATE
+     * statements; LMS columns of existing rows are left untouched. Returns every written row.
+     * The input must not contain the same (lmsId, lmsLan) twice.
+     */
+    Flux<PartnerPayoutDetailsAll> upsertSellerFieldsAll(List<PartnerPayoutDetailsAll> payoutDetails);
+
+    /**
+     * Writes the columns set by a monthly generation: the seller columns, is_opening_pos_mismatch,
+     * deal_status_id and modified_at, with the same set-based statements as
+     * {@link #upsertSellerFieldsAll(List)}. Returns every written row.
+     * The input must not contain the same (lmsId, lmsLan) twice.
+     */
+    Flux<PartnerPayoutDetailsAll> upsertGeneratedFieldsAll(List<PartnerPayoutDetailsAll> payoutDetails);
+}
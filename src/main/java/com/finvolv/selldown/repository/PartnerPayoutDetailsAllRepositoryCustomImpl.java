@@ -0,0 +1,143 @@
+package com.finvolv.selldown.repository;
+
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class PartnerPayoutDetailsAllRepositoryCustomImpl implements PartnerPayoutDetailsAllRepositoryCustom {
+
+    private static final String TABLE = "\"sd-partner_payout_details_all\"";
+
+    // Postgres accepts at most 65535 bind parameters per statement
+    private static final int MAX_BIND_PARAMETERS = 65535;
+
+    // Conflict key and audit columns that must survive an update
+    private static final Set<String> INSERT_ONLY_COLUMNS = Set.of("lms_id", "lms_lan", "created_at");
+
+    // Columns besides seller_* written by a monthly generation
+    private static final Set<String> GENERATED_COLUMNS = Set.of("is_opening_pos_mismatch", "deal_status_id", "modified_at");
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final List<SqlIdentifier> columns;
+    private final String insertPrefix;
+    private final String conflictClause;
+    private final String sellerFieldsConflictClause;
+    private final String generatedFieldsConflictClause;
+    private final PostgresCopySupport<PartnerPayoutDetailsAll> copySupport;
+    private final String copyMergeSql;
+
+    public PartnerPayoutDetailsAllRepositoryCustomImpl(R2dbcEntityTemplate r2dbcEntityTemplate) {
+        this.databaseClient = r2dbcEntityTemplate.getDatabaseClient();
+        this.converter = r2dbcEntityTemplate.getConverter();
+        this.copySupport = new PostgresCopySupport<>(r2dbcEntityTemplate, PartnerPayoutDetailsAll.class, TABLE);
+        this.columns = copySupport.columns();
+
+        this.insertPrefix = "INSERT INTO " + TABLE + " (" + copySupport.columnList() + ") VALUES ";
+        this.conflictClause = " ON CONFLICT (lms_id, lms_lan) DO UPDATE SET "
+            + copySupport.columnNames().stream()
+                .filter(name -> !INSERT_ONLY_COLUMNS.contains(name) && !isGeneratedByCalculation(name))
+                .map(name -> name + " = EXCLUDED." + name)
+                .collect(Collectors.joining(", "))
+            // Rows whose LMS content is unchanged are left alone: no write, no WAL, not returned
+            + " WHERE " + TABLE + ".content_hash IS DISTINCT FROM EXCLUDED.content_hash"
+            + " RETURNING *";
+        this.sellerFieldsConflictClause = " ON CONFLICT (lms_id, lms_lan) DO UPDATE SET "
+            + copySupport.columnNames().stream()
+                .filter(name -> name.startsWith("seller_") || name.equals("modified_at"))
+                .map(name -> name + " = EXCLUDED." + name)
+                .collect(Collectors.joining(", "))
+            + " RETURNING *";
+        this.generatedFieldsConflictClause = " ON CONFLICT (lms_id, lms_lan) DO UPDATE SET "
+            + copySupport.columnNames().stream()
+                .filter(name -> name.startsWith("seller_") || GENERATED_COLUMNS.contains(name))
+                .map(name -> name + " = EXCLUDED." + name)
+                .collect(Collectors.joining(", "))
+            + " RETURNING *";
+        this.copyMergeSql = "INSERT INTO " + TABLE + " (" + copySupport.columnList() + ")"
+            + " SELECT " + copySupport.columnList() + " FROM " + PostgresCopySupport.STAGE_TABLE
+            + conflictClause;
+    }
+
+    /**
+     * Seller columns (including the interest overdue split and seller_input_hash), deal status and
+     * opening POS mismatch flag: written by seller calculation and monthly generation, not by an LMS upload
+     */
+    private static boolean isGeneratedByCalculation(String column) {
+        return column.startsWith("seller_") || (GENERATED_COLUMNS.contains(column) && !column.equals("modified_at"));
+    }
+
+    @Override
+    public Flux<PartnerPayoutDetailsAll> upsertAll(List<PartnerPayoutDetailsAll> payoutDetails) {
+        return upsertInStatements(payoutDetails, conflictClause);
+    }
+
+    @Override
+    public Flux<PartnerPayoutDetailsAll> copyUpsertAll(List<PartnerPayoutDetailsAll> payoutDetails) {
+        return copySupport.copyAndMerge(payoutDetails, copyMergeSql);
+    }
+
+    @Override
+    public Flux<PartnerPayoutDetailsAll> upsertSellerFieldsAll(List<PartnerPayoutDetailsAll> payoutDetails) {
+        return upsertInStatements(payoutDetails, sellerFieldsConflictClause);
+    }
+
+    @Override
+    public Flux<PartnerPayoutDetailsAll> upsertGeneratedFieldsAll(List<PartnerPayoutDetailsAll> payoutDetails) {
+        return upsertInStatements(payoutDetails, generatedFieldsConflictClause);
+    }
+
+    private Flux<PartnerPayoutDetailsAll> upsertInStatements(List<PartnerPayoutDetailsAll> payoutDetails, String conflict) {
+        if (payoutDetails.isEmpty()) {
+            return Flux.empty();
+        }
+
+        int maxRowsPerStatement = MAX_BIND_PARAMETERS / columns.size();
+        List<List<PartnerPayoutDetailsAll>> statements = new ArrayList<>();
+        for (int from = 0; from < payoutDetails.size(); from += maxRowsPerStatement) {
+            statements.add(payoutDetails.subList(from, Math.min(from + maxRowsPerStatement, payoutDetails.size())));
+        }
+
+        return Flux.fromIterable(statements)
+            .concatMap(rows -> upsertStatement(rows, conflict));
+    }
+
+    private Flux<PartnerPayoutDetailsAll> upsertStatement(List<PartnerPayoutDetailsAll> rows, String conflict) {
+        StringBuilder sql = new StringBuilder(insertPrefix);
+        List<Object> parameters = new ArrayList<>(rows.size() * columns.size());
+
+        for (int rowIdx = 0; rowIdx < rows.size(); rowIdx++) {
+            OutboundRow outboundRow = new OutboundRow();
+            converter.write(rows.get(rowIdx), outboundRow);
+
+            sql.append(rowIdx == 0 ? "(" : ", (");
+            for (int colIdx = 0; colIdx < columns.size(); colIdx++) {
+                SqlIdentifier column = columns.get(colIdx);
+                if (!outboundRow.containsKey(column)) {
+                    throw new IllegalStateException("No value mapped for column " + column + " of " + TABLE);
+                }
+                parameters.add(outboundRow.get(column));
+                sql.append(colIdx == 0 ? "$" : ", $").append(parameters.size());
+            }
+            sql.append(')');
+        }
+        sql.append(conflict);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < parameters.size(); i++) {
+            spec = spec.bind(i, parameters.get(i));
+        }
+
+        return spec.map((row, metadata) -> converter.read(PartnerPayoutDetailsAll.class, row, metadata))
+            .all();
+    }
+}
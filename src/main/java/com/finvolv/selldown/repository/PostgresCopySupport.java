@@ -0,0 +1,183 @@
+package com.finvolv.selldown.repository;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.codec.Json;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Wrapped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams entities into a session-local staging table with COPY ... FROM STDIN and
+ * then runs a single merge statement (INSERT ... SELECT FROM the staging table) on the
+ * same connection. Rows are rendered with the entity's mapping, so custom writing
+ * converters (e.g. Map/List to JSONB) apply exactly as they do for save().
+ */
+class PostgresCopySupport<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresCopySupport.class);
+
+    static final String STAGE_TABLE = "copy_stage";
+
+    // Rows rendered into one buffer handed to the driver
+    private static final int ROWS_PER_BUFFER = 1000;
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final Class<T> entityType;
+    private final String table;
+    private final List<SqlIdentifier> columns;
+    private final String columnList;
+
+    PostgresCopySupport(R2dbcEntityTemplate r2dbcEntityTemplate, Class<T> entityType, String table) {
+        this.databaseClient = r2dbcEntityTemplate.getDatabaseClient();
+        this.converter = r2dbcEntityTemplate.getConverter();
+        this.entityType = entityType;
+        this.table = table;
+
+        // All mapped columns except the id, which the target table generates
+        RelationalPersistentEntity<?> entity = converter.getMappingContext().getRequiredPersistentEntity(entityType);
+        List<SqlIdentifier> mappedColumns = new ArrayList<>();
+        for (RelationalPersistentProperty property : entity) {
+            if (!property.isIdProperty()) {
+                mappedColumns.add(property.getColumnName());
+            }
+        }
+        this.columns = List.copyOf(mappedColumns);
+        this.columnList = String.join(", ", columnNames());
+    }
+
+    List<SqlIdentifier> columns() {
+        return columns;
+    }
+
+    List<String> columnNames() {
+        return columns.stream()
+            .map(column -> column.toSql(IdentifierProcessing.NONE))
+            .toList();
+    }
+
+    String columnList() {
+        return columnList;
+    }
+
+    /**
+     * Copies the rows into {@link #STAGE_TABLE} and runs mergeSql, which must read from
+     * the staging table and end with RETURNING *. The staging table is dropped afterwards,
+     * also when the copy or merge fails.
+     */
+    Flux<T> copyAndMerge(List<T> rows, String mergeSql) {
+        if (rows.isEmpty()) {
+            return Flux.empty();
+        }
+
+        // Only the column layout is copied, so NOT NULL / defaults of the target do not apply to the stage
+        String createStage = "CREATE TEMP TABLE " + STAGE_TABLE + " AS SELECT " + columnList
+            + " FROM " + table + " WITH NO DATA";
+        String dropStage = "DROP TABLE IF EXISTS " + STAGE_TABLE;
+        String copy = "COPY " + STAGE_TABLE + " (" + columnList + ") FROM STDIN WITH (FORMAT csv)";
+
+        return databaseClient.inConnectionMany(connection -> {
+            PostgresqlConnection postgresConnection = unwrap(connection);
+
+            return Flux.usingWhen(
+                execute(connection, dropStage).then(execute(connection, createStage)).thenReturn(connection),
+                conn -> postgresConnection.copyIn(copy, encode(rows))
+                    .doOnNext(copied -> logger.debug("Copied {} rows into staging table for {}", copied, table))
+                    .thenMany(Flux.from(conn.createStatement(mergeSql).execute()))
+                    .flatMap(result -> result.map((row, metadata) -> converter.read(entityType, row, metadata))),
+                conn -> execute(conn, dropStage),
+                (conn, error) -> execute(conn, dropStage),
+                conn -> execute(conn, dropStage));
+        });
+    }
+
+    private Flux<ByteBuf> encode(List<T> rows) {
+        return Flux.fromIterable(rows)
+            .buffer(ROWS_PER_BUFFER)
+            .map(batch -> {
+                StringBuilder csv = new StringBuilder(batch.size() * columns.size() * 12);
+                for (T entity : batch) {
+                    appendRow(csv, entity);
+                }
+                return Unpooled.wrappedBuffer(csv.toString().getBytes(StandardCharsets.UTF_8));
+            });
+    }
+
+    private void appendRow(StringBuilder csv, T entity) {
+        OutboundRow outboundRow = new OutboundRow();
+        converter.write(entity, outboundRow);
+
+        for (int colIdx = 0; colIdx < columns.size(); colIdx++) {
+            if (colIdx > 0) {
+                csv.append(',');
+            }
+            Parameter parameter = outboundRow.get(columns.get(colIdx));
+            Object value = parameter != null ? parameter.getValue() : null;
+            // Unquoted empty field is NULL in CSV format, everything else is quoted
+            if (value != null) {
+                csv.append('"').append(toText(value).replace("\"", "\"\"")).append('"');
+            }
+        }
+        csv.append('\n');
+    }
+
+    private static String toText(Object value) {
+        if (value instanceof Json json) {
+            return json.asString();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        if (value instanceof Object[] array) {
+            // Array literal, e.g. {100050,NULL} for a BIGINT[] column
+            StringBuilder literal = new StringBuilder("{");
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    literal.append(',');
+                }
+                literal.append(array[i] != null ? toText(array[i]) : "NULL");
+            }
+            return literal.append('}').toString();
+        }
+        // LocalDate / LocalDateTime render as ISO-8601, which Postgres accepts as input
+        return value.toString();
+    }
+
+    private static Mono<Void> execute(Connection connection, String sql) {
+        return Flux.from(connection.createStatement(sql).execute())
+            .flatMap(Result::getRowsUpdated)
+            .then();
+    }
+
+    private static PostgresqlConnection unwrap(Connection connection) {
+        Object candidate = connection;
+        // Spring's transaction-aware proxy and the pool both wrap the driver connection
+        while (!(candidate instanceof PostgresqlConnection) && candidate instanceof Wrapped<?> wrapped) {
+            candidate = wrapped.unwrap();
+        }
+        if (candidate instanceof PostgresqlConnection postgresConnection) {
+            return postgresConnection;
+        }
+        throw new IllegalStateException("COPY ingest requires a PostgreSQL connection, got " + connection.getClass().getName());
+    }
+}
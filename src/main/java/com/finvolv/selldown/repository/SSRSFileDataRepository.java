@@ -8,12 +8,25 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
-public interface SSRSFileDataRepository extends ReactiveCrudRepository<SSRSFileDataEntity, Long> {
+public interface SSRSFileDataRepository extends ReactiveCrudRepository<SSRSFileDataEntity, Long>, SSRSFileDataRepositoryCustom {
     
     Flux<SSRSFileDataEntity> findByMonthlySsrsId(Long monthlySsrsId);
     
     Mono<SSRSFileDataEntity> findByMonthlySsrsIdAndLmsLan(Long monthlySsrsId, String lmsLan);
     
+    Mono<Boolean> existsByMonthlySsrsId(Long monthlySsrsId);
+    
+    // One SSRS upload's rows for the LANs of a deal/partner, in file order; served by the index of
+    // unique constraint uk_ssrs_file_data_monthly_ssrs_id_lms_lan and by idx_loan_details_lms_lan_unique
+    // (partner_id, deal_id, lms_lan), so a LAN matches at most one loan detail
+    @Query("SELECT s.* FROM \"sd-ssrs_file_data\" s " +
+           "JOIN \"sd-loan_details\" ld ON ld.lms_lan = s.lms_lan AND ld.deal_id = :dealId AND ld.partner_id = :partnerId " +
+           "WHERE s.monthly_ssrs_id = :monthlySsrsId AND btrim(ld.lms_lan) <> '' ORDER BY s.id")
+    Flux<SSRSFileDataEntity> findByMonthlySsrsIdAndDealIdAndPartnerId(Long monthlySsrsId, Long dealId, Long partnerId);
+    
+    @Query("SELECT * FROM \"sd-ssrs_file_data\" WHERE monthly_ssrs_id = :monthlySsrsId AND lms_lan = ANY(:lmsLans)")
+    Flux<SSRSFileDataEntity> findByMonthlySsrsIdAndLmsLans(Long monthlySsrsId, String[] lmsLans);
+    
     @Query("DELETE FROM \"sd-ssrs_file_data\" WHERE monthly_ssrs_id = :monthlySsrsId")
     Mono<Void> deleteByMonthlySsrsId(Long monthlySsrsId);
 }
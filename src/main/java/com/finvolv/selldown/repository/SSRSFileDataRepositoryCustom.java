@@ -0,0 +1,16 @@
+package com.finvolv.selldown.repository;
+
+import com.finvolv.selldown.model.SSRSFileDataEntity;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface SSRSFileDataRepositoryCustom {
+
+    /**
+     * Inserts the given SSRS rows by streaming them into a staging table with COPY
+     * and moving them into the real table with one INSERT ... SELECT statement.
+     * Like saveAll, this fails on an existing (monthly_ssrs_id, lms_lan).
+     */
+    Flux<SSRSFileDataEntity> copyInsertAll(List<SSRSFileDataEntity> ssrsFileData);
+}
@@ -0,0 +1,27 @@
+package com.finvolv.selldown.repository;
+
+import com.finvolv.selldown.model.SSRSFileDataEntity;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public class SSRSFileDataRepositoryCustomImpl implements SSRSFileDataRepositoryCustom {
+
+    private static final String TABLE = "\"sd-ssrs_file_data\"";
+
+    private final PostgresCopySupport<SSRSFileDataEntity> copySupport;
+    private final String copyMergeSql;
+
+    public SSRSFileDataRepositoryCustomImpl(R2dbcEntityTemplate r2dbcEntityTemplate) {
+        this.copySupport = new PostgresCopySupport<>(r2dbcEntityTemplate, SSRSFileDataEntity.class, TABLE);
+        this.copyMergeSql = "INSERT INTO " + TABLE + " (" + copySupport.columnList() + ")"
+            + " SELECT " + copySupport.columnList() + " FROM " + PostgresCopySupport.STAGE_TABLE
+            + " RETURNING *";
+    }
+
+    @Override
+    public Flux<SSRSFileDataEntity> copyInsertAll(List<SSRSFileDataEntity> ssrsFileData) {
+        return copySupport.copyAndMerge(ssrsFileData, copyMergeSql);
+    }
+}
@@ -0,0 +1,78 @@
+package com.finvolv.selldown.service;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.math.BigDecimal;
+
+/**
+ * Column widths of a sheet written row by row, from the longest value seen per column. Replaces
+ * Sheet.autoSizeColumn, which measures every cell of a column again after the sheet is written and
+ * needs all rows in memory. Widths are estimated in characters of the default font (the unit of
+ * Sheet.setColumnWidth), with numbers as Excel displays them in the General format.
+ */
+final class ColumnWidthModel {
+
+    // Excel's largest column width, in 1/256 of a character
+    private static final int MAX_WIDTH = 255 * 256;
+    // General shows at most 11 characters of a number and rounds the rest
+    private static final int GENERAL_MAX_CHARS = 11;
+    // Bold header text is about a tenth wider than regular text
+    private static final double BOLD_FACTOR = 1.1;
+    private static final double PADDING_CHARS = 1.0;
+
+    private final double[] maxChars;
+    private final double[] sums;
+    private final boolean[] summed;
+
+    ColumnWidthModel(int columns) {
+        this.maxChars = new double[columns];
+        this.sums = new double[columns];
+        this.summed = new boolean[columns];
+    }
+
+    void header(int column, String text) {
+        track(column, text.length() * BOLD_FACTOR);
+    }
+
+    /**
+     * The column has a SUM formula row: its total is measured as well
+     */
+    void sumColumn(int column) {
+        summed[column] = true;
+    }
+
+    void value(int column, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number number) {
+            double doubleValue = number.doubleValue();
+            sums[column] += doubleValue;
+            track(column, displayLength(doubleValue));
+        } else {
+            track(column, String.valueOf(value).length());
+        }
+    }
+
+    void applyTo(Sheet sheet) {
+        for (int column = 0; column < maxChars.length; column++) {
+            double chars = summed[column] ? Math.max(maxChars[column], displayLength(sums[column])) : maxChars[column];
+            if (chars > 0) {
+                sheet.setColumnWidth(column, (int) Math.min(MAX_WIDTH, Math.round((chars + PADDING_CHARS) * 256)));
+            }
+        }
+    }
+
+    static int displayLength(double value) {
+        if (!Double.isFinite(value)) {
+            return Double.toString(value).length();
+        }
+        return Math.min(BigDecimal.valueOf(value).stripTrailingZeros().toPlainString().length(), GENERAL_MAX_CHARS);
+    }
+
+    private void track(int column, double chars) {
+        if (chars > maxChars[column]) {
+            maxChars[column] = chars;
+        }
+    }
+}
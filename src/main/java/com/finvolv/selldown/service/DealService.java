@@ -26,6 +26,12 @@ public class DealService {
     @Autowired
     private InterestRateChangeRepository interestRateChangeRepository;
 
+    @Autowired
+    private InterestRateTimelineCache interestRateTimelineCache;
+
+    @Autowired
+    private PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
+
     public Mono<Deal> getDealById(Long id) {
         return dealRepository.findById(id);
     }
@@ -57,7 +63,9 @@ public class DealService {
     }
 
     public Mono<Void> deleteDeal(Long id) {
-        return dealRepository.deleteById(id);
+        return dealRepository.deleteById(id)
+                .doOnSuccess(unused -> interestRateTimelineCache.invalidate(id))
+                .then(partnerPayoutDetailsAllService.clearFileHashes("deal " + id + " deleted"));
     }
 
     public Mono<Deal> updateDeal(Long id, Deal deal, String updatedBy) {
@@ -79,7 +87,12 @@ public class DealService {
                     }
                     return builder.build();
                 })
-                .flatMap(dealRepository::save);
+                .flatMap(dealRepository::save)
+                // The default rate and interest method feed the cached rate timeline
+                .doOnNext(saved -> interestRateTimelineCache.invalidate(saved.getId()))
+                // Month-on-month day, assign ratio and rates are not in the LMS file hash
+                .flatMap(saved -> partnerPayoutDetailsAllService.clearFileHashes("deal " + saved.getId() + " updated")
+                        .thenReturn(saved));
     }
 
     public Flux<Deal> getAllDeals() {
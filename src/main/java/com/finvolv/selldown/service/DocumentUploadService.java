@@ -1,6 +1,7 @@
 package com.finvolv.selldown.service;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
@@ -103,19 +104,20 @@ public class DocumentUploadService {
             });
     }
 
+    /**
+     * Uploads the file as a stream: the multipart body is sent chunked as the buffers arrive, so
+     * the file is never held in memory as a whole
+     */
     public Mono<Void> uploadExcel(String authorizationBearerToken,
                                   String generatedId,
-                                  byte[] bytes,
+                                  Publisher<DataBuffer> content,
                                   String filename) {
         String path = String.format("/loan-management-service/api/v1/document/upload/%s", generatedId);
 
         MultipartBodyBuilder builder = new MultipartBodyBuilder();
-        builder.part("file", new ByteArrayResource(bytes) {
-            @Override
-            public String getFilename() {
-                return filename;
-            }
-        }).contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        builder.asyncPart("file", content, DataBuffer.class)
+            .filename(filename)
+            .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
 
         return webClient.post()
             .uri(path)
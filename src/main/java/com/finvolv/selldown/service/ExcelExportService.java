@@ -4,18 +4,25 @@ import com.finvolv.selldown.model.LoanDetail;
 import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
 import com.finvolv.selldown.repository.LoanDetailRepository;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -28,16 +35,74 @@ import java.util.stream.Collectors;
 @Service
 public class ExcelExportService {
 
+    // Report tag of the render metrics
+    private static final String REPORT_NAME = "partner_payout";
+
+    public enum WorkbookMode {
+        IN_MEMORY,
+        STREAMING
+    }
+
     private final PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
     private final LoanDetailRepository loanDetailRepository;
+    private final ReportRenderScheduler reportRenderScheduler;
+
+    @Value("${selldown.excel-export.workbook-mode:STREAMING}")
+    private WorkbookMode workbookMode;
+
+    @Value("${selldown.excel-export.row-access-window:100}")
+    private int rowAccessWindow;
 
     public ExcelExportService(PartnerPayoutDetailsAllService partnerPayoutDetailsAllService, 
-                             LoanDetailRepository loanDetailRepository) {
+                             LoanDetailRepository loanDetailRepository,
+                             ReportRenderScheduler reportRenderScheduler) {
         this.partnerPayoutDetailsAllService = partnerPayoutDetailsAllService;
         this.loanDetailRepository = loanDetailRepository;
+        this.reportRenderScheduler = reportRenderScheduler;
     }
 
     public Mono<byte[]> buildPartnerPayoutReport(List<PartnerPayoutDetailsAll> payouts, Long dealId, Long partnerId) {
+        return loadColumns(dealId, partnerId)
+                .flatMap(columns -> reportRenderScheduler.render(REPORT_NAME, () -> {
+                    try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                        writeWorkbook(payouts, columns, out);
+                        return out.toByteArray();
+                    } catch (IOException e) {
+                        throw new RuntimeException("Failed to build Excel file", e);
+                    }
+                }));
+    }
+
+    /**
+     * The workbook as buffers for a streaming upload, read from the file it is rendered into
+     * (target, if set; see {@link ReportRenderScheduler#stream})
+     */
+    public Flux<DataBuffer> streamPartnerPayoutReport(List<PartnerPayoutDetailsAll> payouts, Long dealId, Long partnerId,
+                                                      Path target) {
+        return loadColumns(dealId, partnerId)
+                .flatMapMany(columns -> reportRenderScheduler.stream(REPORT_NAME, target,
+                        out -> writeWorkbook(payouts, columns, out)));
+    }
+
+    public Mono<Path> writeReportToFile(List<PartnerPayoutDetailsAll> payouts, String directory, String filename, Long dealId, Long partnerId) {
+        // Written straight to the file, without the whole workbook in a byte array
+        return loadColumns(dealId, partnerId)
+                .flatMap(columns -> reportRenderScheduler.render(REPORT_NAME, () -> {
+                    try {
+                        Path dir = Paths.get(directory);
+                        Files.createDirectories(dir);
+                        Path filePath = dir.resolve(filename);
+                        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(filePath))) {
+                            writeWorkbook(payouts, columns, out);
+                        }
+                        return filePath;
+                    } catch (IOException e) {
+                        throw new RuntimeException("Failed to write Excel file to disk", e);
+                    }
+                }));
+    }
+
+    private Mono<Map<String, java.util.function.Function<PartnerPayoutDetailsAll, Object>>> loadColumns(Long dealId, Long partnerId) {
         // Fetch deal once to get both deal rate and chargesApplicable flag
         Mono<com.finvolv.selldown.model.Deal> dealMono = dealId != null
                 ? partnerPayoutDetailsAllService.getDealById(dealId)
@@ -98,7 +163,7 @@ public class ExcelExportService {
             sourceMapMono = Mono.just(new LinkedHashMap<>());
         }
 
-        // Combine all reactive operations and build the Excel file
+        // Combine all reactive operations into the report columns
         return Mono.zip(dealInfoMono, customerRoiMapMono, sourceMapMono)
                 .map(tuple -> {
                     java.util.AbstractMap.SimpleEntry<Double, Boolean> dealInfo = tuple.getT1();
@@ -110,119 +175,142 @@ public class ExcelExportService {
                     Boolean chargesApplicable = dealInfo.getValue();
                     Map<String, Double> customerRoiMap = tuple.getT2();
                     Map<String, String> sourceMap = tuple.getT3();
-                    
-                    try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                        Sheet sheet = workbook.createSheet("Partner Payout Report");
-
-                        Map<String, java.util.function.Function<PartnerPayoutDetailsAll, Object>> columns = buildColumns(dealRate, customerRoiMap, sourceMap, chargesApplicable);
-                        
-                        // Create cell styles for gray and yellow backgrounds with bold font for header
-                        XSSFFont boldFont = workbook.createFont();
-                        boldFont.setBold(true);
-                        
-                        XSSFCellStyle grayStyle = workbook.createCellStyle();
-                        grayStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-                        grayStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-                        grayStyle.setFont(boldFont);
-                        
-                        XSSFCellStyle yellowStyle = workbook.createCellStyle();
-                        yellowStyle.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
-                        yellowStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-                        yellowStyle.setFont(boldFont);
-                        
-                        // Identify seller column start index
-                        int sellerStartIndex = -1;
-                        int colIdx = 0;
-                        for (String headerName : columns.keySet()) {
-                            if (headerName.startsWith("Opening POS ( Without overdue) Sell down")) {
-                                sellerStartIndex = colIdx;
-                                break;
-                            }
-                            colIdx++;
-                        }
-                        
-                        // If seller columns not found, use last column as fallback
-                        if (sellerStartIndex == -1) {
-                            sellerStartIndex = columns.size();
-                        }
 
-                        // Sum row (row 0) - add SUM formulas for numeric columns (no coloring)
-                        Row sumRow = sheet.createRow(0);
-                        colIdx = 0;
-                        int dataStartRow = 2; // Data starts at row 2 (after header row 1)
-                        int dataEndRow = dataStartRow + payouts.size() - 1;
-                        
-                        for (String headerName : columns.keySet()) {
-                            Cell sumCell = sumRow.createCell(colIdx);
-                            
-                            // Add SUM formula for numeric columns (skip text columns like LAN)
-                            if (colIdx > 0 && !headerName.equals("LAN") && !headerName.equals("Deal Rate") 
-                                    && !headerName.equals("Customer ROI") && !headerName.equals("Closing DPD")) {
-                                String columnLetter = getColumnLetter(colIdx);
-                                String formula = String.format("SUM(%s%d:%s%d)", columnLetter, dataStartRow + 1, columnLetter, dataEndRow + 1);
-                                sumCell.setCellFormula(formula);
-                            } else {
-                                sumCell.setCellValue(""); // Empty for non-numeric columns
-                            }
-                            colIdx++;
-                        }
+                    return buildColumns(dealRate, customerRoiMap, sourceMap, chargesApplicable);
+                });
+    }
 
-                        // Header row (row 1)
-                        Row header = sheet.createRow(1);
-                        colIdx = 0;
-                        for (String headerName : columns.keySet()) {
-                            Cell cell = header.createCell(colIdx);
-                            cell.setCellValue(headerName);
-                            
-                            // Apply color based on column position
-                            if (colIdx < sellerStartIndex) {
-                                cell.setCellStyle(grayStyle);
-                            } else {
-                                cell.setCellStyle(yellowStyle);
-                            }
-                            colIdx++;
-                        }
+    /**
+     * Writes the workbook: the whole sheet in an XSSFWorkbook with autosized columns (IN_MEMORY), or
+     * through an SXSSFWorkbook that keeps only row-access-window rows in memory and sizes the columns
+     * from the widths tracked while writing (STREAMING)
+     */
+    private void writeWorkbook(List<PartnerPayoutDetailsAll> payouts,
+                               Map<String, java.util.function.Function<PartnerPayoutDetailsAll, Object>> columns,
+                               OutputStream out) throws IOException {
+        if (workbookMode == WorkbookMode.IN_MEMORY) {
+            try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+                Sheet sheet = writeSheet(workbook, payouts, columns, null);
+
+                // Autosize
+                for (int i = 0; i < columns.size(); i++) {
+                    sheet.autoSizeColumn(i);
+                }
+
+                workbook.write(out);
+            }
+            return;
+        }
 
-                        // Data rows (starting from row 2) - no coloring
-                        int rowIdx = dataStartRow;
-                        for (PartnerPayoutDetailsAll p : payouts) {
-                            Row row = sheet.createRow(rowIdx++);
-                            int c = 0;
-                            for (java.util.function.Function<PartnerPayoutDetailsAll, Object> getter : columns.values()) {
-                                Object value = getter.apply(p);
-                                Cell cell = row.createCell(c);
-                                setCellValue(cell, value);
-                                // No styling applied to data rows
-                                c++;
-                            }
-                        }
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(rowAccessWindow)) {
+            // Rows beyond the window are flushed to a gzipped temporary file
+            workbook.setCompressTempFiles(true);
+            try {
+                ColumnWidthModel widths = new ColumnWidthModel(columns.size());
+                Sheet sheet = writeSheet(workbook, payouts, columns, widths);
+                widths.applyTo(sheet);
+                workbook.write(out);
+            } finally {
+                workbook.dispose();
+            }
+        }
+    }
 
-                        // Autosize
-                        for (int i = 0; i < columns.size(); i++) {
-                            sheet.autoSizeColumn(i);
-                        }
+    private Sheet writeSheet(Workbook workbook, List<PartnerPayoutDetailsAll> payouts,
+                             Map<String, java.util.function.Function<PartnerPayoutDetailsAll, Object>> columns,
+                             ColumnWidthModel widths) {
+        Sheet sheet = workbook.createSheet("Partner Payout Report");
+
+        // Create cell styles for gray and yellow backgrounds with bold font for header
+        Font boldFont = workbook.createFont();
+        boldFont.setBold(true);
+
+        CellStyle grayStyle = workbook.createCellStyle();
+        grayStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        grayStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        grayStyle.setFont(boldFont);
+
+        CellStyle yellowStyle = workbook.createCellStyle();
+        yellowStyle.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+        yellowStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        yellowStyle.setFont(boldFont);
+
+        // Identify seller column start index
+        int sellerStartIndex = -1;
+        int colIdx = 0;
+        for (String headerName : columns.keySet()) {
+            if (headerName.startsWith("Opening POS ( Without overdue) Sell down")) {
+                sellerStartIndex = colIdx;
+                break;
+            }
+            colIdx++;
+        }
 
-                        workbook.write(out);
-                        return out.toByteArray();
-                    } catch (IOException e) {
-                        throw new RuntimeException("Failed to build Excel file", e);
-                    }
-                });
-    }
+        // If seller columns not found, use last column as fallback
+        if (sellerStartIndex == -1) {
+            sellerStartIndex = columns.size();
+        }
 
-    public Mono<Path> writeReportToFile(List<PartnerPayoutDetailsAll> payouts, String directory, String filename, Long dealId, Long partnerId) {
-        return buildPartnerPayoutReport(payouts, dealId, partnerId)
-                .map(bytes -> {
-                    try {
-                        Path dir = Paths.get(directory);
-                        Files.createDirectories(dir);
-                        Path filePath = dir.resolve(filename);
-                        Files.write(filePath, bytes);
-                        return filePath;
-                    } catch (IOException e) {
-                        throw new RuntimeException("Failed to write Excel file to disk", e);
-                    }
-                });
+        // Sum row (row 0) - add SUM formulas for numeric columns (no coloring)
+        Row sumRow = sheet.createRow(0);
+        colIdx = 0;
+        int dataStartRow = 2; // Data starts at row 2 (after header row 1)
+        int dataEndRow = dataStartRow + payouts.size() - 1;
+
+        for (String headerName : columns.keySet()) {
+            Cell sumCell = sumRow.createCell(colIdx);
+
+            // Add SUM formula for numeric columns (skip text columns like LAN)
+            if (colIdx > 0 && !headerName.equals("LAN") && !headerName.equals("Deal Rate")
+                    && !headerName.equals("Customer ROI") && !headerName.equals("Closing DPD")) {
+                String columnLetter = getColumnLetter(colIdx);
+                String formula = String.format("SUM(%s%d:%s%d)", columnLetter, dataStartRow + 1, columnLetter, dataEndRow + 1);
+                sumCell.setCellFormula(formula);
+                if (widths != null) {
+                    widths.sumColumn(colIdx);
+                }
+            } else {
+                sumCell.setCellValue(""); // Empty for non-numeric columns
+            }
+            colIdx++;
+        }
+
+        // Header row (row 1)
+        Row header = sheet.createRow(1);
+        colIdx = 0;
+        for (String headerName : columns.keySet()) {
+            Cell cell = header.createCell(colIdx);
+            cell.setCellValue(headerName);
+            if (widths != null) {
+                widths.header(colIdx, headerName);
+            }
+
+            // Apply color based on column position
+            if (colIdx < sellerStartIndex) {
+                cell.setCellStyle(grayStyle);
+            } else {
+                cell.setCellStyle(yellowStyle);
+            }
+            colIdx++;
+        }
+
+        // Data rows (starting from row 2) - no coloring
+        int rowIdx = dataStartRow;
+        for (PartnerPayoutDetailsAll p : payouts) {
+            Row row = sheet.createRow(rowIdx++);
+            int c = 0;
+            for (java.util.function.Function<PartnerPayoutDetailsAll, Object> getter : columns.values()) {
+                Object value = getter.apply(p);
+                Cell cell = row.createCell(c);
+                setCellValue(cell, value);
+                if (widths != null) {
+                    widths.value(c, value);
+                }
+                // No styling applied to data rows
+                c++;
+            }
+        }
+        return sheet;
     }
 
     private Map<String, java.util.function.Function<PartnerPayoutDetailsAll, Object>> buildColumns(Double dealRate, Map<String, Double> customerRoiMap, Map<String, String> sourceMap, Boolean chargesApplicable) {
@@ -0,0 +1,365 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.dto.CursorPage;
+import com.finvolv.selldown.dto.ExcelGenerationResponse;
+import com.finvolv.selldown.dto.OpeningPosDiscrepancy;
+import com.finvolv.selldown.dto.SellerTotals;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.MonthlyDealProcessingStatus;
+import com.finvolv.selldown.model.MonthlyDealStatus;
+import com.finvolv.selldown.model.MonthlyLMSStatusEntity;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import com.finvolv.selldown.repository.LoanDetailRepository;
+import com.finvolv.selldown.repository.MonthlyDealProcessingStatusRepository;
+import com.finvolv.selldown.repository.MonthlyLMSStatusRepository;
+import com.finvolv.selldown.repository.PartnerPayoutDetailsAllRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Monthly payout data of a deal/partner: matches the month's LMS rows to the deal's loan details,
+ * calculates the seller fields, detects opening position discrepancies and saves the result with
+ * the deal's monthly processing status.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExcelGenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExcelGenerationService.class);
+
+    private final LoanDetailRepository loanDetailRepository;
+    private final MonthlyLMSStatusRepository monthlyLMSStatusRepository;
+    private final MonthlyDealProcessingStatusRepository monthlyDealProcessingStatusRepository;
+    private final PartnerPayoutDetailsAllRepository partnerPayoutDetailsAllRepository;
+    private final PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
+
+    @Value("${selldown.excel-generation.write-batch-size:500}")
+    private int writeBatchSize;
+
+    @Value("${selldown.excel-generation.max-page-size:5000}")
+    private int maxPageSize;
+
+    public Mono<ExcelGenerationResponse> generateExcelData(Long dealId, Long partnerId, Integer year, Integer month) {
+        logger.info("=== EXCEL GENERATION START ===");
+        logger.info("Parameters: dealId={}, partnerId={}, year={}, month={}", dealId, partnerId, year, month);
+
+        // Step 1: Get loan details
+        return loanDetailRepository.findByDealIdAndPartnerId(dealId, partnerId)
+            .collectList()
+            .flatMap(loanDetails -> {
+                logger.info("Found {} loan details for dealId: {}, partnerId: {}", loanDetails.size(), dealId, partnerId);
+
+                if (loanDetails.isEmpty()) {
+                    return Mono.just(createEmptyResponse(dealId, partnerId, year, month, loanDetails, "No loan details found"));
+                }
+
+                // First get the lmsId from MonthlyLMSStatus using year and month
+                // This is more reliable than extracting from cycle_start_date which may be in previous month
+                return monthlyLMSStatusRepository.findByYearAndMonth(year, month)
+                    .switchIfEmpty(Mono.error(new RuntimeException(
+                        String.format("No LMS status found for year: %d, month: %d", year, month))))
+                    .flatMap(lmsStatus -> {
+                        logger.info("Found LMS status with ID: {} for year: {}, month: {}", lmsStatus.getId(), year, month);
+
+                        // Step 2: Get matching payout details
+                        return generateExcelData(dealId, partnerId, year, month, loanDetails, lmsStatus.getId(), null);
+                    });
+            });
+    }
+
+    /**
+     * Same as {@link #generateExcelData(Long, Long, Integer, Integer)} with the month-level data
+     * already loaded by the caller: the deal's loan details, the month's LMS id and, optionally,
+     * a previous-month context covering the deal's LANs (loaded here when null)
+     */
+    Mono<ExcelGenerationResponse> generateExcelData(Long dealId, Long partnerId, Integer year, Integer month,
+                                                    List<LoanDetail> loanDetails, Long lmsId,
+                                                    SellerCalculationContext sellerCalculationContext) {
+        // One query joining the month's payout rows to the deal/partner's loan details on lms_lan
+        return partnerPayoutDetailsAllRepository.findByLmsIdAndDealIdAndPartnerId(lmsId, dealId, partnerId)
+            .collectList()
+            .flatMap(matchedPayoutDetails -> {
+                logger.info("Found {} matching payout details for year: {}, month: {}, lmsId: {}",
+                    matchedPayoutDetails.size(), year, month, lmsId);
+
+                if (matchedPayoutDetails.isEmpty()) {
+                    return Mono.just(createEmptyResponse(dealId, partnerId, year, month, loanDetails,
+                        "No matching payout details found for the specified year and month"));
+                }
+
+                // Step 3: Get deal and process calculations
+                return processCalculationsAndDiscrepancies(dealId, partnerId, year, month, loanDetails, matchedPayoutDetails,
+                    sellerCalculationContext);
+            });
+    }
+
+    private Mono<ExcelGenerationResponse> processCalculationsAndDiscrepancies(Long dealId, Long partnerId, Integer year, Integer month,
+                                                                             List<LoanDetail> loanDetails, List<PartnerPayoutDetailsAll> matchedPayoutDetails,
+                                                                             SellerCalculationContext sellerCalculationContext) {
+        return partnerPayoutDetailsAllService.getDealById(dealId)
+            .switchIfEmpty(Mono.error(new RuntimeException("Deal not found with ID: " + dealId)))
+            .flatMap(deal -> {
+                logger.info("Successfully fetched deal: ID={}, Name={}, AssignRatio={}",
+                    deal.getId(), deal.getName(), deal.getAssignRatio());
+
+                // Create a map of loan details by lmsLan for quick lookup
+                Map<String, LoanDetail> loanDetailMap = loanDetails.stream()
+                    .filter(ld -> ld.getLmsLan() != null)
+                    .collect(Collectors.toMap(LoanDetail::getLmsLan, ld -> ld, (existing, replacement) -> existing));
+
+                // Load previous month data for all matched LANs once (unless the caller shares it),
+                // then calculate seller fields in parallel batches
+                List<String> matchedLans = matchedPayoutDetails.stream()
+                    .map(PartnerPayoutDetailsAll::getLmsLan)
+                    .toList();
+                Mono<SellerCalculationContext> contextMono = sellerCalculationContext != null
+                    ? Mono.just(sellerCalculationContext)
+                    : partnerPayoutDetailsAllService.loadSellerCalculationContext(year, month, matchedLans);
+
+                // Stored state before recalculation, to save only the rows that change
+                Map<PartnerPayoutDetailsAll, StoredState> storedStates = new IdentityHashMap<>();
+                matchedPayoutDetails.forEach(payout -> storedStates.put(payout, StoredState.of(payout)));
+
+                return contextMono
+                    .flatMap(context -> partnerPayoutDetailsAllService.calculateSellerFields(
+                            matchedPayoutDetails, deal, loanDetailMap, context)
+                        .collectList()
+                        .flatMap(calculatedPayoutDetails -> {
+                            logger.info("Calculated seller fields for {} payout details", calculatedPayoutDetails.size());
+
+                            // Detect opening position mismatches against the previous month rows in the context
+                            List<OpeningPosDiscrepancy> discrepancies = partnerPayoutDetailsAllService.detectOpeningPosMismatches(
+                                calculatedPayoutDetails, loanDetails, context);
+                            logger.info("Detected {} opening position mismatches", discrepancies.size());
+                            return createDealStatusAndSaveData(dealId, partnerId, year, month, loanDetails, calculatedPayoutDetails,
+                                storedStates, discrepancies);
+                        }));
+            });
+    }
+
+    private Mono<ExcelGenerationResponse> createDealStatusAndSaveData(Long dealId, Long partnerId, Integer year, Integer month,
+                                                                     List<LoanDetail> loanDetails, List<PartnerPayoutDetailsAll> calculatedPayoutDetails,
+                                                                     Map<PartnerPayoutDetailsAll, StoredState> storedStates,
+                                                                     List<OpeningPosDiscrepancy> discrepancies) {
+        return createOrUpdateDealProcessingStatus(dealId, partnerId, year, month)
+            .flatMap(dealStatus -> {
+                logger.info("Created/updated deal processing status: {}", dealStatus.getId());
+
+                // Stamp the deal status ID on the matched payout details; rows stamped by an earlier
+                // generation of the same month keep it and count as unchanged
+                List<PartnerPayoutDetailsAll> unstampedPayoutDetails = calculatedPayoutDetails.stream()
+                    .filter(payout -> !dealStatus.getId().equals(payout.getDealStatusId()))
+                    .toList();
+                unstampedPayoutDetails.forEach(payout -> payout.setDealStatusId(dealStatus.getId()));
+                int updatedCount = unstampedPayoutDetails.size();
+
+                // Write only payout details that were recalculated, whose mismatch flag changed or that
+                // were stamped now: seller fields, mismatch flag and deal status ID in one upsert per chunk
+                List<PartnerPayoutDetailsAll> changedPayoutDetails = calculatedPayoutDetails.stream()
+                    .filter(payout -> storedStates.get(payout) == null || storedStates.get(payout).changed(payout))
+                    .toList();
+                logger.info("{} of {} payout details changed since the last generation, {} stamped with deal status ID: {}",
+                    changedPayoutDetails.size(), calculatedPayoutDetails.size(), updatedCount, dealStatus.getId());
+
+                return saveGeneratedFields(changedPayoutDetails)
+                    .map(savedCount -> {
+                        logger.info("=== EXCEL GENERATION COMPLETE ===");
+                        logger.info("Final result: {} discrepancies found, {} payout details processed, {} saved",
+                            discrepancies.size(), calculatedPayoutDetails.size(), savedCount);
+
+                        ExcelGenerationResponse response = ExcelGenerationResponse.builder()
+                            .dealId(dealId)
+                            .partnerId(partnerId)
+                            .year(year)
+                            .month(month)
+                            .loanDetails(loanDetails)
+                            .matchedPayoutDetails(calculatedPayoutDetails)
+                            .dealProcessingStatus(dealStatus)
+                            .openingPosDiscrepancies(discrepancies)
+                            .totalLoanDetails(loanDetails.size())
+                            .matchedPayoutDetailsCount(calculatedPayoutDetails.size())
+                            .updatedPayoutDetailsCount(updatedCount)
+                            .discrepancyCount(discrepancies.size())
+                            .sellerTotals(sellerTotals(calculatedPayoutDetails))
+                            .message("Excel data generated successfully with calculated seller fields saved to database")
+                            .success(true)
+                            .build();
+
+                        logger.info("Built response: success={}, discrepancyCount={}, matchedCount={}",
+                            response.isSuccess(), response.getDiscrepancyCount(), response.getMatchedPayoutDetailsCount());
+
+                        return response;
+                    })
+                    .doOnNext(response -> logger.info("Response ready to return: {}", response.getMessage()))
+                    .doOnError(error -> logger.error("Error in final response building: {}", error.getMessage(), error));
+            });
+    }
+
+    /**
+     * The response without the loan detail and payout rows, for clients that only need
+     * counts, seller totals and discrepancies
+     */
+    public static ExcelGenerationResponse summary(ExcelGenerationResponse response) {
+        response.setLoanDetails(null);
+        response.setMatchedPayoutDetails(null);
+        return response;
+    }
+
+    /**
+     * Page of the deal/partner's loan details with id greater than afterId, in id order
+     */
+    public Mono<CursorPage<LoanDetail>> getLoanDetailsPage(Long dealId, Long partnerId, Long afterId, Integer limit) {
+        return pageSize(limit)
+            .flatMap(pageSize -> loanDetailRepository.findPageByDealIdAndPartnerId(
+                    dealId, partnerId, afterId != null ? afterId : 0L, pageSize + 1)
+                .collectList()
+                .map(loanDetails -> cursorPage(loanDetails, pageSize, LoanDetail::getId)));
+    }
+
+    /**
+     * Page of the month's payout details matched to the deal/partner with id greater than afterId, in id order
+     */
+    public Mono<CursorPage<PartnerPayoutDetailsAll>> getPayoutDetailsPage(Long dealId, Long partnerId, Integer year, Integer month,
+                                                                         Long afterId, Integer limit) {
+        return pageSize(limit)
+            .flatMap(pageSize -> findLmsId(year, month)
+                .flatMap(lmsId -> partnerPayoutDetailsAllRepository.findPageByLmsIdAndDealIdAndPartnerId(
+                        lmsId, dealId, partnerId, afterId != null ? afterId : 0L, pageSize + 1)
+                    .collectList())
+                .map(payoutDetails -> cursorPage(payoutDetails, pageSize, PartnerPayoutDetailsAll::getId)));
+    }
+
+    /**
+     * All of the deal/partner's loan details, streamed as they are read
+     */
+    public Flux<LoanDetail> streamLoanDetails(Long dealId, Long partnerId) {
+        return loanDetailRepository.findByDealIdAndPartnerId(dealId, partnerId);
+    }
+
+    /**
+     * All of the month's payout details matched to the deal/partner, streamed as they are read
+     */
+    public Flux<PartnerPayoutDetailsAll> streamPayoutDetails(Long dealId, Long partnerId, Integer year, Integer month) {
+        return findLmsId(year, month)
+            .flatMapMany(lmsId -> partnerPayoutDetailsAllRepository.findByLmsIdAndDealIdAndPartnerId(lmsId, dealId, partnerId));
+    }
+
+    private Mono<Long> findLmsId(Integer year, Integer month) {
+        return monthlyLMSStatusRepository.findByYearAndMonth(year, month)
+            .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                String.format("No LMS status found for year: %d, month: %d", year, month))))
+            .map(MonthlyLMSStatusEntity::getId);
+    }
+
+    private Mono<Integer> pageSize(Integer limit) {
+        if (limit == null || limit < 1 || limit > maxPageSize) {
+            return Mono.error(new IllegalArgumentException(String.format("limit must be between 1 and %d", maxPageSize)));
+        }
+        return Mono.just(limit);
+    }
+
+    /**
+     * Page from rows fetched with limit pageSize + 1: the extra row only tells that there are more
+     */
+    private static <T> CursorPage<T> cursorPage(List<T> rows, int pageSize, Function<T, Long> id) {
+        boolean hasMore = rows.size() > pageSize;
+        List<T> items = hasMore ? rows.subList(0, pageSize) : rows;
+        return CursorPage.<T>builder()
+            .items(items)
+            .limit(pageSize)
+            .nextCursor(hasMore ? id.apply(items.get(items.size() - 1)) : null)
+            .hasMore(hasMore)
+            .build();
+    }
+
+    private static SellerTotals sellerTotals(List<PartnerPayoutDetailsAll> payoutDetails) {
+        SellerTotalsAccumulator totals = new SellerTotalsAccumulator();
+        payoutDetails.forEach(payout -> totals.add(SellerCalculationResult.of(payout)));
+        return totals.toTotals();
+    }
+
+    private ExcelGenerationResponse createEmptyResponse(Long dealId, Long partnerId, Integer year, Integer month,
+                                                       List<LoanDetail> loanDetails, String message) {
+        return ExcelGenerationResponse.builder()
+            .dealId(dealId)
+            .partnerId(partnerId)
+            .year(year)
+            .month(month)
+            .loanDetails(loanDetails)
+            .matchedPayoutDetails(List.of())
+            .dealProcessingStatus(null)
+            .totalLoanDetails(loanDetails.size())
+            .matchedPayoutDetailsCount(0)
+            .updatedPayoutDetailsCount(0)
+            .discrepancyCount(0)
+            .message(message)
+            .success(false)
+            .build();
+    }
+
+   private Mono<MonthlyDealProcessingStatus> createOrUpdateDealProcessingStatus(Long dealId, Long partnerId, Integer year, Integer month) {
+       return monthlyDealProcessingStatusRepository.findByDealIdAndPartnerIdAndYearAndMonth(dealId, partnerId, year, month)
+           .switchIfEmpty(
+               // Create new deal processing status if not exists
+               monthlyDealProcessingStatusRepository.save(MonthlyDealProcessingStatus.builder()
+                   .dealId(dealId)
+                   .partnerId(partnerId)
+                   .year(year)
+                   .month(month)
+                   .status(MonthlyDealStatus.PAYOUT_FILE_CREATED)
+                   .cycleStartDate(LocalDate.of(year, month, 1))
+                   .cycleEndDate(LocalDate.of(year, month, 1).withDayOfMonth(
+                       LocalDate.of(year, month, 1).lengthOfMonth()))
+                   .createdAt(LocalDateTime.now())
+                   .modifiedAt(LocalDateTime.now())
+                   .build())
+           );
+   }
+
+    /**
+     * Upserts the generated columns in chunks of selldown.excel-generation.write-batch-size rows,
+     * one statement per chunk, and returns the number of rows written
+     */
+    private Mono<Long> saveGeneratedFields(List<PartnerPayoutDetailsAll> payoutDetails) {
+        if (payoutDetails.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return Flux.fromIterable(payoutDetails)
+            .buffer(writeBatchSize)
+            .concatMap(chunk -> partnerPayoutDetailsAllRepository.upsertGeneratedFieldsAll(chunk)
+                .count()
+                .doOnNext(saved -> logger.info("Saved chunk of {} payout details (seller fields, mismatch flag, deal status ID)", saved)))
+            .reduce(0L, Long::sum)
+            .doOnError(error -> logger.error("Error saving payout details: {}", error.getMessage(), error));
+    }
+
+    /**
+     * The values that decide whether a payout row has to be written again
+     */
+    private record StoredState(String sellerInputHash, Boolean isOpeningPosMisMatch, Long dealStatusId) {
+
+        static StoredState of(PartnerPayoutDetailsAll payout) {
+            return new StoredState(payout.getSellerInputHash(), payout.getIsOpeningPosMisMatch(), payout.getDealStatusId());
+        }
+
+        boolean changed(PartnerPayoutDetailsAll payout) {
+            return !Objects.equals(sellerInputHash, payout.getSellerInputHash())
+                || !Objects.equals(isOpeningPosMisMatch, payout.getIsOpeningPosMisMatch())
+                || !Objects.equals(dealStatusId, payout.getDealStatusId());
+        }
+    }
+}
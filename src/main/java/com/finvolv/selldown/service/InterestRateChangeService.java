@@ -19,11 +19,20 @@ public class InterestRateChangeService {
     @Autowired
     private DealRepository dealRepository;
 
+    @Autowired
+    private InterestRateTimelineCache interestRateTimelineCache;
+
     public Flux<InterestRateChange> getInterestRateChanges(Long dealId) {
         return interestRateChangeRepository.findByDealId(dealId);
     }
 
     public Mono<InterestRateChange> changeInterestRate(Long id, Long dealId, Double interestRate, LocalDate startDate, LocalDate endDate) {
+        // Drop the deal's compiled rate timeline once the rate table and deal are updated
+        return applyInterestRateChange(id, dealId, interestRate, startDate, endDate)
+                .doFinally(signal -> interestRateTimelineCache.invalidate(dealId));
+    }
+
+    private Mono<InterestRateChange> applyInterestRateChange(Long id, Long dealId, Double interestRate, LocalDate startDate, LocalDate endDate) {
         // If id is provided, update existing entry
         if (id != null) {
             return interestRateChangeRepository.findById(id)
@@ -0,0 +1,214 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestRateChange;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A deal's interest rate table compiled for repeated interest calculations.
+ * Rate periods are sorted by start date with a running maximum of their end dates, so the
+ * periods overlapping a cycle are found with two binary searches instead of a full scan.
+ * For each (cycle start, cycle end, interest method, default rate) the per-period
+ * rate x day-count factors are computed once and reused for every LAN of the deal.
+ */
+public class InterestRateTimeline {
+
+    private final boolean empty;
+    private final LocalDate[] starts;
+    private final LocalDate[] ends;
+    private final double[] rates;
+    // maxEnds[i] = latest end date among periods 0..i, non-decreasing
+    private final LocalDate[] maxEnds;
+    // Identifies the rate table contents, part of every payout's seller input hash
+    private final String fingerprint;
+    private final Map<FactorKey, List<RateFactor>> factors = new ConcurrentHashMap<>();
+
+    private InterestRateTimeline(boolean empty, List<InterestRateChange> periods) {
+        this.empty = empty;
+        int size = periods.size();
+        this.starts = new LocalDate[size];
+        this.ends = new LocalDate[size];
+        this.rates = new double[size];
+        this.maxEnds = new LocalDate[size];
+
+        for (int i = 0; i < size; i++) {
+            InterestRateChange period = periods.get(i);
+            starts[i] = period.getStartDate();
+            ends[i] = period.getEndDate() != null ? period.getEndDate() : LocalDate.MAX;
+            rates[i] = period.getInterestRate() != null ? period.getInterestRate() : 0.0;
+            maxEnds[i] = i == 0 || ends[i].isAfter(maxEnds[i - 1]) ? ends[i] : maxEnds[i - 1];
+        }
+
+        StringBuilder canonical = new StringBuilder(empty ? "empty" : "rates");
+        for (int i = 0; i < size; i++) {
+            canonical.append('|').append(starts[i]).append(',').append(ends[i]).append(',').append(rates[i]);
+        }
+        MessageDigest digest = PayoutContentHasher.newDigest();
+        digest.update(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        this.fingerprint = PayoutContentHasher.hex(digest);
+    }
+
+    public static InterestRateTimeline compile(List<InterestRateChange> rateTable) {
+        // Periods without a start date never apply
+        List<InterestRateChange> periods = rateTable.stream()
+            .filter(period -> period.getStartDate() != null)
+            .sorted(Comparator.comparing(InterestRateChange::getStartDate))
+            .toList();
+        return new InterestRateTimeline(rateTable.isEmpty(), periods);
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Interest on baseAmount for the cycle, summing each rate period separately (each period
+     * rounded to 10 decimals) and using defaultRate for days no period covers.
+     * Returns null when the deal has no rate table or the interest is not positive.
+     */
+    public BigDecimal interest(BigDecimal baseAmount, LocalDate startDate, LocalDate endDate,
+                               Deal.InterestMethod interestMethod, Double defaultRate) {
+        if (empty || baseAmount == null || startDate == null || endDate == null) {
+            return null;
+        }
+
+        BigDecimal totalInterest = BigDecimal.ZERO;
+        for (RateFactor factor : factorsFor(startDate, endDate, interestMethod, defaultRate)) {
+            totalInterest = totalInterest.add(baseAmount
+                .multiply(factor.rate())
+                .multiply(factor.multiplier())
+                .setScale(10, RoundingMode.HALF_UP));
+        }
+
+        return totalInterest.compareTo(BigDecimal.ZERO) > 0 ? totalInterest.setScale(2, RoundingMode.HALF_UP) : null;
+    }
+
+    private List<RateFactor> factorsFor(LocalDate startDate, LocalDate endDate,
+                                        Deal.InterestMethod interestMethod, Double defaultRate) {
+        return factors.computeIfAbsent(new FactorKey(startDate, endDate, interestMethod, defaultRate),
+            key -> compileFactors(startDate, endDate, interestMethod, defaultRate));
+    }
+
+    private List<RateFactor> compileFactors(LocalDate startDate, LocalDate endDate,
+                                            Deal.InterestMethod interestMethod, Double defaultRate) {
+        long totalDays = ChronoUnit.DAYS.between(startDate, endDate);
+        if (totalDays <= 0) {
+            return List.of();
+        }
+
+        List<RateFactor> cycleFactors = new ArrayList<>();
+        long totalOverlapDays = 0;
+
+        // Candidates: ending on/after the cycle start (first index by running max end)
+        // and starting on/before the cycle end (before the first later start)
+        int from = firstIndexWithMaxEndOnOrAfter(startDate);
+        int to = firstIndexWithStartAfter(endDate);
+        for (int i = from; i < to; i++) {
+            LocalDate overlapStart = starts[i].isAfter(startDate) ? starts[i] : startDate;
+            LocalDate overlapEnd = ends[i].isBefore(endDate) ? ends[i] : endDate;
+            if (overlapStart.isAfter(overlapEnd)) {
+                continue;
+            }
+
+            // Exclusive of the end date, matching how the cycle's day count is calculated
+            long overlapDays = ChronoUnit.DAYS.between(overlapStart, overlapEnd);
+            if (overlapDays > 0) {
+                cycleFactors.add(new RateFactor(
+                    BigDecimal.valueOf(rates[i]),
+                    BigDecimal.valueOf(interestMultiplier(interestMethod, overlapStart, overlapEnd, overlapDays))));
+                totalOverlapDays += overlapDays;
+            }
+        }
+
+        // Days not covered by any rate period use the deal's default rate
+        if (totalOverlapDays < totalDays && defaultRate != null) {
+            long uncoveredDays = totalDays - totalOverlapDays;
+            cycleFactors.add(new RateFactor(
+                BigDecimal.valueOf(defaultRate),
+                BigDecimal.valueOf(interestMultiplier(interestMethod, startDate, endDate, uncoveredDays))));
+        }
+
+        return List.copyOf(cycleFactors);
+    }
+
+    private int firstIndexWithMaxEndOnOrAfter(LocalDate date) {
+        int low = 0;
+        int high = maxEnds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxEnds[mid].isBefore(date)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int firstIndexWithStartAfter(LocalDate date) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid].isAfter(date)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Calculate interest multiplier based on InterestMethod
+     * Uses daysBetween (cycleEndDate - cycleStartDate) for actual day calculations
+     */
+    static Double interestMultiplier(Deal.InterestMethod interestMethod, LocalDate startDate, LocalDate endDate, long daysBetween) {
+        if (interestMethod == null) {
+            // Default fallback to ACTUAL_BY_360 if method is null
+            return daysBetween / 360.0;
+        }
+
+        switch (interestMethod) {
+            case ONE_TWELFTH:
+                return 1.0 / 12.0;
+
+            case ACTUAL_BY_360:
+                return daysBetween / 360.0;
+
+            case ACTUAL_BY_365:
+                return daysBetween / 365.0;
+
+            case ACTUAL_BY_ACTUAL:
+                // Use 366 for leap year, 365 otherwise
+                // Use the start date to determine if it's a leap year
+                int actualDaysInYear = (startDate != null && startDate.isLeapYear()) ? 366 : 365;
+                return daysBetween / (double) actualDaysInYear;
+
+            default:
+                // Default fallback to ACTUAL_BY_360
+                return daysBetween / 360.0;
+        }
+    }
+
+    private record FactorKey(LocalDate startDate, LocalDate endDate, Deal.InterestMethod interestMethod, Double defaultRate) {
+    }
+
+    private record RateFactor(BigDecimal rate, BigDecimal multiplier) {
+    }
+}
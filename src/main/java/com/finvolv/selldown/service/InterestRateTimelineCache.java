@@ -0,0 +1,65 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.repository.InterestRateChangeRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled interest rate timelines per deal. Entries expire after the configured TTL and the
+ * least recently used deal is evicted beyond max-deals. Services that change a deal's rates
+ * must call {@link #invalidate(Long)}.
+ */
+@Service
+@RequiredArgsConstructor
+public class InterestRateTimelineCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(InterestRateTimelineCache.class);
+
+    private final InterestRateChangeRepository interestRateChangeRepository;
+
+    @Value("${selldown.rate-timeline-cache.max-deals:500}")
+    private int maxDeals;
+
+    @Value("${selldown.rate-timeline-cache.ttl:PT10M}")
+    private Duration ttl;
+
+    // Access-ordered, so the eldest entry is the least recently used deal
+    private final Map<Long, Mono<InterestRateTimeline>> timelines = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Mono<InterestRateTimeline>> eldest) {
+                return size() > maxDeals;
+            }
+        });
+
+    /**
+     * The deal's compiled timeline. Concurrent callers share a single load; a failed load is not cached.
+     */
+    public Mono<InterestRateTimeline> getTimeline(Long dealId) {
+        return timelines.computeIfAbsent(dealId, this::load);
+    }
+
+    public void invalidate(Long dealId) {
+        if (dealId != null && timelines.remove(dealId) != null) {
+            logger.debug("Invalidated interest rate timeline for dealId: {}", dealId);
+        }
+    }
+
+    private Mono<InterestRateTimeline> load(Long dealId) {
+        return interestRateChangeRepository.findByDealId(dealId)
+            .collectList()
+            .map(InterestRateTimeline::compile)
+            .doOnNext(timeline -> logger.debug("Compiled interest rate timeline for dealId: {}", dealId))
+            // Reloaded on the next call after the TTL; errors are retried on the next call
+            .cache(timeline -> ttl, error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+}
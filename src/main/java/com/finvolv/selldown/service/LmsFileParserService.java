@@ -0,0 +1,388 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads LMS payout files (XLSX or CSV) from disk row by row and maps them onto
+ * PartnerPayoutDetailsAll. XLSX is read with POI's event model (XSSF SAX), so the
+ * workbook is never materialised as a DOM. Rows are emitted only as fast as the
+ * subscriber requests them.
+ */
+@Service
+public class LmsFileParserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LmsFileParserService.class);
+
+    // Normalised header (lowercase, alphanumerics only) -> setter for the LMS input columns.
+    // Both the JSON property name (openingPos) and the DB column name (opening_pos) normalise to the same key.
+    private static final Map<String, BiConsumer<PartnerPayoutDetailsAll, String>> COLUMN_SETTERS = new HashMap<>();
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+        DateTimeFormatter.ISO_LOCAL_DATE,
+        DateTimeFormatter.ofPattern("dd-MM-yyyy"),
+        DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+        new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("dd-MMM-yyyy").toFormatter(Locale.ENGLISH)
+    );
+
+    static {
+        text("lmsLan", PartnerPayoutDetailsAll::setLmsLan);
+        text("lan", PartnerPayoutDetailsAll::setLmsLan);
+        decimal("openingPos", PartnerPayoutDetailsAll::setOpeningPos);
+        decimal("closingPos", PartnerPayoutDetailsAll::setClosingPos);
+        decimal("totalPrincipalDue", PartnerPayoutDetailsAll::setTotalPrincipalDue);
+        decimal("principalOverdue", PartnerPayoutDetailsAll::setPrincipalOverdue);
+        decimal("totalPrincipalComponentPaid", PartnerPayoutDetailsAll::setTotalPrincipalComponentPaid);
+        decimal("principalOverduePaid", PartnerPayoutDetailsAll::setPrincipalOverduePaid);
+        decimal("totalInterestDue", PartnerPayoutDetailsAll::setTotalInterestDue);
+        decimal("interestOverdue", PartnerPayoutDetailsAll::setInterestOverdue);
+        decimal("totalInterestComponentPaid", PartnerPayoutDetailsAll::setTotalInterestComponentPaid);
+        decimal("interestOverduePaid", PartnerPayoutDetailsAll::setInterestOverduePaid);
+        decimal("foreclosurePaid", PartnerPayoutDetailsAll::setForeclosurePaid);
+        decimal("foreclosureChargesPaid", PartnerPayoutDetailsAll::setForeclosureChargesPaid);
+        decimal("prepaymentPaid", PartnerPayoutDetailsAll::setPrepaymentPaid);
+        decimal("prepaymentChargesPaid", PartnerPayoutDetailsAll::setPrepaymentChargesPaid);
+        decimal("totalChargesPaid", PartnerPayoutDetailsAll::setTotalChargesPaid);
+        decimal("totalPaid", PartnerPayoutDetailsAll::setTotalPaid);
+        integer("openingDpd", PartnerPayoutDetailsAll::setOpeningDpd);
+        integer("closingDpd", PartnerPayoutDetailsAll::setClosingDpd);
+        date("cycleStartDate", PartnerPayoutDetailsAll::setCycleStartDate);
+        date("cycleEndDate", PartnerPayoutDetailsAll::setCycleEndDate);
+    }
+
+    /**
+     * Parses the file, choosing the reader by extension (.xlsx, otherwise CSV).
+     * The first non-empty row is the header; unknown columns are ignored and rows without a LAN are skipped.
+     */
+    public Flux<PartnerPayoutDetailsAll> parse(Path file, String filename) {
+        boolean xlsx = filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".xlsx");
+        logger.info("Parsing LMS file {} as {}", filename, xlsx ? "XLSX" : "CSV");
+
+        return Flux.<PartnerPayoutDetailsAll>create(sink -> {
+                DemandGate gate = new DemandGate(sink);
+                try {
+                    RowMapper rowMapper = new RowMapper(gate);
+                    if (xlsx) {
+                        readXlsx(file, rowMapper);
+                    } else {
+                        readCsv(file, rowMapper);
+                    }
+                    logger.info("Parsed {} rows from LMS file {} ({} skipped)",
+                        rowMapper.emitted, filename, rowMapper.skipped);
+                    sink.complete();
+                } catch (ParsingCancelledException e) {
+                    logger.debug("Parsing of LMS file {} cancelled by subscriber", filename);
+                } catch (Exception e) {
+                    logger.error("Error parsing LMS file {}: {}", filename, e.getMessage());
+                    sink.error(e);
+                }
+            })
+            // The parser blocks while there is no demand, so it must not share the requesting thread
+            .subscribeOn(Schedulers.boundedElastic(), false);
+    }
+
+    private void readXlsx(Path file, RowMapper rowMapper) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("Workbook contains no sheets");
+            }
+            // Only the first sheet carries LMS data
+            try (InputStream sheet = sheets.next()) {
+                XMLReader xmlReader = XMLHelper.newXMLReader();
+                xmlReader.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings,
+                    new SheetRowCollector(rowMapper), new RawValueFormatter(), false));
+                xmlReader.parse(new InputSource(sheet));
+            }
+        }
+    }
+
+    private void readCsv(Path file, RowMapper rowMapper) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> row;
+            while ((row = readCsvRecord(reader)) != null) {
+                rowMapper.accept(row);
+            }
+        }
+    }
+
+    /**
+     * Reads one RFC 4180 record (quoted fields may contain commas, quotes and line breaks).
+     * Returns null at end of input.
+     */
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        int ch = reader.read();
+        if (ch == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (ch != -1) {
+            if (quoted) {
+                if (ch == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n') {
+                break;
+            } else if (ch != '\r') {
+                field.append((char) ch);
+            }
+            ch = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Maps raw cell values to payout details using the header row, and hands them to the gate
+     */
+    private static class RowMapper {
+        private final DemandGate gate;
+        private List<BiConsumer<PartnerPayoutDetailsAll, String>> setters;
+        private long emitted;
+        private long skipped;
+
+        RowMapper(DemandGate gate) {
+            this.gate = gate;
+        }
+
+        void accept(List<String> values) {
+            if (values.stream().allMatch(value -> value == null || value.isBlank())) {
+                return;
+            }
+            if (setters == null) {
+                setters = resolveHeader(values);
+                return;
+            }
+
+            PartnerPayoutDetailsAll payout = new PartnerPayoutDetailsAll();
+            for (int colIdx = 0; colIdx < values.size() && colIdx < setters.size(); colIdx++) {
+                BiConsumer<PartnerPayoutDetailsAll, String> setter = setters.get(colIdx);
+                String value = values.get(colIdx);
+                if (setter != null && value != null && !value.isBlank()) {
+                    setter.accept(payout, value.trim());
+                }
+            }
+
+            if (payout.getLmsLan() == null) {
+                skipped++;
+                logger.warn("Skipping LMS file row {} without LAN", emitted + skipped + 1);
+                return;
+            }
+            gate.emit(payout);
+            emitted++;
+        }
+
+        private static List<BiConsumer<PartnerPayoutDetailsAll, String>> resolveHeader(List<String> header) {
+            List<BiConsumer<PartnerPayoutDetailsAll, String>> resolved = new ArrayList<>();
+            boolean hasLan = false;
+            for (String name : header) {
+                BiConsumer<PartnerPayoutDetailsAll, String> setter = name != null ? COLUMN_SETTERS.get(normalise(name)) : null;
+                if (setter == null && name != null && !name.isBlank()) {
+                    logger.debug("Ignoring unknown LMS file column: {}", name);
+                }
+                hasLan |= name != null && (normalise(name).equals("lmslan") || normalise(name).equals("lan"));
+                resolved.add(setter);
+            }
+            if (!hasLan) {
+                throw new IllegalArgumentException("LMS file header has no LAN column: " + header);
+            }
+            return resolved;
+        }
+    }
+
+    /**
+     * Collects the cells of one sheet row (filling gaps for empty cells) and passes the row on
+     */
+    private static class SheetRowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowMapper rowMapper;
+        private final List<String> row = new ArrayList<>();
+        private int nextColumn;
+
+        SheetRowCollector(RowMapper rowMapper) {
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            row.clear();
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            rowMapper.accept(row);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            while (row.size() < column) {
+                row.add(null);
+            }
+            row.add(formattedValue);
+            nextColumn = column + 1;
+        }
+    }
+
+    /**
+     * Renders numeric cells as their raw value (no display rounding or grouping) and
+     * date-formatted cells as ISO dates
+     */
+    private static class RawValueFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value, use1904Windowing).toLocalDate().toString();
+            }
+            return BigDecimal.valueOf(value).toPlainString();
+        }
+    }
+
+    /**
+     * Bridges the push-style parsers to Reactor demand: emit() blocks the parsing thread
+     * until the subscriber has requested more rows, and aborts once the subscriber is gone.
+     */
+    private static class DemandGate {
+        private final FluxSink<PartnerPayoutDetailsAll> sink;
+        private long requested;
+        private boolean cancelled;
+
+        DemandGate(FluxSink<PartnerPayoutDetailsAll> sink) {
+            this.sink = sink;
+            sink.onRequest(n -> {
+                synchronized (this) {
+                    requested = Operators.addCap(requested, n);
+                    notifyAll();
+                }
+            });
+            sink.onDispose(() -> {
+                synchronized (this) {
+                    cancelled = true;
+                    notifyAll();
+                }
+            });
+        }
+
+        void emit(PartnerPayoutDetailsAll payout) {
+            synchronized (this) {
+                while (requested == 0 && !cancelled) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ParsingCancelledException();
+                    }
+                }
+                if (cancelled) {
+                    throw new ParsingCancelledException();
+                }
+                if (requested != Long.MAX_VALUE) {
+                    requested--;
+                }
+            }
+            sink.next(payout);
+        }
+    }
+
+    private static class ParsingCancelledException extends RuntimeException {
+        ParsingCancelledException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static String normalise(String header) {
+        return header.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static void text(String column, BiConsumer<PartnerPayoutDetailsAll, String> setter) {
+        COLUMN_SETTERS.put(normalise(column), setter);
+    }
+
+    private static void decimal(String column, BiConsumer<PartnerPayoutDetailsAll, BigDecimal> setter) {
+        COLUMN_SETTERS.put(normalise(column), (payout, value) -> setter.accept(payout, parseDecimal(column, value)));
+    }
+
+    private static void integer(String column, BiConsumer<PartnerPayoutDetailsAll, Integer> setter) {
+        COLUMN_SETTERS.put(normalise(column), (payout, value) -> setter.accept(payout, parseDecimal(column, value).intValue()));
+    }
+
+    private static void date(String column, BiConsumer<PartnerPayoutDetailsAll, LocalDate> setter) {
+        COLUMN_SETTERS.put(normalise(column), (payout, value) -> setter.accept(payout, parseDate(column, value)));
+    }
+
+    private static BigDecimal parseDecimal(String column, String value) {
+        try {
+            return new BigDecimal(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for column " + column + ": " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String column, String value) {
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException ignored) {
+                // try the next supported format
+            }
+        }
+        throw new IllegalArgumentException("Invalid date for column " + column + ": " + value);
+    }
+}
@@ -0,0 +1,314 @@
+package com.finvolv.selldown.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finvolv.selldown.dto.LmsUploadJobResponse;
+import com.finvolv.selldown.model.IngestMode;
+import com.finvolv.selldown.model.LmsUploadJob;
+import com.finvolv.selldown.model.LmsUploadJobStatus;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import com.finvolv.selldown.repository.LmsUploadJobRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Runs LMS uploads as background jobs. The uploaded rows are written to disk first, then fed
+ * through the windowed ingest pipeline one chunk at a time; after every persisted chunk the job
+ * row is updated, so a failed (or orphaned) job can be resumed from its last committed chunk.
+ * Payloads live in selldown.jobs.storage-dir, which must be persistent storage shared by every
+ * instance; which run owns a job is decided by its status in the table, not by process memory.
+ * Re-running a chunk is safe because every ingest mode updates the existing (lms_id, lms_lan) row.
+ * A file identical to the last one ingested for the month completes immediately without running.
+ */
+@Service
+@RequiredArgsConstructor
+public class LmsUploadJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LmsUploadJobService.class);
+
+    private final LmsUploadJobRepository lmsUploadJobRepository;
+    private final PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${selldown.ingest.default-mode:ROW}")
+    private IngestMode defaultIngestMode;
+
+    @Value("${selldown.ingest.window-size:2000}")
+    private int defaultChunkSize;
+
+    // Required for async uploads: a job can only be resumed (after a restart or on another instance) if its payload survives.
+    // Left blank, the application still starts and submit/resume are rejected.
+    @Value("${selldown.jobs.storage-dir:}")
+    private String storageDir;
+
+    @Value("${selldown.jobs.stale-after:PT15M}")
+    private Duration staleAfter;
+
+    /**
+     * Stores the payload, creates the job and starts it in the background.
+     * Errors with IllegalStateException if selldown.jobs.storage-dir is not configured.
+     */
+    public Mono<LmsUploadJobResponse> submit(Integer year, Integer month, List<PartnerPayoutDetailsAll> payoutDetails, 
+                                             IngestMode mode, Integer chunkSize) {
+        if (!hasStorageDir()) {
+            return Mono.error(storageDirNotConfigured());
+        }
+        IngestMode ingestMode = mode != null ? mode : defaultIngestMode;
+        int effectiveChunkSize = chunkSize != null && chunkSize > 0 ? chunkSize : defaultChunkSize;
+        logger.info("Submitting LMS upload job - year: {}, month: {}, records: {}, mode: {}, chunk size: {}", 
+            year, month, payoutDetails.size(), ingestMode, effectiveChunkSize);
+
+        // Hashed before the payload is written, so an identical re-upload never touches disk or the table
+        String fileHash = PayoutContentHasher.fileHash(payoutDetails);
+
+        return partnerPayoutDetailsAllService.isFileAlreadyIngested(year, month, fileHash)
+            .flatMap(alreadyIngested -> alreadyIngested
+                ? completeUnchanged(year, month, payoutDetails.size(), ingestMode, effectiveChunkSize, fileHash)
+                : Mono.fromCallable(() -> writePayload(payoutDetails))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(payloadPath -> lmsUploadJobRepository.save(LmsUploadJob.builder()
+                        .year(year)
+                        .month(month)
+                        .status(LmsUploadJobStatus.QUEUED)
+                        .ingestMode(ingestMode)
+                        .chunkSize(effectiveChunkSize)
+                        .totalRows((long) payoutDetails.size())
+                        .processedRows(0L)
+                        .failedRows(0L)
+                        .committedChunks(0)
+                        .payloadPath(payloadPath.toString())
+                        .fileHash(fileHash)
+                        .createdAt(LocalDateTime.now())
+                        .modifiedAt(LocalDateTime.now())
+                        .build()))
+                    .flatMap(this::claimAndStart))
+            .map(this::toResponse);
+    }
+
+    /**
+     * Records a job for a file identical to the last one ingested for the month; nothing is run
+     */
+    private Mono<LmsUploadJob> completeUnchanged(Integer year, Integer month, int totalRows, 
+                                                 IngestMode ingestMode, int chunkSize, String fileHash) {
+        logger.info("LMS file for year: {}, month: {} is identical to the last ingested file (hash: {}). Completing job without ingest.", 
+            year, month, fileHash);
+        LocalDateTime now = LocalDateTime.now();
+        return lmsUploadJobRepository.save(LmsUploadJob.builder()
+            .year(year)
+            .month(month)
+            .status(LmsUploadJobStatus.COMPLETED)
+            .ingestMode(ingestMode)
+            .chunkSize(chunkSize)
+            .totalRows((long) totalRows)
+            .processedRows((long) totalRows)
+            .failedRows(0L)
+            .committedChunks(0)
+            .fileHash(fileHash)
+            .startedAt(now)
+            .completedAt(now)
+            .createdAt(now)
+            .modifiedAt(now)
+            .build());
+    }
+
+    public Mono<LmsUploadJobResponse> getJob(Long jobId) {
+        return lmsUploadJobRepository.findById(jobId)
+            .map(this::toResponse);
+    }
+
+    public Flux<LmsUploadJobResponse> getJobsByYearAndMonth(Integer year, Integer month) {
+        return lmsUploadJobRepository.findByYearAndMonthOrderByIdDesc(year, month)
+            .map(this::toResponse);
+    }
+
+    /**
+     * Restarts a failed or orphaned job from its last committed chunk, on any instance.
+     * Errors with IllegalStateException if the job is completed, its payload is gone,
+     * it is RUNNING and has committed a chunk within selldown.jobs.stale-after, or
+     * selldown.jobs.storage-dir is not configured.
+     */
+    public Mono<LmsUploadJobResponse> resume(Long jobId) {
+        if (!hasStorageDir()) {
+            return Mono.error(storageDirNotConfigured());
+        }
+        return lmsUploadJobRepository.findById(jobId)
+            .flatMap(job -> {
+                if (job.getStatus() == LmsUploadJobStatus.COMPLETED) {
+                    return Mono.error(new IllegalStateException("LMS upload job " + jobId + " is already completed"));
+                }
+                return Mono.fromCallable(() -> Files.isReadable(Paths.get(job.getPayloadPath())))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(readable -> {
+                        if (!readable) {
+                            return Mono.error(new IllegalStateException("Payload of LMS upload job " + jobId 
+                                + " is no longer available at " + job.getPayloadPath() + "; upload the file again"));
+                        }
+                        logger.info("Resuming LMS upload job {} from chunk {} ({} of {} rows processed)", 
+                            jobId, job.getCommittedChunks(), job.getProcessedRows(), job.getTotalRows());
+                        return claimAndStart(job);
+                    });
+            })
+            .map(this::toResponse);
+    }
+
+    /**
+     * Marks the job RUNNING in the table, then runs it in the background. The conditional update
+     * lets exactly one request (on any instance) claim a job; a RUNNING job is only taken over once
+     * it has made no progress for selldown.jobs.stale-after.
+     */
+    private Mono<LmsUploadJob> claimAndStart(LmsUploadJob job) {
+        LocalDateTime now = LocalDateTime.now();
+        return lmsUploadJobRepository.claimForRun(job.getId(), now, now.minus(staleAfter))
+            .flatMap(claimed -> claimed == 0
+                ? Mono.error(new IllegalStateException("LMS upload job " + job.getId() 
+                    + " is still running (last progress at " + job.getModifiedAt() + ")"))
+                : lmsUploadJobRepository.findById(job.getId()))
+            .doOnNext(this::start);
+    }
+
+    private void start(LmsUploadJob job) {
+        run(job)
+            .subscribe(
+                finished -> logger.info("LMS upload job {} finished with status {}", finished.getId(), finished.getStatus()),
+                error -> logger.error("LMS upload job {} could not record its final state: {}", job.getId(), error.getMessage()));
+    }
+
+    private Mono<LmsUploadJob> run(LmsUploadJob runningJob) {
+        long skipRows = (long) runningJob.getCommittedChunks() * runningJob.getChunkSize();
+        int chunkOffset = runningJob.getCommittedChunks();
+
+        return Mono.defer(() -> partnerPayoutDetailsAllService
+                .streamLMSFile(runningJob.getYear(), runningJob.getMonth(), 
+                    readPayload(Paths.get(runningJob.getPayloadPath())).skip(skipRows), 
+                    runningJob.getIngestMode(), runningJob.getChunkSize(), false)
+                // Record each chunk before the next one is pulled
+                .concatMap(progress -> {
+                    runningJob.setLmsId(progress.getLmsId());
+                    runningJob.setCommittedChunks(chunkOffset + progress.getWindow().intValue());
+                    // Unchanged rows count as processed; only rows that could not be resolved are failed
+                    runningJob.setProcessedRows(runningJob.getProcessedRows() + progress.getWindowSaved() + progress.getWindowUnchanged());
+                    runningJob.setFailedRows(runningJob.getFailedRows() + progress.getWindowSkipped());
+                    runningJob.setModifiedAt(LocalDateTime.now());
+                    return lmsUploadJobRepository.save(runningJob);
+                })
+                // The job streams the file in parts across resumes, so it records the file hash itself
+                .then(Mono.defer(() -> runningJob.getLmsId() != null && runningJob.getFileHash() != null
+                    ? partnerPayoutDetailsAllService.storeFileHash(runningJob.getLmsId(), runningJob.getFileHash(), runningJob.getFailedRows())
+                    : Mono.<Void>empty()))
+                .then(Mono.defer(() -> {
+                    runningJob.setStatus(LmsUploadJobStatus.COMPLETED);
+                    runningJob.setCompletedAt(LocalDateTime.now());
+                    runningJob.setModifiedAt(LocalDateTime.now());
+                    return lmsUploadJobRepository.save(runningJob);
+                }))
+                .flatMap(completedJob -> Mono.fromRunnable(() -> deletePayload(completedJob.getPayloadPath()))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .thenReturn(completedJob))
+                .onErrorResume(error -> {
+                    logger.error("LMS upload job {} failed after {} committed chunk(s): {}", 
+                        runningJob.getId(), runningJob.getCommittedChunks(), error.getMessage());
+                    runningJob.setStatus(LmsUploadJobStatus.FAILED);
+                    runningJob.setErrorMessage(error.getMessage());
+                    runningJob.setModifiedAt(LocalDateTime.now());
+                    return lmsUploadJobRepository.save(runningJob);
+                }))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private boolean hasStorageDir() {
+        return storageDir != null && !storageDir.isBlank();
+    }
+
+    private IllegalStateException storageDirNotConfigured() {
+        return new IllegalStateException("Async LMS upload jobs are disabled: set selldown.jobs.storage-dir "
+            + "(SELLDOWN_JOBS_STORAGE_DIR) to a persistent directory shared by all instances");
+    }
+
+    private Path writePayload(List<PartnerPayoutDetailsAll> payoutDetails) throws IOException {
+        Path directory = Files.createDirectories(Paths.get(storageDir));
+        Path payloadPath = Files.createTempFile(directory, "lms-job-", ".ndjson");
+        try (BufferedWriter writer = Files.newBufferedWriter(payloadPath, StandardCharsets.UTF_8)) {
+            for (PartnerPayoutDetailsAll payout : payoutDetails) {
+                writer.write(objectMapper.writeValueAsString(payout));
+                writer.newLine();
+            }
+        }
+        return payloadPath;
+    }
+
+    private Flux<PartnerPayoutDetailsAll> readPayload(Path payloadPath) {
+        return Flux.using(
+                () -> Files.newBufferedReader(payloadPath, StandardCharsets.UTF_8),
+                reader -> Flux.fromStream(reader.lines())
+                    .map(line -> {
+                        try {
+                            return objectMapper.readValue(line, PartnerPayoutDetailsAll.class);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }),
+                reader -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        logger.warn("Could not close LMS job payload {}: {}", payloadPath, e.getMessage());
+                    }
+                })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void deletePayload(String payloadPath) {
+        try {
+            Files.deleteIfExists(Paths.get(payloadPath));
+        } catch (IOException e) {
+            logger.warn("Could not delete LMS job payload {}: {}", payloadPath, e.getMessage());
+        }
+    }
+
+    private LmsUploadJobResponse toResponse(LmsUploadJob job) {
+        // Average throughput since the job was first started (includes time between a failure and its resume)
+        Double rowsPerSecond = null;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getCompletedAt() != null ? job.getCompletedAt() : LocalDateTime.now();
+            long millis = Duration.between(job.getStartedAt(), end).toMillis();
+            if (millis > 0) {
+                rowsPerSecond = (job.getProcessedRows() + job.getFailedRows()) * 1000.0 / millis;
+            }
+        }
+
+        return LmsUploadJobResponse.builder()
+            .jobId(job.getId())
+            .lmsId(job.getLmsId())
+            .year(job.getYear())
+            .month(job.getMonth())
+            .status(job.getStatus())
+            .ingestMode(job.getIngestMode())
+            .chunkSize(job.getChunkSize())
+            .totalRows(job.getTotalRows())
+            .processedRows(job.getProcessedRows())
+            .failedRows(job.getFailedRows())
+            .committedChunks(job.getCommittedChunks())
+            .rowsPerSecond(rowsPerSecond)
+            .errorMessage(job.getErrorMessage())
+            .startedAt(job.getStartedAt())
+            .completedAt(job.getCompletedAt())
+            .build();
+    }
+}
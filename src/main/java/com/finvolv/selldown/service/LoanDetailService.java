@@ -2,6 +2,7 @@ package com.finvolv.selldown.service;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestOverdueSplit;
 import com.finvolv.selldown.model.LoanDetail;
 import com.finvolv.selldown.model.MonthlyDealProcessingStatus;
 import com.finvolv.selldown.repository.DealRepository;
@@ -30,6 +31,7 @@ public class LoanDetailService {
     private final LoanDetailRepository loanDetailRepository;
     private final DealRepository dealRepository;
     private final MonthlyDealProcessingStatusRepository monthlyDealProcessingStatusRepository;
+    private final PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record LoanDetailInputForDeal(
         Double currentPOS,
@@ -108,7 +110,8 @@ public class LoanDetailService {
                     .doOnError(error -> 
                         logger.error("Error in bulk create for dealId: {}, partnerId: {}: {}", 
                             dealId, partnerId, error.getMessage()));
-            });
+            })
+            .concatWith(clearFileHashes("loan details created for dealId: " + dealId));
     }
 
     @Transactional
@@ -144,7 +147,8 @@ public class LoanDetailService {
                     .doOnError(error -> 
                         logger.error("Error in bulk create for partnerId: {}, number of loans: {}: {}", 
                             partnerId, inputs.size(), error.getMessage()));
-            });
+            })
+            .concatWith(clearFileHashes("loan details created for partnerId: " + partnerId));
     }   
 
     @Transactional
@@ -164,7 +168,13 @@ public class LoanDetailService {
                     .doOnError(error -> 
                         logger.error("Error in bulk update for dealId: {}, partnerId: {}: {}", 
                             dealId, partnerId, error.getMessage()));
-            });
+            })
+            .concatWith(clearFileHashes("loan details updated for dealId: " + dealId));
+    }
+
+    // Loan details resolve LANs to deals and feed seller fields, but are not part of the LMS file hash
+    private Mono<LoanDetail> clearFileHashes(String reason) {
+        return partnerPayoutDetailsAllService.clearFileHashes(reason).then(Mono.empty());
     }
 
     private LoanDetail createLoanDetail(
@@ -191,7 +201,7 @@ public class LoanDetailService {
             .loanType(input.loanType())
             .source(input.source() != null ? input.source() : LoanDetail.LoanSource.FINRETAIL)
             .loanAge(input.loanAge())
-            .assignedInterestOverdueSplit(input.assignedInterestOverdueSplit() != null ? input.assignedInterestOverdueSplit() : java.util.Collections.emptyList())
+            .assignedInterestOverdueSplit(InterestOverdueSplit.of(input.assignedInterestOverdueSplit()))
             .createdAt(now)
             .modifiedAt(now)
             .build();
@@ -316,7 +326,7 @@ public class LoanDetailService {
             .loanStartedDate(input.loanStartedDate())
             .source(input.source() != null ? input.source() : LoanDetail.LoanSource.FINRETAIL)
             .loanAge(input.loanAge())
-            .assignedInterestOverdueSplit(input.assignedInterestOverdueSplit() != null ? input.assignedInterestOverdueSplit() : java.util.Collections.emptyList())
+            .assignedInterestOverdueSplit(InterestOverdueSplit.of(input.assignedInterestOverdueSplit()))
             .createdAt(LocalDateTime.now())
             .modifiedAt(LocalDateTime.now())
             .build();
@@ -0,0 +1,165 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.dto.ExcelGenerationResponse;
+import com.finvolv.selldown.dto.MonthCloseDealResult;
+import com.finvolv.selldown.dto.MonthCloseResponse;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.repository.LoanDetailRepository;
+import com.finvolv.selldown.repository.MonthlyLMSStatusRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Month close: generates the monthly payout data of every deal/partner that has loan details.
+ * The month's LMS status, all loan details and the previous month's payout rows are loaded once
+ * and shared; the deals then run concurrently (bounded by selldown.month-close.concurrency),
+ * so the month close takes about as long as the slowest deal rather than the sum of all deals.
+ * A failing deal is reported in the response and does not stop the others. A month without an
+ * LMS status fails with IllegalArgumentException.
+ */
+@Service
+@RequiredArgsConstructor
+public class MonthCloseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonthCloseService.class);
+
+    private final LoanDetailRepository loanDetailRepository;
+    private final MonthlyLMSStatusRepository monthlyLMSStatusRepository;
+    private final PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
+    private final ExcelGenerationService excelGenerationService;
+
+    @Value("${selldown.month-close.concurrency:8}")
+    private int concurrency;
+
+    public Mono<MonthCloseResponse> closeMonth(Integer year, Integer month) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            logger.info("Starting month close - year: {}, month: {}, concurrency: {}", year, month, concurrency);
+
+            return monthlyLMSStatusRepository.findByYearAndMonth(year, month)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                    String.format("No LMS status found for year: %d, month: %d", year, month))))
+                .flatMap(lmsStatus -> loanDetailRepository.findAllAssignedToDeals()
+                    .collectList()
+                    .flatMap(loanDetails -> {
+                        Map<DealPartner, List<LoanDetail>> loanDetailsByDeal = loanDetails.stream()
+                            .collect(Collectors.groupingBy(
+                                loanDetail -> new DealPartner(loanDetail.getDealId(), loanDetail.getPartnerId()),
+                                LinkedHashMap::new, Collectors.toList()));
+                        List<String> lmsLans = loanDetails.stream()
+                            .map(LoanDetail::getLmsLan)
+                            .filter(lan -> lan != null && !lan.trim().isEmpty())
+                            .toList();
+
+                        logger.info("Month close - year: {}, month: {}, lmsId: {}: {} deal/partner pairs, {} loan details",
+                            year, month, lmsStatus.getId(), loanDetailsByDeal.size(), loanDetails.size());
+
+                        // One previous-month lookup for the LANs of every deal
+                        return partnerPayoutDetailsAllService.loadSellerCalculationContext(year, month, lmsLans)
+                            .flatMap(context -> Flux.fromIterable(loanDetailsByDeal.entrySet())
+                                .flatMapSequential(entry -> closeDeal(entry.getKey(), year, month, entry.getValue(),
+                                    lmsStatus.getId(), context), concurrency)
+                                .collectList())
+                            .map(results -> buildResponse(year, month, lmsStatus.getId(), results, startNanos));
+                    }))
+                // A month without LMS data is the caller's mistake and is left to the caller; anything else is reported as failed
+                .onErrorResume(error -> !(error instanceof IllegalArgumentException), error -> {
+                    logger.error("Month close failed - year: {}, month: {}: {}", year, month, error.getMessage(), error);
+                    return Mono.just(MonthCloseResponse.builder()
+                        .year(year)
+                        .month(month)
+                        .deals(List.of())
+                        .elapsedMillis(elapsedMillis(startNanos))
+                        .message(error.getMessage())
+                        .success(false)
+                        .build());
+                });
+        });
+    }
+
+    private Mono<MonthCloseDealResult> closeDeal(DealPartner dealPartner, Integer year, Integer month,
+                                                 List<LoanDetail> loanDetails, Long lmsId,
+                                                 SellerCalculationContext context) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return excelGenerationService.generateExcelData(dealPartner.dealId(), dealPartner.partnerId(), year, month,
+                    loanDetails, lmsId, context)
+                .map(response -> dealResult(dealPartner, loanDetails, response, startNanos))
+                .doOnNext(result -> logger.info("Month close - dealId: {}, partnerId: {} finished in {} ms: {}",
+                    result.getDealId(), result.getPartnerId(), result.getElapsedMillis(), result.getMessage()))
+                .onErrorResume(error -> {
+                    logger.error("Month close - dealId: {}, partnerId: {} failed: {}",
+                        dealPartner.dealId(), dealPartner.partnerId(), error.getMessage(), error);
+                    return Mono.just(MonthCloseDealResult.builder()
+                        .dealId(dealPartner.dealId())
+                        .partnerId(dealPartner.partnerId())
+                        .totalLoanDetails(loanDetails.size())
+                        .elapsedMillis(elapsedMillis(startNanos))
+                        .message(error.getMessage())
+                        .success(false)
+                        .build());
+                });
+        });
+    }
+
+    private MonthCloseDealResult dealResult(DealPartner dealPartner, List<LoanDetail> loanDetails,
+                                            ExcelGenerationResponse response, long startNanos) {
+        return MonthCloseDealResult.builder()
+            .dealId(dealPartner.dealId())
+            .partnerId(dealPartner.partnerId())
+            .totalLoanDetails(loanDetails.size())
+            .matchedPayoutDetailsCount(response.getMatchedPayoutDetailsCount())
+            .discrepancyCount(response.getDiscrepancyCount())
+            .elapsedMillis(elapsedMillis(startNanos))
+            .message(response.getMessage())
+            .success(response.isSuccess())
+            .build();
+    }
+
+    private MonthCloseResponse buildResponse(Integer year, Integer month, Long lmsId,
+                                             List<MonthCloseDealResult> results, long startNanos) {
+        int succeeded = (int) results.stream().filter(MonthCloseDealResult::isSuccess).count();
+        long elapsed = elapsedMillis(startNanos);
+        long slowestDeal = results.stream()
+            .map(MonthCloseDealResult::getElapsedMillis)
+            .filter(Objects::nonNull)
+            .mapToLong(Long::longValue)
+            .max()
+            .orElse(0L);
+
+        logger.info("Month close complete - year: {}, month: {}: {} of {} deals succeeded in {} ms (slowest deal {} ms)",
+            year, month, succeeded, results.size(), elapsed, slowestDeal);
+
+        return MonthCloseResponse.builder()
+            .year(year)
+            .month(month)
+            .lmsId(lmsId)
+            .totalDeals(results.size())
+            .succeededDeals(succeeded)
+            .failedDeals(results.size() - succeeded)
+            .elapsedMillis(elapsed)
+            .deals(results)
+            .message(String.format("Month close processed %d deal/partner pairs, %d failed", results.size(), results.size() - succeeded))
+            .success(succeeded == results.size())
+            .build();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private record DealPartner(Long dealId, Long partnerId) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.InterestOverdueSplit;
+
+import java.math.BigDecimal;
+
+/**
+ * Money as a long count of paise (2 decimals) for the fixed-point seller calculation.
+ * Every operation is exact or throws ArithmeticException (amount with more than 2 decimals,
+ * long overflow), in which case the caller falls back to BigDecimal arithmetic.
+ */
+final class PaiseArithmetic {
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private PaiseArithmetic() {
+    }
+
+    /**
+     * Exact paise of an amount; zero for null
+     */
+    static long toPaise(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        // Throws if there is a non-zero third decimal or the amount does not fit in a long
+        long paise = amount.scaleByPowerOfTen(2).longValueExact();
+        if (paise == InterestOverdueSplit.NULL_BUCKET) {
+            throw new ArithmeticException("Amount out of paise range: " + amount);
+        }
+        return paise;
+    }
+
+    static BigDecimal toBigDecimal(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    /**
+     * paise * ratio rounded HALF_UP to paise, the same as
+     * {@code amount.multiply(BigDecimal.valueOf(ratio)).setScale(2, RoundingMode.HALF_UP)}
+     */
+    static long multiply(long paise, Ratio ratio) {
+        long high = Math.multiplyHigh(paise, ratio.unscaled());
+        long product = paise * ratio.unscaled();
+        // The 128-bit product fits in a long only if the high word is the sign extension of the low word
+        if (high != (product >> 63)) {
+            throw new ArithmeticException("Paise product overflow");
+        }
+        return divideHalfUp(product, ratio.divisor());
+    }
+
+    static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        // HALF_UP rounds ties away from zero; compared without doubling the remainder to avoid overflow
+        if (remainder >= divisor - remainder) {
+            quotient += dividend < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * A Double ratio as the exact decimal BigDecimal.valueOf uses: unscaled / divisor
+     */
+    record Ratio(long unscaled, long divisor) {
+
+        static Ratio of(Double ratio) {
+            BigDecimal decimal = BigDecimal.valueOf(ratio);
+            if (decimal.scale() <= 0) {
+                return new Ratio(decimal.longValueExact(), 1L);
+            }
+            if (decimal.scale() >= POWERS_OF_TEN.length) {
+                throw new ArithmeticException("Ratio has too many decimals: " + ratio);
+            }
+            return new Ratio(decimal.unscaledValue().longValueExact(), POWERS_OF_TEN[decimal.scale()]);
+        }
+    }
+}
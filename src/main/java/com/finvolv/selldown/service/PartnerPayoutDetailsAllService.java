@@ -1,32 +1,45 @@
 package com.finvolv.selldown.service;
 
+import com.finvolv.selldown.dto.LanDealInfo;
+import com.finvolv.selldown.dto.LatestCycleEndDate;
+import com.finvolv.selldown.dto.LmsUploadProgress;
 import com.finvolv.selldown.dto.OpeningPosDiscrepancy;
 import com.finvolv.selldown.model.Deal;
-import com.finvolv.selldown.model.InterestRateChange;
+import com.finvolv.selldown.model.IngestMode;
 import com.finvolv.selldown.model.LoanDetail;
 import com.finvolv.selldown.model.MonthlyLMSStatus;
 import com.finvolv.selldown.model.MonthlyLMSStatusEntity;
 import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
 import com.finvolv.selldown.repository.DealRepository;
-import com.finvolv.selldown.repository.InterestRateChangeRepository;
 import com.finvolv.selldown.repository.LoanDetailRepository;
 import com.finvolv.selldown.repository.MonthlyLMSStatusRepository;
 import com.finvolv.selldown.repository.PartnerPayoutDetailsAllRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,297 +52,467 @@ public class PartnerPayoutDetailsAllService {
     private final MonthlyLMSStatusRepository monthlyLMSStatusRepository;
     private final DealRepository dealRepository;
     private final LoanDetailRepository loanDetailRepository;
-    private final InterestRateChangeRepository interestRateChangeRepository;
+    private final InterestRateTimelineCache interestRateTimelineCache;
+    private final SellerCalculationEngine sellerCalculationEngine;
+    private final LmsFileParserService lmsFileParserService;
+    private final TransactionalOperator transactionalOperator;
+    
+    @Value("${selldown.ingest.default-mode:ROW}")
+    private IngestMode defaultIngestMode;
+    
+    @Value("${selldown.ingest.batch-size:500}")
+    private int ingestBatchSize;
+    
+    @Value("${selldown.ingest.window-size:2000}")
+    private int ingestWindowSize;
+    
+    @Value("${selldown.seller-calculation.batch-size:256}")
+    private int sellerCalculationBatchSize;
+    
+    /**
+     * Sets lastCycleEndDate on every payout detail to the cycle_end_date of the latest existing
+     * entry (by created_at) for the same LMS LAN, using one query for the whole batch
+     */
+    private Mono<List<PartnerPayoutDetailsAll>> resolveLastCycleEndDates(List<PartnerPayoutDetailsAll> payoutDetails) {
+        String[] lmsLans = payoutDetails.stream()
+            .map(PartnerPayoutDetailsAll::getLmsLan)
+            .filter(lan -> lan != null)
+            .distinct()
+            .toArray(String[]::new);
+        
+        return partnerPayoutDetailsAllRepository.findLatestCycleEndDatesByLmsLans(lmsLans)
+            // cycle_end_date may be null, which collectMap cannot hold, so skip those (same as no previous entry)
+            .filter(latest -> latest.getCycleEndDate() != null)
+            .collectMap(LatestCycleEndDate::getLmsLan, LatestCycleEndDate::getCycleEndDate)
+            .map(latestByLan -> {
+                logger.debug("Found previous cycle end date for {} of {} LANs", latestByLan.size(), lmsLans.length);
+                // No previous entry found means lastCycleEndDate stays null
+                payoutDetails.forEach(payout -> payout.setLastCycleEndDate(latestByLan.get(payout.getLmsLan())));
+                return payoutDetails;
+            });
+    }
     
-    @Transactional
     private Flux<PartnerPayoutDetailsAll> saveAllPayoutDetails(List<PartnerPayoutDetailsAll> payoutDetails, Long lmsId) {
         logger.debug("Saving {} payout details in batch for lmsId: {}", payoutDetails.size(), lmsId);
         
         // Process each payout detail: check if exists, update or create
-        return Flux.fromIterable(payoutDetails)
-            .flatMap(payout -> {
-                // First, set lastCycleEndDate for each payout detail based on previous entry for same LMS LAN
-                Mono<PartnerPayoutDetailsAll> payoutWithLastCycleDate = partnerPayoutDetailsAllRepository.findByLmsLan(payout.getLmsLan())
-                    .sort((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt())) // Sort by created_at desc
-                    .next() // Get the latest one
-                    .map(latestEntry -> {
-                        // Set lastCycleEndDate to the latest entry's cycle_end_date
-                        payout.setLastCycleEndDate(latestEntry.getCycleEndDate());
-                        logger.debug("Set lastCycleEndDate for {} to {}", payout.getLmsLan(), latestEntry.getCycleEndDate());
-                        return payout;
-                    })
-                    .switchIfEmpty(Mono.just(payout).doOnNext(p -> {
-                        // No previous entry found, set to null
-                        p.setLastCycleEndDate(null);
-                        logger.debug("No previous entry found for {}, set lastCycleEndDate to null", p.getLmsLan());
-                    }));
-                
+        return resolveLastCycleEndDates(payoutDetails)
+            .flatMapMany(Flux::fromIterable)
+            .flatMap(p -> {
                 // Check if entry already exists for this lmsId and lmsLan
-                return payoutWithLastCycleDate
-                    .flatMap(p -> {
-                        // Use Flux to handle multiple results (duplicates)
-                        return partnerPayoutDetailsAllRepository.findAllByLmsIdAndLmsLan(lmsId, p.getLmsLan())
-                            .collectList()
-                            .flatMap(existingList -> {
-                                if (!existingList.isEmpty()) {
-                                    // Entry exists - take the first one (latest by id DESC) and update it
-                                    // Also delete any duplicates
-                                    PartnerPayoutDetailsAll existing = existingList.get(0);
-                                    logger.debug("Found existing entry for lmsId: {}, lmsLan: {} (found {} duplicate(s))", 
-                                        lmsId, p.getLmsLan(), existingList.size());
-                                    
-                                    // If there are duplicates, delete them (keep only the first one)
-                                    Mono<PartnerPayoutDetailsAll> existingMono;
-                                    if (existingList.size() > 1) {
-                                        logger.warn("Found {} duplicate entries for lmsId: {}, lmsLan: {}. Deleting duplicates.", 
-                                            existingList.size(), lmsId, p.getLmsLan());
-                                        
-                                        // Delete duplicates (all except the first one)
-                                        List<Long> duplicateIds = existingList.stream()
-                                            .skip(1)
-                                            .map(PartnerPayoutDetailsAll::getId)
-                                            .toList();
-                                        
-                                        existingMono = Flux.fromIterable(duplicateIds)
-                                            .flatMap(partnerPayoutDetailsAllRepository::deleteById)
-                                            .then(Mono.just(existing));
-                                    } else {
-                                        existingMono = Mono.just(existing);
-                                    }
-                                    
-                                    // Update all fields on the existing entry
-                                    return existingMono.map(entityToUpdate -> {
-                                        // Copy all fields from new payout to existing, preserving the ID and createdAt
-                                        entityToUpdate.setLmsId(p.getLmsId());
-                                        entityToUpdate.setLmsLan(p.getLmsLan());
-                                        entityToUpdate.setOpeningPos(p.getOpeningPos());
-                                        entityToUpdate.setClosingPos(p.getClosingPos());
-                                        entityToUpdate.setTotalPrincipalDue(p.getTotalPrincipalDue());
-                                        entityToUpdate.setPrincipalOverdue(p.getPrincipalOverdue());
-                                        entityToUpdate.setTotalPrincipalComponentPaid(p.getTotalPrincipalComponentPaid());
-                                        entityToUpdate.setPrincipalOverduePaid(p.getPrincipalOverduePaid());
-                                        entityToUpdate.setTotalInterestDue(p.getTotalInterestDue());
-                                        entityToUpdate.setInterestOverdue(p.getInterestOverdue());
-                                        entityToUpdate.setTotalInterestComponentPaid(p.getTotalInterestComponentPaid());
-                                        entityToUpdate.setInterestOverduePaid(p.getInterestOverduePaid());
-                                        entityToUpdate.setForeclosurePaid(p.getForeclosurePaid());
-                                        entityToUpdate.setForeclosureChargesPaid(p.getForeclosureChargesPaid());
-                                        entityToUpdate.setPrepaymentPaid(p.getPrepaymentPaid());
-                                        entityToUpdate.setPrepaymentChargesPaid(p.getPrepaymentChargesPaid());
-                                        entityToUpdate.setTotalChargesPaid(p.getTotalChargesPaid());
-                                        entityToUpdate.setTotalPaid(p.getTotalPaid());
-                                        entityToUpdate.setOpeningDpd(p.getOpeningDpd());
-                                        entityToUpdate.setClosingDpd(p.getClosingDpd());
-                                        entityToUpdate.setSellerOpeningPos(p.getSellerOpeningPos());
-                                        entityToUpdate.setSellerClosingPos(p.getSellerClosingPos());
-                                        entityToUpdate.setSellerTotalPrincipalDue(p.getSellerTotalPrincipalDue());
-                                        entityToUpdate.setSellerPrincipalOverdue(p.getSellerPrincipalOverdue());
-                                        entityToUpdate.setSellerTotalPrincipalComponentPaid(p.getSellerTotalPrincipalComponentPaid());
-                                        entityToUpdate.setSellerPrincipalOverduePaid(p.getSellerPrincipalOverduePaid());
-                                        entityToUpdate.setSellerTotalInterestDue(p.getSellerTotalInterestDue());
-                                        entityToUpdate.setSellerInterestOverdue(p.getSellerInterestOverdue());
-                                        entityToUpdate.setSellerTotalInterestComponentPaid(p.getSellerTotalInterestComponentPaid());
-                                        entityToUpdate.setSellerInterestOverduePaid(p.getSellerInterestOverduePaid());
-                                        entityToUpdate.setSellerForeclosurePaid(p.getSellerForeclosurePaid());
-                                        entityToUpdate.setSellerForeclosureChargesPaid(p.getSellerForeclosureChargesPaid());
-                                        entityToUpdate.setSellerPrepaymentPaid(p.getSellerPrepaymentPaid());
-                                        entityToUpdate.setSellerPrepaymentChargesPaid(p.getSellerPrepaymentChargesPaid());
-                                        entityToUpdate.setSellerTotalChargesPaid(p.getSellerTotalChargesPaid());
-                                        entityToUpdate.setSellerTotalPaid(p.getSellerTotalPaid());
-                                        entityToUpdate.setSellerOpeningDpd(p.getSellerOpeningDpd());
-                                        entityToUpdate.setSellerClosingDpd(p.getSellerClosingDpd());
-                                        entityToUpdate.setDealStatusId(p.getDealStatusId());
-                                        entityToUpdate.setCycleStartDate(p.getCycleStartDate());
-                                        entityToUpdate.setCycleEndDate(p.getCycleEndDate());
-                                        entityToUpdate.setLastCycleEndDate(p.getLastCycleEndDate());
-                                        
-                                        // Ensure isOpeningPosMisMatch is never null (use value from p, or default to false)
-                                        Boolean isOpeningPosMisMatch = p.getIsOpeningPosMisMatch();
-                                        if (isOpeningPosMisMatch == null) {
-                                            isOpeningPosMisMatch = false;
-                                        }
-                                        entityToUpdate.setIsOpeningPosMisMatch(isOpeningPosMisMatch);
-                                        
-                                        // Update modified timestamp, but preserve created timestamp
-                                        entityToUpdate.setModifiedAt(LocalDateTime.now());
-                                        
-                                        return entityToUpdate;
-                                    });
-                                } else {
-                                    // Entry doesn't exist - create new one
-                                    logger.debug("Creating new entry for lmsId: {}, lmsLan: {}", lmsId, p.getLmsLan());
-                                    return Mono.just(p);
+                // Use Flux to handle multiple results (duplicates)
+                return partnerPayoutDetailsAllRepository.findAllByLmsIdAndLmsLan(lmsId, p.getLmsLan())
+                    .collectList()
+                    .flatMap(existingList -> {
+                        if (!existingList.isEmpty()) {
+                            // Entry exists - take the first one (latest by id DESC) and update it
+                            // Also delete any duplicates
+                            PartnerPayoutDetailsAll existing = existingList.get(0);
+                            logger.debug("Found existing entry for lmsId: {}, lmsLan: {} (found {} duplicate(s))", 
+                                lmsId, p.getLmsLan(), existingList.size());
+                            
+                            // If there are duplicates, delete them (keep only the first one)
+                            Mono<PartnerPayoutDetailsAll> existingMono;
+                            if (existingList.size() > 1) {
+                                logger.warn("Found {} duplicate entries for lmsId: {}, lmsLan: {}. Deleting duplicates.", 
+                                    existingList.size(), lmsId, p.getLmsLan());
+                                
+                                // Delete duplicates (all except the first one)
+                                List<Long> duplicateIds = existingList.stream()
+                                    .skip(1)
+                                    .map(PartnerPayoutDetailsAll::getId)
+                                    .toList();
+                                
+                                existingMono = Flux.fromIterable(duplicateIds)
+                                    .flatMap(partnerPayoutDetailsAllRepository::deleteById)
+                                    .then(Mono.just(existing));
+                            } else {
+                                existingMono = Mono.just(existing);
+                            }
+                            
+                            // Update all fields on the existing entry, unless the LMS content is unchanged
+                            return existingMono.flatMap(entityToUpdate -> {
+                                if (p.getContentHash() != null && p.getContentHash().equals(entityToUpdate.getContentHash())) {
+                                    logger.debug("Unchanged content for lmsId: {}, lmsLan: {}. Skipping update.", lmsId, p.getLmsLan());
+                                    return Mono.empty();
                                 }
+                                
+                                // Copy the LMS and derived fields from the new payout, as BULK and COPY do; seller fields,
+                                // dealStatusId, isOpeningPosMisMatch and sellerInputHash belong to the monthly generation
+                                entityToUpdate.setLmsId(p.getLmsId());
+                                entityToUpdate.setLmsLan(p.getLmsLan());
+                                entityToUpdate.setOpeningPos(p.getOpeningPos());
+                                entityToUpdate.setClosingPos(p.getClosingPos());
+                                entityToUpdate.setTotalPrincipalDue(p.getTotalPrincipalDue());
+                                entityToUpdate.setPrincipalOverdue(p.getPrincipalOverdue());
+                                entityToUpdate.setTotalPrincipalComponentPaid(p.getTotalPrincipalComponentPaid());
+                                entityToUpdate.setPrincipalOverduePaid(p.getPrincipalOverduePaid());
+                                entityToUpdate.setTotalInterestDue(p.getTotalInterestDue());
+                                entityToUpdate.setInterestOverdue(p.getInterestOverdue());
+                                entityToUpdate.setTotalInterestComponentPaid(p.getTotalInterestComponentPaid());
+                                entityToUpdate.setInterestOverduePaid(p.getInterestOverduePaid());
+                                entityToUpdate.setForeclosurePaid(p.getForeclosurePaid());
+                                entityToUpdate.setForeclosureChargesPaid(p.getForeclosureChargesPaid());
+                                entityToUpdate.setPrepaymentPaid(p.getPrepaymentPaid());
+                                entityToUpdate.setPrepaymentChargesPaid(p.getPrepaymentChargesPaid());
+                                entityToUpdate.setTotalChargesPaid(p.getTotalChargesPaid());
+                                entityToUpdate.setTotalPaid(p.getTotalPaid());
+                                entityToUpdate.setOpeningDpd(p.getOpeningDpd());
+                                entityToUpdate.setClosingDpd(p.getClosingDpd());
+                                entityToUpdate.setCycleStartDate(p.getCycleStartDate());
+                                entityToUpdate.setCycleEndDate(p.getCycleEndDate());
+                                entityToUpdate.setLastCycleEndDate(p.getLastCycleEndDate());
+                                entityToUpdate.setContentHash(p.getContentHash());
+                                
+                                // Update modified timestamp, but preserve created timestamp
+                                entityToUpdate.setModifiedAt(LocalDateTime.now());
+                                
+                                return Mono.just(entityToUpdate);
                             });
+                        } else {
+                            // Entry doesn't exist - create new one
+                            logger.debug("Creating new entry for lmsId: {}, lmsLan: {}", lmsId, p.getLmsLan());
+                            return Mono.just(p);
+                        }
                     });
             })
             .flatMap(partnerPayoutDetailsAllRepository::save);
     }
     
-    public Flux<PartnerPayoutDetailsAll> uploadLMSFile(Integer year, Integer month, List<PartnerPayoutDetailsAll> payoutDetails) {
-        logger.info("Uploading LMS file - year: {}, month: {}, number of records: {}", 
-            year, month, payoutDetails.size());
+    /**
+     * Set-based alternative to saveAllPayoutDetails.
+     * BULK: chunks of selldown.ingest.batch-size rows, one INSERT ... ON CONFLICT (lms_id, lms_lan) DO UPDATE per chunk.
+     * COPY: all rows streamed into a staging table with COPY, then merged with a single INSERT ... SELECT ... ON CONFLICT.
+     */
+    private Flux<PartnerPayoutDetailsAll> upsertAllPayoutDetails(List<PartnerPayoutDetailsAll> payoutDetails, Long lmsId, IngestMode mode) {
+        // A LAN may appear only once per statement, so keep the last occurrence in the file
+        Map<String, PartnerPayoutDetailsAll> payoutsByLan = new LinkedHashMap<>();
+        for (PartnerPayoutDetailsAll payout : payoutDetails) {
+            payoutsByLan.put(payout.getLmsLan(), payout);
+        }
+        if (payoutsByLan.size() < payoutDetails.size()) {
+            logger.warn("Found {} duplicate LAN entries in upload for lmsId: {}. Keeping the last entry per LAN.", 
+                payoutDetails.size() - payoutsByLan.size(), lmsId);
+        }
         
-        return createOrUpdateLMSStatus(year, month)
-            .flatMapMany(lmsStatusId -> {
-                logger.debug("Created/Updated LMS status with ID: {}", lmsStatusId);
+        Mono<List<PartnerPayoutDetailsAll>> resolvedPayouts = resolveLastCycleEndDates(new ArrayList<>(payoutsByLan.values()));
+        
+        if (mode == IngestMode.COPY) {
+            logger.debug("Copying {} payout details through staging table for lmsId: {}", payoutsByLan.size(), lmsId);
+            return resolvedPayouts
+                .flatMapMany(partnerPayoutDetailsAllRepository::copyUpsertAll);
+        }
+        
+        logger.debug("Upserting {} payout details in chunks of {} for lmsId: {}", payoutsByLan.size(), ingestBatchSize, lmsId);
+        
+        return resolvedPayouts
+            .flatMapMany(Flux::fromIterable)
+            .buffer(ingestBatchSize)
+            .concatMap(chunk -> partnerPayoutDetailsAllRepository.upsertAll(chunk)
+                .doOnComplete(() -> logger.debug("Upserted chunk of {} payout details for lmsId: {}", chunk.size(), lmsId)));
+    }
+    
+    /**
+     * Stamps the LMS ID and timestamps on the payout details and derives missing cycle dates from
+     * the deal's monthOnMonthDay. The monthOnMonthDay of the batch's LANs is looked up with one
+     * LoanDetail JOIN Deal query (lms_lan = ANY), so memory stays proportional to the batch;
+     * records whose LAN cannot be resolved to a deal are skipped.
+     */
+    private Mono<List<PartnerPayoutDetailsAll>> preparePayoutDetails(List<PartnerPayoutDetailsAll> payoutDetails, Long lmsStatusId, 
+                                                                    Integer year, Integer month) {
+        String[] lmsLans = payoutDetails.stream()
+            .map(PartnerPayoutDetailsAll::getLmsLan)
+            .filter(lan -> lan != null)
+            .distinct()
+            .toArray(String[]::new);
+        
+        Mono<Map<String, Integer>> resolvedMono = lmsLans.length == 0
+            ? Mono.just(Map.of())
+            : loanDetailRepository.findDealMonthOnMonthDayByLmsLans(lmsLans)
+                .filter(info -> info.getMonthOnMonthDay() != null)
+                .collectMap(LanDealInfo::getLmsLan, LanDealInfo::getMonthOnMonthDay)
+                .doOnNext(found -> logger.debug("Resolved monthOnMonthDay for {} of {} LAN(s)", found.size(), lmsLans.length));
+        
+        return resolvedMono.map(resolvedMap -> {
+            List<PartnerPayoutDetailsAll> prepared = new ArrayList<>(payoutDetails.size());
+            for (PartnerPayoutDetailsAll payout : payoutDetails) {
+                Integer momDay = payout.getLmsLan() != null ? resolvedMap.get(payout.getLmsLan()) : null;
+                if (momDay == null) {
+                    logger.warn("No LoanDetail with a Deal monthOnMonthDay found for LAN: {}. Skipping this record.", payout.getLmsLan());
+                    continue;
+                }
                 
-                // Build efficient lookup maps: LAN -> DealId -> MonthOnMonthDay
-                // Load all LoanDetails and Deals once for efficient O(1) lookups
-                Mono<Map<String, Integer>> lanToMonthOnMonthDayMap = loanDetailRepository.findAll()
-                    .collectList()
-                    .flatMap(loanDetails -> {
-                        // Create map: lmsLan -> dealId
-                        Map<String, Long> lanToDealIdMap = loanDetails.stream()
-                            .filter(ld -> ld.getLmsLan() != null && ld.getDealId() != null)
-                            .collect(Collectors.toMap(
-                                LoanDetail::getLmsLan,
-                                LoanDetail::getDealId,
-                                (existing, replacement) -> existing // Keep first if duplicates
-                            ));
-                        
-                        logger.debug("Created LAN to DealId map with {} entries", lanToDealIdMap.size());
+                // Set the LMS ID and current timestamp
+                payout.setLmsId(lmsStatusId);
+                payout.setCreatedAt(LocalDateTime.now());
+                payout.setModifiedAt(LocalDateTime.now());
+                
+                // Set cycle dates if not already set, using monthOnMonthDay
+                // Start date: previous month's day (e.g., if monthOnMonthDay=20 and month=9, start = Aug 20)
+                // End date: current month's day (e.g., if monthOnMonthDay=20 and month=9, end = Sep 20)
+                if (payout.getCycleStartDate() == null || payout.getCycleEndDate() == null) {
+                    // Calculate previous month and year
+                    int prevMonth = (month == 1) ? 12 : month - 1;
+                    int prevYear = (month == 1) ? year - 1 : year;
+                    
+                    // Ensure the day is valid for the previous month
+                    LocalDate prevMonthDate = LocalDate.of(prevYear, prevMonth, 1);
+                    int maxDayInPrevMonth = prevMonthDate.lengthOfMonth();
+                    int dayToUseStart = Math.min(momDay, maxDayInPrevMonth);
+                    
+                    // Ensure the day is valid for the current month
+                    LocalDate currentMonthDate = LocalDate.of(year, month, 1);
+                    int maxDayInCurrentMonth = currentMonthDate.lengthOfMonth();
+                    int dayToUseEnd = Math.min(momDay, maxDayInCurrentMonth);
+                    
+                    if (payout.getCycleStartDate() == null) {
+                        payout.setCycleStartDate(LocalDate.of(prevYear, prevMonth, dayToUseStart));
+                    }
+                    if (payout.getCycleEndDate() == null) {
+                        payout.setCycleEndDate(LocalDate.of(year, month, dayToUseEnd));
+                    }
+                    
+                    logger.info("Set cycle dates for LAN {}: start={}, end={}, monthOnMonthDay={}", 
+                        payout.getLmsLan(), payout.getCycleStartDate(), payout.getCycleEndDate(), momDay);
+                }
+                
+                // Ensure isOpeningPosMisMatch is never null (default to false)
+                if (payout.getIsOpeningPosMisMatch() == null) {
+                    payout.setIsOpeningPosMisMatch(false);
+                }
+                
+                // Hash after defaults are applied, so an explicit false and a missing flag compare equal
+                payout.setContentHash(PayoutContentHasher.rowHash(payout));
+                
+                prepared.add(payout);
+            }
+            return prepared;
+        });
+    }
+    
+    /**
+     * Persists prepared payout details with the given ingest mode (update if exists, create if not).
+     * All rows (every BULK chunk, the COPY merge) are written in one transaction, so a failure part way
+     * leaves none of them behind. @Transactional does not apply to the private save methods.
+     */
+    private Flux<PartnerPayoutDetailsAll> persistPayoutDetails(List<PartnerPayoutDetailsAll> preparedPayoutDetails, 
+                                                               Long lmsStatusId, IngestMode ingestMode) {
+        Flux<PartnerPayoutDetailsAll> persisted = ingestMode == IngestMode.ROW
+            ? saveAllPayoutDetails(preparedPayoutDetails, lmsStatusId)
+            : upsertAllPayoutDetails(preparedPayoutDetails, lmsStatusId, ingestMode);
+        return transactionalOperator.transactional(persisted);
+    }
+    
+    /**
+     * Ingests an LMS file and returns the stored rows of the file's LANs for the month, whether or
+     * not they changed. An identical file is not ingested again, but its stored rows are returned all the same.
+     */
+    public Flux<PartnerPayoutDetailsAll> uploadLMSFile(Integer year, Integer month, List<PartnerPayoutDetailsAll> payoutDetails, IngestMode mode) {
+        IngestMode ingestMode = mode != null ? mode : defaultIngestMode;
+        logger.info("Uploading LMS file - year: {}, month: {}, number of records: {}, mode: {}", 
+            year, month, payoutDetails.size(), ingestMode);
+        
+        // Hash the rows as received, before enrichment mutates them
+        String fileHash = PayoutContentHasher.fileHash(payoutDetails);
+        String[] lmsLans = payoutDetails.stream()
+            .map(PartnerPayoutDetailsAll::getLmsLan)
+            .filter(Objects::nonNull)
+            .distinct()
+            .toArray(String[]::new);
+        
+        return isFileAlreadyIngested(year, month, fileHash)
+            .flatMapMany(alreadyIngested -> {
+                if (alreadyIngested) {
+                    logger.info("LMS file for year: {}, month: {} is identical to the last ingested file (hash: {}). Nothing to update.", 
+                        year, month, fileHash);
+                    return monthlyLMSStatusRepository.findByYearAndMonth(year, month)
+                        .flatMapMany(lmsStatus -> partnerPayoutDetailsAllRepository.findByLmsIdAndLmsLans(lmsStatus.getId(), lmsLans));
+                }
+                
+                return startLMSIngest(year, month)
+                    .flatMapMany(lmsStatusId -> {
+                        logger.debug("Created/Updated LMS status with ID: {}", lmsStatusId);
                         
-                                // Load all Deals and create map: dealId -> monthOnMonthDay
-                                // Only include deals where monthOnMonthDay is not null (must come from Deal table)
-                                return dealRepository.findAll()
-                                    .collectList()
-                                    .map(deals -> {
-                                        Map<Long, Integer> dealIdToMonthOnMonthDayMap = deals.stream()
-                                            .filter(d -> d.getId() != null && d.getMonthOnMonthDay() != null)
-                                            .collect(Collectors.toMap(
-                                                Deal::getId,
-                                                Deal::getMonthOnMonthDay,
-                                                (existing, replacement) -> existing
-                                            ));
-                                        
-                                        logger.debug("Created DealId to MonthOnMonthDay map with {} entries (only deals with monthOnMonthDay set)", 
-                                            dealIdToMonthOnMonthDayMap.size());
-                                        
-                                        // Combine maps: lmsLan -> monthOnMonthDay
-                                        // Only include entries where monthOnMonthDay exists in Deal table
-                                        Map<String, Integer> result = lanToDealIdMap.entrySet().stream()
-                                            .filter(entry -> dealIdToMonthOnMonthDayMap.containsKey(entry.getValue()))
-                                            .collect(Collectors.toMap(
-                                                Map.Entry::getKey,
-                                                entry -> dealIdToMonthOnMonthDayMap.get(entry.getValue()),
-                                                (existing, replacement) -> existing
-                                            ));
-                                        
-                                        logger.debug("Created final LAN to MonthOnMonthDay map with {} entries (all from Deal table)", result.size());
-                                        return result;
-                                    });
+                        // Resolve monthOnMonthDay for every payout detail and derive the cycle dates
+                        return preparePayoutDetails(payoutDetails, lmsStatusId, year, month)
+                            .flatMapMany(preparedPayoutDetails -> {
+                                // Save changed and new payout details only (rows with the same content hash are skipped)
+                                long persistStart = System.nanoTime();
+                                long unresolved = payoutDetails.size() - preparedPayoutDetails.size();
+                                return persistPayoutDetails(preparedPayoutDetails, lmsStatusId, ingestMode)
+                                    .count()
+                                    .flatMap(changed -> storeFileHash(lmsStatusId, fileHash, unresolved).thenReturn(changed))
+                                    .doOnNext(changed -> 
+                                        logger.info("Successfully uploaded LMS file - year: {}, month: {}, records: {}, changed: {}, mode: {}, persisted in {} ms", 
+                                            year, month, payoutDetails.size(), changed, ingestMode, 
+                                            (System.nanoTime() - persistStart) / 1_000_000))
+                                    .doOnError(error -> 
+                                        logger.error("Error uploading LMS file - year: {}, month: {}: {}", 
+                                            year, month, error.getMessage()))
+                                    .thenMany(partnerPayoutDetailsAllRepository.findByLmsIdAndLmsLans(lmsStatusId, lmsLans));
+                            });
                     });
+            });
+    }
+    
+    /**
+     * True when the LMS status for the month was last fully ingested from a file with this hash
+     */
+    public Mono<Boolean> isFileAlreadyIngested(Integer year, Integer month, String fileHash) {
+        return monthlyLMSStatusRepository.findByYearAndMonth(year, month)
+            .map(status -> fileHash.equals(status.getFileHash()))
+            .defaultIfEmpty(false);
+    }
+    
+    /**
+     * Creates or reuses the LMS status for the month and clears its file hash, so an ingest that
+     * fails half way is never mistaken for a complete one on the next upload
+     */
+    private Mono<Long> startLMSIngest(Integer year, Integer month) {
+        return createOrUpdateLMSStatus(year, month)
+            .flatMap(lmsStatusId -> monthlyLMSStatusRepository.clearFileHash(lmsStatusId).thenReturn(lmsStatusId));
+    }
+    
+    /**
+     * Records the file hash once every row is persisted. If some rows were skipped because their
+     * LAN could not be resolved, the hash is not stored, so the same file is processed again once
+     * the loan details exist (unchanged rows are still skipped by their content hash).
+     */
+    public Mono<Void> storeFileHash(Long lmsStatusId, String fileHash, long unresolved) {
+        if (unresolved > 0) {
+            logger.info("Not storing file hash for lmsId: {}, {} record(s) could not be resolved to a deal", 
+                lmsStatusId, unresolved);
+            return Mono.empty();
+        }
+        return monthlyLMSStatusRepository.updateFileHash(lmsStatusId, fileHash)
+            .doOnNext(updated -> logger.debug("Stored file hash {} for lmsId: {}", fileHash, lmsStatusId))
+            .then();
+    }
+    
+    /**
+     * Forgets every stored file hash, so the next upload of any month is fully processed again.
+     * Deals and loan details decide which deal a LAN resolves to and which cycle dates it gets but
+     * are not part of the file, so once they change an identical file no longer means an identical
+     * ingest. Rows that really are unchanged are still skipped by their row hashes.
+     */
+    public Mono<Void> clearFileHashes(String reason) {
+        return monthlyLMSStatusRepository.clearAllFileHashes()
+            .doOnNext(cleared -> {
+                if (cleared > 0) {
+                    logger.info("Cleared file hash of {} LMS status(es): {}", cleared, reason);
+                }
+            })
+            .then();
+    }
+    
+    /**
+     * Imports an LMS file uploaded as XLSX or CSV. The multipart content is written to a temp file
+     * and parsed row by row from disk into the streaming pipeline; the temp file is removed afterwards.
+     * Creating and deleting the temp file block, so both run on the bounded elastic scheduler.
+     */
+    public Flux<LmsUploadProgress> importLMSFile(Integer year, Integer month, FilePart file, 
+                                                 IngestMode mode, Integer windowSize) {
+        logger.info("Importing LMS file {} - year: {}, month: {}", file.filename(), year, month);
+        
+        return Flux.usingWhen(
+            Mono.fromCallable(() -> Files.createTempFile("lms-upload-", ".tmp"))
+                .subscribeOn(Schedulers.boundedElastic()),
+            tempFile -> file.transferTo(tempFile)
+                .thenMany(streamLMSFile(year, month, lmsFileParserService.parse(tempFile, file.filename()), mode, windowSize)),
+            this::deleteTempFile,
+            (tempFile, error) -> deleteTempFile(tempFile),
+            this::deleteTempFile);
+    }
+    
+    private Mono<Void> deleteTempFile(Path tempFile) {
+        return Mono.<Void>fromRunnable(() -> {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    logger.warn("Could not delete temp LMS file {}: {}", tempFile, e.getMessage());
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    /**
+     * Streaming variant of uploadLMSFile for NDJSON bodies. Records are pulled in windows of
+     * windowSize, each window is enriched and persisted before the next one is requested, so
+     * only one window is held in memory. Each window is written in its own transaction; emits one
+     * progress entry per committed window.
+     * The file hash is computed from the records as they stream through and stored on completion.
+     * Identical files cannot be detected up front here, but unchanged rows are still skipped by
+     * their content hash.
+     */
+    public Flux<LmsUploadProgress> streamLMSFile(Integer year, Integer month, Flux<PartnerPayoutDetailsAll> payoutDetails, 
+                                                 IngestMode mode, Integer windowSize) {
+        return streamLMSFile(year, month, payoutDetails, mode, windowSize, true);
+    }
+    
+    /**
+     * Same as {@link #streamLMSFile(Integer, Integer, Flux, IngestMode, Integer)}; with recordFileHash
+     * false the file hash is left to the caller, e.g. a job that only streams the remainder of a file
+     */
+    public Flux<LmsUploadProgress> streamLMSFile(Integer year, Integer month, Flux<PartnerPayoutDetailsAll> payoutDetails, 
+                                                 IngestMode mode, Integer windowSize, boolean recordFileHash) {
+        IngestMode ingestMode = mode != null ? mode : defaultIngestMode;
+        int effectiveWindowSize = windowSize != null && windowSize > 0 ? windowSize : ingestWindowSize;
+        logger.info("Streaming LMS file - year: {}, month: {}, window size: {}, mode: {}", 
+            year, month, effectiveWindowSize, ingestMode);
+        
+        long uploadStart = System.nanoTime();
+        AtomicLong totalReceived = new AtomicLong();
+        AtomicLong totalSaved = new AtomicLong();
+        AtomicLong totalSkipped = new AtomicLong();
+        MessageDigest fileDigest = PayoutContentHasher.newDigest();
+        
+        return startLMSIngest(year, month)
+            .flatMapMany(lmsStatusId -> {
+                logger.info("Streaming payout details for lmsId: {}", lmsStatusId);
                 
-                // Use the lookup map to prepare payout details reactively
-                return lanToMonthOnMonthDayMap
-                    .flatMapMany(monthOnMonthDayMap -> {
-                        logger.info("Lookup map contains {} entries. Processing {} payout details.", 
-                            monthOnMonthDayMap.size(), payoutDetails.size());
+                // Rows are hashed as received, before enrichment mutates them
+                Flux<PartnerPayoutDetailsAll> hashedPayoutDetails = recordFileHash
+                    ? payoutDetails.doOnNext(payout -> PayoutContentHasher.update(fileDigest, payout))
+                    : payoutDetails;
+                
+                // concatMap requests the next window only after the current one is persisted
+                return hashedPayoutDetails
+                    .buffer(effectiveWindowSize)
+                    .index()
+                    .concatMap(indexedWindow -> {
+                        List<PartnerPayoutDetailsAll> window = indexedWindow.getT2();
+                        long windowStart = System.nanoTime();
                         
-                        // Process each payout detail reactively to ensure monthOnMonthDay is always found
-                        return Flux.fromIterable(payoutDetails)
-                            .flatMap(payout -> {
-                                // Set the LMS ID and current timestamp
-                                payout.setLmsId(lmsStatusId);
-                                payout.setCreatedAt(LocalDateTime.now());
-                                payout.setModifiedAt(LocalDateTime.now());
-                                
-                                // Get monthOnMonthDay from map
-                                Integer monthOnMonthDay = monthOnMonthDayMap.get(payout.getLmsLan());
-                                
-                                // If not found in map, look it up directly from Deal table
-                                Mono<Integer> monthOnMonthDayMono;
-                                if (monthOnMonthDay != null) {
-                                    monthOnMonthDayMono = Mono.just(monthOnMonthDay);
-                                    logger.debug("Found monthOnMonthDay={} for LAN {} in lookup map (from Deal table)", monthOnMonthDay, payout.getLmsLan());
-                                } else {
-                                    logger.warn("monthOnMonthDay not found in lookup map for LAN: {}. Attempting direct lookup from Deal table.", payout.getLmsLan());
-                                    // Look up directly from Deal table: find LoanDetail by LAN, then get Deal, then get monthOnMonthDay
-                                    monthOnMonthDayMono = loanDetailRepository.findAll()
-                                        .filter(ld -> payout.getLmsLan() != null && payout.getLmsLan().equals(ld.getLmsLan()))
-                                        .next()
-                                        .switchIfEmpty(Mono.defer(() -> {
-                                            logger.warn("No LoanDetail found for LAN: {}. Skipping this record.", payout.getLmsLan());
-                                            return Mono.empty();
-                                        }))
-                                        .flatMap(loanDetail -> {
-                                            if (loanDetail.getDealId() == null) {
-                                                logger.warn("LoanDetail for LAN {} has no dealId. Skipping this record.", payout.getLmsLan());
-                                                return Mono.empty();
-                                            }
-                                            return dealRepository.findById(loanDetail.getDealId())
-                                                .switchIfEmpty(Mono.defer(() -> {
-                                                    logger.warn("Deal with ID {} not found for LAN {}. Skipping this record.", 
-                                                        loanDetail.getDealId(), payout.getLmsLan());
-                                                    return Mono.empty();
-                                                }))
-                                                .map(deal -> {
-                                                    Integer momDay = deal.getMonthOnMonthDay();
-                                                    if (momDay == null) {
-                                                        logger.warn("monthOnMonthDay is null in Deal {} for LAN {}. Skipping this record.", 
-                                                            deal.getId(), payout.getLmsLan());
-                                                        return null;
-                                                    }
-                                                    logger.info("Retrieved monthOnMonthDay={} from Deal table for LAN {} (Deal {})", 
-                                                        momDay, payout.getLmsLan(), deal.getId());
-                                                    return momDay;
-                                                })
-                                                .filter(momDay -> momDay != null);
-                                        });
-                                }
-                                
-                                return monthOnMonthDayMono.map(momDay -> {
-                                    // Set cycle dates if not already set, using monthOnMonthDay
-                                    // Start date: previous month's day (e.g., if monthOnMonthDay=20 and month=9, start = Aug 20)
-                                    // End date: current month's day (e.g., if monthOnMonthDay=20 and month=9, end = Sep 20)
-                                    if (payout.getCycleStartDate() == null || payout.getCycleEndDate() == null) {
-                                        // Calculate previous month and year
-                                        int prevMonth = (month == 1) ? 12 : month - 1;
-                                        int prevYear = (month == 1) ? year - 1 : year;
-                                        
-                                        // Ensure the day is valid for the previous month
-                                        LocalDate prevMonthDate = LocalDate.of(prevYear, prevMonth, 1);
-                                        int maxDayInPrevMonth = prevMonthDate.lengthOfMonth();
-                                        int dayToUseStart = Math.min(momDay, maxDayInPrevMonth);
-                                        
-                                        // Ensure the day is valid for the current month
-                                        LocalDate currentMonthDate = LocalDate.of(year, month, 1);
-                                        int maxDayInCurrentMonth = currentMonthDate.lengthOfMonth();
-                                        int dayToUseEnd = Math.min(momDay, maxDayInCurrentMonth);
-                                        
-                                        if (payout.getCycleStartDate() == null) {
-                                            payout.setCycleStartDate(LocalDate.of(prevYear, prevMonth, dayToUseStart));
-                                        }
-                                        if (payout.getCycleEndDate() == null) {
-                                            payout.setCycleEndDate(LocalDate.of(year, month, dayToUseEnd));
-                                        }
-                                        
-                                        logger.info("Set cycle dates for LAN {}: start={}, end={}, monthOnMonthDay={}", 
-                                            payout.getLmsLan(), payout.getCycleStartDate(), payout.getCycleEndDate(), momDay);
-                                    }
-                                    
-                                    // Ensure isOpeningPosMisMatch is never null (default to false)
-                                    if (payout.getIsOpeningPosMisMatch() == null) {
-                                        payout.setIsOpeningPosMisMatch(false);
-                                    }
-                                    
-                                    return payout;
-                                });
-                            })
-                            .collectList();
+                        return preparePayoutDetails(window, lmsStatusId, year, month)
+                            .flatMap(prepared -> persistPayoutDetails(prepared, lmsStatusId, ingestMode).count()
+                                .map(saved -> LmsUploadProgress.builder()
+                                    .lmsId(lmsStatusId)
+                                    .window(indexedWindow.getT1() + 1)
+                                    .windowReceived(window.size())
+                                    .windowSaved(saved)
+                                    .windowUnchanged(prepared.size() - saved)
+                                    .windowSkipped(window.size() - prepared.size())
+                                    .totalReceived(totalReceived.addAndGet(window.size()))
+                                    .totalSaved(totalSaved.addAndGet(saved))
+                                    .windowMillis((System.nanoTime() - windowStart) / 1_000_000)
+                                    .build()))
+                            .doOnNext(progress -> totalSkipped.addAndGet(progress.getWindowSkipped()));
                     })
-                    .flatMap(preparedPayoutDetails -> 
-                        // Save all payout details in a single transaction (update if exists, create if not)
-                        saveAllPayoutDetails(preparedPayoutDetails, lmsStatusId)
-                            .doOnComplete(() -> 
-                                logger.info("Successfully uploaded LMS file - year: {}, month: {}, records: {}", 
-                                    year, month, payoutDetails.size()))
-                            .doOnError(error -> 
-                                logger.error("Error uploading LMS file - year: {}, month: {}: {}", 
-                                    year, month, error.getMessage()))
-                    );
-            });
+                    .concatWith(Mono.defer(() -> recordFileHash
+                            ? storeFileHash(lmsStatusId, PayoutContentHasher.hex(fileDigest), totalSkipped.get())
+                            : Mono.<Void>empty())
+                        .then(Mono.empty()));
+            })
+            .doOnNext(progress -> logger.debug("Persisted LMS window {} - received: {}, saved: {}, unchanged: {}, total saved: {}", 
+                progress.getWindow(), progress.getWindowReceived(), progress.getWindowSaved(), 
+                progress.getWindowUnchanged(), progress.getTotalSaved()))
+            .doOnComplete(() -> 
+                logger.info("Successfully streamed LMS file - year: {}, month: {}, records: {}, saved: {}, mode: {}, in {} ms", 
+                    year, month, totalReceived.get(), totalSaved.get(), ingestMode, 
+                    (System.nanoTime() - uploadStart) / 1_000_000))
+            .doOnError(error -> 
+                logger.error("Error streaming LMS file - year: {}, month: {}: {}", 
+                    year, month, error.getMessage()));
     }
     
     @Transactional
@@ -416,481 +599,127 @@ public class PartnerPayoutDetailsAllService {
     }
 
     /**
-     * Calculates seller fields based on assigned ratio and interest rate from deal table
-     * This method can be easily modified to change calculation logic
-     * Reactive version that handles previous month data lookup
-     */
-    public Mono<PartnerPayoutDetailsAll> calculateSellerFields(PartnerPayoutDetailsAll payoutDetail, Deal deal, LoanDetail loanDetail, Integer year, Integer month) {
-        if (deal == null || deal.getAssignRatio() == null || deal.getAnnualInterestRate() == null) {
-            logger.warn("Deal or required fields are null, skipping calculation for payout detail: {}", payoutDetail.getId());
-            return Mono.just(payoutDetail);
-        }
-
-        Double assignRatio = deal.getAssignRatio();
-        Double annualInterestRate = deal.getAnnualInterestRate();
-        Deal.InterestMethod interestMethod = deal.getInterestMethod();
-        
-        // Calculate days between cycle start and end date (make it final for lambda usage)
-        final long daysBetween = (payoutDetail.getCycleStartDate() != null && payoutDetail.getCycleEndDate() != null) ?
-            java.time.temporal.ChronoUnit.DAYS.between(
-                payoutDetail.getCycleStartDate(), 
-                payoutDetail.getCycleEndDate()
-            ) : 0L;
-
-        // Calculate seller fields by multiplying with assigned ratio for POS related fields
-        payoutDetail.setSellerOpeningPos(calculateValue(payoutDetail.getOpeningPos(), assignRatio));
-
-        payoutDetail.setSellerClosingPos(calculateValue(payoutDetail.getClosingPos(), assignRatio)); 
-        payoutDetail.setSellerTotalPrincipalDue(calculateValue(payoutDetail.getTotalPrincipalDue(), assignRatio));
-        payoutDetail.setSellerPrincipalOverdue(calculateValue(payoutDetail.getPrincipalOverdue(), assignRatio));
-        payoutDetail.setSellerTotalPrincipalComponentPaid(calculateValue(payoutDetail.getTotalPrincipalComponentPaid(), assignRatio));
-        payoutDetail.setSellerPrincipalOverduePaid(calculateValue(payoutDetail.getPrincipalOverduePaid(), assignRatio));
-        payoutDetail.setSellerForeclosurePaid(calculateValue(payoutDetail.getForeclosurePaid(), assignRatio));
-        payoutDetail.setSellerForeclosureChargesPaid(calculateValue(payoutDetail.getForeclosureChargesPaid(), assignRatio));
-        payoutDetail.setSellerPrepaymentPaid(calculateValue(payoutDetail.getPrepaymentPaid(), assignRatio));
-        payoutDetail.setSellerPrepaymentChargesPaid(calculateValue(payoutDetail.getPrepaymentChargesPaid(), assignRatio));
-        payoutDetail.setSellerTotalChargesPaid(calculateValue(payoutDetail.getTotalChargesPaid(), assignRatio));
-       // payoutDetail.setSellerTotalPaid(calculateValue(payoutDetail.getTotalPaid(), assignRatio));
-
-        // Calculate interest based on seller opening position, interest rate, and interest method
-        // Calculate interest for each rate period separately and sum them (not using weighted average)
-        BigDecimal baseAmount = payoutDetail.getSellerOpeningPos() != null && payoutDetail.getSellerPrincipalOverdue() != null ?
-            payoutDetail.getSellerOpeningPos().subtract(payoutDetail.getSellerPrincipalOverdue()) : BigDecimal.ZERO;
-        
-        return calculateInterestByRatePeriodsReactive(deal.getId(), baseAmount, payoutDetail.getCycleStartDate(), payoutDetail.getCycleEndDate(), interestMethod, annualInterestRate)
-            .switchIfEmpty(Mono.defer(() -> {
-                // Fall back to deal's annual interest rate if no rate changes
-                if (baseAmount.compareTo(BigDecimal.ZERO) > 0 && daysBetween > 0) {
-                    Double interestMultiplier = calculateInterestMultiplier(
-                        interestMethod, 
-                        payoutDetail.getCycleStartDate(), 
-                        payoutDetail.getCycleEndDate(),
-                        daysBetween
-                    );
-                    BigDecimal calculatedInterest = baseAmount
-                        .multiply(BigDecimal.valueOf(annualInterestRate))
-                        .multiply(BigDecimal.valueOf(interestMultiplier))
-                        .setScale(2, RoundingMode.HALF_UP);
-                    return Mono.just(calculatedInterest);
-                }
-                return Mono.just(BigDecimal.ZERO);
-            }))
-            .flatMap(calculatedInterest -> {
-                
-                // Pass calculatedInterest through the reactive chain
-                // First, get sellerInterestOverdueSplit from previous month or loan details
-                return getSellerInterestOverdueSplitReactive(payoutDetail, loanDetail, year, month)
-                    .flatMap(splitArray -> {
-                        // Set the split array (from previous month or loan details)
-                        payoutDetail.setSellerInterestOverdueSplit(splitArray);
-                        
-                        // If array is empty and DPD has a value, add calculated interest to the array
-                        Integer closingDpd = payoutDetail.getClosingDpd() != null ? payoutDetail.getClosingDpd() : 0;
-                        if ((splitArray == null || splitArray.isEmpty()) && closingDpd != null && closingDpd > 0) {
-                            // Create a new ArrayList and add the calculated interest
-                            List<BigDecimal> newSplitArray = new java.util.ArrayList<>();
-                            newSplitArray.add(calculatedInterest);
-                            payoutDetail.setSellerInterestOverdueSplit(newSplitArray);
-                        }
-                        
-                        // Now calculate sellerInterestOverdue (initial calculation, will be updated based on array)
-                        return calculateSellerInterestOverdueReactive(payoutDetail, loanDetail, year, month)
-                            .map(sellerInterestOverdue -> {
-                                // Note: sellerInterestOverdue will be recalculated later based on array total
-                                payoutDetail.setSellerInterestOverdue(sellerInterestOverdue);
-                                
-                                // Get values needed for calculations
-                                BigDecimal totalInterestComponentPaid = payoutDetail.getTotalInterestComponentPaid() != null ? 
-                                    payoutDetail.getTotalInterestComponentPaid() : BigDecimal.ZERO;
-                                BigDecimal interestOverduePaid = payoutDetail.getInterestOverduePaid() != null ? 
-                                    payoutDetail.getInterestOverduePaid() : BigDecimal.ZERO;
-
-                                // ====================================================================
-                                // COMPLETE LOGIC FOR SELLER INTEREST OVERDUE SPLIT ARRAY MANAGEMENT
-                                // ====================================================================
-                                
-                                // STEP 1: Initialize the split array (contains older pending interests)
-                                List<BigDecimal> splitArrayForCalculation = payoutDetail.getSellerInterestOverdueSplit();
-                                if (splitArrayForCalculation == null) {
-                                    splitArrayForCalculation = new java.util.ArrayList<>();
-                                }
-                                
-                                Integer closingDpdForCalculation = payoutDetail.getClosingDpd() != null ? payoutDetail.getClosingDpd() : 0;
-                                
-                                // STEP 2: Calculate values needed for logic
-                                BigDecimal interestAfterPrincipal = totalInterestComponentPaid.subtract(interestOverduePaid);
-                                
-                                // Calculate plain calculated interest for comparison
-                                BigDecimal plainCalculatedInterest = BigDecimal.ZERO;
-                                if (baseAmount.compareTo(BigDecimal.ZERO) > 0 && daysBetween > 0) {
-                                    Double interestMultiplier = calculateInterestMultiplier(
-                                        interestMethod, 
-                                        payoutDetail.getCycleStartDate(), 
-                                        payoutDetail.getCycleEndDate(),
-                                        daysBetween
-                                    );
-                                    plainCalculatedInterest = baseAmount
-                                        .multiply(BigDecimal.valueOf(annualInterestRate))
-                                        .multiply(BigDecimal.valueOf(interestMultiplier))
-                                        .setScale(2, RoundingMode.HALF_UP);
-                                }
-                                
-                                // Check if normal interest is paid
-                                boolean normalInterestPaid = interestAfterPrincipal.compareTo(new BigDecimal("100")) > 0 && 
-                                                             interestAfterPrincipal.compareTo(plainCalculatedInterest) > 0;
-                                
-                                // STEP 3: Handle interestOverduePaid collection
-                                // If interestOverduePaid is collected, remove that amount from bucket starting from oldest
-                                BigDecimal sellerInterestOverduePaid = BigDecimal.ZERO;
-                                
-                                if (interestOverduePaid.compareTo(BigDecimal.ZERO) > 0 && !splitArrayForCalculation.isEmpty()) {
-                                    // Calculate seller's portion of interestOverduePaid
-                                    BigDecimal sellerInterestOverduePaidToRemove = calculateValue(interestOverduePaid, assignRatio);
-                                    BigDecimal remainingToRemove = sellerInterestOverduePaidToRemove;
-                                    List<BigDecimal> newArray = new java.util.ArrayList<>();
-                                    
-                                    // Remove from array starting from index 0 (oldest) until collected amount is covered
-                                    for (int i = 0; i < splitArrayForCalculation.size(); i++) {
-                                        BigDecimal currentValue = splitArrayForCalculation.get(i);
-                                        
-                                        if (currentValue != null && remainingToRemove.compareTo(BigDecimal.ZERO) > 0) {
-                                            if (currentValue.compareTo(remainingToRemove) <= 0) {
-                                                // Entire value is covered by collection
-                                                // Example: array [1000, 1050, 3000], collected 1700
-                                                // Remove first value (1000) completely
-                                                sellerInterestOverduePaid = sellerInterestOverduePaid.add(currentValue);
-                                                remainingToRemove = remainingToRemove.subtract(currentValue);
-                                                // Don't add to newArray (fully paid)
-                                            } else {
-                                                // Partially covered - split the value
-                                                // Example: array [1000, 1050, 3000], collected 1700
-                                                // After removing 1000, remove 700 from 1050, leaving 350
-                                                sellerInterestOverduePaid = sellerInterestOverduePaid.add(remainingToRemove);
-                                                BigDecimal remainingValue = currentValue.subtract(remainingToRemove);
-                                                newArray.add(remainingValue);
-                                                remainingToRemove = BigDecimal.ZERO;
-                                            }
-                                        } else if (currentValue != null) {
-                                            // No more to remove, keep this value
-                                            newArray.add(currentValue);
-                                        }
-                                    }
-                                    
-                                    // Update array with remaining values
-                                    splitArrayForCalculation = newArray;
-                                }
-                                
-                                // STEP 4: Handle normal interest paid scenario
-                                // When normal interest is paid, also mark seller overdue interest as paid based on DPD
-                                if (normalInterestPaid && !splitArrayForCalculation.isEmpty()) {
-                                    if (closingDpdForCalculation == 0) {
-                                        // DPD is 0: all overdue interest is paid
-                                        BigDecimal allRemaining = splitArrayForCalculation.stream()
-                                            .filter(val -> val != null)
-                                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                                        
-                                        sellerInterestOverduePaid = sellerInterestOverduePaid.add(allRemaining);
-                                        splitArrayForCalculation.clear();
-                                    } else {
-                                        // Determine which bucket to use based on DPD
-                                        int indexToUse = -1;
-                                        if (closingDpdForCalculation >= 1 && closingDpdForCalculation <= 30) {
-                                            indexToUse = 0; // DPD 1-30: first value (index 0)
-                                        } else if (closingDpdForCalculation >= 31 && closingDpdForCalculation <= 60) {
-                                            indexToUse = 1; // DPD 31-60: second value (index 1)
-                                        } else if (closingDpdForCalculation >= 61 && closingDpdForCalculation <= 90) {
-                                            indexToUse = 2; // DPD 61-90: third value (index 2)
-                                        }
-                                        
-                                        // Remove the value from the array based on DPD bucket
-                                        if (indexToUse >= 0 && indexToUse < splitArrayForCalculation.size()) {
-                                            BigDecimal valueToRemove = splitArrayForCalculation.get(indexToUse) != null ? 
-                                                splitArrayForCalculation.get(indexToUse) : BigDecimal.ZERO;
-                                            
-                                            sellerInterestOverduePaid = sellerInterestOverduePaid.add(valueToRemove);
-                                            splitArrayForCalculation.remove(indexToUse);
-                                        }
-                                    }
-                                }
-                                
-                                // STEP 5: Always add current calculated interest to array if DPD > 0
-                                // This represents the current month's interest that will become overdue if not paid
-                                if (closingDpdForCalculation > 0) {
-                                    // Check if calculatedInterest already exists in array (compare by value)
-                                    boolean alreadyExists = splitArrayForCalculation.stream()
-                                        .anyMatch(val -> val != null && val.compareTo(calculatedInterest) == 0);
-                                    
-                                    if (!alreadyExists) {
-                                        splitArrayForCalculation.add(calculatedInterest);
-                                    }
-                                }
-                                
-                                // STEP 6: Update the array back to the payout detail
-                                payoutDetail.setSellerInterestOverdueSplit(splitArrayForCalculation);
-                                payoutDetail.setSellerInterestOverduePaid(sellerInterestOverduePaid);
-                                
-                                // ====================================================================
-                                // STEP 7: Calculate sellerTotalInterestDue FIRST
-                                // sellerTotalInterestDue = calculatedInterest + opening sellerInterestOverdue
-                                // Opening sellerInterestOverdue comes from previous month calculation
-                                // ====================================================================
-                                // Use the initial sellerInterestOverdue (from previous month) as opening overdue
-                                BigDecimal openingSellerInterestOverdue = sellerInterestOverdue; // This was calculated from previous month
-                                
-                                // Calculate sellerTotalInterestDue = current interest + opening overdue
-                                // Use calculatedInterest (from rate periods or fallback) for consistency
-                                BigDecimal sellerTotalInterestDue = calculatedInterest.add(openingSellerInterestOverdue)
-                                    .setScale(2, RoundingMode.HALF_UP);
-                                payoutDetail.setSellerTotalInterestDue(sellerTotalInterestDue);
-                                
-                                // ====================================================================
-                                // STEP 8: Calculate sellerTotalInterestComponentPaid
-                                // Must use the same calculatedInterest value as sellerTotalInterestDue for consistency
-                                // ====================================================================
-                                BigDecimal sellerTotalInterestComponentPaid = BigDecimal.ZERO;
-                                
-                                if (totalInterestComponentPaid.compareTo(BigDecimal.ZERO) > 0) {
-                                    if (normalInterestPaid) {
-                                        // Normal interest is paid: calculatedInterest + sellerInterestOverduePaid
-                                        // Use calculatedInterest (not plainCalculatedInterest) to match sellerTotalInterestDue
-                                        sellerTotalInterestComponentPaid = calculatedInterest.add(sellerInterestOverduePaid)
-                                            .setScale(4, RoundingMode.HALF_UP);
-                                    } else {
-                                        // Normal interest not paid: only overdue interest paid (if any)
-                                        sellerTotalInterestComponentPaid = sellerInterestOverduePaid
-                                            .setScale(4, RoundingMode.HALF_UP);
-                                    }
-                                }
-                                payoutDetail.setSellerTotalInterestComponentPaid(sellerTotalInterestComponentPaid);
-                                
-                                // ====================================================================
-                                // STEP 9: Calculate closing interest (sellerInterestOverdue)
-                                // Closing interest = sellerTotalInterestDue - sellerTotalInterestComponentPaid
-                                // This should match the sum of the array after processing
-                                // ====================================================================
-                                BigDecimal closingInterestOverdue = sellerTotalInterestDue.subtract(sellerTotalInterestComponentPaid)
-                                    .setScale(2, RoundingMode.HALF_UP);
-                                
-                                // Ensure non-negative
-                                if (closingInterestOverdue.compareTo(BigDecimal.ZERO) < 0) {
-                                    closingInterestOverdue = BigDecimal.ZERO;
-                                }
-                                
-                                // Update sellerInterestOverdue with the calculated value
-                                payoutDetail.setSellerInterestOverdue(closingInterestOverdue);
-                                
-                                // Verify: The array sum should match closingInterestOverdue (for validation)
-                                BigDecimal arraySum = splitArrayForCalculation.stream()
-                                    .filter(val -> val != null)
-                                    .reduce(BigDecimal.ZERO, BigDecimal::add)
-                                    .setScale(2, RoundingMode.HALF_UP);
-                                
-                                // Log if there's a mismatch (for debugging)
-                                if (arraySum.compareTo(closingInterestOverdue) != 0) {
-                                    logger.warn("Array sum ({}) does not match closingInterestOverdue ({}) for payout detail {}", 
-                                        arraySum, closingInterestOverdue, payoutDetail.getId());
-                                }
-
-                                //Adding Total paid
-                                BigDecimal totalPaid = payoutDetail.getSellerTotalPrincipalComponentPaid().add(payoutDetail.getSellerTotalInterestComponentPaid()).add(payoutDetail.getSellerTotalChargesPaid().add(payoutDetail.getSellerPrepaymentPaid()).add(payoutDetail.getSellerForeclosurePaid()));
-                                payoutDetail.setSellerTotalPaid(totalPaid);
-
-                                logger.debug("Calculated seller fields for payout detail {} with assign ratio: {}, interest rate: {}, days: {}, calculatedInterest: {}, sellerInterestOverdue: {}, sellerTotalInterestDue: {}", 
-                                    payoutDetail.getId(), assignRatio, annualInterestRate, daysBetween, calculatedInterest, payoutDetail.getSellerInterestOverdue(), payoutDetail.getSellerTotalInterestDue());
-                                
-                                return payoutDetail;
-                            });
-                    });
-            });
-    }
-
-    /**
-     * Helper method to get sellerInterestOverdueSplit reactively
-     * Logic:
-     * - If previous month exists: use sellerInterestOverdueSplit from previous month
-     * - If no previous month: use assignedInterestOverdueSplit from loan details
+     * Loads the previous month's payout rows for the given LANs into a context, using one status
+     * lookup and one query for all LANs. Pass the context to calculateSellerFields for every payout
+     * of the same (deal, year, month).
      */
-    private Mono<List<BigDecimal>> getSellerInterestOverdueSplitReactive(PartnerPayoutDetailsAll payoutDetail, LoanDetail loanDetail, Integer year, Integer month) {
-        if (payoutDetail.getLmsLan() == null) {
-            return Mono.just(java.util.Collections.emptyList());
-        }
-        
-        // Calculate previous month and year
+    public Mono<SellerCalculationContext> loadSellerCalculationContext(Integer year, Integer month, Collection<String> lmsLans) {
         int prevMonth = (month == 1) ? 12 : month - 1;
         int prevYear = (month == 1) ? year - 1 : year;
         
-        // Helper method to get loan detail by LAN if not provided
-        Mono<LoanDetail> loanDetailMono;
-        if (loanDetail != null) {
-            loanDetailMono = Mono.just(loanDetail);
-        } else {
-            // Look up loan detail by LAN if not provided
-            loanDetailMono = loanDetailRepository.findAll()
-                .filter(ld -> payoutDetail.getLmsLan().equals(ld.getLmsLan()))
-                .next()
-                .switchIfEmpty(Mono.empty());
-        }
+        String[] lans = lmsLans.stream()
+            .filter(lan -> lan != null)
+            .distinct()
+            .toArray(String[]::new);
         
-        // Find previous month's lmsId first
         return monthlyLMSStatusRepository.findByYearAndMonth(prevYear, prevMonth)
             .map(MonthlyLMSStatusEntity::getId)
-            .flatMap(prevLmsId -> {
-                // Found previous month's lmsId - now get the specific entry for this LAN
-                return partnerPayoutDetailsAllRepository.findByLmsIdAndLmsLan(prevLmsId, payoutDetail.getLmsLan())
-                    .map(previousEntry -> {
-                        // Previous month entry found - use its sellerInterestOverdueSplit
-                        List<BigDecimal> prevSplit = previousEntry.getSellerInterestOverdueSplit();
-                        if (prevSplit != null && !prevSplit.isEmpty()) {
-                            return prevSplit;
-                        }
-                        // If previous month has empty/null split, return empty list to trigger fallback
-                        return java.util.Collections.<BigDecimal>emptyList();
-                    })
-                    .switchIfEmpty(Mono.defer(() -> {
-                        // Previous month lmsId exists but no entry for this LAN - fall back to loan details
-                        return Mono.just(java.util.Collections.<BigDecimal>emptyList());
-                    }));
-            })
-            .switchIfEmpty(Mono.defer(() -> {
-                // No previous month - fall back to loan details
-                return Mono.just(java.util.Collections.<BigDecimal>emptyList());
-            }))
-            .flatMap(splitFromPrevMonth -> {
-                if (splitFromPrevMonth != null && !splitFromPrevMonth.isEmpty()) {
-                    return Mono.just(splitFromPrevMonth);
-                }
-                // Fall back to loan details
-                return loanDetailMono
-                    .map(ld -> {
-                        if (ld.getAssignedInterestOverdueSplit() != null && !ld.getAssignedInterestOverdueSplit().isEmpty()) {
-                            return ld.getAssignedInterestOverdueSplit();
-                        }
-                        return java.util.Collections.<BigDecimal>emptyList();
-                    })
-                    .switchIfEmpty(Mono.just(java.util.Collections.<BigDecimal>emptyList()));
-            });
+            .flatMap(prevLmsId -> partnerPayoutDetailsAllRepository.findByLmsIdAndLmsLans(prevLmsId, lans)
+                .collectMap(PartnerPayoutDetailsAll::getLmsLan)
+                .map(previousByLan -> {
+                    logger.debug("Loaded {} previous month payout details (lmsId: {}) for {} LANs", 
+                        previousByLan.size(), prevLmsId, lans.length);
+                    return new SellerCalculationContext(year, month, prevLmsId, previousByLan);
+                }))
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+                logger.debug("No previous month LMS status for year={}, month={}", prevYear, prevMonth);
+                return new SellerCalculationContext(year, month, null, Map.of());
+            }));
     }
 
     /**
-     * Helper method to calculate sellerInterestOverdue reactively
-     * Logic:
-     * - If this is the first month (no previous month LMS status): use loan details data (currentAssignedOverdueInterest)
-     * - If previous month data exists: calculate from previous month's unpaid interest
-     *   sellerInterestOverdue = previousMonth.sellerTotalInterestDue - previousMonth.sellerTotalInterestComponentPaid
+     * Calculates seller fields for a single payout, loading its previous-month context on the fly.
+     * When calculating many payouts, load the context once and use the overload that takes it.
      */
-    private Mono<BigDecimal> calculateSellerInterestOverdueReactive(PartnerPayoutDetailsAll payoutDetail, LoanDetail loanDetail, Integer year, Integer month) {
-        if (payoutDetail.getLmsLan() == null) {
-            return Mono.just(BigDecimal.ZERO);
-        }
-        
-        // Calculate previous month and year
-        int prevMonth = (month == 1) ? 12 : month - 1;
-        int prevYear = (month == 1) ? year - 1 : year;
-        
-        // Helper method to get loan detail by LAN if not provided
-        Mono<LoanDetail> loanDetailMono;
-        if (loanDetail != null) {
-            loanDetailMono = Mono.just(loanDetail);
-        } else {
-            // Look up loan detail by LAN if not provided
-            loanDetailMono = loanDetailRepository.findAll()
-                .filter(ld -> payoutDetail.getLmsLan().equals(ld.getLmsLan()))
-                .next()
-                .switchIfEmpty(Mono.empty());
-        }
-        
-        // Find previous month's lmsId first (same approach as opening position mismatch detection)
-        return monthlyLMSStatusRepository.findByYearAndMonth(prevYear, prevMonth)
-            .map(MonthlyLMSStatusEntity::getId)
-            .flatMap(prevLmsId -> {
-                // Found previous month's lmsId - now get the specific entry for this LAN
-                return partnerPayoutDetailsAllRepository.findByLmsIdAndLmsLan(prevLmsId, payoutDetail.getLmsLan())
-                    .flatMap(previousEntry -> {
-                        // Previous month entry found - calculate from it
-                        BigDecimal prevSellerTotalInterestDue = previousEntry.getSellerTotalInterestDue() != null ? 
-                            previousEntry.getSellerTotalInterestDue() : BigDecimal.ZERO;
-                        BigDecimal prevSellerTotalInterestComponentPaid = previousEntry.getSellerTotalInterestComponentPaid() != null ? 
-                            previousEntry.getSellerTotalInterestComponentPaid() : BigDecimal.ZERO;
-                        
-                        // Calculate unpaid interest: sellerTotalInterestDue - sellerTotalInterestComponentPaid
-                        // This is what was due but not paid, which becomes overdue
-                        BigDecimal sellerInterestOverdue = prevSellerTotalInterestDue.subtract(prevSellerTotalInterestComponentPaid)
-                            .setScale(2, RoundingMode.HALF_UP);
-                        
-                        // Ensure non-negative (if overpaid, overdue is 0)
-                        if (sellerInterestOverdue.compareTo(BigDecimal.ZERO) < 0) {
-                            sellerInterestOverdue = BigDecimal.ZERO;
-                        }
-                        
-                        return Mono.just(sellerInterestOverdue);
-                    })
-                    .switchIfEmpty(Mono.defer(() -> {
-                        // Previous month lmsId exists but no entry for this LAN - fall back to loan details
-                        return loanDetailMono
-                            .map(ld -> {
-                                if (ld.getCurrentAssignedOverdueInterest() != null) {
-                                    return BigDecimal.valueOf(ld.getCurrentAssignedOverdueInterest())
-                                        .setScale(2, RoundingMode.HALF_UP);
-                                }
-                                return BigDecimal.ZERO;
-                            })
-                            .switchIfEmpty(Mono.just(BigDecimal.ZERO));
-                    }));
-            })
-            .switchIfEmpty(
-                // No previous month LMS status found - this is the first month, use loan details data
-                loanDetailMono
-                    .map(ld -> {
-                        if (ld.getCurrentAssignedOverdueInterest() != null) {
-                            return BigDecimal.valueOf(ld.getCurrentAssignedOverdueInterest())
-                                .setScale(2, RoundingMode.HALF_UP);
-                        }
-                        return BigDecimal.ZERO;
-                    })
-                    .switchIfEmpty(Mono.just(BigDecimal.ZERO))
-            );
+    public Mono<PartnerPayoutDetailsAll> calculateSellerFields(PartnerPayoutDetailsAll payoutDetail, Deal deal, LoanDetail loanDetail, Integer year, Integer month) {
+        List<String> lmsLans = payoutDetail.getLmsLan() != null ? List.of(payoutDetail.getLmsLan()) : List.of();
+        return loadSellerCalculationContext(year, month, lmsLans)
+            .flatMap(context -> calculateSellerFields(payoutDetail, deal, loanDetail, context));
     }
 
     /**
-     * Calculate interest multiplier based on InterestMethod
-     * Uses daysBetween (cycleEndDate - cycleStartDate) for actual day calculations
+     * Calculates seller fields for a single payout, reading previous month data from the context
      */
-    private Double calculateInterestMultiplier(Deal.InterestMethod interestMethod, LocalDate startDate, LocalDate endDate, long daysBetween) {
-        if (interestMethod == null) {
-            // Default fallback to ACTUAL_BY_360 if method is null
-            return daysBetween / 360.0;
-        }
+    public Mono<PartnerPayoutDetailsAll> calculateSellerFields(PartnerPayoutDetailsAll payoutDetail, Deal deal, LoanDetail loanDetail, 
+                                                               SellerCalculationContext context) {
+        Map<String, LoanDetail> loanDetailsByLan = loanDetail != null && loanDetail.getLmsLan() != null
+            ? Map.of(loanDetail.getLmsLan(), loanDetail)
+            : Map.of();
+        return calculateSellerFields(List.of(payoutDetail), deal, loanDetailsByLan, context).next();
+    }
 
-        switch (interestMethod) {
-            case ONE_TWELFTH:
-                return 1.0 / 12.0;
-                
-            case ACTUAL_BY_360:
-                return daysBetween / 360.0;
-                
-            case ACTUAL_BY_365:
-                return daysBetween / 365.0;
-                
-            case ACTUAL_BY_ACTUAL:
-                // Use 366 for leap year, 365 otherwise
-                // Use the start date to determine if it's a leap year
-                int actualDaysInYear = (startDate != null && startDate.isLeapYear()) ? 366 : 365;
-                return daysBetween / (double) actualDaysInYear;
-                
-            default:
-                // Default fallback to ACTUAL_BY_360
-                return daysBetween / 360.0;
+    /**
+     * Calculates seller fields based on assigned ratio and interest rate from deal table.
+     * The deal's rate timeline and any loan details missing from loanDetailsByLan are loaded first;
+     * the calculation itself ({@link SellerCalculationEngine}) then runs in batches on the parallel
+     * scheduler and the results are set on the payout details, which are emitted in input order.
+     * Payouts whose seller input hash matches the stored one keep their seller fields; callers can
+     * compare sellerInputHash before and after to find the payouts that were recalculated.
+     */
+    public Flux<PartnerPayoutDetailsAll> calculateSellerFields(List<PartnerPayoutDetailsAll> payoutDetails, Deal deal, 
+                                                               Map<String, LoanDetail> loanDetailsByLan, 
+                                                               SellerCalculationContext context) {
+        if (!sellerCalculationEngine.canCalculate(deal)) {
+            logger.warn("Deal or required fields are null, skipping calculation for {} payout detail(s)", payoutDetails.size());
+            return Flux.fromIterable(payoutDetails);
         }
+        
+        Mono<InterestRateTimeline> rateTimelineMono = deal.getId() != null
+            ? interestRateTimelineCache.getTimeline(deal.getId())
+            : Mono.just(InterestRateTimeline.compile(List.of()));
+        
+        return Mono.zip(rateTimelineMono, loadMissingLoanDetails(payoutDetails, loanDetailsByLan))
+            .flatMapMany(loaded -> {
+                InterestRateTimeline rateTimeline = loaded.getT1();
+                Map<String, LoanDetail> allLoanDetails = loaded.getT2();
+                
+                return Flux.fromIterable(payoutDetails)
+                    .buffer(sellerCalculationBatchSize)
+                    // CPU only from here on; flatMapSequential keeps the input order
+                    .flatMapSequential(batch -> Mono.fromCallable(() -> {
+                            for (PartnerPayoutDetailsAll payoutDetail : batch) {
+                                String lmsLan = payoutDetail.getLmsLan();
+                                SellerCalculationInput input = new SellerCalculationInput(
+                                    deal, 
+                                    rateTimeline, 
+                                    context.getPreviousEntry(lmsLan), 
+                                    lmsLan != null ? allLoanDetails.get(lmsLan) : null);
+                                // Same inputs as the stored seller fields were calculated from: nothing to do
+                                String sellerInputHash = PayoutContentHasher.sellerInputHash(payoutDetail, input);
+                                if (sellerInputHash.equals(payoutDetail.getSellerInputHash())) {
+                                    continue;
+                                }
+                                sellerCalculationEngine.calculate(payoutDetail, input).applyTo(payoutDetail);
+                                payoutDetail.setSellerInputHash(sellerInputHash);
+                            }
+                            return batch;
+                        })
+                        .subscribeOn(Schedulers.parallel()))
+                    .flatMapIterable(batch -> batch);
+            });
     }
 
     /**
-     * Helper method to calculate BigDecimal value by multiplying with ratio
+     * loanDetailsByLan plus one lms_lan = ANY(...) lookup for the payout LANs it does not contain
      */
-    private BigDecimal calculateValue(BigDecimal value, Double ratio) {
-        if (value == null || ratio == null) {
-            return BigDecimal.ZERO;
+    private Mono<Map<String, LoanDetail>> loadMissingLoanDetails(List<PartnerPayoutDetailsAll> payoutDetails, 
+                                                                 Map<String, LoanDetail> loanDetailsByLan) {
+        List<String> missingLans = payoutDetails.stream()
+            .map(PartnerPayoutDetailsAll::getLmsLan)
+            .filter(lan -> lan != null && !loanDetailsByLan.containsKey(lan))
+            .distinct()
+            .toList();
+        if (missingLans.isEmpty()) {
+            return Mono.just(loanDetailsByLan);
         }
-        return value.multiply(BigDecimal.valueOf(ratio)).setScale(2, RoundingMode.HALF_UP);
+        
+        return loanDetailRepository.findFirstByLmsLans(missingLans.toArray(String[]::new))
+            .collectMap(LoanDetail::getLmsLan)
+            .map(found -> {
+                Map<String, LoanDetail> combined = new java.util.HashMap<>(loanDetailsByLan);
+                combined.putAll(found);
+                return combined;
+            });
     }
 
     /**
@@ -904,168 +733,125 @@ public class PartnerPayoutDetailsAllService {
     }
 
     /**
-     * Detect opening position mismatches between payout details and loan details
+     * Detect opening position mismatches between payout details and loan details.
+     * Previous month closing positions are read from the context, which already holds the
+     * previous month's rows of these LANs, so nothing is queried per deal.
      */
-    public Mono<List<OpeningPosDiscrepancy>> detectOpeningPosMismatches(
+    public List<OpeningPosDiscrepancy> detectOpeningPosMismatches(
             List<PartnerPayoutDetailsAll> payoutDetails, 
             List<LoanDetail> loanDetails,
-            Integer year, 
-            Integer month) {
+            SellerCalculationContext context) {
         
         // Create a map of loan details for quick lookup
         Map<String, LoanDetail> loanDetailMap = loanDetails.stream()
             .filter(ld -> ld.getLmsLan() != null)
             .collect(Collectors.toMap(LoanDetail::getLmsLan, ld -> ld));
         
-        // Calculate previous month and year to check if we should look for previous month data
-        final Integer prevMonth;
-        final Integer prevYear;
-        
-        if (month == 1) {
-            prevMonth = 12;
-            prevYear = year - 1;
-        } else {
-            prevMonth = month - 1;
-            prevYear = year;
-        }
-        
-        // Get the previous month's lmsId to check if previous month data exists
-        logger.info("Checking for previous month data: year={}, month={}, prevYear={}, prevMonth={}", year, month, prevYear, prevMonth);
-        Mono<Long> prevMonthLmsIdMono = monthlyLMSStatusRepository.findByYearAndMonth(prevYear, prevMonth)
-            .map(MonthlyLMSStatusEntity::getId)
-            .doOnNext(lmsId -> logger.info("Found previous month LMS status with lmsId: {} for year={}, month={}", lmsId, prevYear, prevMonth))
-            .switchIfEmpty(Mono.defer(() -> {
-                logger.warn("No previous month LMS status found for year={}, month={}. This might be the first month.", prevYear, prevMonth);
-                return Mono.empty();
-            }));
-        
-        // Process each payout detail reactively
-        return prevMonthLmsIdMono
-            .flatMap(prevLmsId -> {
-                // Fetch all previous month payout details once by lmsId
-                logger.info("Fetching all previous month payout details for lmsId: {}", prevLmsId);
-                return partnerPayoutDetailsAllRepository.findByLmsId(prevLmsId)
-                    .collectList()
-                    .map(prevMonthPayouts -> {
-                        // Create a map of lmsLan -> closingPos
-                        Map<String, BigDecimal> prevMonthClosingPosMap = new java.util.HashMap<>();
-                        for (PartnerPayoutDetailsAll payout : prevMonthPayouts) {
-                            if (payout.getLmsLan() != null && payout.getClosingPos() != null) {
-                                // Keep first if duplicates (don't overwrite)
-                                prevMonthClosingPosMap.putIfAbsent(payout.getLmsLan(), payout.getClosingPos());
-                            }
-                        }
-                        logger.info("Loaded {} previous month closing positions into map from {} payout records", 
-                            prevMonthClosingPosMap.size(), prevMonthPayouts.size());
-                        return prevMonthClosingPosMap;
-                    })
-                    .flatMap(prevMonthClosingPosMap -> {
-                        // Previous month data exists - check all payouts against previous month closing position
-                        logger.info("Previous month data found (lmsId: {}), checking opening positions against previous month closing positions for {} payouts", 
-                            prevLmsId, payoutDetails.size());
+        if (context.hasPreviousMonth()) {
+            // Previous month data exists - check all payouts against previous month closing position
+            logger.info("Previous month data found (lmsId: {}), checking opening positions against previous month closing positions for {} payouts", 
+                context.getPreviousLmsId(), payoutDetails.size());
                         
-                        List<OpeningPosDiscrepancy> discrepancies = new java.util.ArrayList<>();
+            List<OpeningPosDiscrepancy> discrepancies = new java.util.ArrayList<>();
                         
-                        for (PartnerPayoutDetailsAll payout : payoutDetails) {
-                            if (payout.getLmsLan() == null) {
-                                continue;
-                            }
+            for (PartnerPayoutDetailsAll payout : payoutDetails) {
+                if (payout.getLmsLan() == null) {
+                    continue;
+                }
                             
-                            LoanDetail loanDetail = loanDetailMap.get(payout.getLmsLan());
-                            if (loanDetail == null) {
-                                discrepancies.add(OpeningPosDiscrepancy.builder()
-                                    .lmsLan(payout.getLmsLan())
-                                    .payoutOpeningPos(payout.getOpeningPos())
-                                    .loanDetailOpeningPos(null)
-                                    .difference(BigDecimal.ZERO)
-                                    .isMismatch(false)
-                                    .discrepancyType("NO_LOAN_DETAIL")
-                                    .description("No loan detail found")
-                                    .build());
-                                continue;
-                            }
+                LoanDetail loanDetail = loanDetailMap.get(payout.getLmsLan());
+                if (loanDetail == null) {
+                    discrepancies.add(OpeningPosDiscrepancy.builder()
+                        .lmsLan(payout.getLmsLan())
+                        .payoutOpeningPos(payout.getOpeningPos())
+                        .loanDetailOpeningPos(null)
+                        .difference(BigDecimal.ZERO)
+                        .isMismatch(false)
+                        .discrepancyType("NO_LOAN_DETAIL")
+                        .description("No loan detail found")
+                        .build());
+                    continue;
+                }
                             
-                            // For 2nd month and later, always check previous month closing position vs current month opening position
-                            // Look up from the map we created
-                            BigDecimal prevClosingPos = prevMonthClosingPosMap.get(payout.getLmsLan());
+                // For 2nd month and later, always check previous month closing position vs current month opening position
+                PartnerPayoutDetailsAll previousEntry = context.getPreviousEntry(payout.getLmsLan());
+                BigDecimal prevClosingPos = previousEntry != null ? previousEntry.getClosingPos() : null;
                             
-                            if (prevClosingPos == null) {
-                                // If no previous month data found for this LAN in month 2+, it's a data issue
-                                logger.warn("No previous month closing position found for LAN {} in map. Using ZERO as expected.", 
-                                    payout.getLmsLan());
-                                BigDecimal expectedOpeningPos = BigDecimal.ZERO;
-                                String discrepancyType = "PREVIOUS_MONTH_MISSING";
-                                String description = String.format("Previous month closing position not found for LAN %s. Expected opening position from previous month closing, but no previous month data exists.", payout.getLmsLan());
-                                boolean isMismatch = true; // This is a mismatch because we can't validate
-                                OpeningPosDiscrepancy discrepancy = processComparison(payout, expectedOpeningPos, discrepancyType, description, isMismatch);
-                                if (discrepancy.isMismatch()) {
-                                    discrepancies.add(discrepancy);
-                                }
-                                continue;
-                            }
+                if (prevClosingPos == null) {
+                    // If no previous month data found for this LAN in month 2+, it's a data issue
+                    logger.warn("No previous month closing position found for LAN {} in map. Using ZERO as expected.", 
+                        payout.getLmsLan());
+                    BigDecimal expectedOpeningPos = BigDecimal.ZERO;
+                    String discrepancyType = "PREVIOUS_MONTH_MISSING";
+                    String description = String.format("Previous month closing position not found for LAN %s. Expected opening position from previous month closing, but no previous month data exists.", payout.getLmsLan());
+                    boolean isMismatch = true; // This is a mismatch because we can't validate
+                    OpeningPosDiscrepancy discrepancy = processComparison(payout, expectedOpeningPos, discrepancyType, description, isMismatch);
+                    if (discrepancy.isMismatch()) {
+                        discrepancies.add(discrepancy);
+                    }
+                    continue;
+                }
                             
-                            // Compare: Previous month's closing position (expected) vs Current month's opening position (actual)
-                            BigDecimal expectedOpeningPos = prevClosingPos;
-                            String discrepancyType = "PREVIOUS_MONTH";
-                            String description = "";
-                            boolean isMismatch = false;
+                // Compare: Previous month's closing position (expected) vs Current month's opening position (actual)
+                BigDecimal expectedOpeningPos = prevClosingPos;
+                String discrepancyType = "PREVIOUS_MONTH";
+                String description = "";
+                boolean isMismatch = false;
                             
-                            logger.debug("Comparing for LAN {}: Current opening={}, Previous closing={}", 
-                                payout.getLmsLan(), payout.getOpeningPos(), expectedOpeningPos);
+                logger.debug("Comparing for LAN {}: Current opening={}, Previous closing={}", 
+                    payout.getLmsLan(), payout.getOpeningPos(), expectedOpeningPos);
                             
-                            OpeningPosDiscrepancy discrepancy = processComparison(payout, expectedOpeningPos, discrepancyType, description, isMismatch);
+                OpeningPosDiscrepancy discrepancy = processComparison(payout, expectedOpeningPos, discrepancyType, description, isMismatch);
                             
-                            if (discrepancy.isMismatch()) {
-                                logger.warn("Opening position mismatch for LAN {}: Payout={}, Expected={}, Difference={}", 
-                                    discrepancy.getLmsLan(), discrepancy.getPayoutOpeningPos(), 
-                                    discrepancy.getLoanDetailOpeningPos(), discrepancy.getDifference());
-                                discrepancies.add(discrepancy);
-                            }
-                        }
+                if (discrepancy.isMismatch()) {
+                    logger.warn("Opening position mismatch for LAN {}: Payout={}, Expected={}, Difference={}", 
+                        discrepancy.getLmsLan(), discrepancy.getPayoutOpeningPos(), 
+                        discrepancy.getLoanDetailOpeningPos(), discrepancy.getDifference());
+                    discrepancies.add(discrepancy);
+                }
+            }
                         
-                        return Mono.just(discrepancies);
-                    });
-            })
-            .switchIfEmpty(
-                // No previous month data exists - this is the first month, use loan details
-                Mono.fromCallable(() -> {
-                    List<OpeningPosDiscrepancy> discrepancies = new java.util.ArrayList<>();
+            return discrepancies;
+        }
+        
+        // No previous month data exists - this is the first month, use loan details
+        logger.info("No previous month LMS status for year={}, month={}. Checking opening positions against loan details for {} payouts", 
+            context.getYear(), context.getMonth(), payoutDetails.size());
+        List<OpeningPosDiscrepancy> discrepancies = new java.util.ArrayList<>();
                     
-                    for (PartnerPayoutDetailsAll payout : payoutDetails) {
-                        if (payout.getLmsLan() == null) {
-                            continue;
-                        }
+        for (PartnerPayoutDetailsAll payout : payoutDetails) {
+            if (payout.getLmsLan() == null) {
+                continue;
+            }
                         
-                        LoanDetail loanDetail = loanDetailMap.get(payout.getLmsLan());
-                        if (loanDetail == null) {
-                            discrepancies.add(OpeningPosDiscrepancy.builder()
-                                .lmsLan(payout.getLmsLan())
-                                .payoutOpeningPos(payout.getOpeningPos())
-                                .loanDetailOpeningPos(null)
-                                .difference(BigDecimal.ZERO)
-                                .isMismatch(false)
-                                .discrepancyType("NO_LOAN_DETAIL")
-                                .description("No loan detail found")
-                                .build());
-                            continue;
-                        }
+            LoanDetail loanDetail = loanDetailMap.get(payout.getLmsLan());
+            if (loanDetail == null) {
+                discrepancies.add(OpeningPosDiscrepancy.builder()
+                    .lmsLan(payout.getLmsLan())
+                    .payoutOpeningPos(payout.getOpeningPos())
+                    .loanDetailOpeningPos(null)
+                    .difference(BigDecimal.ZERO)
+                    .isMismatch(false)
+                    .discrepancyType("NO_LOAN_DETAIL")
+                    .description("No loan detail found")
+                    .build());
+                continue;
+            }
                         
-                        // First month - use loan details current position
-                        BigDecimal expectedOpeningPos = loanDetail.getCurrentPOS() != null ?
-                            BigDecimal.valueOf(loanDetail.getCurrentPOS()) : BigDecimal.ZERO;
-                        String discrepancyType = "CURRENT_MONTH";
-                        String description = "";
-                        boolean isMismatch = false;
+            // First month - use loan details current position
+            BigDecimal expectedOpeningPos = loanDetail.getCurrentPOS() != null ?
+                BigDecimal.valueOf(loanDetail.getCurrentPOS()) : BigDecimal.ZERO;
+            String discrepancyType = "CURRENT_MONTH";
+            String description = "";
+            boolean isMismatch = false;
                         
-                        OpeningPosDiscrepancy discrepancy = processComparison(payout, expectedOpeningPos, discrepancyType, description, isMismatch);
-                        if (discrepancy.isMismatch()) {
-                            discrepancies.add(discrepancy);
-                        }
-                    }
+            OpeningPosDiscrepancy discrepancy = processComparison(payout, expectedOpeningPos, discrepancyType, description, isMismatch);
+            if (discrepancy.isMismatch()) {
+                discrepancies.add(discrepancy);
+            }
+        }
                     
-                    return discrepancies;
-                })
-            );
+        return discrepancies;
     }
     
     private OpeningPosDiscrepancy processComparison(PartnerPayoutDetailsAll payout, BigDecimal expectedOpeningPos, 
@@ -1118,93 +904,4 @@ public class PartnerPayoutDetailsAllService {
                 .build();
         }
     }
-    
-    /**
-     * Calculate interest by calculating for each rate period separately and summing them
-     * Uses cycle_start_date and cycle_end_date, and respects the interest method from deal table
-     * If there are gaps in rate coverage, uses default rate for uncovered days
-     */
-    private Mono<BigDecimal> calculateInterestByRatePeriodsReactive(Long dealId, BigDecimal baseAmount, LocalDate startDate, LocalDate endDate, Deal.InterestMethod interestMethod, Double defaultRate) {
-        if (dealId == null || startDate == null || endDate == null || baseAmount == null || baseAmount.compareTo(BigDecimal.ZERO) <= 0) {
-            return Mono.empty();
-        }
-        
-        long totalDays = ChronoUnit.DAYS.between(startDate, endDate);
-        if (totalDays <= 0) {
-            return Mono.empty();
-        }
-        
-        return interestRateChangeRepository.findByDealId(dealId)
-            .collectList()
-            .flatMap(rateTable -> {
-                if (rateTable == null || rateTable.isEmpty()) {
-                    return Mono.empty();
-                }
-                
-                // Calculate interest for each rate period separately and sum them
-                BigDecimal totalInterest = BigDecimal.ZERO;
-                long totalOverlapDays = 0;
-                
-                for (InterestRateChange entry : rateTable) {
-                    LocalDate rateStart = entry.getStartDate();
-                    if (rateStart == null) {
-                        continue;
-                    }
-                    
-                    LocalDate rateEnd = entry.getEndDate() != null ? entry.getEndDate() : LocalDate.MAX;
-                    
-                    // Calculate overlap between cycle period and rate period
-                    LocalDate overlapStart = rateStart.isAfter(startDate) ? rateStart : startDate;
-                    LocalDate overlapEnd = rateEnd.isBefore(endDate) ? rateEnd : endDate;
-                    
-                    if (overlapStart.isAfter(overlapEnd)) {
-                        continue;
-                    }
-                    
-                    // Calculate overlap days: ChronoUnit.DAYS.between is exclusive of end date
-                    // This matches how daysBetween is calculated for the cycle period
-                    long overlapDays = ChronoUnit.DAYS.between(overlapStart, overlapEnd);
-                    
-                    if (overlapDays > 0) {
-                        double interestRate = entry.getInterestRate() != null ? entry.getInterestRate() : 0.0;
-                        
-                        // Calculate interest multiplier for this period using the interest method
-                        Double periodMultiplier = calculateInterestMultiplier(interestMethod, overlapStart, overlapEnd, overlapDays);
-                        
-                        // Calculate interest for this period: baseAmount * rate * multiplier
-                        // This uses the same logic as the main calculation
-                        BigDecimal periodInterest = baseAmount
-                            .multiply(BigDecimal.valueOf(interestRate))
-                            .multiply(BigDecimal.valueOf(periodMultiplier))
-                            .setScale(10, RoundingMode.HALF_UP);
-                        
-                        totalInterest = totalInterest.add(periodInterest);
-                        totalOverlapDays += overlapDays;
-                    }
-                }
-                
-                // If there are gaps in rate coverage, use default rate for uncovered days
-                if (totalOverlapDays < totalDays && defaultRate != null) {
-                    long uncoveredDays = totalDays - totalOverlapDays;
-                    
-                    // Calculate interest multiplier for uncovered days using the interest method
-                    Double uncoveredMultiplier = calculateInterestMultiplier(interestMethod, startDate, endDate, uncoveredDays);
-                    
-                    BigDecimal uncoveredInterest = baseAmount
-                        .multiply(BigDecimal.valueOf(defaultRate))
-                        .multiply(BigDecimal.valueOf(uncoveredMultiplier))
-                        .setScale(10, RoundingMode.HALF_UP);
-                    
-                    totalInterest = totalInterest.add(uncoveredInterest);
-                    logger.debug("Added interest for {} uncovered days using default rate {}: {}", uncoveredDays, defaultRate, uncoveredInterest);
-                }
-                
-                if (totalInterest.compareTo(BigDecimal.ZERO) > 0) {
-                    return Mono.just(totalInterest.setScale(2, RoundingMode.HALF_UP));
-                }
-                
-                return Mono.empty();
-            });
-    }
-    
-}
\ No newline at end of file
+}
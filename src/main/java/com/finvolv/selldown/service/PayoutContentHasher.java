@@ -0,0 +1,168 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * SHA-256 content hashes for LMS payout rows and whole LMS files, and of the seller
+ * calculation inputs of a row.
+ * Only the LMS-provided columns (plus derived cycle dates) are hashed, so seller fields,
+ * deal status and audit columns never make an otherwise identical row look changed.
+ * Numbers are hashed by value, so 100, 100.0 and 100.00 hash the same.
+ */
+final class PayoutContentHasher {
+
+    private static final char FIELD_SEPARATOR = '\u001f';
+    private static final String NULL_VALUE = "\u0000";
+
+    private PayoutContentHasher() {
+    }
+
+    /**
+     * Hash stored in content_hash and compared on re-upload to decide whether a row changed
+     */
+    static String rowHash(PartnerPayoutDetailsAll payout) {
+        return HexFormat.of().formatHex(newDigest().digest(canonical(payout).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Hash stored in seller_input_hash: every value {@link SellerCalculationEngine} reads for the row.
+     * When it equals the stored hash, the stored seller fields are what a recalculation would produce.
+     */
+    static String sellerInputHash(PartnerPayoutDetailsAll payout, SellerCalculationInput input) {
+        StringBuilder sb = new StringBuilder(512);
+        append(sb, SellerCalculationEngine.CALCULATION_VERSION);
+
+        // LMS fields used by the calculation
+        append(sb, payout.getLmsLan());
+        append(sb, payout.getOpeningPos());
+        append(sb, payout.getClosingPos());
+        append(sb, payout.getTotalPrincipalDue());
+        append(sb, payout.getPrincipalOverdue());
+        append(sb, payout.getTotalPrincipalComponentPaid());
+        append(sb, payout.getPrincipalOverduePaid());
+        append(sb, payout.getTotalInterestComponentPaid());
+        append(sb, payout.getInterestOverduePaid());
+        append(sb, payout.getForeclosurePaid());
+        append(sb, payout.getForeclosureChargesPaid());
+        append(sb, payout.getPrepaymentPaid());
+        append(sb, payout.getPrepaymentChargesPaid());
+        append(sb, payout.getTotalChargesPaid());
+        append(sb, payout.getClosingDpd());
+        append(sb, payout.getCycleStartDate());
+        append(sb, payout.getCycleEndDate());
+
+        // Deal terms and rate table version
+        Deal deal = input.deal();
+        append(sb, deal.getId());
+        append(sb, deal.getAssignRatio());
+        append(sb, deal.getAnnualInterestRate());
+        append(sb, deal.getInterestMethod());
+        append(sb, input.rateTimeline() != null ? input.rateTimeline().getFingerprint() : null);
+
+        // Previous month's seller state, or the loan detail's assigned values for a first month
+        PartnerPayoutDetailsAll previousEntry = input.previousEntry();
+        append(sb, previousEntry != null);
+        if (previousEntry != null) {
+            append(sb, previousEntry.getSellerTotalInterestDue());
+            append(sb, previousEntry.getSellerTotalInterestComponentPaid());
+            appendSplit(sb, previousEntry.getSellerInterestOverdueSplit());
+        }
+        LoanDetail loanDetail = input.loanDetail();
+        append(sb, loanDetail != null);
+        if (loanDetail != null) {
+            append(sb, loanDetail.getCurrentAssignedOverdueInterest());
+            appendSplit(sb, loanDetail.getAssignedInterestOverdueSplit());
+        }
+
+        return HexFormat.of().formatHex(newDigest().digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Hash of an entire upload: the row contents in file order
+     */
+    static String fileHash(List<PartnerPayoutDetailsAll> payoutDetails) {
+        MessageDigest fileDigest = newDigest();
+        payoutDetails.forEach(payout -> update(fileDigest, payout));
+        return hex(fileDigest);
+    }
+
+    /**
+     * Adds one row to a running file digest, for uploads that are hashed while streaming
+     */
+    static void update(MessageDigest fileDigest, PartnerPayoutDetailsAll payout) {
+        fileDigest.update(canonical(payout).getBytes(StandardCharsets.UTF_8));
+        fileDigest.update((byte) '\n');
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String canonical(PartnerPayoutDetailsAll payout) {
+        StringBuilder sb = new StringBuilder(512);
+        append(sb, payout.getLmsLan());
+        append(sb, payout.getOpeningPos());
+        append(sb, payout.getClosingPos());
+        append(sb, payout.getTotalPrincipalDue());
+        append(sb, payout.getPrincipalOverdue());
+        append(sb, payout.getTotalPrincipalComponentPaid());
+        append(sb, payout.getPrincipalOverduePaid());
+        append(sb, payout.getTotalInterestDue());
+        append(sb, payout.getInterestOverdue());
+        append(sb, payout.getTotalInterestComponentPaid());
+        append(sb, payout.getInterestOverduePaid());
+        append(sb, payout.getForeclosurePaid());
+        append(sb, payout.getForeclosureChargesPaid());
+        append(sb, payout.getPrepaymentPaid());
+        append(sb, payout.getPrepaymentChargesPaid());
+        append(sb, payout.getTotalChargesPaid());
+        append(sb, payout.getTotalPaid());
+        append(sb, payout.getOpeningDpd());
+        append(sb, payout.getClosingDpd());
+        append(sb, payout.getCycleStartDate());
+        append(sb, payout.getCycleEndDate());
+        append(sb, payout.getIsOpeningPosMisMatch());
+        return sb.toString();
+    }
+
+    private static void appendSplit(StringBuilder sb, InterestOverdueSplit split) {
+        if (split == null) {
+            append(sb, null);
+            return;
+        }
+        append(sb, split.size());
+        for (int i = 0; i < split.size(); i++) {
+            long paise = split.paiseAt(i);
+            append(sb, paise != InterestOverdueSplit.NULL_BUCKET ? paise : null);
+        }
+    }
+
+    private static void append(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append(NULL_VALUE);
+        } else if (value instanceof BigDecimal decimal) {
+            sb.append(decimal.signum() == 0 ? "0" : decimal.stripTrailingZeros().toPlainString());
+        } else {
+            sb.append(value);
+        }
+        sb.append(FIELD_SEPARATOR);
+    }
+}
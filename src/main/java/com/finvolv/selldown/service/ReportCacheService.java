@@ -0,0 +1,423 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.repository.DealRepository;
+import com.finvolv.selldown.repository.LoanDetailRepository;
+import com.finvolv.selldown.repository.MonthlyDealProcessingStatusRepository;
+import com.finvolv.selldown.repository.MonthlyLMSStatusRepository;
+import com.finvolv.selldown.repository.MonthlySSRSStatusRepository;
+import com.finvolv.selldown.repository.PartnerPayoutDetailsAllRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Generated report workbooks on local disk, keyed by report type, deal, partner, year and month
+ * and served only while the data they were built from is unchanged. The data version covers the
+ * deal, its rate table, the deal/partner's loan details, the month's and previous month's LMS
+ * status and payout rows, the SSRS status (finance report) and the monthly deal processing status.
+ * One file is kept per key; beyond max-size the least recently used files are deleted.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReportCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportCacheService.class);
+
+    // Bump when the workbook layout changes, so files written by an older build are not served
+    static final String FORMAT_VERSION = "1";
+
+    private static final String NONE = "-";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern FILE_NAME = Pattern.compile("^(.+)-([0-9a-f]{64})\\.xlsx$");
+
+    public enum ReportType {
+        PARTNER_PAYOUT, SSRS_FINANCE
+    }
+
+    /**
+     * Data version of a report. inputs covers everything the workbook content depends on;
+     * processingStatus is kept apart because building the partner payout report updates it.
+     */
+    public record ReportVersion(ReportType type, Long dealId, Long partnerId, Integer year, Integer month,
+                                String inputs, String processingStatus) {
+
+        String key() {
+            return String.format("%s-%d-%d-%d-%02d", type.name().toLowerCase(), dealId, partnerId, year, month);
+        }
+
+        String hash() {
+            MessageDigest digest = PayoutContentHasher.newDigest();
+            digest.update((inputs + '\n' + processingStatus).getBytes(StandardCharsets.UTF_8));
+            return PayoutContentHasher.hex(digest);
+        }
+    }
+
+    private record CachedReport(String hash, Path path, long size) {
+    }
+
+    private final DealRepository dealRepository;
+    private final LoanDetailRepository loanDetailRepository;
+    private final MonthlyLMSStatusRepository monthlyLMSStatusRepository;
+    private final MonthlySSRSStatusRepository monthlySSRSStatusRepository;
+    private final MonthlyDealProcessingStatusRepository monthlyDealProcessingStatusRepository;
+    private final PartnerPayoutDetailsAllRepository partnerPayoutDetailsAllRepository;
+    private final InterestRateTimelineCache interestRateTimelineCache;
+
+    @Value("${selldown.report-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${selldown.report-cache.directory:${java.io.tmpdir}/selldown-report-cache}")
+    private String directory;
+
+    @Value("${selldown.report-cache.max-size:512MB}")
+    private DataSize maxSize;
+
+    // Access-ordered, so the eldest entry is the least recently used report; guarded by this
+    private final Map<String, CachedReport> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private boolean indexLoaded;
+    // Temporary files older than this were left by a previous run; newer ones may be renders in progress
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    public Mono<ReportVersion> currentVersion(ReportType type, Long dealId, Long partnerId, Integer year, Integer month) {
+        int previousMonth = month == 1 ? 12 : month - 1;
+        int previousYear = month == 1 ? year - 1 : year;
+
+        Mono<String> dealVersion = dealRepository.findById(dealId)
+            .map(ReportCacheService::dealVersion)
+            .defaultIfEmpty(NONE);
+        Mono<String> rateVersion = interestRateTimelineCache.getTimeline(dealId)
+            .map(timeline -> String.valueOf(timeline.getFingerprint()));
+        Mono<String> loanDetailsVersion = loanDetailRepository.findVersionByDealIdAndPartnerId(dealId, partnerId)
+            .defaultIfEmpty(NONE);
+
+        // The partner payout report regenerates the month's seller fields, so only their LMS content
+        // counts; the finance report reads the generated fields as they are stored
+        Mono<String> monthVersion = monthlyLMSStatusRepository.findByYearAndMonth(year, month)
+            .flatMap(status -> (type == ReportType.PARTNER_PAYOUT
+                    ? partnerPayoutDetailsAllRepository.findContentVersionByLmsIdAndDealIdAndPartnerId(status.getId(), dealId, partnerId)
+                    : partnerPayoutDetailsAllRepository.findGeneratedVersionByLmsIdAndDealIdAndPartnerId(status.getId(), dealId, partnerId))
+                .map(rows -> status.getId() + ":" + status.getModifiedAt() + ":" + rows))
+            .defaultIfEmpty(NONE);
+        // The previous month's seller fields are the opening state of this month
+        Mono<String> previousMonthVersion = monthlyLMSStatusRepository.findByYearAndMonth(previousYear, previousMonth)
+            .flatMap(status -> partnerPayoutDetailsAllRepository
+                .findGeneratedVersionByLmsIdAndDealIdAndPartnerId(status.getId(), dealId, partnerId)
+                .map(rows -> status.getId() + ":" + status.getModifiedAt() + ":" + rows))
+            .defaultIfEmpty(NONE);
+
+        Mono<String> ssrsVersion = type == ReportType.SSRS_FINANCE
+            ? Mono.zip(ssrsStatusVersion(year, month), ssrsStatusVersion(previousYear, previousMonth))
+                .map(versions -> versions.getT1() + "/" + versions.getT2())
+            : Mono.just(NONE);
+
+        Mono<String> processingStatusVersion = monthlyDealProcessingStatusRepository
+            .findByDealIdAndPartnerIdAndYearAndMonth(dealId, partnerId, year, month)
+            .map(status -> status.getId() + ":" + status.getStatus() + ":" + status.getModifiedAt())
+            .defaultIfEmpty(NONE);
+
+        return Mono.zip(dealVersion, rateVersion, loanDetailsVersion, monthVersion, previousMonthVersion,
+                ssrsVersion, processingStatusVersion)
+            .map(versions -> new ReportVersion(type, dealId, partnerId, year, month,
+                String.join("|", FORMAT_VERSION, SellerCalculationEngine.CALCULATION_VERSION, versions.getT1(),
+                    versions.getT2(), versions.getT3(), versions.getT4(), versions.getT5(), versions.getT6()),
+                versions.getT7()));
+    }
+
+    /**
+     * The cached workbook for exactly this version, or empty
+     */
+    public Mono<byte[]> get(ReportVersion version) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> read(version))
+            .subscribeOn(Schedulers.boundedElastic())
+            .doOnNext(bytes -> logger.info("Report cache hit - {} ({} bytes)", version.key(), bytes.length))
+            // A broken cache file only costs a rebuild
+            .onErrorResume(error -> {
+                logger.warn("Error reading cached report {}: {}", version.key(), error.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    /**
+     * The file of the cached workbook for exactly this version, or empty; see {@link #read(Path)}
+     */
+    public Mono<Path> find(ReportVersion version) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+                CachedReport cached = lookup(version);
+                if (cached != null && !Files.exists(cached.path())) {
+                    forget(version, cached);
+                    return null;
+                }
+                return cached != null ? cached.path() : null;
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .doOnNext(path -> logger.info("Report cache hit - {} ({})", version.key(), path.getFileName()))
+            .onErrorResume(error -> {
+                logger.warn("Error looking up cached report {}: {}", version.key(), error.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    /**
+     * A cached workbook file as buffers read from a file channel, without loading the whole file
+     */
+    public static Flux<DataBuffer> read(Path file) {
+        return DataBufferUtils.read(file, DefaultDataBufferFactory.sharedInstance, READ_BUFFER_SIZE);
+    }
+
+    /**
+     * Stores a workbook built after builtFrom was read. The version is read again first: if the
+     * data changed while the report was built, the workbook may mix old and new data and is not stored.
+     */
+    public Mono<Void> put(ReportVersion builtFrom, byte[] bytes) {
+        if (!enabled || bytes.length > maxSize.toBytes()) {
+            return Mono.empty();
+        }
+        return ifUnchanged(builtFrom, current -> write(current, bytes));
+    }
+
+    /**
+     * A path in the cache directory a workbook can be rendered into, to be stored with
+     * {@link #putFile} or deleted with {@link #discard}; null when the cache is disabled
+     */
+    public Path newTempFile() {
+        return enabled ? Paths.get(directory).resolve("report-" + UUID.randomUUID() + ".tmp") : null;
+    }
+
+    /**
+     * Same as {@link #put(ReportVersion, byte[])} for a workbook written to a {@link #newTempFile()};
+     * the file is moved into the cache or deleted
+     */
+    public Mono<Void> putFile(ReportVersion builtFrom, Path file) {
+        if (file == null) {
+            return Mono.empty();
+        }
+        return ifUnchanged(builtFrom, current -> store(current, file))
+            .then(Mono.fromRunnable(() -> delete(file)).subscribeOn(Schedulers.boundedElastic()))
+            .then();
+    }
+
+    /**
+     * Deletes a {@link #newTempFile()} that will not be stored, e.g. after a failed upload
+     */
+    public void discard(Path file) {
+        if (file != null) {
+            Schedulers.boundedElastic().schedule(() -> delete(file));
+        }
+    }
+
+    private Mono<Void> ifUnchanged(ReportVersion builtFrom, CacheWrite cacheWrite) {
+        return currentVersion(builtFrom.type(), builtFrom.dealId(), builtFrom.partnerId(), builtFrom.year(), builtFrom.month())
+            .flatMap(current -> {
+                if (!current.inputs().equals(builtFrom.inputs())) {
+                    logger.info("Report data of {} changed while the report was built, not cached", builtFrom.key());
+                    return Mono.empty();
+                }
+                return Mono.fromCallable(() -> cacheWrite.write(current))
+                    .subscribeOn(Schedulers.boundedElastic());
+            })
+            .onErrorResume(error -> {
+                logger.warn("Error caching report {}: {}", builtFrom.key(), error.getMessage());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    @FunctionalInterface
+    private interface CacheWrite {
+        Path write(ReportVersion version) throws IOException;
+    }
+
+    private byte[] read(ReportVersion version) throws IOException {
+        CachedReport cached = lookup(version);
+        if (cached == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(cached.path());
+        } catch (NoSuchFileException e) {
+            // Deleted outside the service
+            forget(version, cached);
+            return null;
+        }
+    }
+
+    private CachedReport lookup(ReportVersion version) throws IOException {
+        CachedReport cached;
+        synchronized (this) {
+            loadIndex();
+            cached = entries.get(version.key());
+        }
+        return cached != null && cached.hash().equals(version.hash()) ? cached : null;
+    }
+
+    private synchronized void forget(ReportVersion version, CachedReport cached) {
+        if (entries.remove(version.key(), cached)) {
+            totalBytes -= cached.size();
+        }
+    }
+
+    private Path write(ReportVersion version, byte[] bytes) throws IOException {
+        Path cacheDirectory;
+        synchronized (this) {
+            cacheDirectory = loadIndex();
+        }
+        // Written to a temporary file and moved, so a reader never sees a partial workbook
+        Path temporary = Files.createTempFile(cacheDirectory, "report-", ".tmp");
+        try {
+            Files.write(temporary, bytes);
+            return store(version, temporary);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Moves a complete workbook file into the cache as the file of version's key
+     */
+    private Path store(ReportVersion version, Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        long size = Files.size(file);
+        if (size == 0 || size > maxSize.toBytes()) {
+            return null;
+        }
+        Path cacheDirectory;
+        synchronized (this) {
+            cacheDirectory = loadIndex();
+        }
+        Path target = cacheDirectory.resolve(version.key() + "-" + version.hash() + ".xlsx");
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            CachedReport previous = entries.put(version.key(), new CachedReport(version.hash(), target, size));
+            if (previous != null) {
+                totalBytes -= previous.size();
+                if (!previous.path().equals(target)) {
+                    delete(previous.path());
+                }
+            }
+            totalBytes += size;
+            evict();
+            logger.info("Cached report {} ({} bytes); cache holds {} reports, {} bytes",
+                version.key(), size, entries.size(), totalBytes);
+        }
+        return target;
+    }
+
+    /**
+     * Indexes the files left by a previous run on first use, oldest first so that the most
+     * recently written files are evicted last. Caller holds the lock.
+     */
+    private Path loadIndex() throws IOException {
+        Path cacheDirectory = Files.createDirectories(Paths.get(directory));
+        if (indexLoaded) {
+            return cacheDirectory;
+        }
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(cacheDirectory)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        }
+        List<Map.Entry<Path, Long>> reportFiles = new ArrayList<>();
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(".tmp")) {
+                // Left by an interrupted write
+                if (Files.getLastModifiedTime(file).toMillis() < startedAtMillis) {
+                    delete(file);
+                }
+            } else if (FILE_NAME.matcher(file.getFileName().toString()).matches()) {
+                reportFiles.add(Map.entry(file, Files.getLastModifiedTime(file).toMillis()));
+            }
+        }
+        reportFiles.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+
+        for (Map.Entry<Path, Long> reportFile : reportFiles) {
+            Path file = reportFile.getKey();
+            Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+            matcher.matches();
+            CachedReport previous = entries.put(matcher.group(1), new CachedReport(matcher.group(2), file, Files.size(file)));
+            if (previous != null) {
+                totalBytes -= previous.size();
+                delete(previous.path());
+            }
+            totalBytes += Files.size(file);
+        }
+        indexLoaded = true;
+        evict();
+        logger.info("Report cache directory {}: {} reports, {} bytes", cacheDirectory, entries.size(), totalBytes);
+        return cacheDirectory;
+    }
+
+    /**
+     * Deletes least recently used reports beyond max-size. Caller holds the lock.
+     */
+    private void evict() {
+        Iterator<CachedReport> iterator = entries.values().iterator();
+        while (totalBytes > maxSize.toBytes() && iterator.hasNext()) {
+            CachedReport eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.size();
+            delete(eldest.path());
+            logger.debug("Evicted cached report {}", eldest.path().getFileName());
+        }
+    }
+
+    private Mono<String> ssrsStatusVersion(int year, int month) {
+        return monthlySSRSStatusRepository.findByYearAndMonth(year, month)
+            .map(status -> status.getId() + ":" + status.getModifiedAt())
+            .defaultIfEmpty(NONE);
+    }
+
+    private static String dealVersion(Deal deal) {
+        return String.join(",", Objects.toString(deal.getName()), Objects.toString(deal.getCustomerId()),
+            Objects.toString(deal.getUpdatedAt()), Objects.toString(deal.getAnnualInterestRate()),
+            Objects.toString(deal.getAssignRatio()), Objects.toString(deal.getInterestMethod()),
+            Objects.toString(deal.getChargesApplicable()), Objects.toString(deal.getMonthOnMonthDay()));
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete cached report {}: {}", file, e.getMessage());
+        }
+    }
+}
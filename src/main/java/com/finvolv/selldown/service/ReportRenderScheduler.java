@@ -0,0 +1,194 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.exception.ReportRenderCapacityException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs workbook rendering (POI) on a fixed pool of report worker threads instead of the Netty or
+ * R2DBC event loop that delivered the data. At most queue-capacity renders wait for a worker; a
+ * render beyond that fails at once with {@link ReportRenderCapacityException} (HTTP 429).
+ * Metrics: selldown.report.render.queue and .active (gauges), .wait and .time (timers per
+ * report), .rejected (counter per report).
+ */
+@Service
+public class ReportRenderScheduler implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportRenderScheduler.class);
+
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Writes a workbook to the stream; the stream is closed by the caller
+     */
+    @FunctionalInterface
+    public interface ReportWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final int workers;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+
+    public ReportRenderScheduler(MeterRegistry meterRegistry,
+                                 @Value("${selldown.report-render.workers:2}") int workers,
+                                 @Value("${selldown.report-render.queue-capacity:8}") int queueCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "report-render-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("selldown.report.render.queue", executor, pool -> pool.getQueue().size())
+            .description("Report renders waiting for a worker")
+            .register(meterRegistry);
+        Gauge.builder("selldown.report.render.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Report renders running")
+            .register(meterRegistry);
+        logger.info("Report render scheduler: {} workers, queue capacity {}", workers, queueCapacity);
+    }
+
+    /**
+     * Runs the render on a report worker and emits its result there. Cancelling before the render
+     * starts removes it from the queue.
+     */
+    public <T> Mono<T> render(String report, Callable<T> render) {
+        return Mono.create(sink -> {
+            long queuedNanos = System.nanoTime();
+            Future<?> future;
+            try {
+                future = executor.submit(() -> {
+                    long startNanos = System.nanoTime();
+                    timer("selldown.report.render.wait", report).record(startNanos - queuedNanos, TimeUnit.NANOSECONDS);
+                    try {
+                        T result = render.call();
+                        timer("selldown.report.render.time", report).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                        sink.success(result);
+                    } catch (Throwable error) {
+                        sink.error(error);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                sink.error(rejection(report));
+                return;
+            }
+            sink.onCancel(() -> {
+                if (future.cancel(false)) {
+                    executor.purge();
+                }
+            });
+        });
+    }
+
+    /**
+     * Renders the workbook into a file on a report worker and, once it is complete and the worker
+     * is free again, emits the file as buffers of STREAM_CHUNK_SIZE bytes, so a slow consumer (e.g.
+     * an upload) never holds a worker. The file is target, which the caller keeps (e.g. to store it
+     * in the report cache); without a target, or when it cannot be created, a temporary file is
+     * used and deleted once it has been read.
+     */
+    public Flux<DataBuffer> stream(String report, Path target, ReportWriter writer) {
+        return Flux.usingWhen(
+            render(report, () -> writeFile(report, target, writer))
+                // A render that completes after a cancel
+                .doOnDiscard(Path.class, file -> {
+                    if (!file.equals(target)) {
+                        deleteTempFile(file).subscribe();
+                    }
+                }),
+            file -> DataBufferUtils.read(file, DefaultDataBufferFactory.sharedInstance, STREAM_CHUNK_SIZE),
+            file -> file.equals(target) ? Mono.empty() : deleteTempFile(file));
+    }
+
+    private static Path writeFile(String report, Path target, ReportWriter writer) throws IOException {
+        Path file = openTarget(report, target);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), STREAM_CHUNK_SIZE)) {
+            writer.write(out);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            if (!file.equals(target)) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+    }
+
+    // The target is optional: a report is still streamed when its target cannot be created
+    private static Path openTarget(String report, Path target) throws IOException {
+        if (target != null) {
+            try {
+                Files.createDirectories(target.getParent());
+                return target;
+            } catch (IOException e) {
+                logger.warn("Could not write the {} report to {}: {}", report, target, e.getMessage());
+            }
+        }
+        return Files.createTempFile("report-", ".xlsx");
+    }
+
+    private static Mono<Void> deleteTempFile(Path file) {
+        return Mono.<Void>fromRunnable(() -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.warn("Could not delete temp report file {}: {}", file, e.getMessage());
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ReportRenderCapacityException rejection(String report) {
+        Counter.builder("selldown.report.render.rejected")
+            .tag("report", report)
+            .register(meterRegistry)
+            .increment();
+        logger.warn("Rejected {} report render: {} workers busy, {} renders queued", report, workers, queueCapacity);
+        return new ReportRenderCapacityException(report, workers, queueCapacity);
+    }
+
+    private Timer timer(String name, String report) {
+        return Timer.builder(name)
+            .tag("report", report)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
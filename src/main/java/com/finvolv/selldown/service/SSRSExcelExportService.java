@@ -18,41 +18,86 @@ import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFFont;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple4;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
 public class SSRSExcelExportService {
 
+    // Report tag of the render metrics
+    private static final String REPORT_NAME = "ssrs_finance";
+
     private final PartnerPayoutDetailsAllRepository partnerPayoutDetailsAllRepository;
     private final MonthlyLMSStatusRepository monthlyLMSStatusRepository;
     private final PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
     private final InterestRateChangeRepository interestRateChangeRepository;
     private final MonthlySSRSStatusRepository monthlySSRSStatusRepository;
     private final SSRSFileDataRepository ssrsFileDataRepository;
+    private final ReportRenderScheduler reportRenderScheduler;
 
     public SSRSExcelExportService(PartnerPayoutDetailsAllRepository partnerPayoutDetailsAllRepository,
                                   MonthlyLMSStatusRepository monthlyLMSStatusRepository,
                                   PartnerPayoutDetailsAllService partnerPayoutDetailsAllService,
-                                  InterestRateChangeRepository interestRateChangeRepository, MonthlySSRSStatusRepository monthlySSRSStatusRepository, SSRSFileDataRepository ssrsFileDataRepository) {
+                                  InterestRateChangeRepository interestRateChangeRepository, MonthlySSRSStatusRepository monthlySSRSStatusRepository, SSRSFileDataRepository ssrsFileDataRepository,
+                                  ReportRenderScheduler reportRenderScheduler) {
         this.partnerPayoutDetailsAllRepository = partnerPayoutDetailsAllRepository;
         this.monthlyLMSStatusRepository = monthlyLMSStatusRepository;
         this.partnerPayoutDetailsAllService = partnerPayoutDetailsAllService;
         this.interestRateChangeRepository = interestRateChangeRepository;
         this.monthlySSRSStatusRepository = monthlySSRSStatusRepository;
         this.ssrsFileDataRepository = ssrsFileDataRepository;
+        this.reportRenderScheduler = reportRenderScheduler;
     }
 
     public Mono<byte[]> buildSSRSReport(List<SSRSFileDataEntity> ssrsData, Integer year, Integer month, Long dealId) {
+        // POI work runs on a report worker, not on the event loop that delivered the data
+        return loadReportData(ssrsData, year, month, dealId)
+            .flatMap(data -> reportRenderScheduler.render(REPORT_NAME, () -> {
+                try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                    ssrsReportWriter(data, ssrsData, year, month).write(out);
+                    return out.toByteArray();
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to build Excel file", e);
+                }
+            }));
+    }
+
+    /**
+     * The workbook as buffers for a streaming upload, read from the file it is rendered into
+     * (target, if set; see {@link ReportRenderScheduler#stream})
+     */
+    public Flux<DataBuffer> streamSSRSReport(List<SSRSFileDataEntity> ssrsData, Integer year, Integer month, Long dealId,
+                                             Path target) {
+        return loadReportData(ssrsData, year, month, dealId)
+            .flatMapMany(data -> reportRenderScheduler.stream(REPORT_NAME, target,
+                ssrsReportWriter(data, ssrsData, year, month)));
+    }
+
+    private Mono<Tuple4<Deal, List<PartnerPayoutDetailsAll>, List<InterestRateChange>, Map<String, SSRSFileDataEntity>>> loadReportData(
+            List<SSRSFileDataEntity> ssrsData, Integer year, Integer month, Long dealId) {
+        // The workbook only looks up payout and previous month rows by the LANs of ssrsData, so only
+        // those rows are loaded instead of the whole month of every deal
+        String[] lmsLans = ssrsData.stream()
+            .map(SSRSFileDataEntity::getLmsLan)
+            .filter(Objects::nonNull)
+            .distinct()
+            .toArray(String[]::new);
+
         // Fetch deal information first
         Mono<Deal> dealMono = dealId != null 
             ? partnerPayoutDetailsAllService.getDealById(dealId)
@@ -71,7 +116,7 @@ public class SSRSExcelExportService {
         Mono<Map<String, SSRSFileDataEntity>> previousMonthSSRSDataMono = 
             monthlySSRSStatusRepository.findByYearAndMonth(previousYear, previousMonth)
                 .flatMap(previousMonthStatus -> 
-                    ssrsFileDataRepository.findByMonthlySsrsId(previousMonthStatus.getId())
+                    ssrsFileDataRepository.findByMonthlySsrsIdAndLmsLans(previousMonthStatus.getId(), lmsLans)
                         .collectList()
                         .map(previousSSRSList -> previousSSRSList.stream()
                             .filter(s -> s.getLmsLan() != null)
@@ -88,14 +133,22 @@ public class SSRSExcelExportService {
             dealMono,
             monthlyLMSStatusRepository.findByYearAndMonth(year, month)
                 .flatMapMany(lmsStatus -> 
-                    partnerPayoutDetailsAllRepository.findByLmsId(lmsStatus.getId())
+                    partnerPayoutDetailsAllRepository.findByLmsIdAndLmsLans(lmsStatus.getId(), lmsLans)
                 )
                 .collectList()
                 .switchIfEmpty(Mono.just(java.util.Collections.<PartnerPayoutDetailsAll>emptyList())),
             interestRateChangesMono,
             previousMonthSSRSDataMono
-        )
-        .map(tuple -> {
+        );
+    }
+
+    /**
+     * The workbook for the loaded report data; it is built in memory (XSSF) and written out once complete
+     */
+    private ReportRenderScheduler.ReportWriter ssrsReportWriter(
+            Tuple4<Deal, List<PartnerPayoutDetailsAll>, List<InterestRateChange>, Map<String, SSRSFileDataEntity>> tuple,
+            List<SSRSFileDataEntity> ssrsData, Integer year, Integer month) {
+        return out -> {
             Deal deal = tuple.getT1();
             List<PartnerPayoutDetailsAll> payoutDataList = tuple.getT2();
             List<InterestRateChange> interestRateChanges = tuple.getT3();
@@ -109,7 +162,7 @@ public class SSRSExcelExportService {
                     (existing, replacement) -> existing
                 ));
 
-            try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            try (XSSFWorkbook workbook = new XSSFWorkbook()) {
                 // Sheet 1: Main reconciliation sheet
                 Sheet sheet = workbook.createSheet("POS Validation Working Sheet + Charges");
 
@@ -627,11 +680,8 @@ public class SSRSExcelExportService {
                 createInterestValidationsSheet(workbook, ssrsData, payoutMap, deal, year, month, interestRateChanges, previousMonthSSRSMap);
 
                 workbook.write(out);
-                return out.toByteArray();
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to build Excel file", e);
             }
-        });
+        };
     }
 
     private void setSumFormula(Row row, int colIndex, int dataStartRow, int dataEndRow) {
@@ -1,6 +1,7 @@
 package com.finvolv.selldown.service;
 
 import com.finvolv.selldown.dto.SSRSFileDataRequest;
+import com.finvolv.selldown.model.IngestMode;
 import com.finvolv.selldown.model.MonthlySSRSStatus;
 import com.finvolv.selldown.model.MonthlySSRSStatusEntity;
 import com.finvolv.selldown.model.SSRSFileDataEntity;
@@ -8,6 +9,7 @@ import com.finvolv.selldown.repository.MonthlySSRSStatusRepository;
 import com.finvolv.selldown.repository.SSRSFileDataRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
@@ -26,10 +28,15 @@ public class SSRSFileService {
     private final MonthlySSRSStatusRepository monthlySSRSStatusRepository;
     private final SSRSFileDataRepository ssrsFileDataRepository;
 
+    @Value("${selldown.ingest.default-mode:ROW}")
+    private IngestMode defaultIngestMode;
+
     @Transactional
-    public Flux<SSRSFileDataEntity> uploadOrUpdateSSRSFile(Integer year, Integer month, List<SSRSFileDataRequest> ssrsFileDataRequests) {
-        log.info("Uploading/updating SSRS file - year: {}, month: {}, number of records: {}", 
-            year, month, ssrsFileDataRequests.size());
+    public Flux<SSRSFileDataEntity> uploadOrUpdateSSRSFile(Integer year, Integer month, List<SSRSFileDataRequest> ssrsFileDataRequests, IngestMode mode) {
+        // SSRS rows are always replaced wholesale, so ROW and BULK both use saveAll; only COPY differs
+        IngestMode ingestMode = mode != null ? mode : defaultIngestMode;
+        log.info("Uploading/updating SSRS file - year: {}, month: {}, number of records: {}, mode: {}", 
+            year, month, ssrsFileDataRequests.size(), ingestMode);
         
         return createOrUpdateSSRSStatus(year, month)
             .flatMapMany(ssrsStatusId -> {
@@ -55,10 +62,14 @@ public class SSRSFileService {
                             .collectList()
                             .flatMapMany(preparedData -> {
                                 // Save all SSRS file data
-                                return ssrsFileDataRepository.saveAll(preparedData)
+                                long persistStart = System.nanoTime();
+                                return (ingestMode == IngestMode.COPY
+                                    ? ssrsFileDataRepository.copyInsertAll(preparedData)
+                                    : ssrsFileDataRepository.saveAll(preparedData))
                                     .doOnComplete(() -> 
-                                        log.info("Successfully uploaded/updated SSRS file - year: {}, month: {}, records: {}", 
-                                            year, month, ssrsFileDataRequests.size()))
+                                        log.info("Successfully uploaded/updated SSRS file - year: {}, month: {}, records: {}, mode: {}, persisted in {} ms", 
+                                            year, month, ssrsFileDataRequests.size(), ingestMode, 
+                                            (System.nanoTime() - persistStart) / 1_000_000))
                                     .doOnError(error -> 
                                         log.error("Error uploading/updating SSRS file - year: {}, month: {}: {}", 
                                             year, month, error.getMessage()));
@@ -118,5 +129,19 @@ public class SSRSFileService {
         return monthlySSRSStatusRepository.findByYearAndMonth(year, month)
             .flatMapMany(status -> ssrsFileDataRepository.findByMonthlySsrsId(status.getId()));
     }
+    
+    public Mono<Boolean> hasSSRSFileData(Integer year, Integer month) {
+        return monthlySSRSStatusRepository.findByYearAndMonth(year, month)
+            .flatMap(status -> ssrsFileDataRepository.existsByMonthlySsrsId(status.getId()))
+            .defaultIfEmpty(false);
+    }
+    
+    /**
+     * The month's SSRS rows whose LAN is one of the deal/partner's loan details, matched in the database
+     */
+    public Flux<SSRSFileDataEntity> getMatchedSSRSFileData(Integer year, Integer month, Long dealId, Long partnerId) {
+        return monthlySSRSStatusRepository.findByYearAndMonth(year, month)
+            .flatMapMany(status -> ssrsFileDataRepository.findByMonthlySsrsIdAndDealIdAndPartnerId(status.getId(), dealId, partnerId));
+    }
 }
 
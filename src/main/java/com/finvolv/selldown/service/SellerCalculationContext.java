@@ -0,0 +1,54 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+
+import java.util.Map;
+
+/**
+ * Previous-month state needed by seller calculations for one (deal, year, month) run.
+ * Built once by {@link PartnerPayoutDetailsAllService#loadSellerCalculationContext} so that
+ * calculating N payouts does not cost N lookups of the previous month's rows.
+ */
+public class SellerCalculationContext {
+
+    private final Integer year;
+    private final Integer month;
+    // Null when no LMS file was uploaded for the previous month (first month of the deal)
+    private final Long previousLmsId;
+    private final Map<String, PartnerPayoutDetailsAll> previousMonthByLan;
+
+    SellerCalculationContext(Integer year, Integer month, Long previousLmsId,
+                             Map<String, PartnerPayoutDetailsAll> previousMonthByLan) {
+        this.year = year;
+        this.month = month;
+        this.previousLmsId = previousLmsId;
+        this.previousMonthByLan = previousMonthByLan;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public boolean hasPreviousMonth() {
+        return previousLmsId != null;
+    }
+
+    public Long getPreviousLmsId() {
+        return previousLmsId;
+    }
+
+    /**
+     * Previous month's payout row for the LAN, or null if the LAN had none
+     */
+    public PartnerPayoutDetailsAll getPreviousEntry(String lmsLan) {
+        return lmsLan != null ? previousMonthByLan.get(lmsLan) : null;
+    }
+
+    public int previousEntryCount() {
+        return previousMonthByLan.size();
+    }
+}
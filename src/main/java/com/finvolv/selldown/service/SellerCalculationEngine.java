@@ -0,0 +1,518 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seller field calculation for a single payout. Synchronous and free of I/O: all previous-month,
+ * loan and rate data comes in through {@link SellerCalculationInput}, and neither the payout nor
+ * the inputs are modified. This lets the reactive layer run batches of LANs on a parallel scheduler.
+ * With arithmetic FIXED_POINT the amounts are calculated as long paise and converted to BigDecimal
+ * only for the result; payouts whose amounts have more than 2 decimals or overflow a long are
+ * calculated with BigDecimal instead, so both modes give the same values with the same scales.
+ */
+@Component
+public class SellerCalculationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(SellerCalculationEngine.class);
+
+    // Part of every seller input hash; bump when the calculation changes so stored results are recalculated
+    static final String CALCULATION_VERSION = "1";
+
+    private static final BigDecimal NORMAL_INTEREST_PAID_THRESHOLD = new BigDecimal("100");
+    private static final long NORMAL_INTEREST_PAID_THRESHOLD_PAISE = 100_00L;
+
+    public enum Arithmetic {
+        BIG_DECIMAL,
+        FIXED_POINT
+    }
+
+    @Value("${selldown.seller-calculation.arithmetic:BIG_DECIMAL}")
+    private Arithmetic arithmetic;
+
+    /**
+     * True when the deal has the fields required by {@link #calculate}
+     */
+    public boolean canCalculate(Deal deal) {
+        return deal != null && deal.getAssignRatio() != null && deal.getAnnualInterestRate() != null;
+    }
+
+    public SellerCalculationResult calculate(PartnerPayoutDetailsAll payoutDetail, SellerCalculationInput input) {
+        if (!canCalculate(input.deal())) {
+            throw new IllegalArgumentException("Deal assignRatio and annualInterestRate are required for seller calculation");
+        }
+
+        if (arithmetic == Arithmetic.FIXED_POINT) {
+            try {
+                return calculateFixedPoint(payoutDetail, input);
+            } catch (ArithmeticException e) {
+                logger.debug("Payout detail {} not representable in paise ({}), using BigDecimal arithmetic",
+                    payoutDetail.getId(), e.getMessage());
+            }
+        }
+        return calculateBigDecimal(payoutDetail, input);
+    }
+
+    SellerCalculationResult calculateBigDecimal(PartnerPayoutDetailsAll payoutDetail, SellerCalculationInput input) {
+        Deal deal = input.deal();
+        Double assignRatio = deal.getAssignRatio();
+        Double annualInterestRate = deal.getAnnualInterestRate();
+        Deal.InterestMethod interestMethod = deal.getInterestMethod();
+
+        // Days between cycle start and end date
+        long daysBetween = (payoutDetail.getCycleStartDate() != null && payoutDetail.getCycleEndDate() != null)
+            ? ChronoUnit.DAYS.between(payoutDetail.getCycleStartDate(), payoutDetail.getCycleEndDate())
+            : 0L;
+
+        // POS related fields are the LMS values multiplied by the assigned ratio
+        BigDecimal sellerOpeningPos = calculateValue(payoutDetail.getOpeningPos(), assignRatio);
+        BigDecimal sellerClosingPos = calculateValue(payoutDetail.getClosingPos(), assignRatio);
+        BigDecimal sellerTotalPrincipalDue = calculateValue(payoutDetail.getTotalPrincipalDue(), assignRatio);
+        BigDecimal sellerPrincipalOverdue = calculateValue(payoutDetail.getPrincipalOverdue(), assignRatio);
+        BigDecimal sellerTotalPrincipalComponentPaid = calculateValue(payoutDetail.getTotalPrincipalComponentPaid(), assignRatio);
+        BigDecimal sellerPrincipalOverduePaid = calculateValue(payoutDetail.getPrincipalOverduePaid(), assignRatio);
+        BigDecimal sellerForeclosurePaid = calculateValue(payoutDetail.getForeclosurePaid(), assignRatio);
+        BigDecimal sellerForeclosureChargesPaid = calculateValue(payoutDetail.getForeclosureChargesPaid(), assignRatio);
+        BigDecimal sellerPrepaymentPaid = calculateValue(payoutDetail.getPrepaymentPaid(), assignRatio);
+        BigDecimal sellerPrepaymentChargesPaid = calculateValue(payoutDetail.getPrepaymentChargesPaid(), assignRatio);
+        BigDecimal sellerTotalChargesPaid = calculateValue(payoutDetail.getTotalChargesPaid(), assignRatio);
+
+        // Interest on the seller opening position (without overdue), per rate period
+        BigDecimal baseAmount = sellerOpeningPos.subtract(sellerPrincipalOverdue);
+        BigDecimal calculatedInterest = calculateInterest(payoutDetail, input.rateTimeline(), deal, baseAmount, daysBetween);
+
+        // Older pending interests: previous month's split, else the loan detail's assigned split
+        List<BigDecimal> splitArrayForCalculation = openingInterestOverdueSplit(payoutDetail, input).toList();
+
+        Integer closingDpd = payoutDetail.getClosingDpd() != null ? payoutDetail.getClosingDpd() : 0;
+        if (splitArrayForCalculation.isEmpty() && closingDpd > 0) {
+            splitArrayForCalculation.add(calculatedInterest);
+        }
+
+        // Opening overdue interest: previous month's unpaid interest, else the loan detail's assigned overdue
+        BigDecimal openingSellerInterestOverdue = openingInterestOverdue(payoutDetail, input);
+
+        BigDecimal totalInterestComponentPaid = payoutDetail.getTotalInterestComponentPaid() != null
+            ? payoutDetail.getTotalInterestComponentPaid() : BigDecimal.ZERO;
+        BigDecimal interestOverduePaid = payoutDetail.getInterestOverduePaid() != null
+            ? payoutDetail.getInterestOverduePaid() : BigDecimal.ZERO;
+
+        // Normal interest counts as paid when the current interest collection exceeds 100
+        // and the plain (annual rate) interest for the cycle
+        BigDecimal interestAfterPrincipal = totalInterestComponentPaid.subtract(interestOverduePaid);
+        BigDecimal plainCalculatedInterest = plainInterest(payoutDetail, interestMethod, annualInterestRate, baseAmount, daysBetween);
+        boolean normalInterestPaid = interestAfterPrincipal.compareTo(NORMAL_INTEREST_PAID_THRESHOLD) > 0
+            && interestAfterPrincipal.compareTo(plainCalculatedInterest) > 0;
+
+        // Collected overdue interest is removed from the split, oldest first
+        BigDecimal sellerInterestOverduePaid = BigDecimal.ZERO;
+        if (interestOverduePaid.compareTo(BigDecimal.ZERO) > 0 && !splitArrayForCalculation.isEmpty()) {
+            BigDecimal remainingToRemove = calculateValue(interestOverduePaid, assignRatio);
+            List<BigDecimal> newArray = new ArrayList<>();
+
+            for (BigDecimal currentValue : splitArrayForCalculation) {
+                if (currentValue != null && remainingToRemove.compareTo(BigDecimal.ZERO) > 0) {
+                    if (currentValue.compareTo(remainingToRemove) <= 0) {
+                        // Fully paid, e.g. [1000, 1050, 3000] collected 1700 removes 1000
+                        sellerInterestOverduePaid = sellerInterestOverduePaid.add(currentValue);
+                        remainingToRemove = remainingToRemove.subtract(currentValue);
+                    } else {
+                        // Partially paid, the remaining 700 leaves 350 of 1050
+                        sellerInterestOverduePaid = sellerInterestOverduePaid.add(remainingToRemove);
+                        newArray.add(currentValue.subtract(remainingToRemove));
+                        remainingToRemove = BigDecimal.ZERO;
+                    }
+                } else if (currentValue != null) {
+                    newArray.add(currentValue);
+                }
+            }
+
+            splitArrayForCalculation = newArray;
+        }
+
+        // When normal interest is paid, overdue interest is also paid based on the DPD bucket
+        if (normalInterestPaid && !splitArrayForCalculation.isEmpty()) {
+            if (closingDpd == 0) {
+                // DPD 0: all overdue interest is paid
+                BigDecimal allRemaining = splitArrayForCalculation.stream()
+                    .filter(val -> val != null)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+                sellerInterestOverduePaid = sellerInterestOverduePaid.add(allRemaining);
+                splitArrayForCalculation.clear();
+            } else {
+                // DPD 1-30: first value, 31-60: second value, 61-90: third value
+                int indexToUse = -1;
+                if (closingDpd >= 1 && closingDpd <= 30) {
+                    indexToUse = 0;
+                } else if (closingDpd >= 31 && closingDpd <= 60) {
+                    indexToUse = 1;
+                } else if (closingDpd >= 61 && closingDpd <= 90) {
+                    indexToUse = 2;
+                }
+
+                if (indexToUse >= 0 && indexToUse < splitArrayForCalculation.size()) {
+                    BigDecimal valueToRemove = splitArrayForCalculation.get(indexToUse) != null
+                        ? splitArrayForCalculation.get(indexToUse) : BigDecimal.ZERO;
+                    sellerInterestOverduePaid = sellerInterestOverduePaid.add(valueToRemove);
+                    splitArrayForCalculation.remove(indexToUse);
+                }
+            }
+        }
+
+        // The current month's interest becomes overdue if not paid, unless the same amount is already pending
+        if (closingDpd > 0) {
+            boolean alreadyExists = splitArrayForCalculation.stream()
+                .anyMatch(val -> val != null && val.compareTo(calculatedInterest) == 0);
+            if (!alreadyExists) {
+                splitArrayForCalculation.add(calculatedInterest);
+            }
+        }
+
+        // Total interest due = current interest + opening overdue interest
+        BigDecimal sellerTotalInterestDue = calculatedInterest.add(openingSellerInterestOverdue)
+            .setScale(2, RoundingMode.HALF_UP);
+
+        // Interest paid uses the same calculatedInterest as the total due
+        BigDecimal sellerTotalInterestComponentPaid = BigDecimal.ZERO;
+        if (totalInterestComponentPaid.compareTo(BigDecimal.ZERO) > 0) {
+            sellerTotalInterestComponentPaid = normalInterestPaid
+                ? calculatedInterest.add(sellerInterestOverduePaid).setScale(4, RoundingMode.HALF_UP)
+                : sellerInterestOverduePaid.setScale(4, RoundingMode.HALF_UP);
+        }
+
+        // Closing overdue interest = total due - paid, never negative
+        BigDecimal closingInterestOverdue = sellerTotalInterestDue.subtract(sellerTotalInterestComponentPaid)
+            .setScale(2, RoundingMode.HALF_UP);
+        if (closingInterestOverdue.compareTo(BigDecimal.ZERO) < 0) {
+            closingInterestOverdue = BigDecimal.ZERO;
+        }
+
+        // The split should add up to the closing overdue interest
+        BigDecimal arraySum = splitArrayForCalculation.stream()
+            .filter(val -> val != null)
+            .reduce(BigDecimal.ZERO, BigDecimal::add)
+            .setScale(2, RoundingMode.HALF_UP);
+        if (arraySum.compareTo(closingInterestOverdue) != 0) {
+            logger.warn("Array sum ({}) does not match closingInterestOverdue ({}) for payout detail {}",
+                arraySum, closingInterestOverdue, payoutDetail.getId());
+        }
+
+        BigDecimal sellerTotalPaid = sellerTotalPrincipalComponentPaid
+            .add(sellerTotalInterestComponentPaid)
+            .add(sellerTotalChargesPaid.add(sellerPrepaymentPaid).add(sellerForeclosurePaid));
+
+        logger.debug("Calculated seller fields for payout detail {} with assign ratio: {}, interest rate: {}, days: {}, calculatedInterest: {}, sellerInterestOverdue: {}, sellerTotalInterestDue: {}",
+            payoutDetail.getId(), assignRatio, annualInterestRate, daysBetween, calculatedInterest, closingInterestOverdue, sellerTotalInterestDue);
+
+        return new SellerCalculationResult(
+            sellerOpeningPos,
+            sellerClosingPos,
+            sellerTotalPrincipalDue,
+            sellerPrincipalOverdue,
+            sellerTotalPrincipalComponentPaid,
+            sellerPrincipalOverduePaid,
+            sellerForeclosurePaid,
+            sellerForeclosureChargesPaid,
+            sellerPrepaymentPaid,
+            sellerPrepaymentChargesPaid,
+            sellerTotalChargesPaid,
+            sellerTotalInterestDue,
+            sellerTotalInterestComponentPaid,
+            closingInterestOverdue,
+            sellerInterestOverduePaid,
+            InterestOverdueSplit.of(splitArrayForCalculation),
+            sellerTotalPaid);
+    }
+
+    /**
+     * The same calculation as {@link #calculateBigDecimal} with amounts as long paise. Interest
+     * still goes through BigDecimal (double rate and day-count factors at 10 decimals), once
+     * per payout on the base amount. Results carry the scales the BigDecimal path produces
+     * (a plain zero where it keeps BigDecimal.ZERO). Throws ArithmeticException for amounts
+     * not exact in paise.
+     */
+    SellerCalculationResult calculateFixedPoint(PartnerPayoutDetailsAll payoutDetail, SellerCalculationInput input) {
+        Deal deal = input.deal();
+        PaiseArithmetic.Ratio assignRatio = PaiseArithmetic.Ratio.of(deal.getAssignRatio());
+
+        long daysBetween = (payoutDetail.getCycleStartDate() != null && payoutDetail.getCycleEndDate() != null)
+            ? ChronoUnit.DAYS.between(payoutDetail.getCycleStartDate(), payoutDetail.getCycleEndDate())
+            : 0L;
+
+        long sellerOpeningPos = assigned(payoutDetail.getOpeningPos(), assignRatio);
+        long sellerClosingPos = assigned(payoutDetail.getClosingPos(), assignRatio);
+        long sellerTotalPrincipalDue = assigned(payoutDetail.getTotalPrincipalDue(), assignRatio);
+        long sellerPrincipalOverdue = assigned(payoutDetail.getPrincipalOverdue(), assignRatio);
+        long sellerTotalPrincipalComponentPaid = assigned(payoutDetail.getTotalPrincipalComponentPaid(), assignRatio);
+        long sellerPrincipalOverduePaid = assigned(payoutDetail.getPrincipalOverduePaid(), assignRatio);
+        long sellerForeclosurePaid = assigned(payoutDetail.getForeclosurePaid(), assignRatio);
+        long sellerForeclosureChargesPaid = assigned(payoutDetail.getForeclosureChargesPaid(), assignRatio);
+        long sellerPrepaymentPaid = assigned(payoutDetail.getPrepaymentPaid(), assignRatio);
+        long sellerPrepaymentChargesPaid = assigned(payoutDetail.getPrepaymentChargesPaid(), assignRatio);
+        long sellerTotalChargesPaid = assigned(payoutDetail.getTotalChargesPaid(), assignRatio);
+
+        // Both interests are zero unless the base amount and the cycle are positive
+        long baseAmount = Math.subtractExact(sellerOpeningPos, sellerPrincipalOverdue);
+        long calculatedInterest = 0L;
+        long plainCalculatedInterest = 0L;
+        if (baseAmount > 0 && daysBetween > 0) {
+            BigDecimal baseAmountDecimal = PaiseArithmetic.toBigDecimal(baseAmount);
+            calculatedInterest = PaiseArithmetic.toPaise(
+                calculateInterest(payoutDetail, input.rateTimeline(), deal, baseAmountDecimal, daysBetween));
+            plainCalculatedInterest = PaiseArithmetic.toPaise(
+                plainInterest(payoutDetail, deal.getInterestMethod(), deal.getAnnualInterestRate(), baseAmountDecimal, daysBetween));
+        }
+
+        // Working copy: the previous entry's or loan detail's split must not change
+        InterestOverdueSplit split = openingInterestOverdueSplit(payoutDetail, input).copy();
+
+        int closingDpd = payoutDetail.getClosingDpd() != null ? payoutDetail.getClosingDpd() : 0;
+        // Split entries have 2 decimals in the BigDecimal path, except an interest that was never
+        // calculated (no positive base or cycle), which is a plain zero; paying it keeps the paid amount plain
+        boolean plainZeroSplit = false;
+        if (split.isEmpty() && closingDpd > 0) {
+            split.add(calculatedInterest);
+            plainZeroSplit = baseAmount <= 0 || daysBetween <= 0;
+        }
+
+        long openingSellerInterestOverdue = openingInterestOverduePaise(payoutDetail, input);
+
+        long totalInterestComponentPaid = PaiseArithmetic.toPaise(payoutDetail.getTotalInterestComponentPaid());
+        long interestOverduePaid = PaiseArithmetic.toPaise(payoutDetail.getInterestOverduePaid());
+
+        long interestAfterPrincipal = Math.subtractExact(totalInterestComponentPaid, interestOverduePaid);
+        boolean normalInterestPaid = interestAfterPrincipal > NORMAL_INTEREST_PAID_THRESHOLD_PAISE
+            && interestAfterPrincipal > plainCalculatedInterest;
+
+        // Collected overdue interest is removed from the split, oldest first
+        long sellerInterestOverduePaid = 0L;
+        // The BigDecimal path's paid amount stays a plain zero until a 2 decimal split entry is paid
+        boolean splitEntryPaid = false;
+        if (interestOverduePaid > 0 && !split.isEmpty()) {
+            long remainingToRemove = PaiseArithmetic.multiply(interestOverduePaid, assignRatio);
+            splitEntryPaid = remainingToRemove > 0 && split.hasValues() && !plainZeroSplit;
+            sellerInterestOverduePaid = split.consume(remainingToRemove);
+        }
+
+        // When normal interest is paid, overdue interest is also paid based on the DPD bucket
+        if (normalInterestPaid && !split.isEmpty()) {
+            if (closingDpd == 0) {
+                sellerInterestOverduePaid = Math.addExact(sellerInterestOverduePaid, split.sum());
+                splitEntryPaid |= split.hasValues() && !plainZeroSplit;
+                split.clear();
+            } else {
+                int indexToUse = -1;
+                if (closingDpd >= 1 && closingDpd <= 30) {
+                    indexToUse = 0;
+                } else if (closingDpd >= 31 && closingDpd <= 60) {
+                    indexToUse = 1;
+                } else if (closingDpd >= 61 && closingDpd <= 90) {
+                    indexToUse = 2;
+                }
+
+                if (indexToUse >= 0 && indexToUse < split.size()) {
+                    long valueToRemove = split.removeAt(indexToUse);
+                    if (valueToRemove != InterestOverdueSplit.NULL_BUCKET) {
+                        sellerInterestOverduePaid = Math.addExact(sellerInterestOverduePaid, valueToRemove);
+                        splitEntryPaid |= !plainZeroSplit;
+                    }
+                }
+            }
+        }
+
+        if (closingDpd > 0 && !split.contains(calculatedInterest)) {
+            split.add(calculatedInterest);
+        }
+
+        long sellerTotalInterestDue = Math.addExact(calculatedInterest, openingSellerInterestOverdue);
+
+        // Scale 4 and a plain zero, as in the BigDecimal path
+        BigDecimal sellerTotalInterestComponentPaid = BigDecimal.ZERO;
+        long sellerTotalInterestComponentPaidPaise = 0L;
+        if (totalInterestComponentPaid > 0) {
+            sellerTotalInterestComponentPaidPaise = normalInterestPaid
+                ? Math.addExact(calculatedInterest, sellerInterestOverduePaid)
+                : sellerInterestOverduePaid;
+            sellerTotalInterestComponentPaid = BigDecimal.valueOf(Math.multiplyExact(sellerTotalInterestComponentPaidPaise, 100L), 4);
+        }
+
+        // A negative closing overdue is replaced by a plain zero, as in the BigDecimal path
+        long unpaidInterest = Math.subtractExact(sellerTotalInterestDue, sellerTotalInterestComponentPaidPaise);
+        long closingInterestOverdue = Math.max(0L, unpaidInterest);
+
+        long sellerTotalPaid = Math.addExact(
+            Math.addExact(sellerTotalPrincipalComponentPaid, sellerTotalInterestComponentPaidPaise),
+            Math.addExact(Math.addExact(sellerTotalChargesPaid, sellerPrepaymentPaid), sellerForeclosurePaid));
+        // The BigDecimal sum takes the largest scale of its terms: 4 with interest paid, 0 when every term is a plain zero
+        int sellerTotalPaidScale = totalInterestComponentPaid > 0 ? 4
+            : payoutDetail.getTotalPrincipalComponentPaid() != null || payoutDetail.getTotalChargesPaid() != null
+                || payoutDetail.getPrepaymentPaid() != null || payoutDetail.getForeclosurePaid() != null ? 2 : 0;
+
+        long arraySum = split.sum();
+        if (arraySum != closingInterestOverdue) {
+            logger.warn("Array sum ({}) does not match closingInterestOverdue ({}) for payout detail {}",
+                PaiseArithmetic.toBigDecimal(arraySum), PaiseArithmetic.toBigDecimal(closingInterestOverdue), payoutDetail.getId());
+        }
+
+        logger.debug("Calculated seller fields (fixed point) for payout detail {} with assign ratio: {}, interest rate: {}, days: {}, calculatedInterest: {}, sellerInterestOverdue: {}, sellerTotalInterestDue: {}",
+            payoutDetail.getId(), deal.getAssignRatio(), deal.getAnnualInterestRate(), daysBetween, calculatedInterest, closingInterestOverdue, sellerTotalInterestDue);
+
+        return new SellerCalculationResult(
+            assignedResult(payoutDetail.getOpeningPos(), sellerOpeningPos),
+            assignedResult(payoutDetail.getClosingPos(), sellerClosingPos),
+            assignedResult(payoutDetail.getTotalPrincipalDue(), sellerTotalPrincipalDue),
+            assignedResult(payoutDetail.getPrincipalOverdue(), sellerPrincipalOverdue),
+            assignedResult(payoutDetail.getTotalPrincipalComponentPaid(), sellerTotalPrincipalComponentPaid),
+            assignedResult(payoutDetail.getPrincipalOverduePaid(), sellerPrincipalOverduePaid),
+            assignedResult(payoutDetail.getForeclosurePaid(), sellerForeclosurePaid),
+            assignedResult(payoutDetail.getForeclosureChargesPaid(), sellerForeclosureChargesPaid),
+            assignedResult(payoutDetail.getPrepaymentPaid(), sellerPrepaymentPaid),
+            assignedResult(payoutDetail.getPrepaymentChargesPaid(), sellerPrepaymentChargesPaid),
+            assignedResult(payoutDetail.getTotalChargesPaid(), sellerTotalChargesPaid),
+            PaiseArithmetic.toBigDecimal(sellerTotalInterestDue),
+            sellerTotalInterestComponentPaid,
+            unpaidInterest < 0 ? BigDecimal.ZERO : PaiseArithmetic.toBigDecimal(closingInterestOverdue),
+            splitEntryPaid ? PaiseArithmetic.toBigDecimal(sellerInterestOverduePaid) : BigDecimal.ZERO,
+            split,
+            PaiseArithmetic.toBigDecimal(sellerTotalPaid).setScale(sellerTotalPaidScale));
+    }
+
+    /**
+     * Interest for the cycle summed per rate period; falls back to the deal's annual rate
+     * when the deal has no rate table or the rate periods yield no interest
+     */
+    private BigDecimal calculateInterest(PartnerPayoutDetailsAll payoutDetail, InterestRateTimeline rateTimeline, Deal deal,
+                                         BigDecimal baseAmount, long daysBetween) {
+        if (rateTimeline != null && deal.getId() != null && baseAmount.compareTo(BigDecimal.ZERO) > 0 && daysBetween > 0) {
+            BigDecimal periodInterest = rateTimeline.interest(baseAmount, payoutDetail.getCycleStartDate(),
+                payoutDetail.getCycleEndDate(), deal.getInterestMethod(), deal.getAnnualInterestRate());
+            if (periodInterest != null) {
+                return periodInterest;
+            }
+        }
+        return plainInterest(payoutDetail, deal.getInterestMethod(), deal.getAnnualInterestRate(), baseAmount, daysBetween);
+    }
+
+    /**
+     * baseAmount * annual rate * day-count multiplier, rounded to 2 decimals
+     */
+    private BigDecimal plainInterest(PartnerPayoutDetailsAll payoutDetail, Deal.InterestMethod interestMethod, Double annualInterestRate,
+                                     BigDecimal baseAmount, long daysBetween) {
+        if (baseAmount.compareTo(BigDecimal.ZERO) > 0 && daysBetween > 0) {
+            Double interestMultiplier = InterestRateTimeline.interestMultiplier(
+                interestMethod, payoutDetail.getCycleStartDate(), payoutDetail.getCycleEndDate(), daysBetween);
+            return baseAmount
+                .multiply(BigDecimal.valueOf(annualInterestRate))
+                .multiply(BigDecimal.valueOf(interestMultiplier))
+                .setScale(2, RoundingMode.HALF_UP);
+        }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * Previous month's sellerInterestOverdueSplit if present and not empty,
+     * otherwise the loan detail's assignedInterestOverdueSplit; empty for a payout without LAN
+     */
+    private InterestOverdueSplit openingInterestOverdueSplit(PartnerPayoutDetailsAll payoutDetail, SellerCalculationInput input) {
+        if (payoutDetail.getLmsLan() == null) {
+            return InterestOverdueSplit.empty();
+        }
+        PartnerPayoutDetailsAll previousEntry = input.previousEntry();
+        if (previousEntry != null && previousEntry.getSellerInterestOverdueSplit() != null
+                && !previousEntry.getSellerInterestOverdueSplit().isEmpty()) {
+            return previousEntry.getSellerInterestOverdueSplit();
+        }
+        LoanDetail loanDetail = input.loanDetail();
+        if (loanDetail != null && loanDetail.getAssignedInterestOverdueSplit() != null) {
+            return loanDetail.getAssignedInterestOverdueSplit();
+        }
+        return InterestOverdueSplit.empty();
+    }
+
+    /**
+     * Previous month's unpaid interest (sellerTotalInterestDue - sellerTotalInterestComponentPaid, not negative),
+     * or the loan detail's currentAssignedOverdueInterest for the first month / a LAN new this month;
+     * zero for a payout without LAN
+     */
+    private BigDecimal openingInterestOverdue(PartnerPayoutDetailsAll payoutDetail, SellerCalculationInput input) {
+        if (payoutDetail.getLmsLan() == null) {
+            return BigDecimal.ZERO;
+        }
+        PartnerPayoutDetailsAll previousEntry = input.previousEntry();
+        if (previousEntry != null) {
+            BigDecimal prevSellerTotalInterestDue = previousEntry.getSellerTotalInterestDue() != null
+                ? previousEntry.getSellerTotalInterestDue() : BigDecimal.ZERO;
+            BigDecimal prevSellerTotalInterestComponentPaid = previousEntry.getSellerTotalInterestComponentPaid() != null
+                ? previousEntry.getSellerTotalInterestComponentPaid() : BigDecimal.ZERO;
+
+            BigDecimal sellerInterestOverdue = prevSellerTotalInterestDue.subtract(prevSellerTotalInterestComponentPaid)
+                .setScale(2, RoundingMode.HALF_UP);
+            return sellerInterestOverdue.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : sellerInterestOverdue;
+        }
+
+        LoanDetail loanDetail = input.loanDetail();
+        if (loanDetail != null && loanDetail.getCurrentAssignedOverdueInterest() != null) {
+            return BigDecimal.valueOf(loanDetail.getCurrentAssignedOverdueInterest()).setScale(2, RoundingMode.HALF_UP);
+        }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * {@link #openingInterestOverdue} in paise
+     */
+    private long openingInterestOverduePaise(PartnerPayoutDetailsAll payoutDetail, SellerCalculationInput input) {
+        if (payoutDetail.getLmsLan() == null) {
+            return 0L;
+        }
+        PartnerPayoutDetailsAll previousEntry = input.previousEntry();
+        if (previousEntry != null) {
+            long sellerInterestOverdue = Math.subtractExact(
+                PaiseArithmetic.toPaise(previousEntry.getSellerTotalInterestDue()),
+                PaiseArithmetic.toPaise(previousEntry.getSellerTotalInterestComponentPaid()));
+            return Math.max(0L, sellerInterestOverdue);
+        }
+
+        LoanDetail loanDetail = input.loanDetail();
+        if (loanDetail != null && loanDetail.getCurrentAssignedOverdueInterest() != null) {
+            return PaiseArithmetic.toPaise(
+                BigDecimal.valueOf(loanDetail.getCurrentAssignedOverdueInterest()).setScale(2, RoundingMode.HALF_UP));
+        }
+        return 0L;
+    }
+
+    /**
+     * {@link #calculateValue} in paise
+     */
+    private static long assigned(BigDecimal value, PaiseArithmetic.Ratio ratio) {
+        return value == null ? 0L : PaiseArithmetic.multiply(PaiseArithmetic.toPaise(value), ratio);
+    }
+
+    /**
+     * An assigned amount as {@link #calculateValue} returns it: a plain zero for a missing LMS value
+     */
+    private static BigDecimal assignedResult(BigDecimal value, long paise) {
+        return value == null ? BigDecimal.ZERO : PaiseArithmetic.toBigDecimal(paise);
+    }
+
+    /**
+     * value * ratio rounded to 2 decimals, zero when either is null
+     */
+    static BigDecimal calculateValue(BigDecimal value, Double ratio) {
+        if (value == null || ratio == null) {
+            return BigDecimal.ZERO;
+        }
+        return value.multiply(BigDecimal.valueOf(ratio)).setScale(2, RoundingMode.HALF_UP);
+    }
+}
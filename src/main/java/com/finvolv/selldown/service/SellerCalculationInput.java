@@ -0,0 +1,21 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+
+/**
+ * Everything {@link SellerCalculationEngine} needs besides the payout itself, loaded up front.
+ * The engine only reads these objects.
+ *
+ * @param deal          deal with assignRatio and annualInterestRate set
+ * @param rateTimeline  compiled rate table of the deal, or null to use the deal's annual rate only
+ * @param previousEntry the LAN's payout row of the previous month, or null if there is none
+ * @param loanDetail    the LAN's loan detail, or null if there is none
+ */
+public record SellerCalculationInput(
+    Deal deal,
+    InterestRateTimeline rateTimeline,
+    PartnerPayoutDetailsAll previousEntry,
+    LoanDetail loanDetail) {
+}
@@ -0,0 +1,109 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Seller fields calculated for one payout by {@link SellerCalculationEngine}
+ */
+public record SellerCalculationResult(
+    BigDecimal sellerOpeningPos,
+    BigDecimal sellerClosingPos,
+    BigDecimal sellerTotalPrincipalDue,
+    BigDecimal sellerPrincipalOverdue,
+    BigDecimal sellerTotalPrincipalComponentPaid,
+    BigDecimal sellerPrincipalOverduePaid,
+    BigDecimal sellerForeclosurePaid,
+    BigDecimal sellerForeclosureChargesPaid,
+    BigDecimal sellerPrepaymentPaid,
+    BigDecimal sellerPrepaymentChargesPaid,
+    BigDecimal sellerTotalChargesPaid,
+    BigDecimal sellerTotalInterestDue,
+    BigDecimal sellerTotalInterestComponentPaid,
+    BigDecimal sellerInterestOverdue,
+    BigDecimal sellerInterestOverduePaid,
+    InterestOverdueSplit sellerInterestOverdueSplit,
+    BigDecimal sellerTotalPaid) {
+
+    public SellerCalculationResult {
+        // Own copy, the split is mutable
+        sellerInterestOverdueSplit = sellerInterestOverdueSplit.copy();
+    }
+
+    /**
+     * The seller fields currently set on the payout entity
+     */
+    public static SellerCalculationResult of(PartnerPayoutDetailsAll payoutDetail) {
+        return new SellerCalculationResult(
+            payoutDetail.getSellerOpeningPos(),
+            payoutDetail.getSellerClosingPos(),
+            payoutDetail.getSellerTotalPrincipalDue(),
+            payoutDetail.getSellerPrincipalOverdue(),
+            payoutDetail.getSellerTotalPrincipalComponentPaid(),
+            payoutDetail.getSellerPrincipalOverduePaid(),
+            payoutDetail.getSellerForeclosurePaid(),
+            payoutDetail.getSellerForeclosureChargesPaid(),
+            payoutDetail.getSellerPrepaymentPaid(),
+            payoutDetail.getSellerPrepaymentChargesPaid(),
+            payoutDetail.getSellerTotalChargesPaid(),
+            payoutDetail.getSellerTotalInterestDue(),
+            payoutDetail.getSellerTotalInterestComponentPaid(),
+            payoutDetail.getSellerInterestOverdue(),
+            payoutDetail.getSellerInterestOverduePaid(),
+            payoutDetail.getSellerInterestOverdueSplit() != null ? payoutDetail.getSellerInterestOverdueSplit() : InterestOverdueSplit.empty(),
+            payoutDetail.getSellerTotalPaid());
+    }
+
+    /**
+     * Fields by entity property name, in declaration order
+     */
+    public Map<String, Object> fields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("sellerOpeningPos", sellerOpeningPos);
+        fields.put("sellerClosingPos", sellerClosingPos);
+        fields.put("sellerTotalPrincipalDue", sellerTotalPrincipalDue);
+        fields.put("sellerPrincipalOverdue", sellerPrincipalOverdue);
+        fields.put("sellerTotalPrincipalComponentPaid", sellerTotalPrincipalComponentPaid);
+        fields.put("sellerPrincipalOverduePaid", sellerPrincipalOverduePaid);
+        fields.put("sellerForeclosurePaid", sellerForeclosurePaid);
+        fields.put("sellerForeclosureChargesPaid", sellerForeclosureChargesPaid);
+        fields.put("sellerPrepaymentPaid", sellerPrepaymentPaid);
+        fields.put("sellerPrepaymentChargesPaid", sellerPrepaymentChargesPaid);
+        fields.put("sellerTotalChargesPaid", sellerTotalChargesPaid);
+        fields.put("sellerTotalInterestDue", sellerTotalInterestDue);
+        fields.put("sellerTotalInterestComponentPaid", sellerTotalInterestComponentPaid);
+        fields.put("sellerInterestOverdue", sellerInterestOverdue);
+        fields.put("sellerInterestOverduePaid", sellerInterestOverduePaid);
+        fields.put("sellerInterestOverdueSplit", sellerInterestOverdueSplit);
+        fields.put("sellerTotalPaid", sellerTotalPaid);
+        return fields;
+    }
+
+    /**
+     * Copies the seller fields onto the payout entity
+     */
+    public void applyTo(PartnerPayoutDetailsAll payoutDetail) {
+        payoutDetail.setSellerOpeningPos(sellerOpeningPos);
+        payoutDetail.setSellerClosingPos(sellerClosingPos);
+        payoutDetail.setSellerTotalPrincipalDue(sellerTotalPrincipalDue);
+        payoutDetail.setSellerPrincipalOverdue(sellerPrincipalOverdue);
+        payoutDetail.setSellerTotalPrincipalComponentPaid(sellerTotalPrincipalComponentPaid);
+        payoutDetail.setSellerPrincipalOverduePaid(sellerPrincipalOverduePaid);
+        payoutDetail.setSellerForeclosurePaid(sellerForeclosurePaid);
+        payoutDetail.setSellerForeclosureChargesPaid(sellerForeclosureChargesPaid);
+        payoutDetail.setSellerPrepaymentPaid(sellerPrepaymentPaid);
+        payoutDetail.setSellerPrepaymentChargesPaid(sellerPrepaymentChargesPaid);
+        payoutDetail.setSellerTotalChargesPaid(sellerTotalChargesPaid);
+        payoutDetail.setSellerTotalInterestDue(sellerTotalInterestDue);
+        payoutDetail.setSellerTotalInterestComponentPaid(sellerTotalInterestComponentPaid);
+        payoutDetail.setSellerInterestOverdue(sellerInterestOverdue);
+        payoutDetail.setSellerInterestOverduePaid(sellerInterestOverduePaid);
+        // Separate copy, the entity's split is read back as the next month's opening split
+        payoutDetail.setSellerInterestOverdueSplit(sellerInterestOverdueSplit.copy());
+        payoutDetail.setSellerTotalPaid(sellerTotalPaid);
+    }
+}
@@ -0,0 +1,292 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.dto.SellerFieldChange;
+import com.finvolv.selldown.dto.SellerReplayMonthResult;
+import com.finvolv.selldown.dto.SellerReplayResponse;
+import com.finvolv.selldown.exception.DealNotFoundException;
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.MonthlyLMSStatusEntity;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import com.finvolv.selldown.repository.DealRepository;
+import com.finvolv.selldown.repository.LoanDetailRepository;
+import com.finvolv.selldown.repository.MonthlyLMSStatusRepository;
+import com.finvolv.selldown.repository.PartnerPayoutDetailsAllRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Recalculates a deal's seller fields over a range of months, e.g. after a rate change or an
+ * LMS correction for an old month. All months' payout rows (plus the month before the range,
+ * as the opening state) are loaded with one query; each month is then calculated from the
+ * previous month's recalculated rows held in memory, so the overdue split and unpaid interest
+ * carry forward without re-reading the database. Results are written back per month with
+ * batched seller-field upserts, or only reported field by field in dry-run mode.
+ */
+@Service
+@RequiredArgsConstructor
+public class SellerReplayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SellerReplayService.class);
+
+    private final DealRepository dealRepository;
+    private final LoanDetailRepository loanDetailRepository;
+    private final MonthlyLMSStatusRepository monthlyLMSStatusRepository;
+    private final PartnerPayoutDetailsAllRepository partnerPayoutDetailsAllRepository;
+    private final InterestRateTimelineCache interestRateTimelineCache;
+    private final SellerCalculationEngine sellerCalculationEngine;
+
+    public Mono<SellerReplayResponse> replay(Long dealId, Integer fromYear, Integer fromMonth,
+                                             Integer toYear, Integer toMonth, boolean dryRun) {
+        int fromPeriod = fromYear * 12 + fromMonth;
+        int toPeriod = toYear * 12 + toMonth;
+        if (fromMonth < 1 || fromMonth > 12 || toMonth < 1 || toMonth > 12 || fromPeriod > toPeriod) {
+            return Mono.error(new IllegalArgumentException(String.format(
+                "Invalid month range %d-%02d to %d-%02d", fromYear, fromMonth, toYear, toMonth)));
+        }
+
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            logger.info("Starting seller replay - dealId: {}, from: {}-{}, to: {}-{}, dryRun: {}",
+                dealId, fromYear, fromMonth, toYear, toMonth, dryRun);
+
+            Mono<Deal> dealMono = dealRepository.findById(dealId)
+                .switchIfEmpty(Mono.error(new DealNotFoundException(dealId)))
+                .filter(sellerCalculationEngine::canCalculate)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                    "Deal assignRatio and annualInterestRate are required for seller calculation")));
+
+            // The month before the range is loaded as the opening state and not recalculated
+            return Mono.zip(
+                    dealMono,
+                    loanDetailRepository.findByDealId(dealId).collectList(),
+                    interestRateTimelineCache.getTimeline(dealId),
+                    monthlyLMSStatusRepository.findByPeriodRange(fromPeriod - 1, toPeriod).collectList())
+                .flatMap(loaded -> {
+                    Map<String, LoanDetail> loanDetailsByLan = loaded.getT2().stream()
+                        .filter(loanDetail -> loanDetail.getLmsLan() != null)
+                        .collect(Collectors.toMap(LoanDetail::getLmsLan, Function.identity(), (existing, replacement) -> existing));
+                    List<MonthlyLMSStatusEntity> statuses = loaded.getT4();
+
+                    Long[] lmsIds = statuses.stream().map(MonthlyLMSStatusEntity::getId).toArray(Long[]::new);
+                    String[] lmsLans = loanDetailsByLan.keySet().toArray(String[]::new);
+                    Mono<List<PartnerPayoutDetailsAll>> rowsMono = lmsIds.length == 0 || lmsLans.length == 0
+                        ? Mono.just(List.of())
+                        : partnerPayoutDetailsAllRepository.findByLmsIdsAndLmsLans(lmsIds, lmsLans).collectList();
+
+                    return rowsMono
+                        .doOnNext(rows -> logger.info("Seller replay - dealId: {}: loaded {} payout rows for {} LMS months and {} LANs",
+                            dealId, rows.size(), lmsIds.length, lmsLans.length))
+                        // CPU only: the whole range is calculated in memory
+                        .flatMap(rows -> Mono.fromCallable(() -> replayMonths(loaded.getT1(), loaded.getT3(), loanDetailsByLan,
+                                statuses, rows, fromPeriod, toPeriod, dryRun))
+                            .subscribeOn(Schedulers.parallel()))
+                        .flatMap(months -> dryRun ? Mono.just(months) : writeMonths(dealId, months))
+                        .map(months -> buildResponse(dealId, fromYear, fromMonth, toYear, toMonth, dryRun, months, startNanos));
+                });
+        });
+    }
+
+    /**
+     * Calculates the months fromPeriod..toPeriod (year * 12 + month) in order from the loaded rows,
+     * updating them in place; package-private for tests
+     */
+    List<MonthReplay> replayMonths(Deal deal, InterestRateTimeline rateTimeline, Map<String, LoanDetail> loanDetailsByLan,
+                                   List<MonthlyLMSStatusEntity> statuses, List<PartnerPayoutDetailsAll> rows,
+                                   int fromPeriod, int toPeriod, boolean dryRun) {
+        Map<Integer, MonthlyLMSStatusEntity> statusByPeriod = statuses.stream()
+            .collect(Collectors.toMap(status -> status.getYear() * 12 + status.getMonth(), Function.identity(), (existing, replacement) -> existing));
+        Map<Long, List<PartnerPayoutDetailsAll>> rowsByLmsId = rows.stream()
+            .collect(Collectors.groupingBy(PartnerPayoutDetailsAll::getLmsId));
+
+        // Opening state: the stored rows of the month before the range
+        MonthlyLMSStatusEntity openingStatus = statusByPeriod.get(fromPeriod - 1);
+        Map<String, PartnerPayoutDetailsAll> previousByLan = openingStatus != null
+            ? byLan(rowsByLmsId.getOrDefault(openingStatus.getId(), List.of()))
+            : Map.of();
+
+        List<MonthReplay> months = new ArrayList<>();
+        for (int period = fromPeriod; period <= toPeriod; period++) {
+            // period = year * 12 + month, with month 12 at the next multiple of 12
+            int year = (period - 1) / 12;
+            int month = (period - 1) % 12 + 1;
+            MonthlyLMSStatusEntity status = statusByPeriod.get(period);
+            MonthReplay monthReplay = new MonthReplay(year, month, status != null ? status.getId() : null);
+            months.add(monthReplay);
+
+            if (status == null) {
+                // No LMS file: the next month starts without previous month data, as in a regular generation
+                logger.info("Seller replay - dealId: {}: no LMS status for {}-{}, skipping", deal.getId(), year, month);
+                previousByLan = Map.of();
+                continue;
+            }
+
+            List<PartnerPayoutDetailsAll> monthRows = rowsByLmsId.getOrDefault(status.getId(), List.of());
+            monthReplay.rows = monthRows.size();
+            for (PartnerPayoutDetailsAll payoutDetail : monthRows) {
+                String lmsLan = payoutDetail.getLmsLan();
+                SellerCalculationInput input = new SellerCalculationInput(
+                    deal, rateTimeline, previousByLan.get(lmsLan), loanDetailsByLan.get(lmsLan));
+
+                String sellerInputHash = PayoutContentHasher.sellerInputHash(payoutDetail, input);
+                if (sellerInputHash.equals(payoutDetail.getSellerInputHash())) {
+                    continue;
+                }
+
+                SellerCalculationResult before = SellerCalculationResult.of(payoutDetail);
+                SellerCalculationResult after = sellerCalculationEngine.calculate(payoutDetail, input);
+                List<SellerFieldChange> changes = differences(lmsLan, before, after);
+
+                // Applied in dry-run mode too: the next month must see this month's recalculated values
+                after.applyTo(payoutDetail);
+                payoutDetail.setSellerInputHash(sellerInputHash);
+                payoutDetail.setModifiedAt(LocalDateTime.now());
+
+                monthReplay.recalculated.add(payoutDetail);
+                if (!changes.isEmpty()) {
+                    monthReplay.changedRows++;
+                    if (dryRun) {
+                        monthReplay.changes.addAll(changes);
+                    }
+                }
+            }
+
+            logger.info("Seller replay - dealId: {}, {}-{}: {} rows, {} recalculated, {} changed",
+                deal.getId(), year, month, monthReplay.rows, monthReplay.recalculated.size(), monthReplay.changedRows);
+            previousByLan = byLan(monthRows);
+        }
+        return months;
+    }
+
+    private Mono<List<MonthReplay>> writeMonths(Long dealId, List<MonthReplay> months) {
+        // Month by month, in order, so an interrupted replay leaves a consistent prefix of the range
+        return Flux.fromIterable(months)
+            .concatMap(monthReplay -> partnerPayoutDetailsAllRepository.upsertSellerFieldsAll(monthReplay.recalculated)
+                .count()
+                .doOnNext(saved -> {
+                    monthReplay.savedRows = saved.intValue();
+                    if (saved > 0) {
+                        logger.info("Seller replay - dealId: {}, {}-{}: saved {} rows", dealId, monthReplay.year, monthReplay.month, saved);
+                    }
+                })
+                .thenReturn(monthReplay))
+            .collectList();
+    }
+
+    private SellerReplayResponse buildResponse(Long dealId, Integer fromYear, Integer fromMonth, Integer toYear, Integer toMonth,
+                                               boolean dryRun, List<MonthReplay> months, long startNanos) {
+        List<SellerReplayMonthResult> monthResults = months.stream()
+            .map(monthReplay -> SellerReplayMonthResult.builder()
+                .year(monthReplay.year)
+                .month(monthReplay.month)
+                .lmsId(monthReplay.lmsId)
+                .rows(monthReplay.rows)
+                .recalculatedRows(monthReplay.recalculated.size())
+                .changedRows(monthReplay.changedRows)
+                .savedRows(monthReplay.savedRows)
+                .changes(dryRun ? monthReplay.changes : null)
+                .build())
+            .toList();
+
+        int totalRows = monthResults.stream().mapToInt(SellerReplayMonthResult::getRows).sum();
+        int recalculatedRows = monthResults.stream().mapToInt(SellerReplayMonthResult::getRecalculatedRows).sum();
+        int changedRows = monthResults.stream().mapToInt(SellerReplayMonthResult::getChangedRows).sum();
+        int savedRows = monthResults.stream().mapToInt(SellerReplayMonthResult::getSavedRows).sum();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        logger.info("Seller replay complete - dealId: {}, {} months, {} rows, {} recalculated, {} changed, {} saved in {} ms (dryRun: {})",
+            dealId, monthResults.size(), totalRows, recalculatedRows, changedRows, savedRows, elapsedMillis, dryRun);
+
+        return SellerReplayResponse.builder()
+            .dealId(dealId)
+            .fromYear(fromYear)
+            .fromMonth(fromMonth)
+            .toYear(toYear)
+            .toMonth(toMonth)
+            .dryRun(dryRun)
+            .totalRows(totalRows)
+            .recalculatedRows(recalculatedRows)
+            .changedRows(changedRows)
+            .savedRows(savedRows)
+            .elapsedMillis(elapsedMillis)
+            .months(monthResults)
+            .message(dryRun
+                ? String.format("Dry run: %d of %d rows would change", changedRows, totalRows)
+                : String.format("Replayed %d months, saved %d rows", monthResults.size(), savedRows))
+            .success(true)
+            .build();
+    }
+
+    /**
+     * Seller fields whose value differs; amounts are compared by value, so 1.5 equals 1.50,
+     * and splits by their paise entries
+     */
+    private static List<SellerFieldChange> differences(String lmsLan, SellerCalculationResult before, SellerCalculationResult after) {
+        List<SellerFieldChange> changes = new ArrayList<>();
+        Map<String, Object> afterFields = after.fields();
+        before.fields().forEach((field, beforeValue) -> {
+            Object afterValue = afterFields.get(field);
+            if (!sameValue(beforeValue, afterValue)) {
+                changes.add(SellerFieldChange.builder()
+                    .lmsLan(lmsLan)
+                    .field(field)
+                    .before(beforeValue)
+                    .after(afterValue)
+                    .build());
+            }
+        });
+        return changes;
+    }
+
+    private static boolean sameValue(Object before, Object after) {
+        if (before == null || after == null) {
+            return before == after;
+        }
+        if (before instanceof BigDecimal beforeDecimal && after instanceof BigDecimal afterDecimal) {
+            return beforeDecimal.compareTo(afterDecimal) == 0;
+        }
+        return before.equals(after);
+    }
+
+    private static Map<String, PartnerPayoutDetailsAll> byLan(List<PartnerPayoutDetailsAll> rows) {
+        Map<String, PartnerPayoutDetailsAll> byLan = new HashMap<>();
+        rows.forEach(row -> byLan.putIfAbsent(row.getLmsLan(), row));
+        return byLan;
+    }
+
+    /**
+     * Working state of one month of the replay
+     */
+    static final class MonthReplay {
+
+        final int year;
+        final int month;
+        final Long lmsId;
+        final List<PartnerPayoutDetailsAll> recalculated = new ArrayList<>();
+        final List<SellerFieldChange> changes = new ArrayList<>();
+        int rows;
+        int changedRows;
+        int savedRows;
+
+        private MonthReplay(int year, int month, Long lmsId) {
+            this.year = year;
+            this.month = month;
+            this.lmsId = lmsId;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.dto.SellerScenario;
+import com.finvolv.selldown.dto.SellerScenarioResult;
+import com.finvolv.selldown.dto.SellerSimulationResponse;
+import com.finvolv.selldown.dto.SellerTotals;
+import com.finvolv.selldown.exception.DealNotFoundException;
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.MonthlyLMSStatusEntity;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import com.finvolv.selldown.repository.DealRepository;
+import com.finvolv.selldown.repository.LoanDetailRepository;
+import com.finvolv.selldown.repository.MonthlyLMSStatusRepository;
+import com.finvolv.selldown.repository.PartnerPayoutDetailsAllRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-only "what if" seller calculation for a deal/month: the month's payout rows, the previous
+ * month's rows, the loan details and the rate table are loaded once, then every scenario (a deal
+ * copy with a different rate, assign ratio or interest method) is calculated over all rows on the
+ * parallel scheduler. Only the aggregated seller totals and their deltas to the deal as it is are
+ * returned; the engine does not modify the rows and nothing is written to the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class SellerSimulationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SellerSimulationService.class);
+
+    private final DealRepository dealRepository;
+    private final LoanDetailRepository loanDetailRepository;
+    private final MonthlyLMSStatusRepository monthlyLMSStatusRepository;
+    private final PartnerPayoutDetailsAllRepository partnerPayoutDetailsAllRepository;
+    private final PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
+    private final InterestRateTimelineCache interestRateTimelineCache;
+    private final SellerCalculationEngine sellerCalculationEngine;
+
+    @Value("${selldown.seller-simulation.max-scenarios:20}")
+    private int maxScenarios;
+
+    public Mono<SellerSimulationResponse> simulate(Long dealId, Integer year, Integer month, List<SellerScenario> scenarios) {
+        if (month < 1 || month > 12) {
+            return Mono.error(new IllegalArgumentException("Invalid month: " + month));
+        }
+        if (scenarios == null || scenarios.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("At least one scenario is required"));
+        }
+        if (scenarios.size() > maxScenarios) {
+            return Mono.error(new IllegalArgumentException(String.format(
+                "At most %d scenarios are allowed, got %d", maxScenarios, scenarios.size())));
+        }
+        for (SellerScenario scenario : scenarios) {
+            // Same bounds as the deal's own fields
+            if (!withinUnitRange(scenario.getAnnualInterestRate()) || !withinUnitRange(scenario.getAssignRatio())) {
+                return Mono.error(new IllegalArgumentException(
+                    "Scenario annualInterestRate and assignRatio must be between 0 and 1: " + scenario.getName()));
+            }
+        }
+
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            logger.info("Starting seller simulation - dealId: {}, year: {}, month: {}, scenarios: {}",
+                dealId, year, month, scenarios.size());
+
+            Mono<Deal> dealMono = dealRepository.findById(dealId)
+                .switchIfEmpty(Mono.error(new DealNotFoundException(dealId)))
+                .filter(sellerCalculationEngine::canCalculate)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                    "Deal assignRatio and annualInterestRate are required for seller calculation")));
+
+            Mono<Long> lmsIdMono = monthlyLMSStatusRepository.findByYearAndMonth(year, month)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                    String.format("No LMS status found for year: %d, month: %d", year, month))))
+                .map(MonthlyLMSStatusEntity::getId);
+
+            return Mono.zip(dealMono, lmsIdMono, loanDetailRepository.findByDealId(dealId).collectList(),
+                    interestRateTimelineCache.getTimeline(dealId))
+                .flatMap(loaded -> {
+                    Map<String, LoanDetail> loanDetailsByLan = loaded.getT3().stream()
+                        .filter(loanDetail -> loanDetail.getLmsLan() != null)
+                        .collect(Collectors.toMap(LoanDetail::getLmsLan, Function.identity(), (existing, replacement) -> existing));
+                    String[] lmsLans = loanDetailsByLan.keySet().toArray(String[]::new);
+                    Long lmsId = loaded.getT2();
+
+                    Mono<List<PartnerPayoutDetailsAll>> rowsMono = lmsLans.length == 0
+                        ? Mono.just(List.of())
+                        : partnerPayoutDetailsAllRepository.findByLmsIdAndLmsLans(lmsId, lmsLans).collectList();
+
+                    return Mono.zip(rowsMono, partnerPayoutDetailsAllService.loadSellerCalculationContext(year, month, loanDetailsByLan.keySet()))
+                        .flatMap(rowsAndContext -> {
+                            List<PartnerPayoutDetailsAll> rows = rowsAndContext.getT1();
+                            SellerCalculationContext context = rowsAndContext.getT2();
+                            logger.info("Seller simulation - dealId: {}, lmsId: {}: {} payout rows, {} previous month rows",
+                                dealId, lmsId, rows.size(), context.previousEntryCount());
+
+                            // The inputs do not depend on the scenario except for the deal and rate table
+                            List<SellerCalculationInput> inputs = rows.stream()
+                                .map(row -> new SellerCalculationInput(loaded.getT1(), loaded.getT4(),
+                                    context.getPreviousEntry(row.getLmsLan()), loanDetailsByLan.get(row.getLmsLan())))
+                                .toList();
+
+                            Mono<SellerScenarioResult> baselineMono = runScenario(
+                                SellerScenario.builder().name("baseline").build(), loaded.getT1(), loaded.getT4(), rows, inputs);
+                            // Scenarios run concurrently, results keep the request order
+                            Mono<List<SellerScenarioResult>> scenariosMono = Flux.fromIterable(scenarios)
+                                .flatMapSequential(scenario -> runScenario(scenario, loaded.getT1(), loaded.getT4(), rows, inputs))
+                                .collectList();
+
+                            return Mono.zip(baselineMono, scenariosMono)
+                                .map(results -> buildResponse(dealId, year, month, lmsId, rows.size(),
+                                    results.getT1(), results.getT2(), startNanos));
+                        });
+                });
+        });
+    }
+
+    private Mono<SellerScenarioResult> runScenario(SellerScenario scenario, Deal deal, InterestRateTimeline rateTimeline,
+                                                   List<PartnerPayoutDetailsAll> rows, List<SellerCalculationInput> inputs) {
+        return Mono.fromCallable(() -> {
+            long startNanos = System.nanoTime();
+            Deal scenarioDeal = deal.toBuilder()
+                .annualInterestRate(scenario.getAnnualInterestRate() != null ? scenario.getAnnualInterestRate() : deal.getAnnualInterestRate())
+                .assignRatio(scenario.getAssignRatio() != null ? scenario.getAssignRatio() : deal.getAssignRatio())
+                .interestMethod(scenario.getInterestMethod() != null ? scenario.getInterestMethod() : deal.getInterestMethod())
+                .build();
+            // The rate table would override a simulated rate, so it only applies when the rate is unchanged
+            InterestRateTimeline scenarioTimeline = scenario.getAnnualInterestRate() == null ? rateTimeline : null;
+
+            SellerTotalsAccumulator totals = new SellerTotalsAccumulator();
+            for (int i = 0; i < rows.size(); i++) {
+                SellerCalculationInput input = inputs.get(i);
+                totals.add(sellerCalculationEngine.calculate(rows.get(i),
+                    new SellerCalculationInput(scenarioDeal, scenarioTimeline, input.previousEntry(), input.loanDetail())));
+            }
+
+            return SellerScenarioResult.builder()
+                .name(scenario.getName())
+                .annualInterestRate(scenarioDeal.getAnnualInterestRate())
+                .assignRatio(scenarioDeal.getAssignRatio())
+                .interestMethod(scenarioDeal.getInterestMethod())
+                .rateTableApplied(scenarioTimeline != null)
+                .totals(totals.toTotals())
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                .build();
+        }).subscribeOn(Schedulers.parallel());
+    }
+
+    private SellerSimulationResponse buildResponse(Long dealId, Integer year, Integer month, Long lmsId, int rows,
+                                                   SellerScenarioResult baseline, List<SellerScenarioResult> scenarios,
+                                                   long startNanos) {
+        scenarios.forEach(scenario -> scenario.setDeltas(delta(scenario.getTotals(), baseline.getTotals())));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        logger.info("Seller simulation complete - dealId: {}, year: {}, month: {}: {} scenarios over {} rows in {} ms",
+            dealId, year, month, scenarios.size(), rows, elapsedMillis);
+
+        return SellerSimulationResponse.builder()
+            .dealId(dealId)
+            .year(year)
+            .month(month)
+            .lmsId(lmsId)
+            .rows(rows)
+            .baseline(baseline)
+            .scenarios(scenarios)
+            .elapsedMillis(elapsedMillis)
+            .message(String.format("Simulated %d scenarios over %d payout rows", scenarios.size(), rows))
+            .success(true)
+            .build();
+    }
+
+    private static SellerTotals delta(SellerTotals totals, SellerTotals baseline) {
+        return SellerTotals.builder()
+            .sellerOpeningPos(totals.getSellerOpeningPos().subtract(baseline.getSellerOpeningPos()))
+            .sellerClosingPos(totals.getSellerClosingPos().subtract(baseline.getSellerClosingPos()))
+            .sellerTotalPrincipalComponentPaid(totals.getSellerTotalPrincipalComponentPaid().subtract(baseline.getSellerTotalPrincipalComponentPaid()))
+            .sellerTotalInterestDue(totals.getSellerTotalInterestDue().subtract(baseline.getSellerTotalInterestDue()))
+            .sellerTotalInterestComponentPaid(totals.getSellerTotalInterestComponentPaid().subtract(baseline.getSellerTotalInterestComponentPaid()))
+            .sellerInterestOverdue(totals.getSellerInterestOverdue().subtract(baseline.getSellerInterestOverdue()))
+            .sellerInterestOverduePaid(totals.getSellerInterestOverduePaid().subtract(baseline.getSellerInterestOverduePaid()))
+            .sellerTotalPaid(totals.getSellerTotalPaid().subtract(baseline.getSellerTotalPaid()))
+            .build();
+    }
+
+    private static boolean withinUnitRange(Double value) {
+        return value == null || (value >= 0.0 && value <= 1.0);
+    }
+}
@@ -0,0 +1,48 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.dto.SellerTotals;
+
+import java.math.BigDecimal;
+
+/**
+ * Running sums of seller fields over many payouts; null fields (payouts not calculated yet) count as zero
+ */
+final class SellerTotalsAccumulator {
+
+    private BigDecimal sellerOpeningPos = BigDecimal.ZERO;
+    private BigDecimal sellerClosingPos = BigDecimal.ZERO;
+    private BigDecimal sellerTotalPrincipalComponentPaid = BigDecimal.ZERO;
+    private BigDecimal sellerTotalInterestDue = BigDecimal.ZERO;
+    private BigDecimal sellerTotalInterestComponentPaid = BigDecimal.ZERO;
+    private BigDecimal sellerInterestOverdue = BigDecimal.ZERO;
+    private BigDecimal sellerInterestOverduePaid = BigDecimal.ZERO;
+    private BigDecimal sellerTotalPaid = BigDecimal.ZERO;
+
+    void add(SellerCalculationResult result) {
+        sellerOpeningPos = add(sellerOpeningPos, result.sellerOpeningPos());
+        sellerClosingPos = add(sellerClosingPos, result.sellerClosingPos());
+        sellerTotalPrincipalComponentPaid = add(sellerTotalPrincipalComponentPaid, result.sellerTotalPrincipalComponentPaid());
+        sellerTotalInterestDue = add(sellerTotalInterestDue, result.sellerTotalInterestDue());
+        sellerTotalInterestComponentPaid = add(sellerTotalInterestComponentPaid, result.sellerTotalInterestComponentPaid());
+        sellerInterestOverdue = add(sellerInterestOverdue, result.sellerInterestOverdue());
+        sellerInterestOverduePaid = add(sellerInterestOverduePaid, result.sellerInterestOverduePaid());
+        sellerTotalPaid = add(sellerTotalPaid, result.sellerTotalPaid());
+    }
+
+    SellerTotals toTotals() {
+        return SellerTotals.builder()
+            .sellerOpeningPos(sellerOpeningPos)
+            .sellerClosingPos(sellerClosingPos)
+            .sellerTotalPrincipalComponentPaid(sellerTotalPrincipalComponentPaid)
+            .sellerTotalInterestDue(sellerTotalInterestDue)
+            .sellerTotalInterestComponentPaid(sellerTotalInterestComponentPaid)
+            .sellerInterestOverdue(sellerInterestOverdue)
+            .sellerInterestOverduePaid(sellerInterestOverduePaid)
+            .sellerTotalPaid(sellerTotalPaid)
+            .build();
+    }
+
+    private static BigDecimal add(BigDecimal total, BigDecimal value) {
+        return value != null ? total.add(value) : total;
+    }
+}
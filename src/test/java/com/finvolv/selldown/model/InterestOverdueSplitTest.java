@@ -0,0 +1,121 @@
+package com.finvolv.selldown.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.finvolv.selldown.model.InterestOverdueSplit.NULL_BUCKET;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InterestOverdueSplitTest {
+
+    @Test
+    void ofRoundsHalfUpToPaise() {
+        InterestOverdueSplit split = InterestOverdueSplit.of(Arrays.asList(
+            new BigDecimal("1000.005"), new BigDecimal("1000.004"), new BigDecimal("-0.005"), new BigDecimal("12.5")));
+
+        assertThat(split.paiseAt(0)).isEqualTo(100001L);
+        assertThat(split.paiseAt(1)).isEqualTo(100000L);
+        assertThat(split.paiseAt(2)).isEqualTo(-1L);
+        assertThat(split.paiseAt(3)).isEqualTo(1250L);
+        assertThat(split.toList()).isEqualTo(List.of(
+            new BigDecimal("1000.01"), new BigDecimal("1000.00"), new BigDecimal("-0.01"), new BigDecimal("12.50")));
+    }
+
+    @Test
+    void ofKeepsNullEntriesAndTreatsNullAsEmpty() {
+        InterestOverdueSplit split = InterestOverdueSplit.of(Arrays.asList(null, new BigDecimal("5.00"), null));
+
+        assertThat(split.size()).isEqualTo(3);
+        assertThat(split.paiseAt(0)).isEqualTo(NULL_BUCKET);
+        assertThat(split.paiseAt(2)).isEqualTo(NULL_BUCKET);
+        assertThat(split.toList()).isEqualTo(Arrays.asList(null, new BigDecimal("5.00"), null));
+        assertThat(InterestOverdueSplit.of(null).isEmpty()).isTrue();
+    }
+
+    @Test
+    void arrayRoundTripMapsNullBuckets() {
+        Long[] column = {100L, null, 250L};
+
+        InterestOverdueSplit split = InterestOverdueSplit.fromArray(column);
+
+        assertThat(split.paiseAt(1)).isEqualTo(NULL_BUCKET);
+        assertThat(split.toArray()).isEqualTo(column);
+        assertThat(split).isEqualTo(InterestOverdueSplit.ofPaise(100L, NULL_BUCKET, 250L));
+    }
+
+    @Test
+    void consumePaysOldestEntriesFirst() {
+        InterestOverdueSplit split = InterestOverdueSplit.ofPaise(1000L, 2000L, 3000L);
+
+        long paid = split.consume(2500L);
+
+        assertThat(paid).isEqualTo(2500L);
+        assertThat(split).isEqualTo(InterestOverdueSplit.ofPaise(500L, 3000L));
+    }
+
+    @Test
+    void consumeDropsNullEntriesAndStopsAtTheSum() {
+        InterestOverdueSplit split = InterestOverdueSplit.ofPaise(NULL_BUCKET, 1000L, NULL_BUCKET, 2000L);
+
+        long paid = split.consume(5000L);
+
+        assertThat(paid).isEqualTo(3000L);
+        assertThat(split.isEmpty()).isTrue();
+    }
+
+    @Test
+    void consumeOfNothingOnlyDropsNullEntries() {
+        InterestOverdueSplit split = InterestOverdueSplit.ofPaise(1000L, NULL_BUCKET, 2000L);
+
+        assertThat(split.consume(0L)).isEqualTo(0L);
+        assertThat(split).isEqualTo(InterestOverdueSplit.ofPaise(1000L, 2000L));
+    }
+
+    @Test
+    void removeAtShiftsLaterEntriesDown() {
+        InterestOverdueSplit split = InterestOverdueSplit.ofPaise(1000L, NULL_BUCKET, 3000L);
+
+        assertThat(split.removeAt(1)).isEqualTo(NULL_BUCKET);
+        assertThat(split.removeAt(0)).isEqualTo(1000L);
+        assertThat(split).isEqualTo(InterestOverdueSplit.ofPaise(3000L));
+        assertThatThrownBy(() -> split.removeAt(1)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void containsSumAndHasValuesIgnoreNullEntries() {
+        InterestOverdueSplit split = InterestOverdueSplit.ofPaise(NULL_BUCKET, 1000L, 2500L);
+
+        assertThat(split.contains(2500L)).isTrue();
+        assertThat(split.contains(NULL_BUCKET)).isFalse();
+        assertThat(split.sum()).isEqualTo(3500L);
+        assertThat(split.hasValues()).isTrue();
+        assertThat(InterestOverdueSplit.ofPaise(NULL_BUCKET, NULL_BUCKET).hasValues()).isFalse();
+        assertThat(InterestOverdueSplit.ofPaise(NULL_BUCKET).sum()).isEqualTo(0L);
+    }
+
+    @Test
+    void addGrowsAndCopyIsIndependent() {
+        InterestOverdueSplit split = InterestOverdueSplit.empty();
+        for (long paise = 1; paise <= 10; paise++) {
+            split.add(paise);
+        }
+        InterestOverdueSplit copy = split.copy();
+
+        copy.consume(55L);
+
+        assertThat(split.size()).isEqualTo(10);
+        assertThat(split.sum()).isEqualTo(55L);
+        assertThat(copy.isEmpty()).isTrue();
+    }
+
+    @Test
+    void sumFailsOnOverflow() {
+        InterestOverdueSplit split = InterestOverdueSplit.ofPaise(Long.MAX_VALUE, 1L);
+
+        assertThatThrownBy(split::sum).isInstanceOf(ArithmeticException.class);
+    }
+}
@@ -0,0 +1,86 @@
+package com.finvolv.selldown.service;
+
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnWidthModelTest {
+
+    @Test
+    void displayLengthShowsNumbersAsGeneralFormat() {
+        assertThat(ColumnWidthModel.displayLength(0.0)).isEqualTo(1);
+        assertThat(ColumnWidthModel.displayLength(100.0)).isEqualTo(3);
+        assertThat(ColumnWidthModel.displayLength(1234.5)).isEqualTo(6);
+        assertThat(ColumnWidthModel.displayLength(-12.25)).isEqualTo(6);
+        assertThat(ColumnWidthModel.displayLength(0.1)).isEqualTo(3);
+    }
+
+    @Test
+    void displayLengthIsCappedAtElevenCharacters() {
+        assertThat(ColumnWidthModel.displayLength(12345678901.0)).isEqualTo(11);
+        assertThat(ColumnWidthModel.displayLength(1e20)).isEqualTo(11);
+        assertThat(ColumnWidthModel.displayLength(1.0 / 3.0)).isEqualTo(11);
+    }
+
+    @Test
+    void displayLengthOfNonFiniteValues() {
+        assertThat(ColumnWidthModel.displayLength(Double.NaN)).isEqualTo(3);
+        assertThat(ColumnWidthModel.displayLength(Double.POSITIVE_INFINITY)).isEqualTo(8);
+        assertThat(ColumnWidthModel.displayLength(Double.NEGATIVE_INFINITY)).isEqualTo(9);
+    }
+
+    @Test
+    void widthFollowsTheLongestHeaderOrValue() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            XSSFSheet sheet = workbook.createSheet();
+            ColumnWidthModel widths = new ColumnWidthModel(2);
+            widths.header(0, "Name");
+            widths.value(0, "abc");
+            widths.value(0, null);
+            widths.header(1, "ID");
+            widths.value(1, "A longer value");
+
+            widths.applyTo(sheet);
+
+            // Bold header: 4 characters x 1.1, plus one character of padding
+            assertThat(sheet.getColumnWidth(0)).isEqualTo(Math.round(5.4f * 256));
+            assertThat(sheet.getColumnWidth(1)).isEqualTo(15 * 256);
+        }
+    }
+
+    @Test
+    void summedColumnFitsItsTotal() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            XSSFSheet sheet = workbook.createSheet();
+            ColumnWidthModel widths = new ColumnWidthModel(2);
+            for (int column = 0; column < 2; column++) {
+                widths.value(column, 12345.5);
+                widths.value(column, 99.25);
+            }
+            widths.sumColumn(1);
+
+            widths.applyTo(sheet);
+
+            // 12345.5 is 7 characters; the total 12444.75 is 8
+            assertThat(sheet.getColumnWidth(0)).isEqualTo(8 * 256);
+            assertThat(sheet.getColumnWidth(1)).isEqualTo(9 * 256);
+        }
+    }
+
+    @Test
+    void widthIsCappedAtExcelsMaximum() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            XSSFSheet sheet = workbook.createSheet();
+            ColumnWidthModel widths = new ColumnWidthModel(1);
+            widths.value(0, "x".repeat(300));
+
+            widths.applyTo(sheet);
+
+            assertThat(sheet.getColumnWidth(0)).isEqualTo(255 * 256);
+        }
+    }
+}
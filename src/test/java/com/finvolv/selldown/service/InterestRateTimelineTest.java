@@ -0,0 +1,180 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestRateChange;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InterestRateTimelineTest {
+
+    private static final BigDecimal BASE = new BigDecimal("100000.00");
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void emptyRateTableHasNoInterest() {
+        InterestRateTimeline timeline = InterestRateTimeline.compile(List.of());
+
+        assertThat(timeline.isEmpty()).isTrue();
+        assertThat(timeline.interest(BASE, JAN_1, JAN_1.plusDays(31), Deal.InterestMethod.ACTUAL_BY_365, 0.12)).isNull();
+    }
+
+    @Test
+    void singlePeriodCoversTheCycle() {
+        InterestRateTimeline timeline = InterestRateTimeline.compile(List.of(period(0.12, JAN_1, null)));
+
+        // 100000 x 0.12 x 73 / 365
+        assertThat(timeline.interest(BASE, JAN_1, LocalDate.of(2024, 3, 14), Deal.InterestMethod.ACTUAL_BY_365, 0.10))
+            .isEqualTo(new BigDecimal("2400.00"));
+    }
+
+    @Test
+    void uncoveredDaysUseTheDefaultRate() {
+        InterestRateTimeline timeline = InterestRateTimeline.compile(List.of(period(0.12, LocalDate.of(2024, 1, 11), null)));
+
+        // 10 days at 0.06 and 20 days at 0.12, ACTUAL_BY_360
+        assertThat(timeline.interest(BASE, JAN_1, LocalDate.of(2024, 1, 31), Deal.InterestMethod.ACTUAL_BY_360, 0.06))
+            .isEqualTo(new BigDecimal("833.33"));
+        // Without a default rate the uncovered days earn nothing
+        assertThat(timeline.interest(BASE, JAN_1, LocalDate.of(2024, 1, 31), Deal.InterestMethod.ACTUAL_BY_360, null))
+            .isEqualTo(new BigDecimal("666.67"));
+    }
+
+    @Test
+    void periodsWithoutStartDateNeverApply() {
+        InterestRateTimeline timeline = InterestRateTimeline.compile(List.of(period(0.50, null, null)));
+
+        assertThat(timeline.isEmpty()).isFalse();
+        assertThat(timeline.interest(BASE, JAN_1, LocalDate.of(2024, 1, 31), Deal.InterestMethod.ACTUAL_BY_360, 0.12))
+            .isEqualTo(new BigDecimal("1000.00"));
+    }
+
+    @Test
+    void notPositiveInterestIsNull() {
+        InterestRateTimeline timeline = InterestRateTimeline.compile(List.of(period(0.0, JAN_1, null)));
+
+        assertThat(timeline.interest(BASE, JAN_1, LocalDate.of(2024, 1, 31), Deal.InterestMethod.ACTUAL_BY_360, 0.12)).isNull();
+        assertThat(timeline.interest(BASE, JAN_1, JAN_1, Deal.InterestMethod.ACTUAL_BY_360, 0.12)).isNull();
+        assertThat(timeline.interest(null, JAN_1, LocalDate.of(2024, 1, 31), Deal.InterestMethod.ACTUAL_BY_360, 0.12)).isNull();
+    }
+
+    @Test
+    void fingerprintDependsOnContentNotOrder() {
+        InterestRateChange first = period(0.12, JAN_1, LocalDate.of(2024, 6, 30));
+        InterestRateChange second = period(0.10, LocalDate.of(2024, 7, 1), null);
+
+        String fingerprint = InterestRateTimeline.compile(List.of(first, second)).getFingerprint();
+
+        assertThat(InterestRateTimeline.compile(List.of(second, first)).getFingerprint()).isEqualTo(fingerprint);
+        assertThat(InterestRateTimeline.compile(List.of(first, period(0.11, LocalDate.of(2024, 7, 1), null))).getFingerprint())
+            .isNotEqualTo(fingerprint);
+        assertThat(InterestRateTimeline.compile(List.of()).getFingerprint())
+            .isNotEqualTo(InterestRateTimeline.compile(List.of(period(0.12, null, null))).getFingerprint());
+    }
+
+    @Test
+    void interestMultiplierPerMethod() {
+        LocalDate leapStart = LocalDate.of(2024, 2, 1);
+        LocalDate start = LocalDate.of(2023, 2, 1);
+
+        assertThat(InterestRateTimeline.interestMultiplier(Deal.InterestMethod.ONE_TWELFTH, start, start.plusDays(28), 28)).isEqualTo(1.0 / 12.0);
+        assertThat(InterestRateTimeline.interestMultiplier(Deal.InterestMethod.ACTUAL_BY_360, start, start.plusDays(36), 36)).isEqualTo(0.1);
+        assertThat(InterestRateTimeline.interestMultiplier(Deal.InterestMethod.ACTUAL_BY_365, start, start.plusDays(73), 73)).isEqualTo(0.2);
+        assertThat(InterestRateTimeline.interestMultiplier(Deal.InterestMethod.ACTUAL_BY_ACTUAL, leapStart, leapStart.plusDays(183), 183)).isEqualTo(0.5);
+        assertThat(InterestRateTimeline.interestMultiplier(Deal.InterestMethod.ACTUAL_BY_ACTUAL, start, start.plusDays(73), 73)).isEqualTo(0.2);
+        assertThat(InterestRateTimeline.interestMultiplier(null, start, start.plusDays(36), 36)).isEqualTo(0.1);
+    }
+
+    @Test
+    void matchesScanningEveryPeriodOnRandomRateTables() {
+        Random random = new Random(20240101L);
+        for (int table = 0; table < 500; table++) {
+            List<InterestRateChange> rateTable = randomRateTable(random);
+            InterestRateTimeline timeline = InterestRateTimeline.compile(rateTable);
+            for (int cycle = 0; cycle < 20; cycle++) {
+                LocalDate start = JAN_1.plusDays(random.nextInt(730));
+                LocalDate end = start.plusDays(random.nextInt(70) - 5);
+                Deal.InterestMethod method = Deal.InterestMethod.values()[random.nextInt(Deal.InterestMethod.values().length)];
+                Double defaultRate = random.nextInt(5) == 0 ? null : random.nextInt(2000) / 10000.0;
+                BigDecimal base = BigDecimal.valueOf(random.nextInt(10_000_000), 2);
+
+                assertThat(timeline.interest(base, start, end, method, defaultRate))
+                    .as("table %d, cycle %s..%s, %s, default rate %s", table, start, end, method, defaultRate)
+                    .isEqualTo(scanInterest(rateTable, base, start, end, method, defaultRate));
+            }
+        }
+    }
+
+    private static List<InterestRateChange> randomRateTable(Random random) {
+        int size = 1 + random.nextInt(8);
+        List<InterestRateChange> rateTable = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LocalDate start = random.nextInt(10) == 0 ? null : JAN_1.plusDays(random.nextInt(800) - 30);
+            LocalDate end = start == null || random.nextInt(4) == 0 ? null : start.plusDays(random.nextInt(200) - 10);
+            rateTable.add(period(random.nextInt(2500) / 10000.0, start, end));
+        }
+        return rateTable;
+    }
+
+    /**
+     * Every period of the table checked against the cycle, as the calculation did before rate
+     * tables were compiled
+     */
+    private static BigDecimal scanInterest(List<InterestRateChange> rateTable, BigDecimal baseAmount, LocalDate startDate,
+                                           LocalDate endDate, Deal.InterestMethod interestMethod, Double defaultRate) {
+        long totalDays = ChronoUnit.DAYS.between(startDate, endDate);
+        if (totalDays <= 0) {
+            return null;
+        }
+
+        BigDecimal totalInterest = BigDecimal.ZERO;
+        long totalOverlapDays = 0;
+        for (InterestRateChange entry : rateTable) {
+            LocalDate rateStart = entry.getStartDate();
+            if (rateStart == null) {
+                continue;
+            }
+            LocalDate rateEnd = entry.getEndDate() != null ? entry.getEndDate() : LocalDate.MAX;
+            LocalDate overlapStart = rateStart.isAfter(startDate) ? rateStart : startDate;
+            LocalDate overlapEnd = rateEnd.isBefore(endDate) ? rateEnd : endDate;
+            if (overlapStart.isAfter(overlapEnd)) {
+                continue;
+            }
+            long overlapDays = ChronoUnit.DAYS.between(overlapStart, overlapEnd);
+            if (overlapDays > 0) {
+                double multiplier = InterestRateTimeline.interestMultiplier(interestMethod, overlapStart, overlapEnd, overlapDays);
+                totalInterest = totalInterest.add(baseAmount
+                    .multiply(BigDecimal.valueOf(entry.getInterestRate()))
+                    .multiply(BigDecimal.valueOf(multiplier))
+                    .setScale(10, RoundingMode.HALF_UP));
+                totalOverlapDays += overlapDays;
+            }
+        }
+
+        if (totalOverlapDays < totalDays && defaultRate != null) {
+            double multiplier = InterestRateTimeline.interestMultiplier(interestMethod, startDate, endDate, totalDays - totalOverlapDays);
+            totalInterest = totalInterest.add(baseAmount
+                .multiply(BigDecimal.valueOf(defaultRate))
+                .multiply(BigDecimal.valueOf(multiplier))
+                .setScale(10, RoundingMode.HALF_UP));
+        }
+
+        return totalInterest.compareTo(BigDecimal.ZERO) > 0 ? totalInterest.setScale(2, RoundingMode.HALF_UP) : null;
+    }
+
+    private static InterestRateChange period(double rate, LocalDate startDate, LocalDate endDate) {
+        return InterestRateChange.builder()
+            .interestRate(rate)
+            .startDate(startDate)
+            .endDate(endDate)
+            .build();
+    }
+}
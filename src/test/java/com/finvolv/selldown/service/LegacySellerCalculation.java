@@ -0,0 +1,463 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import com.finvolv.selldown.model.InterestRateChange;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * The reactive calculateSellerFields of PartnerPayoutDetailsAllService as it was before
+ * {@link SellerCalculationEngine} replaced it, kept as the reference the engine is compared with.
+ * The code is unchanged except for its inputs: the previous month's entry, the loan detail and the
+ * deal's rate table are passed in instead of read from the repositories, and the split is handled
+ * as a List&lt;BigDecimal&gt; (the jsonb column of the time) and returned as the payout's
+ * {@link InterestOverdueSplit}. Only the seller fields of the payout are written.
+ */
+class LegacySellerCalculation {
+
+    private final List<InterestRateChange> rateTable;
+
+    LegacySellerCalculation(List<InterestRateChange> rateTable) {
+        this.rateTable = rateTable;
+    }
+
+    /**
+     * previousEntry is the LAN's row of the previous month (null when there is none) and loanDetail
+     * the LAN's loan detail (null when there is none)
+     */
+    Mono<PartnerPayoutDetailsAll> calculateSellerFields(PartnerPayoutDetailsAll payoutDetail, Deal deal, LoanDetail loanDetail,
+                                                         PartnerPayoutDetailsAll previousEntry) {
+        if (deal == null || deal.getAssignRatio() == null || deal.getAnnualInterestRate() == null) {
+            return Mono.just(payoutDetail);
+        }
+
+        Double assignRatio = deal.getAssignRatio();
+        Double annualInterestRate = deal.getAnnualInterestRate();
+        Deal.InterestMethod interestMethod = deal.getInterestMethod();
+
+        // Calculate days between cycle start and end date (make it final for lambda usage)
+        final long daysBetween = (payoutDetail.getCycleStartDate() != null && payoutDetail.getCycleEndDate() != null) ?
+            ChronoUnit.DAYS.between(
+                payoutDetail.getCycleStartDate(),
+                payoutDetail.getCycleEndDate()
+            ) : 0L;
+
+        // Calculate seller fields by multiplying with assigned ratio for POS related fields
+        payoutDetail.setSellerOpeningPos(calculateValue(payoutDetail.getOpeningPos(), assignRatio));
+
+        payoutDetail.setSellerClosingPos(calculateValue(payoutDetail.getClosingPos(), assignRatio));
+        payoutDetail.setSellerTotalPrincipalDue(calculateValue(payoutDetail.getTotalPrincipalDue(), assignRatio));
+        payoutDetail.setSellerPrincipalOverdue(calculateValue(payoutDetail.getPrincipalOverdue(), assignRatio));
+        payoutDetail.setSellerTotalPrincipalComponentPaid(calculateValue(payoutDetail.getTotalPrincipalComponentPaid(), assignRatio));
+        payoutDetail.setSellerPrincipalOverduePaid(calculateValue(payoutDetail.getPrincipalOverduePaid(), assignRatio));
+        payoutDetail.setSellerForeclosurePaid(calculateValue(payoutDetail.getForeclosurePaid(), assignRatio));
+        payoutDetail.setSellerForeclosureChargesPaid(calculateValue(payoutDetail.getForeclosureChargesPaid(), assignRatio));
+        payoutDetail.setSellerPrepaymentPaid(calculateValue(payoutDetail.getPrepaymentPaid(), assignRatio));
+        payoutDetail.setSellerPrepaymentChargesPaid(calculateValue(payoutDetail.getPrepaymentChargesPaid(), assignRatio));
+        payoutDetail.setSellerTotalChargesPaid(calculateValue(payoutDetail.getTotalChargesPaid(), assignRatio));
+
+        // Calculate interest based on seller opening position, interest rate, and interest method
+        // Calculate interest for each rate period separately and sum them (not using weighted average)
+        BigDecimal baseAmount = payoutDetail.getSellerOpeningPos() != null && payoutDetail.getSellerPrincipalOverdue() != null ?
+            payoutDetail.getSellerOpeningPos().subtract(payoutDetail.getSellerPrincipalOverdue()) : BigDecimal.ZERO;
+
+        return calculateInterestByRatePeriodsReactive(baseAmount, payoutDetail.getCycleStartDate(), payoutDetail.getCycleEndDate(), interestMethod, annualInterestRate)
+            .switchIfEmpty(Mono.defer(() -> {
+                // Fall back to deal's annual interest rate if no rate changes
+                if (baseAmount.compareTo(BigDecimal.ZERO) > 0 && daysBetween > 0) {
+                    Double interestMultiplier = calculateInterestMultiplier(
+                        interestMethod,
+                        payoutDetail.getCycleStartDate(),
+                        payoutDetail.getCycleEndDate(),
+                        daysBetween
+                    );
+                    BigDecimal calculatedInterest = baseAmount
+                        .multiply(BigDecimal.valueOf(annualInterestRate))
+                        .multiply(BigDecimal.valueOf(interestMultiplier))
+                        .setScale(2, RoundingMode.HALF_UP);
+                    return Mono.just(calculatedInterest);
+                }
+                return Mono.just(BigDecimal.ZERO);
+            }))
+            .flatMap(calculatedInterest -> {
+
+                // First, get sellerInterestOverdueSplit from previous month or loan details
+                return getSellerInterestOverdueSplitReactive(payoutDetail, loanDetail, previousEntry)
+                    .flatMap(splitArray -> {
+                        // Working split (the entity field of the time)
+                        List<BigDecimal> sellerInterestOverdueSplit = splitArray;
+
+                        // If array is empty and DPD has a value, add calculated interest to the array
+                        Integer closingDpd = payoutDetail.getClosingDpd() != null ? payoutDetail.getClosingDpd() : 0;
+                        if ((splitArray == null || splitArray.isEmpty()) && closingDpd != null && closingDpd > 0) {
+                            List<BigDecimal> newSplitArray = new java.util.ArrayList<>();
+                            newSplitArray.add(calculatedInterest);
+                            sellerInterestOverdueSplit = newSplitArray;
+                        }
+                        final List<BigDecimal> openingSplit = sellerInterestOverdueSplit;
+
+                        // Now calculate sellerInterestOverdue (initial calculation, will be updated based on array)
+                        return calculateSellerInterestOverdueReactive(payoutDetail, loanDetail, previousEntry)
+                            .map(sellerInterestOverdue -> {
+                                payoutDetail.setSellerInterestOverdue(sellerInterestOverdue);
+
+                                BigDecimal totalInterestComponentPaid = payoutDetail.getTotalInterestComponentPaid() != null ?
+                                    payoutDetail.getTotalInterestComponentPaid() : BigDecimal.ZERO;
+                                BigDecimal interestOverduePaid = payoutDetail.getInterestOverduePaid() != null ?
+                                    payoutDetail.getInterestOverduePaid() : BigDecimal.ZERO;
+
+                                // STEP 1: Initialize the split array (contains older pending interests)
+                                List<BigDecimal> splitArrayForCalculation = openingSplit;
+                                if (splitArrayForCalculation == null) {
+                                    splitArrayForCalculation = new java.util.ArrayList<>();
+                                }
+
+                                Integer closingDpdForCalculation = payoutDetail.getClosingDpd() != null ? payoutDetail.getClosingDpd() : 0;
+
+                                // STEP 2: Calculate values needed for logic
+                                BigDecimal interestAfterPrincipal = totalInterestComponentPaid.subtract(interestOverduePaid);
+
+                                // Calculate plain calculated interest for comparison
+                                BigDecimal plainCalculatedInterest = BigDecimal.ZERO;
+                                if (baseAmount.compareTo(BigDecimal.ZERO) > 0 && daysBetween > 0) {
+                                    Double interestMultiplier = calculateInterestMultiplier(
+                                        interestMethod,
+                                        payoutDetail.getCycleStartDate(),
+                                        payoutDetail.getCycleEndDate(),
+                                        daysBetween
+                                    );
+                                    plainCalculatedInterest = baseAmount
+                                        .multiply(BigDecimal.valueOf(annualInterestRate))
+                                        .multiply(BigDecimal.valueOf(interestMultiplier))
+                                        .setScale(2, RoundingMode.HALF_UP);
+                                }
+
+                                // Check if normal interest is paid
+                                boolean normalInterestPaid = interestAfterPrincipal.compareTo(new BigDecimal("100")) > 0 &&
+                                                             interestAfterPrincipal.compareTo(plainCalculatedInterest) > 0;
+
+                                // STEP 3: Handle interestOverduePaid collection
+                                // If interestOverduePaid is collected, remove that amount from bucket starting from oldest
+                                BigDecimal sellerInterestOverduePaid = BigDecimal.ZERO;
+
+                                if (interestOverduePaid.compareTo(BigDecimal.ZERO) > 0 && !splitArrayForCalculation.isEmpty()) {
+                                    BigDecimal sellerInterestOverduePaidToRemove = calculateValue(interestOverduePaid, assignRatio);
+                                    BigDecimal remainingToRemove = sellerInterestOverduePaidToRemove;
+                                    List<BigDecimal> newArray = new java.util.ArrayList<>();
+
+                                    // Remove from array starting from index 0 (oldest) until collected amount is covered
+                                    for (int i = 0; i < splitArrayForCalculation.size(); i++) {
+                                        BigDecimal currentValue = splitArrayForCalculation.get(i);
+
+                                        if (currentValue != null && remainingToRemove.compareTo(BigDecimal.ZERO) > 0) {
+                                            if (currentValue.compareTo(remainingToRemove) <= 0) {
+                                                // Entire value is covered by collection
+                                                sellerInterestOverduePaid = sellerInterestOverduePaid.add(currentValue);
+                                                remainingToRemove = remainingToRemove.subtract(currentValue);
+                                            } else {
+                                                // Partially covered - split the value
+                                                sellerInterestOverduePaid = sellerInterestOverduePaid.add(remainingToRemove);
+                                                BigDecimal remainingValue = currentValue.subtract(remainingToRemove);
+                                                newArray.add(remainingValue);
+                                                remainingToRemove = BigDecimal.ZERO;
+                                            }
+                                        } else if (currentValue != null) {
+                                            // No more to remove, keep this value
+                                            newArray.add(currentValue);
+                                        }
+                                    }
+
+                                    splitArrayForCalculation = newArray;
+                                }
+
+                                // STEP 4: Handle normal interest paid scenario
+                                // When normal interest is paid, also mark seller overdue interest as paid based on DPD
+                                if (normalInterestPaid && !splitArrayForCalculation.isEmpty()) {
+                                    if (closingDpdForCalculation == 0) {
+                                        // DPD is 0: all overdue interest is paid
+                                        BigDecimal allRemaining = splitArrayForCalculation.stream()
+                                            .filter(val -> val != null)
+                                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+                                        sellerInterestOverduePaid = sellerInterestOverduePaid.add(allRemaining);
+                                        splitArrayForCalculation.clear();
+                                    } else {
+                                        // Determine which bucket to use based on DPD
+                                        int indexToUse = -1;
+                                        if (closingDpdForCalculation >= 1 && closingDpdForCalculation <= 30) {
+                                            indexToUse = 0; // DPD 1-30: first value (index 0)
+                                        } else if (closingDpdForCalculation >= 31 && closingDpdForCalculation <= 60) {
+                                            indexToUse = 1; // DPD 31-60: second value (index 1)
+                                        } else if (closingDpdForCalculation >= 61 && closingDpdForCalculation <= 90) {
+                                            indexToUse = 2; // DPD 61-90: third value (index 2)
+                                        }
+
+                                        // Remove the value from the array based on DPD bucket
+                                        if (indexToUse >= 0 && indexToUse < splitArrayForCalculation.size()) {
+                                            BigDecimal valueToRemove = splitArrayForCalculation.get(indexToUse) != null ?
+                                                splitArrayForCalculation.get(indexToUse) : BigDecimal.ZERO;
+
+                                            sellerInterestOverduePaid = sellerInterestOverduePaid.add(valueToRemove);
+                                            splitArrayForCalculation.remove(indexToUse);
+                                        }
+                                    }
+                                }
+
+                                // STEP 5: Always add current calculated interest to array if DPD > 0
+                                if (closingDpdForCalculation > 0) {
+                                    boolean alreadyExists = splitArrayForCalculation.stream()
+                                        .anyMatch(val -> val != null && val.compareTo(calculatedInterest) == 0);
+
+                                    if (!alreadyExists) {
+                                        splitArrayForCalculation.add(calculatedInterest);
+                                    }
+                                }
+
+                                // STEP 6: Update the array back to the payout detail
+                                payoutDetail.setSellerInterestOverdueSplit(InterestOverdueSplit.of(splitArrayForCalculation));
+                                payoutDetail.setSellerInterestOverduePaid(sellerInterestOverduePaid);
+
+                                // STEP 7: sellerTotalInterestDue = calculatedInterest + opening sellerInterestOverdue
+                                BigDecimal openingSellerInterestOverdue = sellerInterestOverdue;
+                                BigDecimal sellerTotalInterestDue = calculatedInterest.add(openingSellerInterestOverdue)
+                                    .setScale(2, RoundingMode.HALF_UP);
+                                payoutDetail.setSellerTotalInterestDue(sellerTotalInterestDue);
+
+                                // STEP 8: Calculate sellerTotalInterestComponentPaid
+                                BigDecimal sellerTotalInterestComponentPaid = BigDecimal.ZERO;
+
+                                if (totalInterestComponentPaid.compareTo(BigDecimal.ZERO) > 0) {
+                                    if (normalInterestPaid) {
+                                        sellerTotalInterestComponentPaid = calculatedInterest.add(sellerInterestOverduePaid)
+                                            .setScale(4, RoundingMode.HALF_UP);
+                                    } else {
+                                        sellerTotalInterestComponentPaid = sellerInterestOverduePaid
+                                            .setScale(4, RoundingMode.HALF_UP);
+                                    }
+                                }
+                                payoutDetail.setSellerTotalInterestComponentPaid(sellerTotalInterestComponentPaid);
+
+                                // STEP 9: Closing interest = sellerTotalInterestDue - sellerTotalInterestComponentPaid
+                                BigDecimal closingInterestOverdue = sellerTotalInterestDue.subtract(sellerTotalInterestComponentPaid)
+                                    .setScale(2, RoundingMode.HALF_UP);
+
+                                // Ensure non-negative
+                                if (closingInterestOverdue.compareTo(BigDecimal.ZERO) < 0) {
+                                    closingInterestOverdue = BigDecimal.ZERO;
+                                }
+
+                                payoutDetail.setSellerInterestOverdue(closingInterestOverdue);
+
+                                //Adding Total paid
+                                BigDecimal totalPaid = payoutDetail.getSellerTotalPrincipalComponentPaid().add(payoutDetail.getSellerTotalInterestComponentPaid()).add(payoutDetail.getSellerTotalChargesPaid().add(payoutDetail.getSellerPrepaymentPaid()).add(payoutDetail.getSellerForeclosurePaid()));
+                                payoutDetail.setSellerTotalPaid(totalPaid);
+
+                                return payoutDetail;
+                            });
+                    });
+            });
+    }
+
+    /**
+     * Previous month's sellerInterestOverdueSplit, else the loan detail's assignedInterestOverdueSplit
+     */
+    private Mono<List<BigDecimal>> getSellerInterestOverdueSplitReactive(PartnerPayoutDetailsAll payoutDetail, LoanDetail loanDetail,
+                                                                        PartnerPayoutDetailsAll previousEntry) {
+        if (payoutDetail.getLmsLan() == null) {
+            return Mono.just(java.util.Collections.emptyList());
+        }
+
+        Mono<LoanDetail> loanDetailMono = Mono.justOrEmpty(loanDetail);
+
+        return Mono.justOrEmpty(previousEntry)
+            .map(entry -> {
+                // Previous month entry found - use its sellerInterestOverdueSplit
+                List<BigDecimal> prevSplit = entry.getSellerInterestOverdueSplit() != null
+                    ? entry.getSellerInterestOverdueSplit().toList() : null;
+                if (prevSplit != null && !prevSplit.isEmpty()) {
+                    return prevSplit;
+                }
+                // If previous month has empty/null split, return empty list to trigger fallback
+                return java.util.Collections.<BigDecimal>emptyList();
+            })
+            .switchIfEmpty(Mono.defer(() -> {
+                // No previous month entry - fall back to loan details
+                return Mono.just(java.util.Collections.<BigDecimal>emptyList());
+            }))
+            .flatMap(splitFromPrevMonth -> {
+                if (splitFromPrevMonth != null && !splitFromPrevMonth.isEmpty()) {
+                    return Mono.just(splitFromPrevMonth);
+                }
+                // Fall back to loan details
+                return loanDetailMono
+                    .map(ld -> {
+                        if (ld.getAssignedInterestOverdueSplit() != null && !ld.getAssignedInterestOverdueSplit().isEmpty()) {
+                            return ld.getAssignedInterestOverdueSplit().toList();
+                        }
+                        return java.util.Collections.<BigDecimal>emptyList();
+                    })
+                    .switchIfEmpty(Mono.just(java.util.Collections.<BigDecimal>emptyList()));
+            });
+    }
+
+    /**
+     * Previous month's unpaid interest (sellerTotalInterestDue - sellerTotalInterestComponentPaid),
+     * else the loan detail's currentAssignedOverdueInterest
+     */
+    private Mono<BigDecimal> calculateSellerInterestOverdueReactive(PartnerPayoutDetailsAll payoutDetail, LoanDetail loanDetail,
+                                                                    PartnerPayoutDetailsAll previousEntry) {
+        if (payoutDetail.getLmsLan() == null) {
+            return Mono.just(BigDecimal.ZERO);
+        }
+
+        Mono<LoanDetail> loanDetailMono = Mono.justOrEmpty(loanDetail);
+
+        return Mono.justOrEmpty(previousEntry)
+            .flatMap(entry -> {
+                // Previous month entry found - calculate from it
+                BigDecimal prevSellerTotalInterestDue = entry.getSellerTotalInterestDue() != null ?
+                    entry.getSellerTotalInterestDue() : BigDecimal.ZERO;
+                BigDecimal prevSellerTotalInterestComponentPaid = entry.getSellerTotalInterestComponentPaid() != null ?
+                    entry.getSellerTotalInterestComponentPaid() : BigDecimal.ZERO;
+
+                BigDecimal sellerInterestOverdue = prevSellerTotalInterestDue.subtract(prevSellerTotalInterestComponentPaid)
+                    .setScale(2, RoundingMode.HALF_UP);
+
+                // Ensure non-negative (if overpaid, overdue is 0)
+                if (sellerInterestOverdue.compareTo(BigDecimal.ZERO) < 0) {
+                    sellerInterestOverdue = BigDecimal.ZERO;
+                }
+
+                return Mono.just(sellerInterestOverdue);
+            })
+            .switchIfEmpty(
+                // No previous month entry - this is the first month, use loan details data
+                loanDetailMono
+                    .map(ld -> {
+                        if (ld.getCurrentAssignedOverdueInterest() != null) {
+                            return BigDecimal.valueOf(ld.getCurrentAssignedOverdueInterest())
+                                .setScale(2, RoundingMode.HALF_UP);
+                        }
+                        return BigDecimal.ZERO;
+                    })
+                    .switchIfEmpty(Mono.just(BigDecimal.ZERO))
+            );
+    }
+
+    private Double calculateInterestMultiplier(Deal.InterestMethod interestMethod, LocalDate startDate, LocalDate endDate, long daysBetween) {
+        if (interestMethod == null) {
+            // Default fallback to ACTUAL_BY_360 if method is null
+            return daysBetween / 360.0;
+        }
+
+        switch (interestMethod) {
+            case ONE_TWELFTH:
+                return 1.0 / 12.0;
+
+            case ACTUAL_BY_360:
+                return daysBetween / 360.0;
+
+            case ACTUAL_BY_365:
+                return daysBetween / 365.0;
+
+            case ACTUAL_BY_ACTUAL:
+                // Use 366 for leap year, 365 otherwise
+                int actualDaysInYear = (startDate != null && startDate.isLeapYear()) ? 366 : 365;
+                return daysBetween / (double) actualDaysInYear;
+
+            default:
+                return daysBetween / 360.0;
+        }
+    }
+
+    private BigDecimal calculateValue(BigDecimal value, Double ratio) {
+        if (value == null || ratio == null) {
+            return BigDecimal.ZERO;
+        }
+        return value.multiply(BigDecimal.valueOf(ratio)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Interest per rate period of the deal's rate table, plus the default rate for uncovered days
+     */
+    private Mono<BigDecimal> calculateInterestByRatePeriodsReactive(BigDecimal baseAmount, LocalDate startDate, LocalDate endDate,
+                                                                    Deal.InterestMethod interestMethod, Double defaultRate) {
+        if (startDate == null || endDate == null || baseAmount == null || baseAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            return Mono.empty();
+        }
+
+        long totalDays = ChronoUnit.DAYS.between(startDate, endDate);
+        if (totalDays <= 0) {
+            return Mono.empty();
+        }
+
+        return Mono.just(rateTable)
+            .flatMap(rates -> {
+                if (rates == null || rates.isEmpty()) {
+                    return Mono.empty();
+                }
+
+                BigDecimal totalInterest = BigDecimal.ZERO;
+                long totalOverlapDays = 0;
+
+                for (InterestRateChange entry : rates) {
+                    LocalDate rateStart = entry.getStartDate();
+                    if (rateStart == null) {
+                        continue;
+                    }
+
+                    LocalDate rateEnd = entry.getEndDate() != null ? entry.getEndDate() : LocalDate.MAX;
+
+                    // Calculate overlap between cycle period and rate period
+                    LocalDate overlapStart = rateStart.isAfter(startDate) ? rateStart : startDate;
+                    LocalDate overlapEnd = rateEnd.isBefore(endDate) ? rateEnd : endDate;
+
+                    if (overlapStart.isAfter(overlapEnd)) {
+                        continue;
+                    }
+
+                    long overlapDays = ChronoUnit.DAYS.between(overlapStart, overlapEnd);
+
+                    if (overlapDays > 0) {
+                        double interestRate = entry.getInterestRate() != null ? entry.getInterestRate() : 0.0;
+                        Double periodMultiplier = calculateInterestMultiplier(interestMethod, overlapStart, overlapEnd, overlapDays);
+
+                        BigDecimal periodInterest = baseAmount
+                            .multiply(BigDecimal.valueOf(interestRate))
+                            .multiply(BigDecimal.valueOf(periodMultiplier))
+                            .setScale(10, RoundingMode.HALF_UP);
+
+                        totalInterest = totalInterest.add(periodInterest);
+                        totalOverlapDays += overlapDays;
+                    }
+                }
+
+                // If there are gaps in rate coverage, use default rate for uncovered days
+                if (totalOverlapDays < totalDays && defaultRate != null) {
+                    long uncoveredDays = totalDays - totalOverlapDays;
+                    Double uncoveredMultiplier = calculateInterestMultiplier(interestMethod, startDate, endDate, uncoveredDays);
+
+                    BigDecimal uncoveredInterest = baseAmount
+                        .multiply(BigDecimal.valueOf(defaultRate))
+                        .multiply(BigDecimal.valueOf(uncoveredMultiplier))
+                        .setScale(10, RoundingMode.HALF_UP);
+
+                    totalInterest = totalInterest.add(uncoveredInterest);
+                }
+
+                if (totalInterest.compareTo(BigDecimal.ZERO) > 0) {
+                    return Mono.just(totalInterest.setScale(2, RoundingMode.HALF_UP));
+                }
+
+                return Mono.empty();
+            });
+    }
+}
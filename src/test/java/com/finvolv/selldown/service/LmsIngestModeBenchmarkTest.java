@@ -0,0 +1,204 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.config.R2dbcConfig;
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.IngestMode;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import com.finvolv.selldown.repository.DealRepository;
+import com.finvolv.selldown.repository.LoanDetailRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the ROW, BULK and COPY ingest modes of {@link PartnerPayoutDetailsAllService#uploadLMSFile}
+ * on the same generated LMS file against PostgreSQL in a container. For each mode the file is
+ * uploaded into an empty month (inserts) and then again with every row changed (updates).
+ * Skipped unless run with -Dselldown.benchmark=true; -Dselldown.benchmark.rows sets the file size:
+ * mvn test -Dtest=LmsIngestModeBenchmarkTest -Dselldown.benchmark=true -Dselldown.benchmark.rows=20000
+ */
+@SpringBootTest(classes = LmsIngestModeBenchmarkTest.BenchmarkConfiguration.class,
+    webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Testcontainers
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "selldown.benchmark", matches = "true")
+class LmsIngestModeBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LmsIngestModeBenchmarkTest.class);
+
+    private static final int ROWS = Integer.getInteger("selldown.benchmark.rows", 5000);
+    private static final int WARMUP_ROWS = 500;
+    private static final int YEAR = 2030;
+    private static final long SEED = 42L;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+            + postgres.getFirstMappedPort() + "/" + postgres.getDatabaseName());
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+        registry.add("spring.liquibase.url", postgres::getJdbcUrl);
+        registry.add("spring.liquibase.user", postgres::getUsername);
+        registry.add("spring.liquibase.password", postgres::getPassword);
+    }
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EnableR2dbcRepositories(basePackageClasses = LoanDetailRepository.class)
+    @Import({R2dbcConfig.class, PartnerPayoutDetailsAllService.class, InterestRateTimelineCache.class,
+        SellerCalculationEngine.class, LmsFileParserService.class})
+    static class BenchmarkConfiguration {
+    }
+
+    @Autowired
+    private PartnerPayoutDetailsAllService partnerPayoutDetailsAllService;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private LoanDetailRepository loanDetailRepository;
+
+    @Test
+    void compareIngestModes() {
+        seedLoanDetails(Math.max(ROWS, WARMUP_ROWS));
+
+        // Warm up every mode (JIT, connection pool, statement caches) in months not measured
+        for (IngestMode mode : IngestMode.values()) {
+            upload(mode, 10 + mode.ordinal(), generateLmsFile(WARMUP_ROWS, 0));
+        }
+
+        Map<IngestMode, long[]> millisByMode = new EnumMap<>(IngestMode.class);
+        for (IngestMode mode : IngestMode.values()) {
+            int month = 1 + mode.ordinal();
+            long insertMillis = upload(mode, month, generateLmsFile(ROWS, 0));
+            long updateMillis = upload(mode, month, generateLmsFile(ROWS, 1));
+            millisByMode.put(mode, new long[] {insertMillis, updateMillis});
+        }
+
+        StringBuilder report = new StringBuilder(String.format("%nLMS ingest of %d rows%n%-6s %12s %12s%n", ROWS, "mode", "insert ms", "update ms"));
+        millisByMode.forEach((mode, millis) ->
+            report.append(String.format("%-6s %12d %12d%n", mode, millis[0], millis[1])));
+        logger.info(report.toString());
+
+        // Every mode must leave the same LMS values behind
+        Map<String, BigDecimal> expected = closingPosByLan(1 + IngestMode.ROW.ordinal());
+        assertThat(expected).hasSize(ROWS);
+        for (IngestMode mode : IngestMode.values()) {
+            assertThat(closingPosByLan(1 + mode.ordinal())).as("closing POS stored by %s", mode).isEqualTo(expected);
+        }
+    }
+
+    private long upload(IngestMode mode, int month, List<PartnerPayoutDetailsAll> lmsFile) {
+        int rows = lmsFile.size();
+        long start = System.nanoTime();
+        Long persisted = partnerPayoutDetailsAllService.uploadLMSFile(YEAR, month, lmsFile, mode).count().block();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertThat(persisted).as("rows persisted by %s", mode).isEqualTo(rows);
+        return millis;
+    }
+
+    private Map<String, BigDecimal> closingPosByLan(int month) {
+        return partnerPayoutDetailsAllService.getPayoutDetailsByYearAndMonth(YEAR, month)
+            .collectList()
+            .block()
+            .stream()
+            .collect(Collectors.toMap(PartnerPayoutDetailsAll::getLmsLan, payout -> payout.getClosingPos().stripTrailingZeros()));
+    }
+
+    private void seedLoanDetails(int count) {
+        Deal deal = dealRepository.save(Deal.builder()
+                .name("Ingest benchmark")
+                .status(Deal.DealStatus.IN_PROGRESS)
+                .assignRatio(0.9)
+                .annualInterestRate(0.12)
+                .interestMethod(Deal.InterestMethod.ACTUAL_BY_365)
+                .monthOnMonthDay(5)
+                .build())
+            .block();
+
+        List<LoanDetail> loanDetails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            loanDetails.add(LoanDetail.builder()
+                .dealId(deal.getId())
+                .partnerId(1L)
+                .lmsLan(lan(i))
+                .currentPOS(100_000.0)
+                .currentAssignedPOS(90_000.0)
+                .currentInterestRate(0.12)
+                .status(LoanDetail.LoanStatus.ACTIVE)
+                .createdAt(LocalDateTime.now())
+                .modifiedAt(LocalDateTime.now())
+                .build());
+        }
+        loanDetailRepository.saveAll(loanDetails).then().block();
+    }
+
+    /**
+     * The same rows for the same seed; revision shifts every amount so a re-upload changes every row
+     */
+    private static List<PartnerPayoutDetailsAll> generateLmsFile(int rows, int revision) {
+        Random random = new Random(SEED);
+        List<PartnerPayoutDetailsAll> payouts = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            BigDecimal openingPos = amount(random, 20_000, 500_000).add(BigDecimal.valueOf(revision));
+            BigDecimal principalPaid = amount(random, 1_000, 15_000);
+            BigDecimal interestPaid = amount(random, 100, 5_000);
+            int closingDpd = random.nextInt(4) == 0 ? random.nextInt(90) : 0;
+            payouts.add(PartnerPayoutDetailsAll.builder()
+                .lmsLan(lan(i))
+                .openingPos(openingPos)
+                .closingPos(openingPos.subtract(principalPaid))
+                .totalPrincipalDue(principalPaid)
+                .principalOverdue(BigDecimal.ZERO)
+                .totalPrincipalComponentPaid(principalPaid)
+                .principalOverduePaid(BigDecimal.ZERO)
+                .totalInterestDue(interestPaid)
+                .interestOverdue(BigDecimal.ZERO)
+                .totalInterestComponentPaid(interestPaid)
+                .interestOverduePaid(BigDecimal.ZERO)
+                .totalChargesPaid(BigDecimal.ZERO)
+                .totalPaid(principalPaid.add(interestPaid))
+                .openingDpd(0)
+                .closingDpd(closingDpd)
+                .build());
+        }
+        return payouts;
+    }
+
+    private static BigDecimal amount(Random random, int min, int max) {
+        return BigDecimal.valueOf(min * 100L + random.nextInt((max - min) * 100), 2);
+    }
+
+    private static String lan(int index) {
+        return String.format("BENCH%07d", index);
+    }
+}
@@ -0,0 +1,182 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import com.finvolv.selldown.model.InterestRateChange;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayoutContentHasherTest {
+
+    @Test
+    void rowHashIgnoresNumberScale() {
+        PartnerPayoutDetailsAll payout = payout("LAN001");
+        PartnerPayoutDetailsAll rescaled = payout("LAN001");
+        rescaled.setOpeningPos(new BigDecimal("100000"));
+        rescaled.setInterestOverdue(new BigDecimal("0.0000"));
+
+        assertThat(PayoutContentHasher.rowHash(rescaled)).isEqualTo(PayoutContentHasher.rowHash(payout));
+        assertThat(PayoutContentHasher.rowHash(payout)).hasSize(64);
+    }
+
+    @Test
+    void rowHashChangesWithLmsFields() {
+        String hash = PayoutContentHasher.rowHash(payout("LAN001"));
+
+        PartnerPayoutDetailsAll changed = payout("LAN001");
+        changed.setClosingPos(new BigDecimal("95000.01"));
+        PartnerPayoutDetailsAll cleared = payout("LAN001");
+        cleared.setTotalChargesPaid(null);
+        PartnerPayoutDetailsAll otherCycle = payout("LAN001");
+        otherCycle.setCycleEndDate(LocalDate.of(2024, 2, 6));
+
+        assertThat(PayoutContentHasher.rowHash(changed)).isNotEqualTo(hash);
+        assertThat(PayoutContentHasher.rowHash(cleared)).isNotEqualTo(hash);
+        assertThat(PayoutContentHasher.rowHash(otherCycle)).isNotEqualTo(hash);
+        assertThat(PayoutContentHasher.rowHash(payout("LAN002"))).isNotEqualTo(hash);
+    }
+
+    @Test
+    void rowHashIgnoresSellerAndAuditFields() {
+        PartnerPayoutDetailsAll payout = payout("LAN001");
+        String hash = PayoutContentHasher.rowHash(payout);
+
+        payout.setId(42L);
+        payout.setDealStatusId(7L);
+        payout.setSellerClosingPos(new BigDecimal("85500.00"));
+        payout.setSellerInterestOverdueSplit(InterestOverdueSplit.ofPaise(1000L));
+        payout.setCreatedAt(LocalDateTime.of(2024, 2, 1, 10, 0));
+
+        assertThat(PayoutContentHasher.rowHash(payout)).isEqualTo(hash);
+    }
+
+    @Test
+    void rowHashKeepsFieldsApart() {
+        // Without separators these two rows would hash the same text
+        PartnerPayoutDetailsAll first = PartnerPayoutDetailsAll.builder().lmsLan("LAN1").openingPos(new BigDecimal("23")).build();
+        PartnerPayoutDetailsAll second = PartnerPayoutDetailsAll.builder().lmsLan("LAN12").openingPos(new BigDecimal("3")).build();
+        PartnerPayoutDetailsAll emptyLan = PartnerPayoutDetailsAll.builder().lmsLan("").build();
+        PartnerPayoutDetailsAll nullLan = PartnerPayoutDetailsAll.builder().build();
+
+        assertThat(PayoutContentHasher.rowHash(first)).isNotEqualTo(PayoutContentHasher.rowHash(second));
+        assertThat(PayoutContentHasher.rowHash(emptyLan)).isNotEqualTo(PayoutContentHasher.rowHash(nullLan));
+    }
+
+    @Test
+    void fileHashMatchesStreamedDigestAndDependsOnOrder() {
+        List<PartnerPayoutDetailsAll> rows = List.of(payout("LAN001"), payout("LAN002"), payout("LAN003"));
+
+        MessageDigest streamed = PayoutContentHasher.newDigest();
+        rows.forEach(row -> PayoutContentHasher.update(streamed, row));
+
+        assertThat(PayoutContentHasher.hex(streamed)).isEqualTo(PayoutContentHasher.fileHash(rows));
+        assertThat(PayoutContentHasher.fileHash(List.of(rows.get(1), rows.get(0), rows.get(2))))
+            .isNotEqualTo(PayoutContentHasher.fileHash(rows));
+        assertThat(PayoutContentHasher.fileHash(rows.subList(0, 2))).isNotEqualTo(PayoutContentHasher.fileHash(rows));
+    }
+
+    @Test
+    void sellerInputHashCoversDealRateTableAndPreviousState() {
+        PartnerPayoutDetailsAll payout = payout("LAN001");
+        SellerCalculationInput input = new SellerCalculationInput(deal(0.12), timeline(0.12), previousEntry(1000L), loanDetail());
+        String hash = PayoutContentHasher.sellerInputHash(payout, input);
+
+        assertThat(PayoutContentHasher.sellerInputHash(payout("LAN001"),
+            new SellerCalculationInput(deal(0.12), timeline(0.12), previousEntry(1000L), loanDetail()))).isEqualTo(hash);
+        assertThat(PayoutContentHasher.sellerInputHash(payout,
+            new SellerCalculationInput(deal(0.13), timeline(0.12), previousEntry(1000L), loanDetail()))).isNotEqualTo(hash);
+        assertThat(PayoutContentHasher.sellerInputHash(payout,
+            new SellerCalculationInput(deal(0.12), timeline(0.13), previousEntry(1000L), loanDetail()))).isNotEqualTo(hash);
+        assertThat(PayoutContentHasher.sellerInputHash(payout,
+            new SellerCalculationInput(deal(0.12), timeline(0.12), previousEntry(1001L), loanDetail()))).isNotEqualTo(hash);
+        assertThat(PayoutContentHasher.sellerInputHash(payout,
+            new SellerCalculationInput(deal(0.12), timeline(0.12), null, loanDetail()))).isNotEqualTo(hash);
+    }
+
+    @Test
+    void sellerInputHashIgnoresFieldsTheEngineDoesNotRead() {
+        PartnerPayoutDetailsAll payout = payout("LAN001");
+        SellerCalculationInput input = new SellerCalculationInput(deal(0.12), null, null, loanDetail());
+        String hash = PayoutContentHasher.sellerInputHash(payout, input);
+
+        payout.setTotalInterestDue(new BigDecimal("1.00"));
+        payout.setOpeningDpd(30);
+        payout.setSellerClosingPos(new BigDecimal("85500.00"));
+
+        assertThat(PayoutContentHasher.sellerInputHash(payout, input)).isEqualTo(hash);
+    }
+
+    @Test
+    void sellerInputHashKeepsNullSplitEntriesApart() {
+        PartnerPayoutDetailsAll payout = payout("LAN001");
+        Deal deal = deal(0.12);
+        PartnerPayoutDetailsAll withNullEntry = previousEntry(1000L);
+        withNullEntry.setSellerInterestOverdueSplit(InterestOverdueSplit.ofPaise(InterestOverdueSplit.NULL_BUCKET, 1000L));
+
+        assertThat(PayoutContentHasher.sellerInputHash(payout, new SellerCalculationInput(deal, null, withNullEntry, null)))
+            .isNotEqualTo(PayoutContentHasher.sellerInputHash(payout, new SellerCalculationInput(deal, null, previousEntry(1000L), null)));
+    }
+
+    private static PartnerPayoutDetailsAll payout(String lan) {
+        return PartnerPayoutDetailsAll.builder()
+            .lmsLan(lan)
+            .openingPos(new BigDecimal("100000.00"))
+            .closingPos(new BigDecimal("95000.00"))
+            .totalPrincipalDue(new BigDecimal("5000.00"))
+            .principalOverdue(BigDecimal.ZERO)
+            .totalPrincipalComponentPaid(new BigDecimal("5000.00"))
+            .principalOverduePaid(BigDecimal.ZERO)
+            .totalInterestDue(new BigDecimal("1000.00"))
+            .interestOverdue(BigDecimal.ZERO)
+            .totalInterestComponentPaid(new BigDecimal("1000.00"))
+            .interestOverduePaid(BigDecimal.ZERO)
+            .totalChargesPaid(new BigDecimal("50.00"))
+            .totalPaid(new BigDecimal("6050.00"))
+            .openingDpd(0)
+            .closingDpd(0)
+            .cycleStartDate(LocalDate.of(2024, 1, 5))
+            .cycleEndDate(LocalDate.of(2024, 2, 5))
+            .build();
+    }
+
+    private static PartnerPayoutDetailsAll previousEntry(long overduePaise) {
+        return PartnerPayoutDetailsAll.builder()
+            .lmsLan("LAN001")
+            .sellerTotalInterestDue(new BigDecimal("800.00"))
+            .sellerTotalInterestComponentPaid(new BigDecimal("700.00"))
+            .sellerInterestOverdueSplit(InterestOverdueSplit.ofPaise(overduePaise))
+            .build();
+    }
+
+    private static LoanDetail loanDetail() {
+        return LoanDetail.builder()
+            .lmsLan("LAN001")
+            .currentAssignedOverdueInterest(0.0)
+            .build();
+    }
+
+    private static Deal deal(double annualInterestRate) {
+        return Deal.builder()
+            .id(1L)
+            .assignRatio(0.8)
+            .annualInterestRate(annualInterestRate)
+            .interestMethod(Deal.InterestMethod.ACTUAL_BY_365)
+            .build();
+    }
+
+    private static InterestRateTimeline timeline(double rate) {
+        return InterestRateTimeline.compile(List.of(InterestRateChange.builder()
+            .interestRate(rate)
+            .startDate(LocalDate.of(2024, 1, 1))
+            .build()));
+    }
+}
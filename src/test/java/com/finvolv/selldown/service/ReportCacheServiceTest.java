@@ -0,0 +1,233 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.MonthlyDealProcessingStatus;
+import com.finvolv.selldown.model.MonthlyDealStatus;
+import com.finvolv.selldown.repository.DealRepository;
+import com.finvolv.selldown.repository.LoanDetailRepository;
+import com.finvolv.selldown.repository.MonthlyDealProcessingStatusRepository;
+import com.finvolv.selldown.repository.MonthlyLMSStatusRepository;
+import com.finvolv.selldown.repository.MonthlySSRSStatusRepository;
+import com.finvolv.selldown.repository.PartnerPayoutDetailsAllRepository;
+import com.finvolv.selldown.service.ReportCacheService.ReportType;
+import com.finvolv.selldown.service.ReportCacheService.ReportVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportCacheServiceTest {
+
+    private static final Long DEAL_ID = 1L;
+    private static final Long PARTNER_ID = 2L;
+    private static final byte[] WORKBOOK = {1, 2, 3, 4};
+
+    @TempDir
+    Path directory;
+
+    private DealRepository dealRepository;
+    private LoanDetailRepository loanDetailRepository;
+    private MonthlyLMSStatusRepository monthlyLMSStatusRepository;
+    private MonthlySSRSStatusRepository monthlySSRSStatusRepository;
+    private MonthlyDealProcessingStatusRepository monthlyDealProcessingStatusRepository;
+    private PartnerPayoutDetailsAllRepository partnerPayoutDetailsAllRepository;
+    private InterestRateTimelineCache interestRateTimelineCache;
+
+    // What the mocked repositories return, read on every version lookup
+    private String loanDetailsVersion = "10:2024-01-01T00:00";
+    private MonthlyDealProcessingStatus dealProcessingStatus;
+
+    private ReportCacheService reportCacheService;
+
+    @BeforeEach
+    void setUp() {
+        dealRepository = mock(DealRepository.class);
+        loanDetailRepository = mock(LoanDetailRepository.class);
+        monthlyLMSStatusRepository = mock(MonthlyLMSStatusRepository.class);
+        monthlySSRSStatusRepository = mock(MonthlySSRSStatusRepository.class);
+        monthlyDealProcessingStatusRepository = mock(MonthlyDealProcessingStatusRepository.class);
+        partnerPayoutDetailsAllRepository = mock(PartnerPayoutDetailsAllRepository.class);
+        interestRateTimelineCache = mock(InterestRateTimelineCache.class);
+
+        when(dealRepository.findById(DEAL_ID)).thenReturn(Mono.just(Deal.builder()
+            .id(DEAL_ID)
+            .name("Deal")
+            .assignRatio(0.8)
+            .annualInterestRate(0.12)
+            .build()));
+        when(interestRateTimelineCache.getTimeline(DEAL_ID)).thenReturn(Mono.just(InterestRateTimeline.compile(List.of())));
+        when(loanDetailRepository.findVersionByDealIdAndPartnerId(DEAL_ID, PARTNER_ID))
+            .thenAnswer(invocation -> Mono.just(loanDetailsVersion));
+        when(monthlyLMSStatusRepository.findByYearAndMonth(anyInt(), anyInt())).thenReturn(Mono.empty());
+        when(monthlySSRSStatusRepository.findByYearAndMonth(anyInt(), anyInt())).thenReturn(Mono.empty());
+        when(monthlyDealProcessingStatusRepository.findByDealIdAndPartnerIdAndYearAndMonth(
+                eq(DEAL_ID), eq(PARTNER_ID), anyInt(), anyInt()))
+            .thenAnswer(invocation -> Mono.justOrEmpty(dealProcessingStatus));
+
+        reportCacheService = newService(DataSize.ofMegabytes(1));
+    }
+
+    @Test
+    void versionSeparatesReportInputsFromProcessingStatus() {
+        ReportVersion initial = version(1);
+
+        dealProcessingStatus = processingStatus(MonthlyDealStatus.PAYOUT_FILE_GENERATED);
+        ReportVersion generated = version(1);
+
+        loanDetailsVersion = "11:2024-01-02T00:00";
+        ReportVersion loanDetailsChanged = version(1);
+
+        assertThat(generated.inputs()).isEqualTo(initial.inputs());
+        assertThat(generated.processingStatus()).isNotEqualTo(initial.processingStatus());
+        assertThat(loanDetailsChanged.inputs()).isNotEqualTo(generated.inputs());
+        assertThat(version(2).inputs()).isEqualTo(loanDetailsChanged.inputs());
+        assertThat(version(2).key()).isNotEqualTo(loanDetailsChanged.key());
+    }
+
+    @Test
+    void servesOnlyTheVersionTheWorkbookWasBuiltFrom() {
+        ReportVersion built = version(1);
+        reportCacheService.put(built, WORKBOOK).block();
+
+        assertThat(reportCacheService.get(version(1)).block()).isEqualTo(WORKBOOK);
+
+        dealProcessingStatus = processingStatus(MonthlyDealStatus.PAYOUT_FILE_GENERATED);
+        assertThat(reportCacheService.get(version(1)).block()).isNull();
+
+        dealProcessingStatus = null;
+        loanDetailsVersion = "11:2024-01-02T00:00";
+        assertThat(reportCacheService.get(version(1)).block()).isNull();
+    }
+
+    @Test
+    void workbookBuiltFromChangedDataIsNotStored() throws IOException {
+        ReportVersion builtFrom = version(1);
+        loanDetailsVersion = "11:2024-01-02T00:00";
+
+        reportCacheService.put(builtFrom, WORKBOOK).block();
+
+        assertThat(reportCacheService.get(builtFrom).block()).isNull();
+        assertThat(reportCacheService.get(version(1)).block()).isNull();
+        assertThat(cachedFiles()).isEmpty();
+    }
+
+    @Test
+    void newVersionReplacesTheFileOfItsKey() throws IOException {
+        reportCacheService.put(version(1), WORKBOOK).block();
+        dealProcessingStatus = processingStatus(MonthlyDealStatus.PAYOUT_FILE_GENERATED);
+        byte[] regenerated = {5, 6, 7};
+
+        reportCacheService.put(version(1), regenerated).block();
+
+        assertThat(reportCacheService.get(version(1)).block()).isEqualTo(regenerated);
+        assertThat(cachedFiles()).hasSize(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedReportsBeyondMaxSize() throws IOException {
+        reportCacheService = newService(DataSize.ofBytes(10));
+        reportCacheService.put(version(1), WORKBOOK).block();
+        reportCacheService.put(version(2), WORKBOOK).block();
+        // Month 1 is read again, so month 2 is now the least recently used
+        assertThat(reportCacheService.get(version(1)).block()).isEqualTo(WORKBOOK);
+
+        reportCacheService.put(version(3), WORKBOOK).block();
+
+        assertThat(reportCacheService.get(version(2)).block()).isNull();
+        assertThat(reportCacheService.get(version(1)).block()).isEqualTo(WORKBOOK);
+        assertThat(reportCacheService.get(version(3)).block()).isEqualTo(WORKBOOK);
+        assertThat(cachedFiles()).hasSize(2);
+    }
+
+    @Test
+    void workbookLargerThanMaxSizeIsNotStored() throws IOException {
+        reportCacheService = newService(DataSize.ofBytes(3));
+
+        reportCacheService.put(version(1), WORKBOOK).block();
+
+        assertThat(reportCacheService.get(version(1)).block()).isNull();
+        assertThat(cachedFiles()).isEmpty();
+    }
+
+    @Test
+    void indexesFilesLeftByAPreviousRun() throws IOException {
+        reportCacheService.put(version(1), WORKBOOK).block();
+        Path leftover = Files.write(directory.resolve("report-interrupted.tmp"), WORKBOOK);
+        Files.setLastModifiedTime(leftover, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+
+        ReportCacheService restarted = newService(DataSize.ofMegabytes(1));
+
+        assertThat(restarted.get(version(1)).block()).isEqualTo(WORKBOOK);
+        assertThat(Files.exists(leftover)).isFalse();
+    }
+
+    @Test
+    void renderedFileIsMovedIntoTheCache() throws IOException {
+        Path rendered = reportCacheService.newTempFile();
+        Files.write(rendered, WORKBOOK);
+
+        reportCacheService.putFile(version(1), rendered).block();
+
+        Path cached = reportCacheService.find(version(1)).block();
+        assertThat(Files.exists(rendered)).isFalse();
+        assertThat(cached).isNotNull();
+        assertThat(Files.readAllBytes(cached)).isEqualTo(WORKBOOK);
+    }
+
+    @Test
+    void disabledCacheStoresNothing() throws IOException {
+        ReflectionTestUtils.setField(reportCacheService, "enabled", false);
+
+        reportCacheService.put(version(1), WORKBOOK).block();
+
+        assertThat(reportCacheService.newTempFile()).isNull();
+        assertThat(reportCacheService.get(version(1)).block()).isNull();
+        assertThat(cachedFiles()).isEmpty();
+    }
+
+    private ReportCacheService newService(DataSize maxSize) {
+        ReportCacheService service = new ReportCacheService(dealRepository, loanDetailRepository, monthlyLMSStatusRepository,
+            monthlySSRSStatusRepository, monthlyDealProcessingStatusRepository, partnerPayoutDetailsAllRepository,
+            interestRateTimelineCache);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "directory", directory.toString());
+        ReflectionTestUtils.setField(service, "maxSize", maxSize);
+        return service;
+    }
+
+    private ReportVersion version(int month) {
+        return reportCacheService.currentVersion(ReportType.PARTNER_PAYOUT, DEAL_ID, PARTNER_ID, 2024, month).block();
+    }
+
+    private static MonthlyDealProcessingStatus processingStatus(MonthlyDealStatus status) {
+        return MonthlyDealProcessingStatus.builder()
+            .id(5L)
+            .dealId(DEAL_ID)
+            .partnerId(PARTNER_ID)
+            .status(status)
+            .modifiedAt(LocalDateTime.of(2024, 2, 1, 10, 0))
+            .build();
+    }
+
+    private List<Path> cachedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".xlsx")).toList();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import com.finvolv.selldown.model.InterestRateChange;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the FIXED_POINT and BIG_DECIMAL seller calculations on the same random inputs and requires
+ * identical results: equal values with equal scales, and equal splits. Inputs the fixed-point path
+ * cannot represent (3 decimals, ratios or products beyond a long) must fall back to BigDecimal.
+ * The seed is fixed so a failing case can be replayed; the case number is in the failure message.
+ */
+class SellerCalculationDifferentialTest {
+
+    private static final long SEED = 20240101L;
+    private static final int CASES = 20_000;
+    private static final Deal.InterestMethod[] INTEREST_METHODS = {
+        Deal.InterestMethod.ONE_TWELFTH, Deal.InterestMethod.ACTUAL_BY_360, Deal.InterestMethod.ACTUAL_BY_365,
+        Deal.InterestMethod.ACTUAL_BY_ACTUAL, null
+    };
+
+    private SellerCalculationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new SellerCalculationEngine();
+        ReflectionTestUtils.setField(engine, "arithmetic", SellerCalculationEngine.Arithmetic.FIXED_POINT);
+    }
+
+    @Test
+    void fixedPointMatchesBigDecimalOnRandomPayouts() {
+        Random random = new Random(SEED);
+        int fixedPointCases = 0;
+        int fallbackCases = 0;
+
+        for (int i = 0; i < CASES; i++) {
+            Deal deal = randomDeal(random);
+            InterestRateTimeline rateTimeline = random.nextInt(3) == 0 ? randomRateTimeline(random) : null;
+            PartnerPayoutDetailsAll payout = randomPayout(random);
+            // Sometimes the cycle interest is already pending, for the duplicate check
+            BigDecimal cycleInterest = random.nextInt(4) == 0 ? cycleInterest(payout, deal, rateTimeline) : null;
+            PartnerPayoutDetailsAll previousEntry = random.nextBoolean() ? randomPreviousEntry(random, cycleInterest) : null;
+            LoanDetail loanDetail = random.nextBoolean() ? randomLoanDetail(random, cycleInterest) : null;
+            SellerCalculationInput input = new SellerCalculationInput(deal, rateTimeline, previousEntry, loanDetail);
+
+            SellerCalculationResult expected = engine.calculateBigDecimal(payout, input);
+            assertThat(engine.calculate(payout, input)).as("case %d of seed %d", i, SEED).isEqualTo(expected);
+
+            try {
+                engine.calculateFixedPoint(payout, input);
+                fixedPointCases++;
+            } catch (ArithmeticException e) {
+                fallbackCases++;
+            }
+        }
+
+        // Both paths must actually have been compared
+        assertThat(fixedPointCases).isGreaterThan(CASES / 3);
+        assertThat(fallbackCases).isGreaterThan(0);
+    }
+
+    @Test
+    void amountsWithThreeDecimalsFallBackToBigDecimal() {
+        PartnerPayoutDetailsAll payout = payout(new BigDecimal("100000.005"), new BigDecimal("3000.00"), 0);
+        SellerCalculationInput input = new SellerCalculationInput(deal(0.8), null, null, null);
+
+        assertThatThrownBy(() -> engine.calculateFixedPoint(payout, input)).isInstanceOf(ArithmeticException.class);
+        assertThat(engine.calculate(payout, input)).isEqualTo(engine.calculateBigDecimal(payout, input));
+    }
+
+    @Test
+    void paiseProductOverflowFallsBackToBigDecimal() {
+        // 5e18 paise fits in a long, times the 8 of ratio 0.8 (8 / 10) does not
+        PartnerPayoutDetailsAll payout = payout(new BigDecimal("50000000000000000.00"), new BigDecimal("3000.00"), 0);
+        SellerCalculationInput input = new SellerCalculationInput(deal(0.8), null, null, null);
+
+        assertThatThrownBy(() -> engine.calculateFixedPoint(payout, input))
+            .isInstanceOf(ArithmeticException.class)
+            .hasMessageContaining("overflow");
+        assertThat(engine.calculate(payout, input)).isEqualTo(engine.calculateBigDecimal(payout, input));
+    }
+
+    @Test
+    void multiplyOverflowCheckIsExactAtTheLongBoundary() {
+        PaiseArithmetic.Ratio ratio = PaiseArithmetic.Ratio.of(0.8);
+
+        assertThat(PaiseArithmetic.multiply(Long.MAX_VALUE / 8, ratio)).isEqualTo(expectedProduct(Long.MAX_VALUE / 8, 0.8));
+        assertThat(PaiseArithmetic.multiply(Long.MIN_VALUE / 8, ratio)).isEqualTo(expectedProduct(Long.MIN_VALUE / 8, 0.8));
+        assertThatThrownBy(() -> PaiseArithmetic.multiply(Long.MAX_VALUE / 8 + 1, ratio)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> PaiseArithmetic.multiply(Long.MIN_VALUE / 8 - 1, ratio)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void multiplyMatchesBigDecimalOrDetectsOverflow() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < CASES; i++) {
+            // Magnitudes from a few paise up to the full long range
+            long paise = random.nextLong() >> random.nextInt(64);
+            double ratio = randomRatio(random);
+            PaiseArithmetic.Ratio paiseRatio;
+            try {
+                paiseRatio = PaiseArithmetic.Ratio.of(ratio);
+            } catch (ArithmeticException e) {
+                continue;
+            }
+
+            boolean fits = BigInteger.valueOf(paise).multiply(BigInteger.valueOf(paiseRatio.unscaled())).bitLength() < 64;
+            if (fits) {
+                assertThat(PaiseArithmetic.multiply(paise, paiseRatio))
+                    .as("%d paise x %s", paise, ratio)
+                    .isEqualTo(expectedProduct(paise, ratio));
+            } else {
+                assertThatThrownBy(() -> PaiseArithmetic.multiply(paise, paiseRatio))
+                    .as("%d paise x %s", paise, ratio)
+                    .isInstanceOf(ArithmeticException.class);
+            }
+        }
+    }
+
+    private static long expectedProduct(long paise, double ratio) {
+        return BigDecimal.valueOf(paise, 2).multiply(BigDecimal.valueOf(ratio))
+            .setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * The cycle interest the engine calculates for the payout: total interest due without opening overdue
+     */
+    private BigDecimal cycleInterest(PartnerPayoutDetailsAll payout, Deal deal, InterestRateTimeline rateTimeline) {
+        PartnerPayoutDetailsAll probe = PartnerPayoutDetailsAll.builder()
+            .lmsLan(payout.getLmsLan())
+            .openingPos(payout.getOpeningPos())
+            .principalOverdue(payout.getPrincipalOverdue())
+            .cycleStartDate(payout.getCycleStartDate())
+            .cycleEndDate(payout.getCycleEndDate())
+            .build();
+        return engine.calculateBigDecimal(probe, new SellerCalculationInput(deal, rateTimeline, null, null)).sellerTotalInterestDue();
+    }
+
+    private static Deal randomDeal(Random random) {
+        return Deal.builder()
+            .id(1L)
+            .assignRatio(randomRatio(random))
+            .annualInterestRate(random.nextInt(2501) / 10000.0)
+            .interestMethod(INTEREST_METHODS[random.nextInt(INTEREST_METHODS.length)])
+            .build();
+    }
+
+    private static double randomRatio(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> random.nextInt(101) / 100.0;
+            case 1 -> random.nextInt(10001) / 10000.0;
+            case 2 -> 1.0 / (1 + random.nextInt(9));
+            // Up to 17 significant digits, often too many for a paise product
+            default -> random.nextDouble();
+        };
+    }
+
+    private static InterestRateTimeline randomRateTimeline(Random random) {
+        List<InterestRateChange> rateTable = new ArrayList<>();
+        LocalDate start = LocalDate.of(2023, 10, 1);
+        int periods = random.nextInt(4);
+        for (int i = 0; i < periods; i++) {
+            start = start.plusDays(random.nextInt(120));
+            rateTable.add(InterestRateChange.builder()
+                .dealId(1L)
+                .interestRate(random.nextInt(2501) / 10000.0)
+                .startDate(start)
+                .endDate(random.nextInt(3) == 0 ? null : start.plusDays(random.nextInt(150)))
+                .build());
+        }
+        return InterestRateTimeline.compile(rateTable);
+    }
+
+    private static PartnerPayoutDetailsAll randomPayout(Random random) {
+        LocalDate cycleStart = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(366));
+        boolean withCycle = random.nextInt(20) != 0;
+        BigDecimal interestPaid = amount(random, 500_000_00L);
+        return PartnerPayoutDetailsAll.builder()
+            .lmsLan(random.nextInt(50) == 0 ? null : "LAN" + random.nextInt(1000))
+            .openingPos(amount(random, 50_000_000_00L))
+            .closingPos(amount(random, 50_000_000_00L))
+            .totalPrincipalDue(amount(random, 1_000_000_00L))
+            .principalOverdue(amount(random, 1_000_000_00L))
+            .totalPrincipalComponentPaid(amount(random, 1_000_000_00L))
+            .principalOverduePaid(amount(random, 1_000_000_00L))
+            .totalInterestComponentPaid(interestPaid)
+            // Mostly part of the interest collected, sometimes unrelated
+            .interestOverduePaid(interestPaid != null && random.nextBoolean()
+                ? interestPaid.multiply(BigDecimal.valueOf(random.nextInt(101), 2)).setScale(interestPaid.scale(), RoundingMode.DOWN)
+                : amount(random, 500_000_00L))
+            .foreclosurePaid(amount(random, 1_000_000_00L))
+            .foreclosureChargesPaid(amount(random, 10_000_00L))
+            .prepaymentPaid(amount(random, 1_000_000_00L))
+            .prepaymentChargesPaid(amount(random, 10_000_00L))
+            .totalChargesPaid(amount(random, 10_000_00L))
+            .closingDpd(randomDpd(random))
+            .cycleStartDate(withCycle ? cycleStart : null)
+            .cycleEndDate(withCycle ? cycleStart.plusDays(random.nextInt(45) - 2) : null)
+            .build();
+    }
+
+    private static PartnerPayoutDetailsAll randomPreviousEntry(Random random, BigDecimal cycleInterest) {
+        BigDecimal totalInterestDue = amount(random, 1_000_000_00L);
+        return PartnerPayoutDetailsAll.builder()
+            .sellerInterestOverdueSplit(randomSplit(random, cycleInterest))
+            .sellerTotalInterestDue(totalInterestDue)
+            // Stored at scale 4, as the calculation writes it
+            .sellerTotalInterestComponentPaid(random.nextInt(10) == 0 ? null
+                : BigDecimal.valueOf(random.nextLong(1_000_000_00L) * 100L, 4))
+            .build();
+    }
+
+    private static LoanDetail randomLoanDetail(Random random, BigDecimal cycleInterest) {
+        return LoanDetail.builder()
+            .currentAssignedOverdueInterest(random.nextInt(10) == 0 ? null : random.nextLong(1_000_000_00L) / 100.0)
+            .assignedInterestOverdueSplit(random.nextInt(10) == 0 ? null : randomSplit(random, cycleInterest))
+            .build();
+    }
+
+    private static InterestOverdueSplit randomSplit(Random random, BigDecimal cycleInterest) {
+        List<BigDecimal> values = new ArrayList<>();
+        int size = random.nextInt(6);
+        for (int i = 0; i < size; i++) {
+            // Null entries, as in splits stored before the BIGINT[] migration
+            values.add(random.nextInt(8) == 0 ? null : BigDecimal.valueOf(random.nextLong(200_000_00L), 2));
+        }
+        if (cycleInterest != null) {
+            values.add(random.nextInt(values.size() + 1), cycleInterest);
+        }
+        return InterestOverdueSplit.of(values);
+    }
+
+    /**
+     * Mostly exact paise at scale 2, sometimes null, zero, a whole amount, or 3 decimals (not representable in paise)
+     */
+    private static BigDecimal amount(Random random, long maxPaise) {
+        return switch (random.nextInt(40)) {
+            case 0, 1, 2 -> null;
+            case 3, 4 -> BigDecimal.ZERO;
+            case 5 -> new BigDecimal("0.00");
+            case 6 -> BigDecimal.valueOf(random.nextLong(maxPaise / 100));
+            case 7 -> BigDecimal.valueOf(random.nextLong(maxPaise * 10), 3);
+            default -> BigDecimal.valueOf(random.nextLong(maxPaise), 2);
+        };
+    }
+
+    private static Integer randomDpd(Random random) {
+        return switch (random.nextInt(8)) {
+            case 0 -> null;
+            case 1, 2, 3 -> 0;
+            case 4 -> 1 + random.nextInt(30);
+            case 5 -> 31 + random.nextInt(30);
+            case 6 -> 61 + random.nextInt(30);
+            default -> 91 + random.nextInt(60);
+        };
+    }
+
+    private static Deal deal(double assignRatio) {
+        return Deal.builder()
+            .id(1L)
+            .assignRatio(assignRatio)
+            .annualInterestRate(0.12)
+            .interestMethod(Deal.InterestMethod.ACTUAL_BY_365)
+            .build();
+    }
+
+    private static PartnerPayoutDetailsAll payout(BigDecimal openingPos, BigDecimal interestPaid, int closingDpd) {
+        return PartnerPayoutDetailsAll.builder()
+            .lmsLan("LAN1")
+            .openingPos(openingPos)
+            .closingPos(openingPos)
+            .totalInterestComponentPaid(interestPaid)
+            .interestOverduePaid(BigDecimal.ZERO)
+            .closingDpd(closingDpd)
+            .cycleStartDate(LocalDate.of(2024, 1, 1))
+            .cycleEndDate(LocalDate.of(2024, 3, 14))
+            .build();
+    }
+}
@@ -0,0 +1,211 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import com.finvolv.selldown.service.SellerCalculationEngine.Arithmetic;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Golden values for {@link SellerCalculationEngine}: fixed payouts, previous entries, loan details
+ * and deal terms with the exact results of the original calculation, scale included.
+ * Both arithmetic paths must produce them (the fixed-point path without falling back), and every
+ * case is also run through {@link LegacySellerCalculation} so the values are those of the old code.
+ * Every case uses a seller opening position of 80000.00 (assign ratio 0.8) at 12% over a
+ * 73 day ACTUAL_BY_365 cycle, so the cycle interest is 80000.00 * 0.12 * 0.2 = 1920.00.
+ */
+class SellerCalculationEngineTest {
+
+    private static final LocalDate CYCLE_START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate CYCLE_END = LocalDate.of(2024, 3, 14);
+
+    private final SellerCalculationEngine engine = new SellerCalculationEngine();
+
+    @ParameterizedTest
+    @EnumSource(Arithmetic.class)
+    void dpdZeroPaysOverdueOldestFirstThenClearsTheSplit(Arithmetic arithmetic) {
+        // Previous split [500.00, null, 300.00, 200.00]; 700.00 overdue collected is 560.00 for the seller
+        PartnerPayoutDetailsAll previousEntry = previousEntry(split("500.00", null, "300.00", "200.00"), "3000.00", "2000.0000");
+        PartnerPayoutDetailsAll payout = payout("3000.00", "700.00", 0);
+
+        SellerCalculationResult result = calculate(arithmetic, payout, previousEntry, null);
+
+        assertPositionFields(result);
+        // 500.00 fully and 60.00 of 300.00 by FIFO, then the remaining 240.00 + 200.00 because DPD is 0
+        assertThat(result.sellerInterestOverduePaid()).isEqualTo(new BigDecimal("1000.00"));
+        assertThat(result.sellerInterestOverdueSplit()).isEqualTo(InterestOverdueSplit.empty());
+        assertThat(result.sellerTotalInterestDue()).isEqualTo(new BigDecimal("2920.00"));
+        assertThat(result.sellerTotalInterestComponentPaid()).isEqualTo(new BigDecimal("2920.0000"));
+        assertThat(result.sellerInterestOverdue()).isEqualTo(new BigDecimal("0.00"));
+        assertThat(result.sellerTotalPaid()).isEqualTo(new BigDecimal("4560.0000"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Arithmetic.class)
+    void dpdBucketOnePaysFirstValueAndKeepsExistingCurrentInterest(Arithmetic arithmetic) {
+        PartnerPayoutDetailsAll previousEntry = previousEntry(split("800.00", "1920.00"), "4000.00", "1280.00");
+        PartnerPayoutDetailsAll payout = payout("2000.00", "0.00", 15);
+
+        SellerCalculationResult result = calculate(arithmetic, payout, previousEntry, null);
+
+        assertThat(result.sellerInterestOverduePaid()).isEqualTo(new BigDecimal("800.00"));
+        // 1920.00 is already pending, so the cycle interest is not added a second time
+        assertThat(result.sellerInterestOverdueSplit()).isEqualTo(split("1920.00"));
+        assertThat(result.sellerTotalInterestDue()).isEqualTo(new BigDecimal("4640.00"));
+        assertThat(result.sellerTotalInterestComponentPaid()).isEqualTo(new BigDecimal("2720.0000"));
+        assertThat(result.sellerInterestOverdue()).isEqualTo(new BigDecimal("1920.00"));
+        assertThat(result.sellerTotalPaid()).isEqualTo(new BigDecimal("4360.0000"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Arithmetic.class)
+    void dpdBucketTwoPaysSecondValueOfLoanDetailSplit(Arithmetic arithmetic) {
+        // First month for the LAN: the loan detail's assigned values are the opening overdue
+        LoanDetail loanDetail = LoanDetail.builder()
+            .lmsLan("LAN1")
+            .currentAssignedOverdueInterest(600.0)
+            .assignedInterestOverdueSplit(split("100.00", "200.00", "300.00"))
+            .build();
+        PartnerPayoutDetailsAll payout = payout("2500.00", "0.00", 45);
+
+        SellerCalculationResult result = calculate(arithmetic, payout, null, loanDetail);
+
+        assertThat(result.sellerInterestOverduePaid()).isEqualTo(new BigDecimal("200.00"));
+        assertThat(result.sellerInterestOverdueSplit()).isEqualTo(split("100.00", "300.00", "1920.00"));
+        assertThat(result.sellerTotalInterestDue()).isEqualTo(new BigDecimal("2520.00"));
+        assertThat(result.sellerTotalInterestComponentPaid()).isEqualTo(new BigDecimal("2120.0000"));
+        // The split sums to 2320.00: the mismatch is only logged, the results are kept as calculated
+        assertThat(result.sellerInterestOverdue()).isEqualTo(new BigDecimal("400.00"));
+        assertThat(result.sellerTotalPaid()).isEqualTo(new BigDecimal("3760.0000"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Arithmetic.class)
+    void dpdBucketThreePaysThirdValue(Arithmetic arithmetic) {
+        PartnerPayoutDetailsAll previousEntry = previousEntry(split("100.00", "200.00", "300.00", "400.00"), "1000.00", null);
+        PartnerPayoutDetailsAll payout = payout("2000.00", "0.00", 75);
+
+        SellerCalculationResult result = calculate(arithmetic, payout, previousEntry, null);
+
+        assertThat(result.sellerInterestOverduePaid()).isEqualTo(new BigDecimal("300.00"));
+        assertThat(result.sellerInterestOverdueSplit()).isEqualTo(split("100.00", "200.00", "400.00", "1920.00"));
+        assertThat(result.sellerTotalInterestDue()).isEqualTo(new BigDecimal("2920.00"));
+        assertThat(result.sellerTotalInterestComponentPaid()).isEqualTo(new BigDecimal("2220.0000"));
+        assertThat(result.sellerInterestOverdue()).isEqualTo(new BigDecimal("700.00"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Arithmetic.class)
+    void unpaidInterestStartsTheSplitOnce(Arithmetic arithmetic) {
+        // No previous entry or loan detail and nothing collected: the cycle interest becomes overdue
+        PartnerPayoutDetailsAll payout = payout("0.00", "0.00", 10);
+
+        SellerCalculationResult result = calculate(arithmetic, payout, null, null);
+
+        assertThat(result.sellerInterestOverduePaid()).isEqualTo(BigDecimal.ZERO);
+        assertThat(result.sellerInterestOverdueSplit()).isEqualTo(split("1920.00"));
+        assertThat(result.sellerTotalInterestDue()).isEqualTo(new BigDecimal("1920.00"));
+        assertThat(result.sellerTotalInterestComponentPaid()).isEqualTo(BigDecimal.ZERO);
+        assertThat(result.sellerInterestOverdue()).isEqualTo(new BigDecimal("1920.00"));
+        assertThat(result.sellerTotalPaid()).isEqualTo(new BigDecimal("1640.00"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Arithmetic.class)
+    void interestPaidBelowPlainInterestOnlyCountsCollectedOverdue(Arithmetic arithmetic) {
+        PartnerPayoutDetailsAll previousEntry = previousEntry(split("500.00", "300.00"), "800.00", "0.00");
+        // 1500.00 collected, 250.00 of it overdue: 1250.00 does not cover the 1920.00 cycle interest
+        PartnerPayoutDetailsAll payout = payout("1500.00", "250.00", 20);
+
+        SellerCalculationResult result = calculate(arithmetic, payout, previousEntry, null);
+
+        assertThat(result.sellerInterestOverduePaid()).isEqualTo(new BigDecimal("200.00"));
+        assertThat(result.sellerInterestOverdueSplit()).isEqualTo(split("300.00", "300.00", "1920.00"));
+        assertThat(result.sellerTotalInterestDue()).isEqualTo(new BigDecimal("2720.00"));
+        assertThat(result.sellerTotalInterestComponentPaid()).isEqualTo(new BigDecimal("200.0000"));
+        assertThat(result.sellerInterestOverdue()).isEqualTo(new BigDecimal("2520.00"));
+        assertThat(result.sellerTotalPaid()).isEqualTo(new BigDecimal("1840.0000"));
+    }
+
+    private SellerCalculationResult calculate(Arithmetic arithmetic, PartnerPayoutDetailsAll payout,
+                                              PartnerPayoutDetailsAll previousEntry, LoanDetail loanDetail) {
+        SellerCalculationInput input = new SellerCalculationInput(deal(), null, previousEntry, loanDetail);
+        SellerCalculationResult result = arithmetic == Arithmetic.FIXED_POINT
+            ? engine.calculateFixedPoint(payout, input)
+            : engine.calculateBigDecimal(payout, input);
+
+        // The calculation the engine replaced only writes seller fields, so it can run on the same payout
+        PartnerPayoutDetailsAll legacyResult = new LegacySellerCalculation(List.of())
+            .calculateSellerFields(payout, deal(), loanDetail, previousEntry)
+            .block();
+        assertThat(result).isEqualTo(SellerCalculationResult.of(legacyResult));
+        return result;
+    }
+
+    private static void assertPositionFields(SellerCalculationResult result) {
+        assertThat(result.sellerOpeningPos()).isEqualTo(new BigDecimal("80000.00"));
+        assertThat(result.sellerClosingPos()).isEqualTo(new BigDecimal("78400.04"));
+        assertThat(result.sellerTotalPrincipalDue()).isEqualTo(new BigDecimal("1600.00"));
+        assertThat(result.sellerPrincipalOverdue()).isEqualTo(new BigDecimal("0.00"));
+        assertThat(result.sellerTotalPrincipalComponentPaid()).isEqualTo(new BigDecimal("1600.00"));
+        assertThat(result.sellerPrincipalOverduePaid()).isEqualTo(new BigDecimal("0.00"));
+        assertThat(result.sellerTotalChargesPaid()).isEqualTo(new BigDecimal("40.00"));
+        // Amounts missing from the LMS row are a plain zero
+        assertThat(result.sellerForeclosurePaid()).isEqualTo(BigDecimal.ZERO);
+        assertThat(result.sellerForeclosureChargesPaid()).isEqualTo(BigDecimal.ZERO);
+        assertThat(result.sellerPrepaymentPaid()).isEqualTo(BigDecimal.ZERO);
+        assertThat(result.sellerPrepaymentChargesPaid()).isEqualTo(BigDecimal.ZERO);
+    }
+
+    private static Deal deal() {
+        return Deal.builder()
+            .id(1L)
+            .assignRatio(0.8)
+            .annualInterestRate(0.12)
+            .interestMethod(Deal.InterestMethod.ACTUAL_BY_365)
+            .build();
+    }
+
+    private static PartnerPayoutDetailsAll payout(String interestPaid, String interestOverduePaid, int closingDpd) {
+        return PartnerPayoutDetailsAll.builder()
+            .lmsLan("LAN1")
+            .openingPos(new BigDecimal("100000.00"))
+            .closingPos(new BigDecimal("98000.05"))
+            .totalPrincipalDue(new BigDecimal("2000.00"))
+            .principalOverdue(new BigDecimal("0.00"))
+            .totalPrincipalComponentPaid(new BigDecimal("2000.00"))
+            .principalOverduePaid(new BigDecimal("0.00"))
+            .totalInterestComponentPaid(new BigDecimal(interestPaid))
+            .interestOverduePaid(new BigDecimal(interestOverduePaid))
+            .totalChargesPaid(new BigDecimal("50.00"))
+            .closingDpd(closingDpd)
+            .cycleStartDate(CYCLE_START)
+            .cycleEndDate(CYCLE_END)
+            .build();
+    }
+
+    private static PartnerPayoutDetailsAll previousEntry(InterestOverdueSplit split, String totalInterestDue, String totalInterestComponentPaid) {
+        return PartnerPayoutDetailsAll.builder()
+            .lmsLan("LAN1")
+            .sellerInterestOverdueSplit(split)
+            .sellerTotalInterestDue(new BigDecimal(totalInterestDue))
+            .sellerTotalInterestComponentPaid(totalInterestComponentPaid != null ? new BigDecimal(totalInterestComponentPaid) : null)
+            .build();
+    }
+
+    private static InterestOverdueSplit split(String... amounts) {
+        List<BigDecimal> values = Arrays.stream(amounts)
+            .map(amount -> amount != null ? new BigDecimal(amount) : null)
+            .toList();
+        return InterestOverdueSplit.of(values);
+    }
+}
@@ -0,0 +1,231 @@
+package com.finvolv.selldown.service;
+
+import com.finvolv.selldown.dto.SellerFieldChange;
+import com.finvolv.selldown.dto.SellerReplayResponse;
+import com.finvolv.selldown.model.Deal;
+import com.finvolv.selldown.model.InterestOverdueSplit;
+import com.finvolv.selldown.model.LoanDetail;
+import com.finvolv.selldown.model.MonthlyLMSStatusEntity;
+import com.finvolv.selldown.model.PartnerPayoutDetailsAll;
+import com.finvolv.selldown.repository.DealRepository;
+import com.finvolv.selldown.repository.LoanDetailRepository;
+import com.finvolv.selldown.repository.MonthlyLMSStatusRepository;
+import com.finvolv.selldown.repository.PartnerPayoutDetailsAllRepository;
+import com.finvolv.selldown.service.SellerReplayService.MonthReplay;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays January to March 2024 for one LAN over rows held in memory. Nothing is collected and
+ * the loan stays at 10 DPD, so every month adds its cycle interest to the overdue split and the
+ * split of a month shows which previous month it was calculated from.
+ */
+class SellerReplayServiceTest {
+
+    private static final Long DEAL_ID = 1L;
+    private static final String LAN = "LAN1";
+    private static final int DECEMBER_2023 = 2023 * 12 + 12;
+    private static final int JANUARY = 2024 * 12 + 1;
+    private static final int FEBRUARY = 2024 * 12 + 2;
+    private static final int MARCH = 2024 * 12 + 3;
+    private static final InterestOverdueSplit STALE_SPLIT = InterestOverdueSplit.ofPaise(99_999L);
+
+    private final SellerCalculationEngine engine = new SellerCalculationEngine();
+    private final Deal deal = Deal.builder()
+        .id(DEAL_ID)
+        .assignRatio(0.8)
+        .annualInterestRate(0.12)
+        .interestMethod(Deal.InterestMethod.ACTUAL_BY_365)
+        .build();
+    private final InterestRateTimeline rateTimeline = InterestRateTimeline.compile(List.of());
+    private final LoanDetail loanDetail = LoanDetail.builder()
+        .lmsLan(LAN)
+        .dealId(DEAL_ID)
+        .currentAssignedOverdueInterest(0.0)
+        .build();
+    private final Map<String, LoanDetail> loanDetailsByLan = Map.of(LAN, loanDetail);
+
+    private PartnerPayoutDetailsAllRepository partnerPayoutDetailsAllRepository;
+    private SellerReplayService sellerReplayService;
+
+    @BeforeEach
+    void setUp() {
+        DealRepository dealRepository = mock(DealRepository.class);
+        LoanDetailRepository loanDetailRepository = mock(LoanDetailRepository.class);
+        MonthlyLMSStatusRepository monthlyLMSStatusRepository = mock(MonthlyLMSStatusRepository.class);
+        InterestRateTimelineCache interestRateTimelineCache = mock(InterestRateTimelineCache.class);
+        partnerPayoutDetailsAllRepository = mock(PartnerPayoutDetailsAllRepository.class);
+
+        when(dealRepository.findById(DEAL_ID)).thenReturn(Mono.just(deal));
+        when(loanDetailRepository.findByDealId(DEAL_ID)).thenReturn(Flux.just(loanDetail));
+        when(interestRateTimelineCache.getTimeline(DEAL_ID)).thenReturn(Mono.just(rateTimeline));
+        when(monthlyLMSStatusRepository.findByPeriodRange(DECEMBER_2023, MARCH))
+            .thenReturn(Flux.fromIterable(statuses(DECEMBER_2023, JANUARY, FEBRUARY, MARCH)));
+        when(partnerPayoutDetailsAllRepository.findByLmsIdsAndLmsLans(any(), any()))
+            .thenAnswer(invocation -> Flux.fromIterable(storedRows(DECEMBER_2023, JANUARY, FEBRUARY, MARCH)));
+
+        sellerReplayService = new SellerReplayService(dealRepository, loanDetailRepository, monthlyLMSStatusRepository,
+            partnerPayoutDetailsAllRepository, interestRateTimelineCache, engine);
+    }
+
+    @Test
+    void eachMonthStartsFromThePreviousMonthsRecalculatedSplit() {
+        List<PartnerPayoutDetailsAll> rows = storedRows(DECEMBER_2023, JANUARY, FEBRUARY, MARCH);
+
+        List<MonthReplay> months = replayMonths(statuses(DECEMBER_2023, JANUARY, FEBRUARY, MARCH), rows, JANUARY, MARCH);
+
+        // Each month was calculated from the row the replay produced for the month before, not the stored one
+        PartnerPayoutDetailsAll previous = rows.get(0);
+        for (int i = 0; i < 3; i++) {
+            PartnerPayoutDetailsAll row = rows.get(i + 1);
+            assertThat(SellerCalculationResult.of(row)).as("month %d", i + 1).isEqualTo(calculate(JANUARY + i, previous));
+            assertThat(months.get(i).recalculated).containsExactly(row);
+            assertThat(months.get(i).changedRows).isEqualTo(1);
+            previous = row;
+        }
+        assertThat(SellerCalculationResult.of(rows.get(2)))
+            .isNotEqualTo(calculate(FEBRUARY, storedRow(JANUARY)));
+
+        // December's 500.00 and the cycle interest of every replayed month
+        assertThat(rows.get(1).getSellerInterestOverdueSplit().size()).isEqualTo(2);
+        assertThat(rows.get(2).getSellerInterestOverdueSplit().size()).isEqualTo(3);
+        assertThat(rows.get(3).getSellerInterestOverdueSplit().size()).isEqualTo(4);
+        assertThat(rows.get(3).getSellerInterestOverdueSplit().paiseAt(0)).isEqualTo(500_00L);
+        // The opening month is read, not recalculated
+        assertThat(rows.get(0).getSellerInterestOverdueSplit()).isEqualTo(InterestOverdueSplit.ofPaise(500_00L));
+    }
+
+    @Test
+    void monthWithoutLmsStatusResetsThePreviousMonth() {
+        List<PartnerPayoutDetailsAll> rows = storedRows(DECEMBER_2023, JANUARY, MARCH);
+
+        List<MonthReplay> months = replayMonths(statuses(DECEMBER_2023, JANUARY, MARCH), rows, JANUARY, MARCH);
+
+        assertThat(months).hasSize(3);
+        assertThat(months.get(1).lmsId).isNull();
+        assertThat(months.get(1).rows).isEqualTo(0);
+        assertThat(months.get(1).recalculated).isEmpty();
+        // March starts from the loan detail, as if it were the first month of the LAN
+        PartnerPayoutDetailsAll march = rows.get(2);
+        assertThat(months.get(2).recalculated).containsExactly(march);
+        assertThat(SellerCalculationResult.of(march)).isEqualTo(calculate(MARCH, null));
+        assertThat(march.getSellerInterestOverdueSplit().size()).isEqualTo(1);
+    }
+
+    @Test
+    void rowsWithAnUnchangedSellerInputHashAreSkipped() {
+        List<PartnerPayoutDetailsAll> rows = storedRows(DECEMBER_2023, JANUARY, FEBRUARY);
+        PartnerPayoutDetailsAll january = rows.get(1);
+        january.setSellerInputHash(PayoutContentHasher.sellerInputHash(january, input(rows.get(0))));
+
+        List<MonthReplay> months = replayMonths(statuses(DECEMBER_2023, JANUARY, FEBRUARY), rows, JANUARY, FEBRUARY);
+
+        assertThat(months.get(0).rows).isEqualTo(1);
+        assertThat(months.get(0).recalculated).isEmpty();
+        assertThat(january.getSellerInterestOverdueSplit()).isEqualTo(STALE_SPLIT);
+        // February is still recalculated, from January as stored
+        assertThat(months.get(1).recalculated).containsExactly(rows.get(2));
+        assertThat(SellerCalculationResult.of(rows.get(2))).isEqualTo(calculate(FEBRUARY, storedRow(JANUARY)));
+        assertThat(rows.get(2).getSellerInputHash())
+            .isEqualTo(PayoutContentHasher.sellerInputHash(storedRow(FEBRUARY), input(storedRow(JANUARY))));
+    }
+
+    @Test
+    void dryRunReportsChangesWithoutWriting() {
+        SellerReplayResponse response = sellerReplayService.replay(DEAL_ID, 2024, 1, 2024, 3, true).block();
+
+        assertThat(response.isDryRun()).isTrue();
+        assertThat(response.getTotalRows()).isEqualTo(3);
+        assertThat(response.getChangedRows()).isEqualTo(3);
+        assertThat(response.getSavedRows()).isEqualTo(0);
+        List<SellerFieldChange> januaryChanges = response.getMonths().get(0).getChanges();
+        assertThat(januaryChanges).extracting(SellerFieldChange::getField).contains("sellerInterestOverdueSplit");
+        assertThat(januaryChanges).filteredOn(change -> change.getField().equals("sellerInterestOverdueSplit"))
+            .extracting(SellerFieldChange::getBefore)
+            .containsExactly(STALE_SPLIT);
+        verify(partnerPayoutDetailsAllRepository, never()).upsertSellerFieldsAll(any());
+    }
+
+    private List<MonthReplay> replayMonths(List<MonthlyLMSStatusEntity> statuses, List<PartnerPayoutDetailsAll> rows,
+                                           int fromPeriod, int toPeriod) {
+        return sellerReplayService.replayMonths(deal, rateTimeline, loanDetailsByLan, statuses, rows, fromPeriod, toPeriod, false);
+    }
+
+    private SellerCalculationResult calculate(int period, PartnerPayoutDetailsAll previousEntry) {
+        return engine.calculate(storedRow(period), input(previousEntry));
+    }
+
+    private SellerCalculationInput input(PartnerPayoutDetailsAll previousEntry) {
+        return new SellerCalculationInput(deal, rateTimeline, previousEntry, loanDetail);
+    }
+
+    private static List<MonthlyLMSStatusEntity> statuses(int... periods) {
+        List<MonthlyLMSStatusEntity> statuses = new ArrayList<>();
+        for (int period : periods) {
+            statuses.add(MonthlyLMSStatusEntity.builder()
+                .id(lmsId(period))
+                .year((period - 1) / 12)
+                .month((period - 1) % 12 + 1)
+                .build());
+        }
+        return statuses;
+    }
+
+    private static List<PartnerPayoutDetailsAll> storedRows(int... periods) {
+        List<PartnerPayoutDetailsAll> rows = new ArrayList<>();
+        for (int period : periods) {
+            rows.add(storedRow(period));
+        }
+        return rows;
+    }
+
+    /**
+     * December holds the opening split of 500.00; the replayed months hold seller fields from an
+     * earlier calculation that no longer match
+     */
+    private static PartnerPayoutDetailsAll storedRow(int period) {
+        LocalDate cycleStart = LocalDate.of((period - 1) / 12, (period - 1) % 12 + 1, 1);
+        boolean opening = period == DECEMBER_2023;
+        // 1000.00 principal a month, so no two months have the same cycle interest
+        BigDecimal openingPos = new BigDecimal("100000.00").subtract(BigDecimal.valueOf(1000L * (period - DECEMBER_2023)));
+        return PartnerPayoutDetailsAll.builder()
+            .lmsId(lmsId(period))
+            .lmsLan(LAN)
+            .openingPos(openingPos)
+            .closingPos(openingPos.subtract(new BigDecimal("1000.00")))
+            .totalPrincipalDue(new BigDecimal("1000.00"))
+            .principalOverdue(new BigDecimal("0.00"))
+            .totalPrincipalComponentPaid(new BigDecimal("1000.00"))
+            .principalOverduePaid(new BigDecimal("0.00"))
+            .totalInterestComponentPaid(new BigDecimal("0.00"))
+            .interestOverduePaid(new BigDecimal("0.00"))
+            .totalChargesPaid(new BigDecimal("0.00"))
+            .closingDpd(10)
+            .cycleStartDate(cycleStart)
+            .cycleEndDate(cycleStart.plusMonths(1))
+            .sellerTotalInterestDue(opening ? new BigDecimal("500.00") : new BigDecimal("999.99"))
+            .sellerTotalInterestComponentPaid(new BigDecimal("0.00"))
+            .sellerInterestOverdue(opening ? new BigDecimal("500.00") : new BigDecimal("999.99"))
+            .sellerInterestOverdueSplit(opening ? InterestOverdueSplit.ofPaise(500_00L) : STALE_SPLIT.copy())
+            .build();
+    }
+
+    private static Long lmsId(int period) {
+        return (long) period;
+    }
+}